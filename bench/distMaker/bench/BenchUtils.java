@@ -0,0 +1,261 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.bench;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+import dsstore.StoreWriter;
+import dsstore.record.IlocRecord;
+import dsstore.record.LongRecord;
+
+/**
+ * Collection of utility methods used to generate the (synthetic) inputs of the DistMaker benchmarks.
+ * <p>
+ * All inputs are generated from a fixed seed so that the results of separate runs are comparable.
+ *
+ * @author lopeznr1
+ */
+public class BenchUtils
+{
+	/** The seed of all generated content. */
+	public static final long Seed = 0x44697374L;
+
+	/**
+	 * Utility method that recursively deletes the specified path.
+	 */
+	public static void delete(Path aPath) throws IOException
+	{
+		if (Files.exists(aPath, LinkOption.NOFOLLOW_LINKS) == false)
+			return;
+
+		Files.walkFileTree(aPath, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path aFile, BasicFileAttributes aAttrs) throws IOException
+			{
+				Files.delete(aFile);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path aDir, IOException aExp) throws IOException
+			{
+				Files.delete(aDir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Returns a buffer of aSize (pseudo random) bytes.
+	 */
+	public static byte[] formRandomBytes(int aSize)
+	{
+		byte[] retArr = new byte[aSize];
+		new Random(Seed).nextBytes(retArr);
+		return retArr;
+	}
+
+	/**
+	 * Returns a list of JRE version labels with the mix of formats found on a deploy site (1.8.0_xxx, 11.0.x, 17.0.x+y,
+	 * 21.0.x).
+	 */
+	public static List<String> formJreVersionLabels(int aNumItems)
+	{
+		Random tmpRandom = new Random(Seed);
+
+		List<String> retL = new ArrayList<>(aNumItems);
+		for (int c1 = 0; c1 < aNumItems; c1++)
+		{
+			int major = new int[] { 8, 11, 17, 21 }[tmpRandom.nextInt(4)];
+			if (major == 8)
+				retL.add("1.8.0_" + (100 + tmpRandom.nextInt(300)));
+			else if (tmpRandom.nextBoolean() == true)
+				retL.add(major + ".0." + tmpRandom.nextInt(20));
+			else
+				retL.add(major + ".0." + tmpRandom.nextInt(20) + "+" + tmpRandom.nextInt(40));
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Writes a (synthetic) app catalog (appCatalog.txt) with the specified number of releases to the folder of
+	 * aFile. Every release has a multi-line info message.
+	 */
+	public static void writeAppCatalog(File aFile, String aAppName, int aNumReleases) throws IOException
+	{
+		List<String> lineL = new ArrayList<>();
+		lineL.add("name," + aAppName);
+		for (int c1 = 0; c1 < aNumReleases; c1++)
+		{
+			int day = 1 + (c1 % 28);
+			lineL.add("R,1." + (c1 / 100) + "." + (c1 % 100) + ",2024Jan" + String.format("%02d", day) + " 12:00:00");
+			lineL.add("info,msg,Release " + c1 + " of " + aAppName);
+			lineL.add("info,msg,Fixed issues: #" + (1000 + c1) + " #" + (2000 + c1));
+		}
+
+		writeLines(aFile, lineL);
+	}
+
+	/**
+	 * Writes a (synthetic) release catalog (catalog.txt) that describes aNumFiles files spread over a folder tree.
+	 */
+	public static void writeCatalog(File aFile, int aNumFiles) throws IOException
+	{
+		Random tmpRandom = new Random(Seed);
+
+		List<String> lineL = new ArrayList<>();
+		lineL.add("digest,SHA256");
+		lineL.add("jre,17.0.1,21");
+		for (int c1 = 0; c1 < aNumFiles; c1++)
+		{
+			String dirPath = "code/pkg" + (c1 / 200) + "/sub" + ((c1 / 20) % 10);
+			if (c1 % 20 == 0)
+				lineL.add("P," + dirPath);
+
+			byte[] digestArr = new byte[32];
+			tmpRandom.nextBytes(digestArr);
+			StringBuilder digestSB = new StringBuilder();
+			for (byte aByte : digestArr)
+				digestSB.append(String.format("%02x", aByte));
+
+			long fileLen = 512 + tmpRandom.nextInt(64 * 1024);
+			lineL.add("F," + digestSB + "," + fileLen + "," + dirPath + "/File" + c1 + ".class");
+		}
+
+		writeLines(aFile, lineL);
+	}
+
+	/**
+	 * Writes a .DS_Store file with aNumItems items (2 records per item).
+	 */
+	public static void writeDsStore(File aFile, int aNumItems) throws IOException
+	{
+		List<ByteBuffer> recordL = new ArrayList<>();
+		for (int c1 = 0; c1 < aNumItems; c1++)
+		{
+			String name = String.format("Item%06d.dat", c1);
+			recordL.add(StoreWriter.toBuffer(new IlocRecord(name, c1 % 640, c1 / 640)));
+			recordL.add(StoreWriter.toBuffer(new LongRecord(name, "vSrn", 1)));
+		}
+
+		recordL.sort(StoreWriter.RecordComparator);
+		StoreWriter.write(aFile, recordL);
+	}
+
+	/**
+	 * Writes a (synthetic) JRE tarball (.tar.gz) to aFile.
+	 * <p>
+	 * The layout mimics a JRE: a handful of large (binary) libraries, many small (text) config files, executables, and
+	 * symbolic links. The total (uncompressed) size is roughly aTotalMB megabytes.
+	 */
+	public static void writeJreTarball(File aFile, int aTotalMB) throws IOException
+	{
+		Random tmpRandom = new Random(Seed);
+		String rootDir = "jre-17.0.1/";
+
+		try (TarArchiveOutputStream tmpTOS = new TarArchiveOutputStream(
+				new GzipCompressorOutputStream(new BufferedOutputStream(new FileOutputStream(aFile)))))
+		{
+			tmpTOS.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+
+			for (String aDir : List.of("", "bin/", "conf/", "conf/security/", "legal/", "lib/", "lib/server/"))
+				writeTarEntry(tmpTOS, rootDir + aDir, null, 0755);
+
+			// Executables
+			for (String aName : List.of("java", "keytool", "jfr", "jrunscript", "rmiregistry"))
+				writeTarEntry(tmpTOS, rootDir + "bin/" + aName, formContent(tmpRandom, 16 * 1024, false), 0755);
+
+			// Many small (compressible) config and legal files
+			for (int c1 = 0; c1 < 400; c1++)
+			{
+				String tmpPath = rootDir + (c1 % 2 == 0 ? "legal/" : "conf/") + "file" + c1 + ".txt";
+				writeTarEntry(tmpTOS, tmpPath, formContent(tmpRandom, 256 + tmpRandom.nextInt(8 * 1024), true), 0644);
+			}
+
+			// Large (poorly compressible) libraries
+			long remainBytes = aTotalMB * 1024L * 1024L;
+			for (int c1 = 0; remainBytes > 0; c1++)
+			{
+				int tmpSize = (int) Math.min(remainBytes, 1024 * 1024 + tmpRandom.nextInt(8 * 1024 * 1024));
+				String tmpPath = rootDir + (c1 == 0 ? "lib/modules" : c1 == 1 ? "lib/server/libjvm.so" : "lib/lib" + c1 + ".so");
+				writeTarEntry(tmpTOS, tmpPath, formContent(tmpRandom, tmpSize, false), 0644);
+				remainBytes -= tmpSize;
+			}
+
+			// Symbolic link
+			TarArchiveEntry linkTAE = new TarArchiveEntry(rootDir + "lib/libjvm.so", TarArchiveEntry.LF_SYMLINK);
+			linkTAE.setLinkName("server/libjvm.so");
+			tmpTOS.putArchiveEntry(linkTAE);
+			tmpTOS.closeArchiveEntry();
+		}
+	}
+
+	/**
+	 * Helper method that returns aSize bytes of content. Text content is highly compressible while binary content is
+	 * only partially compressible.
+	 */
+	private static byte[] formContent(Random aRandom, int aSize, boolean aIsText)
+	{
+		byte[] retArr = new byte[aSize];
+		if (aIsText == true)
+		{
+			byte[] textArr = "# Licensed under the GNU General Public License, version 2, with the Classpath Exception\n"
+					.getBytes(StandardCharsets.US_ASCII);
+			for (int c1 = 0; c1 < aSize; c1++)
+				retArr[c1] = textArr[c1 % textArr.length];
+			return retArr;
+		}
+
+		// Half random, half zero filled
+		aRandom.nextBytes(retArr);
+		Arrays.fill(retArr, aSize / 2, aSize, (byte) 0);
+		return retArr;
+	}
+
+	/**
+	 * Helper method that writes the specified lines to aFile.
+	 */
+	private static void writeLines(File aFile, List<String> aLineL) throws IOException
+	{
+		Files.write(aFile.toPath(), aLineL, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Helper method that writes a single (file or directory) entry to the tarball. A null aDataArr denotes a directory.
+	 */
+	private static void writeTarEntry(TarArchiveOutputStream aTOS, String aPath, byte[] aDataArr, int aMode)
+			throws IOException
+	{
+		TarArchiveEntry tmpTAE = new TarArchiveEntry(aPath);
+		tmpTAE.setMode((aDataArr == null ? 040000 : 0100000) | aMode);
+		if (aDataArr != null)
+			tmpTAE.setSize(aDataArr.length);
+
+		aTOS.putArchiveEntry(tmpTAE);
+		if (aDataArr != null)
+			aTOS.write(aDataArr);
+		aTOS.closeArchiveEntry();
+	}
+
+}
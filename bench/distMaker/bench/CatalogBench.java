@@ -0,0 +1,93 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import distMaker.DistUtils;
+import distMaker.node.AppCatalog;
+import distMaker.node.AppRelease;
+import glum.io.IoUtil;
+import glum.task.SilentTask;
+
+/**
+ * Benchmarks of the parsing of the (deploy site) catalogs: the release catalog (catalog.txt) via
+ * {@link DistUtils#readAppCatalog} and the app catalog (appCatalog.txt) via {@link DistUtils#getAvailableAppReleases}.
+ * <p>
+ * The catalogs are synthetic (see {@link BenchUtils}) and the app catalog is served via a file: URL so that network
+ * latency is not measured.
+ *
+ * @author lopeznr1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatalogBench
+{
+	private static final String AppName = "BenchApp";
+
+	@Param({ "1000", "20000" })
+	public int numFiles;
+
+	@Param({ "50", "2000" })
+	public int numReleases;
+
+	// State vars
+	private File workDir;
+	private File catalogFile;
+	private URL updateUrl;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = Files.createTempDirectory("distMakerBench").toFile();
+		catalogFile = new File(workDir, "catalog.txt");
+		BenchUtils.writeCatalog(catalogFile, numFiles);
+
+		File appDir = new File(workDir, AppName);
+		appDir.mkdirs();
+		BenchUtils.writeAppCatalog(new File(appDir, "appCatalog.txt"), AppName, numReleases);
+		// Note the update URL must not have a trailing slash
+		updateUrl = IoUtil.createURL(workDir.toURI().toString().replaceAll("/$", ""));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchUtils.delete(workDir.toPath());
+	}
+
+	@Benchmark
+	public List<AppRelease> getAvailableAppReleases()
+	{
+		return DistUtils.getAvailableAppReleases(new SilentTask(), updateUrl, AppName, null);
+	}
+
+	@Benchmark
+	public AppCatalog readAppCatalog()
+	{
+		return DistUtils.readAppCatalog(new SilentTask(), catalogFile, updateUrl);
+	}
+
+}
@@ -0,0 +1,86 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import distMaker.MiscUtils;
+import glum.digest.Digest;
+import glum.digest.DigestType;
+import glum.digest.DigestUtils;
+
+/**
+ * Benchmarks of the digest throughput: in memory (raw {@link MessageDigest}) and from a file (via
+ * {@link MiscUtils#computeDigest}).
+ * <p>
+ * The throughput (MB/s) is the size (sizeMB) divided by the reported time.
+ *
+ * @author lopeznr1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DigestBench
+{
+	@Param({ "MD5", "SHA256", "SHA512" })
+	public String digestName;
+
+	@Param({ "16" })
+	public int sizeMB;
+
+	// State vars
+	private DigestType digestType;
+	private byte[] dataArr;
+	private File dataFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		digestType = DigestType.parse(digestName);
+		dataArr = BenchUtils.formRandomBytes(sizeMB * 1024 * 1024);
+
+		dataFile = File.createTempFile("distMakerBench", ".bin");
+		Files.write(dataFile.toPath(), dataArr);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		dataFile.delete();
+	}
+
+	@Benchmark
+	public Digest computeDigestFile() throws IOException
+	{
+		return MiscUtils.computeDigest(dataFile, digestType);
+	}
+
+	@Benchmark
+	public byte[] computeDigestMemory()
+	{
+		MessageDigest tmpMessageDigest = DigestUtils.getDigest(digestType);
+		tmpMessageDigest.update(dataArr);
+		return tmpMessageDigest.digest();
+	}
+
+}
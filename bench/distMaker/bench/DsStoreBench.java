@@ -0,0 +1,112 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dsstore.*;
+
+/**
+ * Benchmarks of the .DS_Store I/O: reading (memory-mapped) stores, the volume rename of the DMG template (as performed
+ * by {@link MainApp}), and the generation of a store from a {@link DmgLayout}.
+ *
+ * @author lopeznr1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DsStoreBench
+{
+	@Param({ "10", "5000" })
+	public int numItems;
+
+	// State vars
+	private File workDir;
+	private File srcFile;
+	private File workFile;
+	private File layoutFile;
+	private int renameCnt;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = Files.createTempDirectory("distMakerBench").toFile();
+		srcFile = new File(workDir, "src.DS_Store");
+		BenchUtils.writeDsStore(srcFile, numItems);
+
+		workFile = new File(workDir, "work.DS_Store");
+		Files.copy(srcFile.toPath(), workFile.toPath());
+		layoutFile = new File(workDir, "layout.DS_Store");
+		renameCnt = 0;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchUtils.delete(workDir.toPath());
+	}
+
+	@Benchmark
+	public void cursorWalk(Blackhole aBlackhole) throws IOException
+	{
+		StoreCursor tmpCursor = new StoreCursor(MappedStore.open(srcFile));
+		while (tmpCursor.next() == true)
+			aBlackhole.consume(tmpCursor.getView().getCode());
+	}
+
+	@Benchmark
+	public RecordView findRecord() throws IOException
+	{
+		MappedStore tmpStore = MappedStore.open(srcFile);
+		return tmpStore.findRecord(String.format("Item%06d.dat", numItems / 2), FourCC.toInt("Iloc"));
+	}
+
+	@Benchmark
+	public void readStore(Blackhole aBlackhole) throws IOException
+	{
+		MappedStore.open(srcFile).forEachRecord(aView -> aBlackhole.consume(aView.getNameLength()));
+	}
+
+	@Benchmark
+	public void updateStoreInPlace() throws IOException
+	{
+		// Note the name length is constant so the edits are made in place
+		MainApp.updateStore(workFile, "Vol" + (renameCnt++ % 10));
+	}
+
+	@Benchmark
+	public void updateStoreRewrite() throws IOException
+	{
+		// Note the name length alternates so the store is rewritten
+		Files.copy(srcFile.toPath(), workFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		MainApp.updateStore(workFile, (renameCnt++ % 2 == 0) ? "Vol" : "Volume");
+	}
+
+	@Benchmark
+	public void writeLayout() throws IOException
+	{
+		LayoutWriter.write(DmgLayout.formDefault("BenchApp"), layoutFile);
+	}
+
+}
@@ -0,0 +1,91 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import distMaker.jre.JreVersion;
+
+/**
+ * Benchmarks of the parsing and comparison of {@link JreVersion}s.
+ *
+ * @author lopeznr1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JreVersionBench
+{
+	@Param({ "1000" })
+	public int numVersions;
+
+	// State vars
+	private List<String> labelL;
+	private List<JreVersion> versionL;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		labelL = BenchUtils.formJreVersionLabels(numVersions);
+
+		versionL = new ArrayList<>();
+		for (String aLabel : labelL)
+			versionL.add(new JreVersion(aLabel));
+	}
+
+	@Benchmark
+	public void compare(Blackhole aBlackhole)
+	{
+		for (int c1 = 1; c1 < versionL.size(); c1++)
+			aBlackhole.consume(versionL.get(c1 - 1).compareTo(versionL.get(c1)));
+	}
+
+	@Benchmark
+	public JreVersion getBetterVersion()
+	{
+		JreVersion retVer = versionL.get(0);
+		for (JreVersion aVer : versionL)
+			retVer = JreVersion.getBetterVersion(retVer, aVer);
+
+		return retVer;
+	}
+
+	@Benchmark
+	public void parse(Blackhole aBlackhole)
+	{
+		for (String aLabel : labelL)
+		{
+			JreVersion tmpVer = new JreVersion(aLabel);
+			aBlackhole.consume(tmpVer.major());
+		}
+	}
+
+	@Benchmark
+	public List<JreVersion> sort()
+	{
+		List<JreVersion> retL = new ArrayList<>(versionL);
+		Collections.sort(retL);
+		return retL;
+	}
+
+}
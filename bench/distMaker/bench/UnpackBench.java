@@ -0,0 +1,88 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.openjdk.jmh.annotations.*;
+
+import distMaker.MiscUtils;
+import glum.task.SilentTask;
+
+/**
+ * Benchmark of the unpacking of a JRE tarball via {@link MiscUtils#unPack}.
+ * <p>
+ * A synthetic tarball (see {@link BenchUtils#writeJreTarball}) is used unless a real JRE tarball is specified via the
+ * system property: distMaker.bench.jreTarball
+ *
+ * @author lopeznr1
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 8)
+public class UnpackBench
+{
+	@Param({ "64" })
+	public int sizeMB;
+
+	// State vars
+	private File workDir;
+	private File tarballFile;
+	private File destDir;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = Files.createTempDirectory("distMakerBench").toFile();
+
+		String tmpPath = System.getProperty("distMaker.bench.jreTarball");
+		if (tmpPath != null)
+		{
+			tarballFile = new File(tmpPath);
+			return;
+		}
+
+		tarballFile = new File(workDir, "jre.tar.gz");
+		BenchUtils.writeJreTarball(tarballFile, sizeMB);
+	}
+
+	@Setup(Level.Iteration)
+	public void setupIteration() throws IOException
+	{
+		destDir = new File(workDir, "unpack");
+		BenchUtils.delete(destDir.toPath());
+		destDir.mkdirs();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchUtils.delete(workDir.toPath());
+	}
+
+	@Benchmark
+	public List<File> unPack() throws IOException, ArchiveException
+	{
+		return MiscUtils.unPack(new SilentTask(), tarballFile, destDir);
+	}
+
+}
@@ -0,0 +1,357 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.harness;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import distMaker.SiteIndex;
+import distMaker.StageUtils;
+import distMaker.bench.BenchUtils;
+import distMaker.utils.CatalogUtils;
+import glum.digest.DigestType;
+import glum.digest.DigestUtils;
+
+/**
+ * Generator of synthetic application releases that utilize the real (deploy site) formats.
+ * <p>
+ * The first release is formed from a configurable number of files whose sizes follow a log-normal distribution (many
+ * small files, a few large ones). Each subsequent release is formed by applying churn to the prior release: a fraction
+ * of the files is modified and the same fraction (halved) is added and removed.
+ * <p>
+ * The deploy folder has the same layout as that produced by the deploy scripts:
+ *
+ * <pre>
+ * {@literal <siteDir>/<appName>/appCatalog.txt}
+ * {@literal <siteDir>/<appName>/siteIndex.txt[.gz]}
+ * {@literal <siteDir>/<appName>/<version>/delta/catalog.txt[.gz]}
+ * {@literal <siteDir>/<appName>/<version>/delta/<files>}
+ * {@literal <siteDir>/<appName>/<version>/manifest/<priorVersion>.txt[.gz]}
+ * </pre>
+ *
+ * The (installed) app folder mirrors a release's delta folder.
+ *
+ * @author lopeznr1
+ */
+public class ReleaseGenerator
+{
+	/** The number of prior releases for which update manifests are written. */
+	private static final int NumManifests = 5;
+
+	// Attributes
+	private final int numFiles;
+	private final long medianSize;
+	private final long maxSize;
+	private final double churn;
+
+	// State vars
+	private final Random random;
+	private final List<FileSpec> fileL;
+	private int nextFileId;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aNumFiles
+	 *        The number of files in the first release.
+	 * @param aMedianSize
+	 *        The median file size (bytes).
+	 * @param aMaxSize
+	 *        The maximum file size (bytes).
+	 * @param aChurn
+	 *        The fraction [0.0, 1.0] of files that are modified between releases.
+	 */
+	public ReleaseGenerator(int aNumFiles, long aMedianSize, long aMaxSize, double aChurn)
+	{
+		numFiles = aNumFiles;
+		medianSize = aMedianSize;
+		maxSize = aMaxSize;
+		churn = aChurn;
+
+		random = new Random(BenchUtils.Seed);
+		fileL = new ArrayList<>();
+		nextFileId = 0;
+	}
+
+	/**
+	 * Returns the version label of the specified (0-based) release.
+	 */
+	public static String getVersion(int aIdx)
+	{
+		return "1.0." + aIdx;
+	}
+
+	/**
+	 * Generates aNumReleases releases of the application (aAppName) into the deploy folder, aSiteDir. The first release
+	 * is also installed to aAppDir.
+	 * <p>
+	 * Returns the total number of bytes of the last release.
+	 */
+	public long generate(File aSiteDir, File aAppDir, String aAppName, int aNumReleases) throws IOException
+	{
+		File deployDir = new File(aSiteDir, aAppName);
+		deployDir.mkdirs();
+
+		for (int c1 = 0; c1 < numFiles; c1++)
+			fileL.add(formFileSpec());
+
+		List<String> appCatalogL = new ArrayList<>();
+		appCatalogL.add("name," + aAppName);
+		List<String> siteIndexL = new ArrayList<>();
+		siteIndexL.add("name," + aAppName);
+		siteIndexL.add("digest,sha256");
+		for (int c1 = 0; c1 < aNumReleases; c1++)
+		{
+			if (c1 > 0)
+				applyChurn();
+
+			String verStr = getVersion(c1);
+			File deltaDir = new File(deployDir, verStr + "/delta");
+			writeRelease(deltaDir);
+			writeGzipSibling(new File(deltaDir, "catalog.txt"));
+			File catalogFile = new File(deltaDir, "catalog.txt");
+			siteIndexL.add("catalog,release," + verStr + "," + formDigestAndLen(catalogFile) + ",,");
+
+			// Write the update manifests (relative to the prior releases)
+			for (int c2 = Math.max(0, c1 - NumManifests); c2 < c1; c2++)
+			{
+				String priorVerStr = getVersion(c2);
+				File priorCatalogFile = new File(deployDir, priorVerStr + "/delta/catalog.txt");
+				File manifestFile = new File(deployDir, verStr + "/" + StageUtils.ManifestFolder + "/" + priorVerStr + ".txt");
+				writeManifest(priorCatalogFile, catalogFile, priorVerStr, verStr, manifestFile);
+				writeGzipSibling(manifestFile);
+				siteIndexL.add("catalog,manifest," + verStr + "," + priorVerStr + "," + formDigestAndLen(manifestFile));
+			}
+			if (c1 == 0)
+				writeRelease(aAppDir);
+
+			appCatalogL.add("R," + verStr + ",2024Jan" + String.format("%02d", 1 + c1 % 28) + " 12:00:00");
+			appCatalogL.add("info,msg,Synthetic release: " + verStr);
+			appCatalogL.add("");
+		}
+		File appCatalogFile = new File(deployDir, "appCatalog.txt");
+		Files.write(appCatalogFile.toPath(), appCatalogL, StandardCharsets.UTF_8);
+
+		File siteIndexFile = new File(deployDir, SiteIndex.FileName);
+		Files.write(siteIndexFile.toPath(), siteIndexL, StandardCharsets.UTF_8);
+		writeGzipSibling(siteIndexFile);
+
+		long retSize = 0;
+		for (FileSpec aItem : fileL)
+			retSize += aItem.size;
+		return retSize;
+	}
+
+	/**
+	 * Helper method that applies churn to the current set of files.
+	 */
+	private void applyChurn()
+	{
+		int numChurn = (int) Math.round(fileL.size() * churn);
+
+		// Modify
+		for (int c1 = 0; c1 < numChurn; c1++)
+		{
+			int tmpIdx = random.nextInt(fileL.size());
+			FileSpec oldSpec = fileL.get(tmpIdx);
+			fileL.set(tmpIdx, new FileSpec(oldSpec.path, formSize(), random.nextLong()));
+		}
+
+		// Remove and add
+		for (int c1 = 0; c1 < numChurn / 2 && fileL.size() > 1; c1++)
+			fileL.remove(random.nextInt(fileL.size()));
+		for (int c1 = 0; c1 < numChurn / 2; c1++)
+			fileL.add(formFileSpec());
+	}
+
+	/**
+	 * Helper method that forms a new file (with a unique path).
+	 */
+	private FileSpec formFileSpec()
+	{
+		int fileId = nextFileId++;
+		String path = "lib/pkg" + (fileId / 100) + "/file" + fileId + ".bin";
+		return new FileSpec(path, formSize(), random.nextLong());
+	}
+
+	/**
+	 * Helper method that returns a (log-normal distributed) file size.
+	 */
+	private long formSize()
+	{
+		double tmpSize = medianSize * Math.exp(1.5 * random.nextGaussian());
+		return Math.max(1, Math.min(maxSize, Math.round(tmpSize)));
+	}
+
+	/**
+	 * Helper method that writes the current set of files (and the corresponding catalog.txt) to aDestDir.
+	 */
+	private void writeRelease(File aDestDir) throws IOException
+	{
+		MessageDigest tmpMessageDigest;
+		try
+		{
+			tmpMessageDigest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException aExp)
+		{
+			throw new IOException(aExp);
+		}
+
+		List<FileSpec> sortL = new ArrayList<>(fileL);
+		sortL.sort(Comparator.comparing(aItem -> aItem.path));
+
+		List<String> lineL = new ArrayList<>();
+		lineL.add("digest,SHA256");
+
+		Set<String> dirS = new HashSet<>();
+		for (FileSpec aItem : sortL)
+		{
+			// Record the (parent) folders
+			for (int tmpIdx = aItem.path.indexOf('/'); tmpIdx != -1; tmpIdx = aItem.path.indexOf('/', tmpIdx + 1))
+			{
+				String dirPath = aItem.path.substring(0, tmpIdx);
+				if (dirS.add(dirPath) == true)
+					lineL.add("P," + dirPath);
+			}
+
+			byte[] dataArr = new byte[(int) aItem.size];
+			new Random(aItem.contentSeed).nextBytes(dataArr);
+			File tmpFile = new File(aDestDir, aItem.path);
+			tmpFile.getParentFile().mkdirs();
+			Files.write(tmpFile.toPath(), dataArr);
+
+			StringBuilder digestSB = new StringBuilder();
+			for (byte aByte : tmpMessageDigest.digest(dataArr))
+				digestSB.append(String.format("%02x", aByte));
+			lineL.add("F," + digestSB + "," + aItem.size + "," + aItem.path);
+		}
+		lineL.add("exit");
+
+		aDestDir.mkdirs();
+		Files.write(new File(aDestDir, "catalog.txt").toPath(), lineL, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Helper method that returns the (site index) fields, {@literal <digest>,<len>}, that describe the specified file.
+	 */
+	private static String formDigestAndLen(File aFile) throws IOException
+	{
+		byte[] dataArr = Files.readAllBytes(aFile.toPath());
+		byte[] digestArr = DigestUtils.getDigest(DigestType.SHA256).digest(dataArr);
+		return DigestUtils.byteArr2HexStr(digestArr) + "," + dataArr.length;
+	}
+
+	/**
+	 * Helper method that returns the node key (type and path) of the specified catalog line.
+	 */
+	private static String getNodeKey(String aLine)
+	{
+		if (aLine.startsWith("F,") == false)
+			return aLine;
+
+		int tmpIdx = aLine.indexOf(',', aLine.indexOf(',', 2) + 1);
+		return "F," + aLine.substring(tmpIdx + 1);
+	}
+
+	/**
+	 * Helper method that writes the update manifest that transforms the catalog, aSrcFile, into the catalog, aDstFile.
+	 * <p>
+	 * This is a simplified (linear) variant of the manifest built by the deploy scripts. It relies on the catalogs
+	 * sharing the same (path) ordering.
+	 */
+	private static void writeManifest(File aSrcFile, File aDstFile, String aSrcVerStr, String aDstVerStr,
+			File aManifestFile) throws IOException
+	{
+		String[] srcArr = new String(Files.readAllBytes(aSrcFile.toPath()), StandardCharsets.UTF_8).split("\n", -1);
+		String[] dstArr = new String(Files.readAllBytes(aDstFile.toPath()), StandardCharsets.UTF_8).split("\n", -1);
+		Set<String> dstKeyS = new HashSet<>();
+		for (String aLine : dstArr)
+			dstKeyS.add(getNodeKey(aLine));
+
+		List<String> lineL = new ArrayList<>();
+		lineL.add("digest,sha256");
+		lineL.add("from," + aSrcVerStr + "," + formDigestAndLen(aSrcFile));
+		lineL.add("to," + aDstVerStr + "," + formDigestAndLen(aDstFile));
+
+		int srcIdx = 0, dstIdx = 0, numEqual = 0;
+		while (srcIdx < srcArr.length || dstIdx < dstArr.length)
+		{
+			boolean isBoth = srcIdx < srcArr.length && dstIdx < dstArr.length;
+			if (isBoth == true && srcArr[srcIdx].equals(dstArr[dstIdx]) == true)
+			{
+				numEqual++;
+				srcIdx++;
+				dstIdx++;
+				continue;
+			}
+
+			if (numEqual > 0)
+				lineL.add("=," + numEqual);
+			numEqual = 0;
+
+			if (isBoth == true && getNodeKey(srcArr[srcIdx]).equals(getNodeKey(dstArr[dstIdx])) == true)
+			{
+				lineL.add("C," + dstArr[dstIdx]);
+				srcIdx++;
+				dstIdx++;
+			}
+			else if (srcIdx < srcArr.length
+					&& (dstIdx == dstArr.length || dstKeyS.contains(getNodeKey(srcArr[srcIdx])) == false))
+				lineL.add("R," + srcArr[srcIdx++]);
+			else
+				lineL.add("A," + dstArr[dstIdx++]);
+		}
+		if (numEqual > 0)
+			lineL.add("=," + numEqual);
+
+		aManifestFile.getParentFile().mkdirs();
+		Files.write(aManifestFile.toPath(), lineL, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Helper method that writes the (gzip) compressed sibling of the specified catalog file.
+	 */
+	private static void writeGzipSibling(File aFile) throws IOException
+	{
+		File gzFile = new File(aFile.getPath() + CatalogUtils.GzipExt);
+		try (OutputStream tmpOS = new GZIPOutputStream(new FileOutputStream(gzFile)))
+		{
+			Files.copy(aFile.toPath(), tmpOS);
+		}
+	}
+
+	/**
+	 * Record that describes a single (synthetic) file.
+	 */
+	private static class FileSpec
+	{
+		private final String path;
+		private final long size;
+		private final long contentSeed;
+
+		private FileSpec(String aPath, long aSize, long aContentSeed)
+		{
+			path = aPath;
+			size = aSize;
+			contentSeed = aContentSeed;
+		}
+	}
+
+}
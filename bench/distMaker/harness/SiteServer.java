@@ -0,0 +1,262 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.harness;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import distMaker.bench.BenchUtils;
+
+/**
+ * Embedded (local) HTTP server that serves the content of a deploy folder as a stand-in for an update site.
+ * <p>
+ * The following (network) conditions may be injected:
+ * <ul>
+ * <li>Latency: A fixed delay before each response.
+ * <li>Bandwidth cap: The response body is throttled to the specified number of bytes per second.
+ * <li>Failures: A (random) fraction of the requests is answered with HTTP 503.
+ * </ul>
+ * A single open ended range request (Range: bytes=N-) is honored. Any other range request is answered with the full
+ * file.
+ * The number of requests, failures, and (body) bytes sent are tracked.
+ *
+ * @author lopeznr1
+ */
+public class SiteServer
+{
+	// Constants
+	private static final int ChunkSize = 16 * 1024;
+
+	// Attributes
+	private final File rootDir;
+	private final long latencyMs;
+	private final long bandwidthBps;
+	private final double failureRate;
+
+	// State vars
+	private final Random random;
+	private final AtomicLong numRequests;
+	private final AtomicLong numFailures;
+	private final AtomicLong bytesSent;
+	private HttpServer server;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aRootDir
+	 *        The folder to be served.
+	 * @param aLatencyMs
+	 *        The delay (milliseconds) before each response.
+	 * @param aBandwidthBps
+	 *        The bandwidth cap (bytes per second) of each response. A value of 0 disables the cap.
+	 * @param aFailureRate
+	 *        The fraction [0.0, 1.0] of requests that will fail.
+	 */
+	public SiteServer(File aRootDir, long aLatencyMs, long aBandwidthBps, double aFailureRate)
+	{
+		rootDir = aRootDir;
+		latencyMs = aLatencyMs;
+		bandwidthBps = aBandwidthBps;
+		failureRate = aFailureRate;
+
+		random = new Random(BenchUtils.Seed);
+		numRequests = new AtomicLong();
+		numFailures = new AtomicLong();
+		bytesSent = new AtomicLong();
+		server = null;
+	}
+
+	/**
+	 * Returns the number of (body) bytes that have been sent.
+	 */
+	public long getBytesSent()
+	{
+		return bytesSent.get();
+	}
+
+	/**
+	 * Returns the number of requests that were (deliberately) failed.
+	 */
+	public long getNumFailures()
+	{
+		return numFailures.get();
+	}
+
+	/**
+	 * Returns the number of requests that have been received.
+	 */
+	public long getNumRequests()
+	{
+		return numRequests.get();
+	}
+
+	/**
+	 * Returns the (root) URL of the server. Note the URL does not have a trailing slash.
+	 */
+	public URL getUrl()
+	{
+		try
+		{
+			return new URL("http://127.0.0.1:" + server.getAddress().getPort());
+		}
+		catch (IOException aExp)
+		{
+			throw new RuntimeException(aExp);
+		}
+	}
+
+	/**
+	 * Resets the request, failure, and byte counters.
+	 */
+	public void resetCounters()
+	{
+		numRequests.set(0);
+		numFailures.set(0);
+		bytesSent.set(0);
+	}
+
+	/**
+	 * Starts the server on an ephemeral (loopback) port.
+	 */
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(Executors.newCachedThreadPool(aRunnable -> {
+			Thread tmpThread = new Thread(aRunnable, "thread-siteServer");
+			tmpThread.setDaemon(true);
+			return tmpThread;
+		}));
+		server.start();
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public void stop()
+	{
+		if (server != null)
+			server.stop(0);
+		server = null;
+	}
+
+	/**
+	 * Helper method that handles a single request.
+	 */
+	private void handle(HttpExchange aExchange) throws IOException
+	{
+		try (aExchange)
+		{
+			numRequests.incrementAndGet();
+			sleep(latencyMs);
+
+			boolean isFail;
+			synchronized (random)
+			{
+				isFail = random.nextDouble() < failureRate;
+			}
+			if (isFail == true)
+			{
+				numFailures.incrementAndGet();
+				aExchange.sendResponseHeaders(503, -1);
+				return;
+			}
+
+			// Resolve the file (and reject any path that escapes the root folder)
+			File tmpFile = new File(rootDir, aExchange.getRequestURI().getPath());
+			if (tmpFile.getCanonicalPath().startsWith(rootDir.getCanonicalPath()) == false || tmpFile.isFile() == false)
+			{
+				aExchange.sendResponseHeaders(404, -1);
+				return;
+			}
+
+			// Determine the requested range. Note only a single (open ended) range is supported: bytes=<begPos>-
+			long fileLen = tmpFile.length();
+			long begPos = 0;
+			String rangeStr = aExchange.getRequestHeaders().getFirst("Range");
+			if (rangeStr != null && rangeStr.matches("bytes=\\d+-") == true)
+			{
+				begPos = Long.parseLong(rangeStr.substring(6, rangeStr.length() - 1));
+				if (begPos >= fileLen)
+				{
+					aExchange.getResponseHeaders().set("Content-Range", "bytes */" + fileLen);
+					aExchange.sendResponseHeaders(416, -1);
+					return;
+				}
+
+				aExchange.getResponseHeaders().set("Content-Range", "bytes " + begPos + "-" + (fileLen - 1) + "/" + fileLen);
+				aExchange.sendResponseHeaders(206, fileLen - begPos);
+			}
+			else
+			{
+				aExchange.sendResponseHeaders(200, fileLen == 0 ? -1 : fileLen);
+				if (fileLen == 0)
+					return;
+			}
+
+			try (InputStream tmpIS = Files.newInputStream(tmpFile.toPath()); OutputStream tmpOS = aExchange.getResponseBody())
+			{
+				tmpIS.skipNBytes(begPos);
+				long begTime = System.nanoTime();
+				long numSent = 0;
+				byte[] tmpArr = new byte[ChunkSize];
+				while (true)
+				{
+					int numRead = tmpIS.read(tmpArr);
+					if (numRead == -1)
+						break;
+
+					tmpOS.write(tmpArr, 0, numRead);
+					numSent += numRead;
+					bytesSent.addAndGet(numRead);
+
+					// Throttle to the bandwidth cap
+					if (bandwidthBps > 0)
+					{
+						long targTimeMs = numSent * 1000L / bandwidthBps;
+						long currTimeMs = (System.nanoTime() - begTime) / 1000000L;
+						sleep(targTimeMs - currTimeMs);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sleeps for the specified number of milliseconds.
+	 */
+	private static void sleep(long aTimeMs)
+	{
+		if (aTimeMs <= 0)
+			return;
+
+		try
+		{
+			Thread.sleep(aTimeMs);
+		}
+		catch (InterruptedException aExp)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
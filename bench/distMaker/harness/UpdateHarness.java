@@ -0,0 +1,224 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.*;
+
+import distMaker.*;
+import distMaker.bench.BenchUtils;
+import distMaker.metrics.UpdateMetrics;
+import distMaker.node.*;
+import distMaker.utils.CatalogUtils;
+import glum.io.IoUtil;
+import glum.task.*;
+
+/**
+ * End-to-end (headless) performance harness of the application update cycle.
+ * <p>
+ * Synthetic releases (see {@link ReleaseGenerator}) are served by a local update site stand-in (see
+ * {@link SiteServer}). Each run performs the same steps as {@link DistMakerEngine} when updating from the installed
+ * (first) release to the latest release:
+ * <ul>
+ * <li>Retrieve the list of available releases (appCatalog.txt).
+ * <li>Load the installed catalog and download the catalog of the latest release.
+ * <li>Stage the release via {@link StageUtils} (reusing unchanged local content).
+ * </ul>
+ * The wall time, bytes transferred, bytes reused, request count, retries, and (95th percentile) file latency of each
+ * run are reported.
+ * <p>
+ * Note that the JRE update, CDS archive and launch configuration steps are not exercised as those steps depend on
+ * the (running) application's install tree.
+ *
+ * @author lopeznr1
+ */
+public class UpdateHarness
+{
+	/** The name of the (synthetic) application. */
+	private static final String AppName = "HarnessApp";
+
+	/**
+	 * Prints the usage and exits.
+	 */
+	private static void printUsageAndExit()
+	{
+		System.out.println("Usage: UpdateHarness [options]");
+		System.out.println("  --files <n>          Number of files in the first release. Default: 1000");
+		System.out.println("  --median-kb <n>      Median file size (KB). Default: 16");
+		System.out.println("  --max-kb <n>         Maximum file size (KB). Default: 16384");
+		System.out.println("  --churn <f>          Fraction of files modified between releases. Default: 0.1");
+		System.out.println("  --releases <n>       Number of releases to generate. Default: 2");
+		System.out.println("  --latency <ms>       Latency of each request (ms). Default: 0");
+		System.out.println("  --bandwidth <kb/s>   Bandwidth cap of each request (KB/s). Default: 0 (no cap)");
+		System.out.println("  --failure-rate <f>   Fraction of requests that fail. Default: 0");
+		System.out.println("  --runs <n>           Number of update cycles to measure. Default: 3");
+		System.out.println("  --work <dir>         Work folder. Default: a temporary folder (deleted on exit)");
+		System.out.println("  --verbose            Log the details of each update cycle.");
+		System.exit(0);
+	}
+
+	/**
+	 * Harness entry point.
+	 */
+	public static void main(String[] aArgArr) throws IOException
+	{
+		int numFiles = 1000, numReleases = 2, numRuns = 3;
+		long medianKB = 16, maxKB = 16384, latencyMs = 0, bandwidthKBps = 0;
+		double churn = 0.1, failureRate = 0.0;
+		File workDir = null;
+		boolean isVerbose = false;
+
+		Iterator<String> argIter = Arrays.asList(aArgArr).iterator();
+		while (argIter.hasNext() == true)
+		{
+			String argStr = argIter.next();
+			if (argStr.equals("--verbose") == true)
+				isVerbose = true;
+			else if (argIter.hasNext() == false)
+				printUsageAndExit();
+			else if (argStr.equals("--files") == true)
+				numFiles = Integer.parseInt(argIter.next());
+			else if (argStr.equals("--median-kb") == true)
+				medianKB = Long.parseLong(argIter.next());
+			else if (argStr.equals("--max-kb") == true)
+				maxKB = Long.parseLong(argIter.next());
+			else if (argStr.equals("--churn") == true)
+				churn = Double.parseDouble(argIter.next());
+			else if (argStr.equals("--releases") == true)
+				numReleases = Math.max(2, Integer.parseInt(argIter.next()));
+			else if (argStr.equals("--latency") == true)
+				latencyMs = Long.parseLong(argIter.next());
+			else if (argStr.equals("--bandwidth") == true)
+				bandwidthKBps = Long.parseLong(argIter.next());
+			else if (argStr.equals("--failure-rate") == true)
+				failureRate = Double.parseDouble(argIter.next());
+			else if (argStr.equals("--runs") == true)
+				numRuns = Integer.parseInt(argIter.next());
+			else if (argStr.equals("--work") == true)
+				workDir = new File(argIter.next());
+			else
+				printUsageAndExit();
+		}
+
+		boolean isTempDir = workDir == null;
+		if (isTempDir == true)
+			workDir = Files.createTempDirectory("distMakerHarness").toFile();
+
+		File siteDir = new File(workDir, "site");
+		File appDir = new File(workDir, "install/app");
+		try
+		{
+			// Generate the releases
+			long begTime = System.nanoTime();
+			ReleaseGenerator tmpGenerator = new ReleaseGenerator(numFiles, medianKB * 1024, maxKB * 1024, churn);
+			long releaseSize = tmpGenerator.generate(siteDir, appDir, AppName, numReleases);
+			System.out.printf("Generated %d releases in %d ms. Latest release: %d bytes%n", numReleases,
+					(System.nanoTime() - begTime) / 1000000L, releaseSize);
+
+			// Serve the releases
+			SiteServer tmpServer = new SiteServer(siteDir, latencyMs, bandwidthKBps * 1024, failureRate);
+			tmpServer.start();
+			try
+			{
+				System.out.printf("%4s %6s %10s %14s %14s %9s %9s %9s %9s%n", "Run", "Pass", "Time (ms)", "Transferred",
+						"Reused", "Requests", "Failures", "Retries", "p95 (ms)");
+				for (int c1 = 0; c1 < numRuns; c1++)
+				{
+					Task tmpTask = isVerbose == true ? new ConsoleTask() : new SilentTask();
+					File deltaDir = new File(workDir, "install/delta");
+					IoUtil.deleteDirectory(deltaDir);
+
+					tmpServer.resetCounters();
+					UpdateMetrics.reset();
+					begTime = System.nanoTime();
+					StageResult tmpResult = runUpdate(tmpTask, tmpServer.getUrl(), appDir, deltaDir);
+					long runTimeMs = (System.nanoTime() - begTime) / 1000000L;
+
+					long bytesLocal = tmpResult != null ? tmpResult.getBytesLocal() : 0;
+					boolean isPass = tmpResult != null && tmpResult.isPass() == true;
+					Map<String, Long> metricM = UpdateMetrics.getSnapshot();
+					System.out.printf("%4d %6s %10d %14d %14d %9d %9d %9d %9d%n", c1 + 1, isPass, runTimeMs,
+							tmpServer.getBytesSent(), bytesLocal, tmpServer.getNumRequests(), tmpServer.getNumFailures(),
+							metricM.get("retries"), metricM.get("fileLatency.p95"));
+				}
+			}
+			finally
+			{
+				tmpServer.stop();
+			}
+		}
+		finally
+		{
+			if (isTempDir == true)
+				BenchUtils.delete(workDir.toPath());
+		}
+	}
+
+	/**
+	 * Performs a single update cycle: from the release installed at aAppDir to the latest release on the update site.
+	 * The release is staged to aDeltaDir. The catalog of releases is cached next to aAppDir (as an installed application
+	 * would) so subsequent cycles only retrieve the appended content.
+	 * <p>
+	 * Returns null if the update failed prior to staging.
+	 */
+	public static StageResult runUpdate(Task aTask, URL aSiteUrl, File aAppDir, File aDeltaDir) throws IOException
+	{
+		// Determine the latest release (the site index is retrieved concurrently)
+		CatalogUtils.prefetch(SiteIndex.getIndexUrl(aSiteUrl, AppName), null, -1L, null);
+		File cacheFile = new File(aAppDir.getParentFile(), "appCatalog.txt");
+		List<AppRelease> releaseL = DistUtils.getAvailableAppReleases(aTask, aSiteUrl, AppName, null, cacheFile);
+		SiteIndex siteIndex = SiteIndex.fetch(aTask, aSiteUrl, AppName, null);
+		if (releaseL == null)
+			return null;
+		AppRelease targRelease = Collections.max(releaseL);
+
+		// Note the installed release is always the first release
+		AppRelease currRelease = new AppRelease(AppName, ReleaseGenerator.getVersion(0), 0L);
+		if (siteIndex != null)
+			siteIndex.prefetch(targRelease, currRelease, DistUtils.getJreVersion(), null);
+
+		// Load the stale catalog
+		URL staleUrl = aAppDir.toURI().toURL();
+		File staleCatalogFile = new File(aAppDir, "catalog.txt");
+		AppCatalog staleCat = DistUtils.readAppCatalog(aTask, staleCatalogFile, staleUrl);
+		if (staleCat == null)
+			return null;
+
+		// Fetch the update catalog
+		URL updateUrl = IoUtil.createURL(aSiteUrl + "/" + AppName + "/" + targRelease.getVersion() + "/delta");
+		File appNewPath = new File(aDeltaDir, "app");
+		appNewPath.mkdirs();
+		URL manifestUrl = StageUtils.getManifestUrl(aSiteUrl, targRelease, currRelease.getVersion());
+		AppCatalog updateCat = StageUtils.fetchAppCatalogViaManifest(aTask, manifestUrl, staleCatalogFile, updateUrl,
+				appNewPath, null);
+		if (updateCat == null)
+			updateCat = StageUtils.fetchAppCatalog(aTask, updateUrl, appNewPath, null);
+		if (updateCat == null)
+			return null;
+
+		// Stage the release
+		long releaseSizeFull = 0L;
+		for (Node aNode : updateCat.getNodeList())
+		{
+			if (aNode instanceof FileNode)
+				releaseSizeFull += ((FileNode) aNode).getFileLen();
+		}
+
+		return StageUtils.stageAppNodes(aTask, staleCat, updateCat, appNewPath, null, 0L, releaseSizeFull);
+	}
+
+}
@@ -66,7 +66,7 @@ def buildRelease(aArgs, aBuildPath, aJreNodeL):
 #		distL = [(appName + '-' + version, None)]
 	if platformType.withJre == True:
 		# Select the JreNode to utilize for static releases
-		tmpJreNode = jreUtils.getJreNode(aJreNodeL, archStr, platStr, jreVerSpec)
+		tmpJreNode = jreUtils.getJreNode(aJreNodeL, archStr, platStr, jreVerSpec, aArgs.jreVariant)
 		if tmpJreNode == None:
 			# Let the user know that a compatible JRE was not found - thus no static release will be made.
 			print('[Warning] No compatible JRE ({}) is available for the ({}) {} platform. A static release will not be provided for the platform.'.format(jreVerSpec, archStr, platStr.capitalize()))
@@ -312,18 +312,24 @@ def buildDistTree(aBuildPath, aRootPath, aArgs, aJreNode):
 	dstPath = os.path.join(aRootPath, '.background', 'background.png')
 	shutil.copy(srcPath, dstPath)
 
-	# Copy over the .DS_Store
-	srcPath = os.path.join(appTemplatePath, 'apple', '.DS_Store.template')
+	# Write out the layout spec of the DMG window
+	layoutPath = os.path.join(aBuildPath, 'dmgLayout.txt')
+	with open(layoutPath, mode='wt', encoding='utf-8', newline='\n') as tmpFO:
+		tmpFO.write('volumeName,' + appName + '\n')
+		tmpFO.write('background,.background/background.png\n')
+		tmpFO.write('window,362,95,415,295\n')
+		tmpFO.write('iconSize,128\n')
+		tmpFO.write('textSize,12\n')
+		tmpFO.write('icon,' + appName + '.app,95,152\n')
+		tmpFO.write('icon,Applications,320,152\n')
+
+	# Generate the .DS_Store file from the layout spec
 	dstPath = os.path.join(aRootPath, '.DS_Store')
-	shutil.copy(srcPath, dstPath)
-
-	# Update the .DS_Store file to reflect the new volume name
-	srcPath = os.path.join(aRootPath, '.DS_Store')
 	classPath = appInstallRoot + '/lib/glum-2.0.0.jar:' + appInstallRoot + '/lib/distMaker-0.71.jar:' + appInstallRoot + '/lib/guava-18.0.jar'
-	cmd = ['java', '-cp', classPath, 'dsstore.MainApp', srcPath, appName]
+	cmd = ['java', '-cp', classPath, 'dsstore.MainApp', '--layout', layoutPath, dstPath]
 	proc = miscUtils.executeAndLog(cmd, "\t\tdsstore.MainApp: ")
 	if proc.returncode != 0:
-		print('\tError: Failed to update .DS_Store. Return code: ' + str(proc.returncode))
+		print('\tError: Failed to generate .DS_Store. Return code: ' + str(proc.returncode))
 
 
 def buildPListInfo(aDstFile, aArgs, aJreNode):
@@ -15,11 +15,14 @@
 # limitations under the License.
 
 import argparse
+import glob
+import hashlib
 import os
 import platform
 import re
 import shutil
 import signal
+import struct
 import subprocess
 import sys
 import tempfile
@@ -33,7 +36,7 @@ from miscUtils import ErrorDM
 from miscUtils import FancyArgumentParser
 
 
-def buildCatalogFile(aArgs, aDeltaPath):
+def buildCatalogFile(aArgs, aDeltaPath, aJreModuleL):
 	# Build the delta catalog
 	records = []
 
@@ -47,6 +50,16 @@ def buildCatalogFile(aArgs, aDeltaPath):
 	record = ('jre', ",".join(jreVerSpec))
 	records.append(record)
 
+	# Record the preferred JRE variant
+	if aArgs.jreVariant != None:
+		record = ('jreVariant', aArgs.jreVariant)
+		records.append(record)
+
+	# Record the modules required of the JRE variant
+	if aJreModuleL != None:
+		record = ('jreModules', ",".join(aJreModuleL))
+		records.append(record)
+
 	snipLen = len(aDeltaPath) + 1
 #	for root, dirNames, fileNames in os.walk(aDeltaPath, onerror=failTracker.recordError):
 	for root, dirNames, fileNames in os.walk(aDeltaPath):
@@ -91,6 +104,120 @@ def buildCatalogFile(aArgs, aDeltaPath):
 
 		tmpFO.write('exit\n')
 
+	# Save the records to the (binary) catalog file
+	buildCatalogBinFile(records, aDeltaPath, dstPath)
+
+
+def buildCatalogBinFile(aRecords, aDeltaPath, aTextPath):
+	"""Builds the binary catalog (catalog.bin) which describes the same content as the records of catalog.txt (located
+	at aTextPath). The binary catalog allows DistMaker to locate a node (via a binary search of a sorted path table)
+	without parsing the entire catalog. The binary catalog records the length and digest of catalog.txt as well as the
+	digest of its own content. The format is documented in the Java class: distMaker.node.MappedCatalog"""
+	digestType = None
+	jreVerL = []
+	jreVariant = None
+	jreModules = None
+	nodeL = []
+	for aRecord in aRecords:
+		if aRecord[0] == 'digest':
+			digestType = aRecord[1]
+		elif aRecord[0] == 'jre':
+			jreVerL = aRecord[1].split(',')
+		elif aRecord[0] == 'jreVariant':
+			jreVariant = aRecord[1]
+		elif aRecord[0] == 'jreModules':
+			jreModules = aRecord[1]
+		elif aRecord[0] == 'P':
+			nodeL.append((aRecord[1].encode('utf-8'), -1, None))
+		elif aRecord[0] == 'F':
+			nodeL.append((aRecord[3].encode('utf-8'), int(aRecord[2]), bytes.fromhex(aRecord[1])))
+
+	# Bail if there are no nodes (an empty catalog is not valid)
+	if len(nodeL) == 0:
+		return
+
+	digestLen = {'md5': 16, 'sha256': 32, 'sha512': 64}[digestType.lower()]
+
+	# Form the string pool
+	pool = bytearray()
+	def addStr(aBytes):
+		if aBytes == None:
+			return (-1, 0)
+		retRef = (len(pool), len(aBytes))
+		pool.extend(aBytes)
+		return retRef
+
+	strRefL = [addStr(digestType.encode('utf-8'))]
+	strRefL.append(addStr(jreVerL[0].encode('utf-8') if len(jreVerL) >= 1 else None))
+	strRefL.append(addStr(jreVerL[1].encode('utf-8') if len(jreVerL) >= 2 else None))
+	strRefL.append(addStr(jreVariant.encode('utf-8') if jreVariant != None else None))
+	strRefL.append(addStr(jreModules.encode('utf-8') if jreModules != None else None))
+
+	# Sort the nodes by the (UTF-8) bytes of their path
+	sortIdxL = sorted(range(len(nodeL)), key=lambda aIdx: nodeL[aIdx][0])
+	sortPosL = [0] * len(nodeL)
+	for aPos, aIdx in enumerate(sortIdxL):
+		sortPosL[aIdx] = aPos
+
+	pathTable = bytearray()
+	digestTable = bytearray()
+	for aIdx in sortIdxL:
+		(pathBytes, fileLen, digestBytes) = nodeL[aIdx]
+		(pathOff, pathLen) = addStr(pathBytes)
+		pathTable += struct.pack('>iiq', pathOff, pathLen, fileLen)
+		digestTable += digestBytes if digestBytes != None else bytes(digestLen)
+
+	orderTable = struct.pack('>{}i'.format(len(nodeL)), *sortPosL)
+
+	# Form the header. The header binds the binary catalog to catalog.txt and to its own content.
+	body = bytes(pathTable) + orderTable + bytes(digestTable) + bytes(pool)
+	textLen = os.path.getsize(aTextPath)
+	textDigest = bytes.fromhex(miscUtils.computeDigestForFile(aTextPath, 'sha256'))
+	bodyDigest = hashlib.sha256(body).digest()
+
+	header = struct.pack('>IIq', 0x444D4342, 3, textLen) + textDigest + bodyDigest
+	header += struct.pack('>II', len(nodeL), digestLen)
+	for (aOff, aLen) in strRefL:
+		header += struct.pack('>ii', aOff, aLen)
+
+	dstPath = os.path.join(aDeltaPath, "catalog.bin")
+	with open(dstPath, mode='wb') as tmpFO:
+		tmpFO.write(header)
+		tmpFO.write(body)
+
+
+def buildJreVariants(aArgs, aBuildPath, aModuleL, aJreNodeL):
+	"""Builds the trimmed (jlink) JRE variants (composed of the modules, aModuleL) for each platform that will have a
+	JRE bundled release. A variant is built for every architecture of the (standard) JREs available for the platform.
+	The variants will be stored in the folder: <aBuildPath>/jre. Returns the list of JreNodes corresponding to the
+	variants."""
+	print('Building JRE variant: ' + aArgs.jreVariant)
+	print('\tModules: ' + ','.join(aModuleL))
+
+	retL = []
+	for aPlatStr in ['linux', 'macosx', 'windows']:
+		# Skip to next if there will be no JRE bundled release for the platform
+		if miscUtils.getPlatformTypes(aArgs.platform, aPlatStr).withJre == False:
+			continue
+
+		archStrL = sorted(set([aJreNode.getArchitecture() for aJreNode in aJreNodeL if aJreNode.getPlatform() == aPlatStr and aJreNode.getVariant() == None]))
+		for aArchStr in archStrL:
+			tmpJreNode = jreUtils.getJreNode(aJreNodeL, aArchStr, aPlatStr, aArgs.jreVerSpec)
+			if tmpJreNode == None:
+				continue
+
+			variantNode = jreUtils.buildTrimmedJre(tmpJreNode, aModuleL, aArgs.jreVariant, os.path.join(aBuildPath, 'jre'))
+			print('\tBuilt {} ({}) runtime: {}'.format(aPlatStr.capitalize(), aArchStr, variantNode.getFile()))
+			retL.append(variantNode)
+
+	# Let the user know how to deploy the variants
+	print('\tTo deploy the JRE variant, add the following to the JRE catalog (under the section: jre,{}):'.format(jreUtils.verArrToVerStr(retL[0].getVersion()) if len(retL) > 0 else '<version>'))
+	for aJreNode in retL:
+		print('\t\tF,{},{},{},{}'.format(aJreNode.getArchitecture(), aJreNode.getPlatform(), aJreNode.getFile(), aJreNode.getVariant()))
+	print('')
+
+	return retL
+
 
 def checkForRequiredApplicationsAndExit():
 	"""Method to ensure we have all of the required applications installed to support building of distributions.
@@ -219,6 +346,9 @@ if __name__ == "__main__":
 	parser.add_argument('--jreVersion', dest='jreVerSpec', help='JRE version to utilize. This should be either 1 or 2 values where each value should be something like 1.7 or 1.8 or 1.8.0_34.'
 							+ ' If 2 values are specified than the second value must be later than the first value. Any static build will be built with the latest allowable JRE.'
 							+ ' Note there should be corresponding JREs for each relevant platform specified via arg: --jreCatalog', nargs='+', default=None)
+	parser.add_argument('--jreVariant', help='Name of a trimmed JRE variant to build. A minimal runtime image (composed of the modules required by the application) will be built via jdeps / jlink'
+		+ ' for each platform and bundled in place of the full JRE. The JRE catalog must reference JDKs (which provide jmods). Example: myApp-1', default=None)
+	parser.add_argument('--jreModules', help='Additional modules to include in the trimmed JRE variant. Use this for modules that jdeps can not detect (reflection / services). Example: jdk.crypto.ec', nargs='+', default=[])
 	parser.add_argument('--jvmArgs', help='JVM arguments.', nargs='+', default=[])
 	parser.add_argument('--classPath', help='Class path listing of jar files relative to javaCode. Leave blank for auto determination.', nargs='+', default=[])
 	parser.add_argument('--debug', help='Turn on debug options for built applications.', action='store_true', default=False)
@@ -229,6 +359,8 @@ if __name__ == "__main__":
 	parser.add_argument('--forceSingleInstance', help='Force the application to have only one instance.', default=False)
 	parser.add_argument('--digest', help='Digest used to ensure integrity of application upgrades. Default: sha256', choices=['md5', 'sha256', 'sha512'], default='sha256')
 	parser.add_argument('--enableJmx', help='Enables JMX technology on the target client. Allows one to attach jconsole, jvisualvm, or other JMX tools.', action='store_true', default=False)
+	parser.add_argument('--jreShared', help='Enables the (opt-in) shared JRE store on the Linux platform. Applications built with this option will keep a single copy of each JRE per host.'
+		+ ' The store defaults to ~/.distMaker/jre and may be relocated (for example to a system location) via the environment variable DISTMAKER_JRE_STORE.', action='store_true', default=False)
 	parser.add_argument('--platform', help='Target platforms to build. Choices are: [linux, macosx, windows]. Note the following (append) modifiers.'
 		+ ' Modifier \'-\' results in only the non-JRE build. Modifier \'+\' results in only the JRE build. Default: linux, macosx+, windows', nargs='+', default=['linux', 'macosx+', 'windows'],
 		choices=['linux', 'linux-', 'linux+', 'macosx', 'macosx-', 'macosx+', 'windows', 'windows-', 'windows+'], metavar='PLATFORM')
@@ -422,8 +554,21 @@ if __name__ == "__main__":
 	dstPath = os.path.join(buildPath, "delta/app.cfg")
 	miscUtils.buildAppLauncherConfig(dstPath, args)
 
+	# Build the (trimmed) JRE variants. Note the modules required by the variants are recorded in the delta catalog.
+	jreModuleL = None
+	if args.jreVariant != None:
+		try:
+			jarFileL = sorted(glob.glob(os.path.join(deltaCodePath, '*.jar')))
+			jreModuleL = jreUtils.getJreModules(jarFileL, args.jreModules)
+			jreNodeL = jreNodeL + buildJreVariants(args, buildPath, jreModuleL, jreNodeL)
+		except ErrorDM as aExp:
+			print('   [ERROR] Failed to build the JRE variant: ' + args.jreVariant)
+			print('      ' + aExp.message + '\n', file=sys.stderr)
+			shutil.rmtree(buildPath)
+			exit(-1)
+
 	# Build the delta catalog
-	buildCatalogFile(args, deltaPath)
+	buildCatalogFile(args, deltaPath, jreModuleL)
 
 	# Build the Apple release
 	appleUtils.buildRelease(args, buildPath, jreNodeL)
@@ -15,6 +15,7 @@
 # limitations under the License.
 
 import argparse
+import difflib
 import getpass
 import math
 import os
@@ -23,6 +24,8 @@ import signal
 import subprocess
 import sys
 
+import miscUtils
+
 def getDistInfo(aDistPath):
 	appName = None
 	version = None
@@ -146,6 +149,7 @@ def addReleaseInfo(aDeployPath, aAppName, aVerStr, aBuildDate, aIsLegacyJre):
 	with open(catFile, mode='at', encoding='utf-8', newline='\n') as tmpFO:
 		tmpFO.write('R,{},{}\n'.format(aVerStr, aBuildDate))
 		tmpFO.write('info,msg,There are no release notes available.\n\n')
+	miscUtils.removeGzipSibling(catFile)
 
 	# Update the (legacy) releaseInfo.txt file
 	if isLegacyRelease == True and aIsLegacyJre == True:
@@ -218,9 +222,92 @@ def delReleaseInfo(aDeployPath, aAppName, aVerStr, aBuildDate):
 	with open(catFile, mode='wt', encoding='utf-8', newline='\n') as tmpFO:
 		for aLine in passLineL:
 			tmpFO.write(aLine + '\n')
-
-
-def addRelease(aRootPath, aAppName, aVerStr, aBuildDate, aIsLegacyJre):
+	miscUtils.removeGzipSibling(catFile)
+
+
+def buildManifest(aSrcCatFile, aDstCatFile, aSrcVerStr, aDstVerStr, aManifestFile):
+	"""Builds the update manifest that transforms the catalog (aSrcCatFile) of release aSrcVerStr into the catalog
+	(aDstCatFile) of release aDstVerStr. The manifest lists only the catalog lines (nodes) that were added (A), changed
+	(C), or removed (R). Runs of unchanged lines are recorded via a count (=). The instructions are positional so that
+	the client can rebuild the (exact) target catalog from its own catalog. Returns False (and no manifest is written)
+	if the manifest would not be smaller than the target catalog."""
+	with open(aSrcCatFile, mode='rb') as tmpFO:
+		srcData = tmpFO.read()
+	with open(aDstCatFile, mode='rb') as tmpFO:
+		dstData = tmpFO.read()
+	srcLineL = srcData.decode('utf-8').split('\n')
+	dstLineL = dstData.decode('utf-8').split('\n')
+
+	lineL = ['digest,sha256']
+	lineL.append('from,{},{},{}'.format(aSrcVerStr, miscUtils.computeDigestForFile(aSrcCatFile, 'sha256'), len(srcData)))
+	lineL.append('to,{},{},{}'.format(aDstVerStr, miscUtils.computeDigestForFile(aDstCatFile, 'sha256'), len(dstData)))
+
+	# Helper that returns the node key (type and path) of a catalog line
+	def getNodeKey(aLine):
+		tokenL = aLine.split(',')
+		if tokenL[0] == 'F' and len(tokenL) >= 4:
+			return ('F', ','.join(tokenL[3:]))
+		return (tokenL[0], None)
+
+	matcher = difflib.SequenceMatcher(None, srcLineL, dstLineL, autojunk=False)
+	for tag, i1, i2, j1, j2 in matcher.get_opcodes():
+		if tag == 'equal':
+			lineL.append('=,{}'.format(i2 - i1))
+			continue
+
+		# Pair up the replaced lines that refer to the same node as changes
+		srcIdx, dstIdx = i1, j1
+		while srcIdx < i2 and dstIdx < j2 and getNodeKey(srcLineL[srcIdx]) == getNodeKey(dstLineL[dstIdx]):
+			lineL.append('C,' + dstLineL[dstIdx])
+			srcIdx += 1
+			dstIdx += 1
+		for aLine in srcLineL[srcIdx:i2]:
+			lineL.append('R,' + aLine)
+		for aLine in dstLineL[dstIdx:j2]:
+			lineL.append('A,' + aLine)
+
+	# Bail if the manifest would not be smaller than the (target) catalog
+	manifestData = ''.join(aLine + '\n' for aLine in lineL).encode('utf-8')
+	if len(manifestData) >= len(dstData):
+		return False
+
+	with open(aManifestFile, mode='wb') as tmpFO:
+		tmpFO.write(manifestData)
+	os.chmod(aManifestFile, 0o644)
+	miscUtils.writeGzipSibling(aManifestFile)
+	return True
+
+
+def buildManifests(aDeployPath, aVerStr, aNumManifests):
+	"""Builds the update manifests of the release, aVerStr, relative to (up to) the last aNumManifests deployed releases.
+	The manifests are stored in the folder: <aDeployPath>/<aVerStr>/manifest/"""
+	# Determine the prior (non legacy) releases
+	priorVerL = []
+	catFile = os.path.join(aDeployPath, 'appCatalog.txt')
+	if os.path.isfile(catFile) == True:
+		with open(catFile, mode='rt', encoding='utf-8') as tmpFO:
+			for aLine in tmpFO:
+				tokenL = aLine.rstrip('\n').split(',')
+				if len(tokenL) == 3 and tokenL[0] == 'R' and tokenL[1] != aVerStr:
+					if os.path.isfile(os.path.join(aDeployPath, tokenL[1], 'delta', 'catalog.txt')) == True:
+						priorVerL.append(tokenL[1])
+
+	if aNumManifests <= 0 or len(priorVerL) == 0:
+		return
+
+	manifestPath = os.path.join(aDeployPath, aVerStr, 'manifest')
+	os.makedirs(manifestPath, 0o755, exist_ok=True)
+	dstCatFile = os.path.join(aDeployPath, aVerStr, 'delta', 'catalog.txt')
+	builtVerL = []
+	for aPriorVer in priorVerL[-aNumManifests:]:
+		srcCatFile = os.path.join(aDeployPath, aPriorVer, 'delta', 'catalog.txt')
+		if buildManifest(srcCatFile, dstCatFile, aPriorVer, aVerStr, os.path.join(manifestPath, aPriorVer + '.txt')) == True:
+			builtVerL.append(aPriorVer)
+	if len(builtVerL) > 0:
+		print('Built update manifests relative to: ' + ', '.join(builtVerL))
+
+
+def addRelease(aRootPath, aAppName, aVerStr, aBuildDate, aIsLegacyJre, aNumManifests):
 	# Check to see if the deployed location already exists
 	deployPath = os.path.join(aRootPath, aAppName)
 	if os.path.isdir(deployPath) == False:
@@ -243,6 +330,7 @@ def addRelease(aRootPath, aAppName, aVerStr, aBuildDate, aIsLegacyJre):
 
 	# Copy over the contents of the release folder to the deploy location
 	shutil.copytree(distPath, versionPath, symlinks=True)
+	miscUtils.writeGzipSibling(os.path.join(versionPath, 'delta', 'catalog.txt'))
 
 	# Ensure all folders and files have the proper permissions
 	for root, dirs, files in os.walk(versionPath):
@@ -252,8 +340,12 @@ def addRelease(aRootPath, aAppName, aVerStr, aBuildDate, aIsLegacyJre):
 			os.chmod(os.path.join(root, f), 0o644)
 	os.chmod(versionPath, 0o755)
 
+	# Build the update manifests (relative to the prior releases)
+	buildManifests(deployPath, aVerStr, aNumManifests)
+
 	# Update the version info
 	addReleaseInfo(deployPath, aAppName, aVerStr, aBuildDate, aIsLegacyJre)
+	miscUtils.writeSiteIndex(deployPath)
 	print('Application {} ({}) has been deployed to location: {}'.format(aAppName, aVerStr, aRootPath))
 
 
@@ -277,6 +369,7 @@ def delRelease(aRootPath, aAppName, aVerStr, aBuildDate):
 
 	# Update the version info
 	delReleaseInfo(deployPath, aAppName, aVerStr, aBuildDate)
+	miscUtils.writeSiteIndex(deployPath)
 	print('Application {} ({}) has been removed from location: {}'.format(aAppName, aVerStr, aRootPath))
 
 
@@ -300,6 +393,7 @@ if __name__ == "__main__":
 	parser = argparse.ArgumentParser(prefix_chars='-', add_help=False, fromfile_prefix_chars='@')
 	parser.add_argument('--help', '-h', help='Show this help message and exit.', action='help')
 	parser.add_argument('--remove', help='Remove the specified distribution.', action='store_true', default=False)
+	parser.add_argument('--numManifests', help='Number of prior releases for which update manifests are built.', type=int, default=5)
 	parser.add_argument('deployRoot', help='Root location to deploy the specified distribution.')
 	parser.add_argument('distLoc', nargs='?', default=scriptPath, help='The location of the distribution to deploy.')
 
@@ -330,5 +424,5 @@ if __name__ == "__main__":
 	if args.remove == True:
 		delRelease(rootPath, appName, version, buildDate)
 	else:
-		addRelease(rootPath, appName, version, buildDate, isLegacyJre)
+		addRelease(rootPath, appName, version, buildDate, isLegacyJre, args.numManifests)
 
@@ -24,6 +24,7 @@ import shutil
 import signal
 import subprocess
 import sys
+import tempfile
 from collections import OrderedDict
 
 import jreUtils
@@ -108,13 +109,14 @@ def addAppLauncherRelease(aRootPath):
 		fileLen = stat.st_size
 		tmpFO.write("F,{},{},{},{}\n".format(digestStr, fileLen, dstFileName, version))
 #		tmpFO.write('\n')
+	miscUtils.writeGzipSibling(catFile)
 
 	# Copy the src appLauncher.jar file to it's deployed location
 	shutil.copy2(srcFile, dstFile)
 	os.chmod(dstFile, 0o644)
 
 
-def addRelease(aRootPath, aJreNodeL, aVerStr):
+def addRelease(aRootPath, aJreNodeL, aVerStr, aMakeDelta):
 	# Normalize the JVM version for consistency
 	aVerStr = jreUtils.normalizeJvmVerStr(aVerStr)
 
@@ -139,12 +141,13 @@ def addRelease(aRootPath, aJreNodeL, aVerStr):
 		exit()
 
 	# Update the version info
-	addReleaseInfo(installPath, aJreNodeL, aVerStr)
+	addReleaseInfo(installPath, aJreNodeL, aVerStr, aMakeDelta)
 	addAppLauncherRelease(aRootPath)
+	miscUtils.refreshSiteIndexes(aRootPath)
 	regPrintln('JRE ({}) has been deployed to location: {}'.format(aVerStr, aRootPath))
 
 
-def addReleaseInfo(aInstallPath, aJreNodeL, aVerStr):
+def addReleaseInfo(aInstallPath, aJreNodeL, aVerStr, aMakeDelta):
 	# Var that holds the last recorded exit (distmaker) command
 	# By default assume the command has not been set
 	exitVerDM = None
@@ -184,39 +187,111 @@ def addReleaseInfo(aInstallPath, aJreNodeL, aVerStr):
 	if exitVerDM == None:
 		needExitInstr = True
 
-	# Updated the jreCatalogfile
-	with open(catFile, mode='at', encoding='utf-8', newline='\n') as tmpFO:
-		# Write the exit info to stop legacy DistMakers from processing further
-		if needExitInstr == True:
-			tmpFO.write('exit,DistMaker,0.48\n\n')
-		# Write out the JRE release info
-		tmpFO.write("jre,{}\n".format(aVerStr))
-		if needExitInstr == True:
-			tmpFO.write("require,AppLauncher,0.1,0.2\n")
+	# Build the JRE deltas (relative to the prior deployed JRE) for each JRE. Note that JRE deltas are only
+	# supported by (non legacy) catalogs which are processed by DistMaker 0.55 or later.
+	workPath = tempfile.mkdtemp()
+	try:
+		deltaD = OrderedDict()
+		if aMakeDelta == True and exitVerDM != None and exitVerDM > [0, 54]:
+			for aJreNode in matchJreNodeL:
+				# Skip JRE variants - deltas are only provided for standard JREs
+				if aJreNode.getVariant() != None:
+					continue
+
+				srcJreNode = getPriorDeployedJreNode(aInstallPath, aJreNodeL, aJreNode)
+				if srcJreNode == None:
+					continue
+
+				srcVerStr = jreUtils.verArrToVerStr(srcJreNode.getVersion())
+				deltaFileName = 'jreDelta-{}-to-{}-{}-{}.tar.gz'.format(srcVerStr, aVerStr, aJreNode.getPlatform(), aJreNode.getArchitecture())
+				deltaFile = os.path.join(workPath, deltaFileName)
+				regPrintln('Building JRE delta: {}'.format(deltaFileName))
+				numFiles, numDeltaFiles = jreUtils.buildJreDelta(srcJreNode, aJreNode, deltaFile)
+				regPrintln('\tFiles in JRE: {}   Files in delta: {}\n'.format(numFiles, numDeltaFiles))
+				deltaD[aJreNode] = (srcVerStr, deltaFile)
+
+		# Updated the jreCatalogfile
+		with open(catFile, mode='at', encoding='utf-8', newline='\n') as tmpFO:
+			# Write the exit info to stop legacy DistMakers from processing further
+			if needExitInstr == True:
+				tmpFO.write('exit,DistMaker,0.48\n\n')
+			# Write out the JRE release info
+			tmpFO.write("jre,{}\n".format(aVerStr))
+			if needExitInstr == True:
+				tmpFO.write("require,AppLauncher,0.1,0.2\n")
+			for aJreNode in matchJreNodeL:
+				tmpFile = aJreNode.getFile()
+				stat = os.stat(tmpFile)
+				digestStr = miscUtils.computeDigestForFile(tmpFile, 'sha256')
+				fileLen = stat.st_size
+				archStr = aJreNode.getArchitecture();
+				platStr = aJreNode.getPlatform()
+				variant = aJreNode.getVariant()
+				if variant != None and exitVerDM != None and exitVerDM > [0, 54]:
+					tmpFO.write("variant,{},{},{},{},{},{}\n".format(archStr, platStr, variant, os.path.basename(tmpFile), digestStr, fileLen))
+				elif variant != None:
+					errPrintln('\tJRE variants are not supported by legacy catalogs. Skipping JRE: ' + tmpFile)
+				elif exitVerDM != None and exitVerDM > [0, 54]:
+					tmpFO.write("F,{},{},{},{},{}\n".format(archStr, platStr, os.path.basename(tmpFile), digestStr, fileLen))
+				elif exitVerDM != None:
+					tmpFO.write("F,{},{},{},{}\n".format(digestStr, fileLen, platStr, os.path.basename(tmpFile)))
+				else:
+					tmpFO.write("F,{},{},{}\n".format(digestStr, fileLen, os.path.basename(tmpFile)))
+			# Write out the JRE delta info
+			for aJreNode, (srcVerStr, deltaFile) in deltaD.items():
+				digestStr = miscUtils.computeDigestForFile(deltaFile, 'sha256')
+				fileLen = os.stat(deltaFile).st_size
+				archStr = aJreNode.getArchitecture();
+				platStr = aJreNode.getPlatform()
+				tmpFO.write("delta,{},{},{},{},{},{}\n".format(archStr, platStr, srcVerStr, os.path.basename(deltaFile), digestStr, fileLen))
+			tmpFO.write('\n')
+		miscUtils.writeGzipSibling(catFile)
+
+		destPath = os.path.join(aInstallPath, aVerStr)
+		os.makedirs(destPath, 0o755)
+
+		# Copy over the JRE files to the proper path
 		for aJreNode in matchJreNodeL:
 			tmpFile = aJreNode.getFile()
-			stat = os.stat(tmpFile)
-			digestStr = miscUtils.computeDigestForFile(tmpFile, 'sha256')
-			fileLen = stat.st_size
-			archStr = aJreNode.getArchitecture();
-			platStr = aJreNode.getPlatform()
-			if exitVerDM != None and exitVerDM > [0, 54]:
-				tmpFO.write("F,{},{},{},{},{}\n".format(archStr, platStr, os.path.basename(tmpFile), digestStr, fileLen))
-			elif exitVerDM != None:
-				tmpFO.write("F,{},{},{},{}\n".format(digestStr, fileLen, platStr, os.path.basename(tmpFile)))
-			else:
-				tmpFO.write("F,{},{},{}\n".format(digestStr, fileLen, os.path.basename(tmpFile)))
-		tmpFO.write('\n')
+			shutil.copy2(tmpFile, destPath)
+			destFile = os.path.join(destPath, os.path.basename(tmpFile))
+			os.chmod(destFile, 0o644)
+
+		# Copy over the JRE delta files to the proper path
+		for srcVerStr, deltaFile in deltaD.values():
+			shutil.copy2(deltaFile, destPath)
+			destFile = os.path.join(destPath, os.path.basename(deltaFile))
+			os.chmod(destFile, 0o644)
+	finally:
+		shutil.rmtree(workPath)
+
+
+def getPriorDeployedJreNode(aInstallPath, aJreNodeL, aTargJreNode):
+	"""Returns the JreNode of the most recent JRE (prior to aTargJreNode) that has been deployed to aInstallPath. The returned
+	JreNode will have the same architecture and platform as aTargJreNode. None will be returned if there is no such JRE."""
+	retJreNode = None
+	targVer = aTargJreNode.getVersion()
+	for aJreNode in aJreNodeL:
+		# Skip to next if the system (or variant) does not match
+		if aJreNode.getArchitecture() != aTargJreNode.getArchitecture() or aJreNode.getPlatform() != aTargJreNode.getPlatform():
+			continue
+		if aJreNode.getVariant() != aTargJreNode.getVariant():
+			continue
+
+		# Skip to next if the JRE is not prior to the target JRE
+		evalVer = aJreNode.getVersion()
+		if jreUtils.isVerAfterAB(targVer, evalVer) == False:
+			continue
+
+		# Skip to next if the JRE has not been deployed
+		versionPath = os.path.join(aInstallPath, jreUtils.verArrToVerStr(evalVer))
+		if os.path.isdir(versionPath) == False:
+			continue
 
-	destPath = os.path.join(aInstallPath, aVerStr)
-	os.makedirs(destPath, 0o755)
+		if retJreNode == None or jreUtils.isVerAfterAB(evalVer, retJreNode.getVersion()) == True:
+			retJreNode = aJreNode
 
-	# Copy over the JRE files to the proper path
-	for aJreNode in matchJreNodeL:
-		tmpFile = aJreNode.getFile()
-		shutil.copy2(tmpFile, destPath)
-		destFile = os.path.join(destPath, os.path.basename(tmpFile))
-		os.chmod(destFile, 0o644)
+	return retJreNode
 
 
 def delRelease(aRootPath, aVerStr):
@@ -242,6 +317,7 @@ def delRelease(aRootPath, aVerStr):
 
 	# Remove the release from the deployed location
 	shutil.rmtree(versionPath)
+	miscUtils.refreshSiteIndexes(aRootPath)
 	regPrintln('JRE ({}) has been removed from location: {}'.format(aVerStr, aRootPath))
 
 
@@ -277,6 +353,7 @@ def delReleaseInfo(aInstallPath, aVerStr):
 	with open(catFile, mode='wt', encoding='utf-8', newline='\n') as tmpFO:
 		for aLine in inputLineL:
 			tmpFO.write(aLine)
+	miscUtils.writeGzipSibling(catFile)
 
 
 def showReleaseInfo(aRootPath, aJreNodeL):
@@ -396,6 +473,7 @@ if __name__ == "__main__":
 	parser.add_argument('--deploy', metavar='version', help='Deploy the specified JRE distribution to the deployRoot.', action='store', default=None)
 	parser.add_argument('--remove', metavar='version', help='Remove the specified JRE distribution from the deployRoot.', action='store', default=None)
 	parser.add_argument('--status', help='Display stats of all deployed/undeployed JREs relative to the deployRoot.', action='store_true', default=False)
+	parser.add_argument('--noDelta', help='Do not build JRE deltas (relative to the prior deployed JRE) when deploying a JRE distribution.', action='store_true', default=False)
 	parser.add_argument('deployRoot', help='Top level folder to the deployment root.')
 
 	# Intercept any request for a  help message and bail
@@ -439,7 +517,7 @@ if __name__ == "__main__":
 		# Deploy the specified JRE
 		version = args.deploy
 		try:
-			addRelease(rootPath, jreNodeL, version)
+			addRelease(rootPath, jreNodeL, version, args.noDelta == False)
 		except ErrorDM as aExp:
 			errPrintln('Failed to deploy JREs with version: ' + version)
 			errPrintln('\t' + aExp.message)
@@ -17,7 +17,9 @@
 import glob
 import os
 import re
+import shutil
 import subprocess
+import tarfile
 import tempfile
 
 import logUtils
@@ -28,11 +30,12 @@ from miscUtils import ErrorDM
 
 # JreNode class definition
 class JreNode:
-	def __init__(self, aArchitecture, aPlatform, aVersion, aFilePath):
+	def __init__(self, aArchitecture, aPlatform, aVersion, aFilePath, aVariant=None):
 		self.architecture = aArchitecture
 		self.platform = aPlatform
 		self.version = aVersion
 		self.filePath = aFilePath
+		self.variant = aVariant
 
 	def getArchitecture(self):
 		"""Returns the JRE's architecture."""
@@ -50,6 +53,128 @@ class JreNode:
 		"""Returns the (tar.gz or zip) file which contains the packaged JRE."""
 		return self.filePath
 
+	def getVariant(self):
+		"""Returns the JRE's variant. None is returned for standard (full) JREs."""
+		return self.variant
+
+
+
+def buildJreDelta(aSrcJreNode, aTargJreNode, aDestFile):
+	"""Method that will build a JRE delta (tar.gz) file that allows the JRE, aTargJreNode, to be rebuilt from an installed JRE
+	of aSrcJreNode. Both JREs must be of the same architecture and platform.
+
+	The delta will unpack to a single top level folder (jreDelta) with the following contents:
+		delta.txt --- Listing of every path and file (with digest) in the target JRE.
+		files/    --- The files that are not present (or differ in content / mode) in the source JRE. Symbolic links are
+		              always included.
+
+	Returns a tuple consisting of the number of files in the target JRE and the number of files stored in the delta."""
+	workPath = tempfile.mkdtemp()
+	try:
+		# Unpack both JREs
+		srcPath = os.path.join(workPath, 'src')
+		targPath = os.path.join(workPath, 'targ')
+		unpackAndRenameToStandard(aSrcJreNode, srcPath)
+		unpackAndRenameToStandard(aTargJreNode, targPath)
+		srcPath = os.path.join(srcPath, getBasePathFor(aSrcJreNode))
+		targPath = os.path.join(targPath, getBasePathFor(aTargJreNode))
+
+		# Determine the contents of the target JRE
+		pathL = []
+		fileL = []
+		linkL = []
+		for aRoot, aDirL, aFileL in os.walk(targPath):
+			for aName in sorted(aDirL + aFileL):
+				tmpPath = os.path.join(aRoot, aName)
+				relPath = os.path.relpath(tmpPath, targPath)
+				if os.path.islink(tmpPath) == True:
+					linkL.append(relPath)
+				elif os.path.isdir(tmpPath) == True:
+					pathL.append(relPath)
+				else:
+					fileL.append(relPath)
+
+		# Form the delta catalog and determine the files that need to be included in the delta
+		srcVerStr = verArrToVerStr(aSrcJreNode.getVersion())
+		targVerStr = verArrToVerStr(aTargJreNode.getVersion())
+		archiveDigestStr = miscUtils.computeDigestForFile(aTargJreNode.getFile(), 'sha256')
+		catFile = os.path.join(workPath, 'delta.txt')
+		deltaFileL = []
+		with open(catFile, mode='wt', encoding='utf-8', newline='\n') as tmpFO:
+			tmpFO.write('name,JreDelta\n')
+			tmpFO.write('digest,sha256\n')
+			tmpFO.write('jre,{},{}\n'.format(targVerStr, srcVerStr))
+			tmpFO.write('archive,{}\n\n'.format(archiveDigestStr))
+			for aRelPath in pathL:
+				tmpFO.write('P,{}\n'.format(aRelPath))
+			for aRelPath in fileL:
+				digestStr = miscUtils.computeDigestForFile(os.path.join(targPath, aRelPath), 'sha256')
+				fileLen = os.stat(os.path.join(targPath, aRelPath)).st_size
+				tmpFO.write('F,{},{},{}\n'.format(digestStr, fileLen, aRelPath))
+
+				# Skip over files that are unchanged in the source JRE
+				srcFile = os.path.join(srcPath, aRelPath)
+				if os.path.isfile(srcFile) == True and os.path.islink(srcFile) == False:
+					srcStat = os.stat(srcFile)
+					targStat = os.stat(os.path.join(targPath, aRelPath))
+					if srcStat.st_size == fileLen and srcStat.st_mode == targStat.st_mode and miscUtils.computeDigestForFile(srcFile, 'sha256') == digestStr:
+						continue
+				deltaFileL.append(aRelPath)
+
+		# Form the delta (tar.gz) file
+		with tarfile.open(aDestFile, mode='w:gz') as tmpTF:
+			tmpTF.add(catFile, arcname='jreDelta/delta.txt')
+			tmpTF.add(targPath, arcname='jreDelta/files', recursive=False)
+			for aRelPath in sorted(deltaFileL + linkL):
+				tmpTF.add(os.path.join(targPath, aRelPath), arcname='jreDelta/files/' + aRelPath, recursive=False)
+	finally:
+		shutil.rmtree(workPath)
+
+	return (len(fileL), len(deltaFileL))
+
+
+def buildTrimmedJre(aJreNode, aModuleL, aVariant, aDestPath):
+	"""Method that will build a trimmed runtime image (via jlink) from the JDK, aJreNode. The runtime image will consist of only
+	the modules in aModuleL. The image will be packaged as a tar.gz file in the folder aDestPath and the JreNode (of the
+	specified variant) corresponding to the file will be returned.
+
+	Note the JDK must provide the jmods folder and the version of the (host) jlink tool must match the version of the JDK.
+	The top level layout of the JDK is retained. Thus, for the Macosx platform, the image will replace Contents/Home."""
+	workPath = tempfile.mkdtemp()
+	try:
+		# Unpack the JDK and locate the jmods folder
+		unpackAndRenameToStandard(aJreNode, workPath)
+		basePath = getBasePathFor(aJreNode)
+		jrePath = os.path.join(workPath, basePath)
+		jmodPathL = glob.glob(os.path.join(jrePath, 'jmods')) + glob.glob(os.path.join(jrePath, 'Contents', 'Home', 'jmods'))
+		if len(jmodPathL) != 1:
+			raise ErrorDM('The JRE does not provide the jmods folder. A JDK is required to build a trimmed runtime. File: ' + aJreNode.getFile())
+		homePath = os.path.dirname(jmodPathL[0])
+
+		# Build the runtime image
+		imagePath = os.path.join(workPath, 'image')
+		exeCmd = ['jlink', '--module-path', jmodPathL[0], '--add-modules', ','.join(aModuleL), '--strip-debug', '--no-header-files', '--no-man-pages', '--output', imagePath]
+		try:
+			subprocess.check_output(exeCmd, stderr=subprocess.STDOUT)
+		except (OSError, subprocess.CalledProcessError) as aExp:
+			raise ErrorDM('Failed to build the runtime image via jlink. JDK: {}\n\t{}'.format(aJreNode.getFile(), getattr(aExp, 'output', aExp)))
+
+		# Replace the (JDK) home with the runtime image
+		shutil.rmtree(homePath)
+		os.rename(imagePath, homePath)
+
+		# Package the runtime image
+		verStr = verArrToVerStr(aJreNode.getVersion())
+		fileName = 'jre-{}-{}_{}-{}.tar.gz'.format(verStr, aVariant, aJreNode.getPlatform(), aJreNode.getArchitecture())
+		retFile = os.path.join(aDestPath, fileName)
+		if os.path.isdir(aDestPath) == False:
+			os.makedirs(aDestPath)
+		with tarfile.open(retFile, mode='w:gz') as tmpTF:
+			tmpTF.add(jrePath, arcname=basePath)
+	finally:
+		shutil.rmtree(workPath)
+
+	return JreNode(aJreNode.getArchitecture(), aJreNode.getPlatform(), aJreNode.getVersion(), retFile, aVariant)
 
 
 def getBasePathFor(aJreNode):
@@ -57,7 +182,8 @@ def getBasePathFor(aJreNode):
 	This is needed since different JRE tar.gz files have been found to have different top level paths. Using
 	this method ensures consistency between JRE tar.gz releases after the tar.gz file is unpacked.
 
-	Please note that legacy JREs will expand to a different path than non-legacy JREs.
+	Please note that legacy JREs will expand to a different path than non-legacy JREs. JRE variants will expand
+	to a path that is suffixed with the variant. This must match distMaker.jre.JreUtils.getExpandJrePath().
 	"""
 	verArr = aJreNode.getVersion()
 	verStr = verArrToVerStr(verArr)
@@ -65,6 +191,8 @@ def getBasePathFor(aJreNode):
 		basePath = 'jre' + verStr
 	else:
 		basePath = 'jre-' + verStr
+	if aJreNode.getVariant() != None:
+		basePath += '-' + aJreNode.getVariant()
 	return basePath;
 
 
@@ -111,7 +239,27 @@ def getJreNodesForVerStr(aJreNodeL, aVerStr):
 	return retL;
 
 
-def getJreNode(aJreNodeL, aArchStr, aPlatStr, aJvmVerSpec):
+def getJreModules(aJarFileL, aExtraModuleL):
+	"""Returns the (sorted) list of JDK modules required by the specified jar files. The modules are determined via the jdeps
+	tool. Modules that are only accessed via reflection or services (such as jdk.crypto.ec) are not detected by jdeps and
+	should be specified via aExtraModuleL."""
+	exeCmd = ['jdeps', '--print-module-deps', '--ignore-missing-deps', '--multi-release', 'base']
+	exeCmd += ['--class-path', os.pathsep.join(aJarFileL)] + aJarFileL
+	try:
+		output = subprocess.check_output(exeCmd, stderr=subprocess.STDOUT).decode('utf-8')
+	except (OSError, subprocess.CalledProcessError) as aExp:
+		raise ErrorDM('Failed to determine the required modules via jdeps.\n\t{}'.format(getattr(aExp, 'output', aExp)))
+
+	# The module listing is the last line of the output
+	lineL = [aLine.strip() for aLine in output.splitlines() if len(aLine.strip()) > 0]
+	moduleS = set(['java.base'])
+	if len(lineL) > 0:
+		moduleS.update(lineL[-1].split(','))
+	moduleS.update(aExtraModuleL)
+	return sorted(moduleS)
+
+
+def getJreNode(aJreNodeL, aArchStr, aPlatStr, aJvmVerSpec, aVariant=None):
 	"""Returns the JRE for the appropriate platform and JRE release. If there are several possible	matches then
 	the JRE with the latest version will be returned.
 	aJreNodeL   --- The list of available JREs.
@@ -119,6 +267,7 @@ def getJreNode(aJreNodeL, aArchStr, aPlatStr, aJvmVerSpec):
 	aPlatStr    --- The platform of the JRE of interest. Platform will typically be one of: 'linux', 'macosx', 'windows'
 	aJvmVerSpec --- A list of 1 or 2 items that define the range of JRE versions you are interested in. If the
 	                list has just one item then that version will be used as the minimum version.
+	aVariant    --- The variant of the JRE of interest. None refers to standard (full) JREs.
 
 	Method will return None if there is no JRE that is sufficient for the request. Note if you do not care about
 	any specific update for a major version of JAVA then just specify the major version. Example '1.8' instead of
@@ -147,6 +296,9 @@ def getJreNode(aJreNodeL, aArchStr, aPlatStr, aJvmVerSpec):
 		# Ensure the platform is a match
 		if aPlatStr != aJreNode.getPlatform():
 			continue
+		# Ensure the variant is a match
+		if aVariant != aJreNode.getVariant():
+			continue
 
 		# Ensure that the JRE's version is in range of minJvmVer and maxJvmVer
 		evalVer = aJreNode.getVersion()
@@ -188,6 +340,7 @@ def loadJreCatalog(aFile):
 	- architecture
 	- platform
 	- file path
+	- variant (optional)
 	"""
 	retL = []
 
@@ -215,10 +368,13 @@ def loadJreCatalog(aFile):
 			errMsgL = []
 
 			# Parse the JRE Node
-			if tokenL[0] == 'F' and len(tokenL) == 4:
+			if tokenL[0] == 'F' and (len(tokenL) == 4 or len(tokenL) == 5):
 				archStr = tokenL[1]
 				platStr = tokenL[2]
 				pathStr = tokenL[3]
+				variant = None
+				if len(tokenL) == 5:
+					variant = tokenL[4]
 
 				# Ensure the JRE version section has been declared
 				if workJreVer == None:
@@ -235,13 +391,16 @@ def loadJreCatalog(aFile):
 				# Ensure the platform is recognized
 				if (platStr in validPlatL) == False:
 					errMsgL += ['Platform is not recognized. Valid: {}   ->   Input: {}'.format(validPlatL, platStr)];
+				# Ensure the variant is valid
+				if variant != None and re.fullmatch('[A-Za-z0-9_.-]+', variant) == None:
+					errMsgL += ['Variant is not valid. Only alphanumerics and the characters [_.-] are allowed. Input: {}'.format(variant)];
 				# Ensure the reference JRE file has not been seen before
 				if pathStr in pathS:
 					errMsgL += ['JRE file has already been specified earlier! Path: {}'.format(pathStr)];
 
 				# If no errors then form the JreNode
 				if len(errMsgL) == 0:
-					retL += [JreNode(archStr, platStr, workJreVer, pathStr)]
+					retL += [JreNode(archStr, platStr, workJreVer, pathStr, variant)]
 					pathS.add(pathStr)
 					continue
 
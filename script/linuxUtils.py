@@ -52,7 +52,7 @@ def buildRelease(aArgs, aBuildPath, aJreNodeL):
 		distL = [(appName + '-' + version, None)]
 	if platformType.withJre == True:
 		# Select the JreNode to utilize for static releases
-		tmpJreNode = jreUtils.getJreNode(aJreNodeL, archStr, platStr, jreVerSpec)
+		tmpJreNode = jreUtils.getJreNode(aJreNodeL, archStr, platStr, jreVerSpec, aArgs.jreVariant)
 		if tmpJreNode == None:
 			# Let the user know that a compatible JRE was not found - thus no static release will be made.
 			print('[Warning] No compatible JRE ({}) is available for the ({}) {} platform. A static release will not be provided for the platform.'.format(jreVerSpec, archStr, platStr.capitalize()))
@@ -149,6 +149,10 @@ def buildBashScript(aDstFile, aArgs, aJreNode):
 			jrePath = jreUtils.getBasePathFor(aJreNode)
 			tmpFO.write('javaExe=../' + jrePath + '/bin/java\n\n')
 
+		if aJreNode != None and aArgs.jreShared == True:
+			tmpFO.write('# Define the shared JRE store. The JRE will be utilized from the store (when available)\n')
+			tmpFO.write('jreStore="${DISTMAKER_JRE_STORE:-$HOME/.distMaker/jre}"\n\n')
+
 		tmpFO.write('# Define the maximum memory to allow the application to utilize\n')
 		if maxMem == None:
 			tmpFO.write('#maxMem=512m # Uncomment out this line to change from defaults.\n\n')
@@ -172,6 +176,14 @@ def buildBashScript(aDstFile, aArgs, aJreNode):
 		tmpFO.write('# Change the working directory to the app folder in the installation path\n')
 		tmpFO.write('cd "$installPath"/app\n\n')
 
+		if aJreNode != None and aArgs.jreShared == True:
+			tmpFO.write('# Resolve the JRE from the shared JRE store\n')
+			tmpFO.write('if [ -n "${jreStore+x}" ]; then\n')
+			tmpFO.write('  jreName=$(basename "$(dirname "$(dirname "$javaExe")")")\n')
+			tmpFO.write('  if [ -x "$jreStore/$jreName/bin/java" ] || [ ! -x "$javaExe" ]; then javaExe="$jreStore/$jreName/bin/java"; fi\n')
+			tmpFO.write('  jreStoreArg="-DdistMaker.jreStore=$jreStore"\n')
+			tmpFO.write('fi\n\n')
+
 		tmpFO.write('# Setup the xmxStr to define the maximum JVM memory.\n')
 		tmpFO.write('if [ -z ${maxMem+x} ]; then\n')
 		tmpFO.write('  xmxStr=""\n')
@@ -179,7 +191,10 @@ def buildBashScript(aDstFile, aArgs, aJreNode):
 		tmpFO.write('  xmxStr=\'-Xmx\'$maxMem\n')
 		tmpFO.write('fi\n\n')
 
-		exeCmd = '$javaExe ' + jvmArgsStr + '$xmxStr -Djava.system.class.loader=appLauncher.RootClassLoader '
+		exeCmd = '$javaExe ' + jvmArgsStr + '$xmxStr '
+		if aJreNode != None and aArgs.jreShared == True:
+			exeCmd += '$jreStoreArg '
+		exeCmd += '-Djava.system.class.loader=appLauncher.RootClassLoader '
 		exeCmd = exeCmd + '-cp ../launcher/' + deployJreDist.getAppLauncherFileName() + ' appLauncher.AppLauncher $*'
 		tmpFO.write('# Run the application\n')
 		tmpFO.write(exeCmd + '\n\n')
@@ -15,8 +15,10 @@
 # limitations under the License.
 
 import argparse
+import gzip
 import hashlib
 import os
+import shutil
 import time
 import subprocess
 import sys
@@ -81,6 +83,91 @@ def computeDigestForFile(evalFile, digestType, block_size=2**20):
 		return hash.hexdigest()
 
 
+def removeGzipSibling(aFile):
+	"""Removes the (stale) gzip compressed sibling (<aFile>.gz) of the specified catalog file. Catalogs that may be edited
+	manually (ex: the release notes of an appCatalog.txt) should not have a compressed sibling."""
+	dstFile = aFile + '.gz'
+	if os.path.isfile(dstFile) == True:
+		os.remove(dstFile)
+
+
+def writeGzipSibling(aFile):
+	"""Writes the gzip compressed sibling (<aFile>.gz) of the specified catalog file. DistMaker clients prefer the
+	compressed sibling over the plain text catalog, thus the sibling must be rewritten whenever the catalog changes.
+	Note if a catalog is edited manually then the sibling should be regenerated via: gzip -kfn <aFile>"""
+	dstFile = aFile + '.gz'
+	with open(aFile, mode='rb') as srcFO, open(dstFile, mode='wb') as dstFO:
+		with gzip.GzipFile(filename='', mode='wb', compresslevel=9, fileobj=dstFO, mtime=0) as gzFO:
+			shutil.copyfileobj(srcFO, gzFO)
+	os.chmod(dstFile, 0o644)
+
+
+def writeSiteIndex(aAppPath):
+	"""Writes the site index (siteIndex.txt) of the application deployed at aAppPath. The site index lists (for each
+	deployed release) the digest, size, and JRE requirements of the release's catalog and the digest and size of each
+	of the release's update manifests. The digest and size of the (shared) JRE and AppLauncher catalogs are listed as
+	well. This allows DistMaker clients to plan an update and retrieve all of the needed catalogs in parallel. The
+	release notes are not part of the index - they remain in appCatalog.txt."""
+	rootPath = os.path.dirname(os.path.abspath(aAppPath))
+	lineL = ['name,' + os.path.basename(os.path.abspath(aAppPath)), 'digest,sha256', '']
+
+	# Record the catalog of each (non legacy) release
+	with open(os.path.join(aAppPath, 'appCatalog.txt'), mode='rt', encoding='utf-8') as tmpFO:
+		for aLine in tmpFO:
+			tokenL = aLine.rstrip('\n').split(',')
+			if len(tokenL) != 3 or tokenL[0] != 'R':
+				continue
+
+			catFile = os.path.join(aAppPath, tokenL[1], 'delta', 'catalog.txt')
+			if os.path.isfile(catFile) == False:
+				continue
+
+			minJre, maxJre = '', ''
+			with open(catFile, mode='rt', encoding='utf-8') as catFO:
+				for aCatLine in catFO:
+					catTokenL = aCatLine.rstrip('\n').split(',')
+					if catTokenL[0] == 'jre' and len(catTokenL) in (2, 3):
+						minJre = catTokenL[1]
+						maxJre = catTokenL[2] if len(catTokenL) == 3 else ''
+						break
+
+			digestStr = computeDigestForFile(catFile, 'sha256')
+			lineL.append('catalog,release,{},{},{},{},{}'.format(tokenL[1], digestStr, os.path.getsize(catFile), minJre, maxJre))
+
+			# Record the update manifests of the release
+			manifestPath = os.path.join(aAppPath, tokenL[1], 'manifest')
+			if os.path.isdir(manifestPath) == True:
+				for aName in sorted(os.listdir(manifestPath)):
+					if aName.endswith('.txt') == False:
+						continue
+					manifestFile = os.path.join(manifestPath, aName)
+					digestStr = computeDigestForFile(manifestFile, 'sha256')
+					lineL.append('catalog,manifest,{},{},{},{}'.format(tokenL[1], aName[:-4], digestStr, os.path.getsize(manifestFile)))
+
+	# Record the (shared) JRE and AppLauncher catalogs
+	for aKind, aSubPath in [('jre', 'jre/jreCatalog.txt'), ('launcher', 'launcher/appCatalog.txt')]:
+		catFile = os.path.join(rootPath, aSubPath)
+		if os.path.isfile(catFile) == True:
+			digestStr = computeDigestForFile(catFile, 'sha256')
+			lineL.append('catalog,{},{},{}'.format(aKind, digestStr, os.path.getsize(catFile)))
+
+	idxFile = os.path.join(aAppPath, 'siteIndex.txt')
+	with open(idxFile, mode='wt', encoding='utf-8', newline='\n') as tmpFO:
+		for aLine in lineL:
+			tmpFO.write(aLine + '\n')
+	os.chmod(idxFile, 0o644)
+	writeGzipSibling(idxFile)
+
+
+def refreshSiteIndexes(aRootPath):
+	"""Rewrites the site index of every application (with a site index) deployed at aRootPath. This should be called
+	whenever one of the shared (JRE or AppLauncher) catalogs changes."""
+	for aName in sorted(os.listdir(aRootPath)):
+		appPath = os.path.join(aRootPath, aName)
+		if os.path.isfile(os.path.join(appPath, 'siteIndex.txt')) == True:
+			writeSiteIndex(appPath)
+
+
 def getPlatformTypes(aPlatformArr, aPlatformStr):
 	"""Returns an object that defines the release types that should be built for the given platform. The object will
 	have 2 field members: [nonJre, withJre]. If the field is set to True then the corresonding platform should be
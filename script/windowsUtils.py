@@ -53,7 +53,7 @@ def buildRelease(aArgs, aBuildPath, aJreNodeL):
 		distL = [(appName + '-' + version, None)]
 	if platformType.withJre == True:
 		# Select the JreNode to utilize for static releases
-		tmpJreNode = jreUtils.getJreNode(aJreNodeL, archStr, platStr, jreVerSpec)
+		tmpJreNode = jreUtils.getJreNode(aJreNodeL, archStr, platStr, jreVerSpec, aArgs.jreVariant)
 		if tmpJreNode == None:
 			# Let the user know that a compatible JRE was not found - thus no static release will be made.
 			print('[Warning] No compatible JRE ({}) is available for the ({}) {} platform. A static release will not be provided for the platform.'.format(jreVerSpec, archStr, platStr.capitalize()))
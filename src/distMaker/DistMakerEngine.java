@@ -18,24 +18,25 @@ import java.awt.event.ComponentEvent;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
+import distMaker.UpdateReport.Outcome;
 import distMaker.gui.PickReleasePanel;
 import distMaker.jre.*;
+import distMaker.metrics.*;
 import distMaker.node.*;
 import distMaker.platform.*;
+import distMaker.utils.CatalogUtils;
+import distMaker.utils.UpdateEvents.*;
 import glum.digest.Digest;
 import glum.gui.panel.generic.MessagePanel;
 import glum.gui.panel.generic.PromptPanel;
 import glum.gui.panel.task.FullTaskPanel;
 import glum.io.IoUtil;
 import glum.net.Credential;
-import glum.net.NetUtil;
 import glum.task.*;
 import glum.unit.DateUnit;
 import glum.util.ThreadUtil;
@@ -58,6 +59,7 @@ public class DistMakerEngine
 	private URL updateSiteUrl;
 	private AppRelease currRelease;
 	private Credential refCredential;
+	private volatile UpdateReport lastReport;
 
 	// Gui vars
 	private JFrame parentFrame;
@@ -73,6 +75,7 @@ public class DistMakerEngine
 		updateSiteUrl = aUpdateSiteUrl;
 		currRelease = null;
 		refCredential = null;
+		lastReport = null;
 
 		parentFrame = aParentFrame;
 		msgPanel = new MessagePanel(parentFrame, "Untitled", 700, 400);
@@ -138,6 +141,32 @@ public class DistMakerEngine
 		return currRelease;
 	}
 
+	/**
+	 * Returns the report of the most recent update attempt. See {@link UpdateReport}.
+	 * <p>
+	 * The report is read from the install tree if no update has been attempted by this instance. Returns null if no
+	 * update has been attempted (or the report could not be read).
+	 */
+	public UpdateReport getLastUpdateReport()
+	{
+		if (lastReport != null || currRelease == null)
+			return lastReport;
+
+		File reportFile = DistUtils.getUpdateReportFile();
+		if (reportFile.isFile() == false)
+			return null;
+
+		try
+		{
+			return UpdateReport.load(reportFile);
+		}
+		catch (IOException aExp)
+		{
+			aExp.printStackTrace();
+			return null;
+		}
+	}
+
 	/**
 	 * Returns the URL where software updates for this application are retrieved from.
 	 */
@@ -155,7 +184,8 @@ public class DistMakerEngine
 	{
 		var task = new BufferTask();
 		String appName = currRelease.getName();
-		List<AppRelease> unsortedReleaseL = DistUtils.getAvailableAppReleases(task, updateSiteUrl, appName, refCredential);
+		List<AppRelease> unsortedReleaseL = DistUtils.getAvailableAppReleases(task, updateSiteUrl, appName, refCredential,
+				DistUtils.getAppCatalogCacheFile());
 
 		if (unsortedReleaseL == null)
 		{
@@ -265,12 +295,37 @@ public class DistMakerEngine
 
 		currRelease = new AppRelease(appName, verName, buildTime);
 
+		// Bail (before any UI or background work) if this is a CDS training run
+		if (AppCdsUtils.isTraining() == true)
+			return;
+
 		// Form the PickReleasePanel
 		pickVersionPanel = new PickReleasePanel(parentFrame, currRelease);
 		pickVersionPanel.setSize(550, 500);
 
 		// Notify the user of (any) update results
 		showUpdateResults();
+
+		// Expose the update metrics via JMX
+		UpdateMetrics.registerMBean();
+
+		// Reconcile the shared JRE store (in the background)
+		if (JreStoreUtils.isEnabled() == true && DistUtils.isJreBundled() == true)
+		{
+			Runnable tmpRunnable = () -> reconcileJreStore();
+			ThreadUtil.launchRunnable(tmpRunnable, "thread-reconcileJreStore");
+		}
+
+		// Refresh the (opt-in) CDS archive (in the background)
+		if (DistUtils.isJreBundled() == true)
+		{
+			Runnable tmpRunnable = () -> refreshAppCdsArchive();
+			ThreadUtil.launchRunnable(tmpRunnable, "thread-refreshAppCdsArchive");
+		}
+
+		// Sample the heap usage (and apply the data driven heap recommendation) in the background
+		Runnable tmpRunnable = () -> refreshHeapTelemetry();
+		ThreadUtil.launchRunnable(tmpRunnable, "thread-refreshHeapTelemetry");
 	}
 
 	/**
@@ -294,14 +349,26 @@ public class DistMakerEngine
 		appName = currRelease.getName();
 		aTask.logRegln("Application: " + appName + " - " + currRelease.getVersion());
 
-		// Retrieve the list of available releases
+		// Form the report of this update attempt
+		Map<String, Long> begMetricM = UpdateMetrics.getSnapshot();
+		UpdateReport.Builder reportB = new UpdateReport.Builder(begMetricM, appName, currRelease.getVersion(),
+				updateSiteUrl.toString());
+
+		// Retrieve the list of available releases. Note the site index (if deployed) is retrieved concurrently
 		aTask.logRegln("Checking for updates...\n");
-		fullReleaseL = DistUtils.getAvailableAppReleases(aTask, updateSiteUrl, appName, refCredential);
+		CatalogUtils.prefetch(SiteIndex.getIndexUrl(updateSiteUrl, appName), null, -1L, refCredential);
+		long begTime = System.nanoTime();
+		fullReleaseL = DistUtils.getAvailableAppReleases(aTask, updateSiteUrl, appName, refCredential,
+				DistUtils.getAppCatalogCacheFile());
+		UpdateMetrics.recordPhase(UpdatePhase.Catalog, System.nanoTime() - begTime);
 		if (fullReleaseL == null)
 		{
+			CatalogUtils.clearPrefetch();
+			saveEarlyUpdateReport(aTask, deltaPath, reportB.build(Outcome.Failed, "Failed to retrieve the releases."));
 			aTask.abort();
 			return;
 		}
+		SiteIndex siteIndex = SiteIndex.fetch(aTask, updateSiteUrl, appName, refCredential);
 
 		// a successful test has been done, so notify the listener
 		aListener.checkForNewVersionsPerformed();
@@ -319,6 +386,7 @@ public class DistMakerEngine
 				// as the one being run, so there is nothing to update.
 				String msg = "There are no updates of " + appName + ". Only one release has been made.";
 				aTask.logRegln(msg);
+				saveEarlyUpdateReport(aTask, deltaPath, reportB.build(Outcome.Aborted, msg));
 				aTask.abort();
 				return;
 			}
@@ -329,6 +397,7 @@ public class DistMakerEngine
 
 		// Prompt the user for the Release
 		aTask.logRegln("Please select the release to install...");
+		long begWaitTime = System.nanoTime();
 		try
 		{
 			Runnable tmpRunnable = () -> queryUserForInput(aTask, deltaPath, fullReleaseL);
@@ -338,15 +407,15 @@ public class DistMakerEngine
 		{
 			aExp.printStackTrace();
 		}
+		reportB.setUserWait(System.nanoTime() - begWaitTime);
 
-		// Bail if the task has been aborted
-		if (aTask.isActive() == false)
-			return;
-
-		// Retrieve the chosen item
+		// Retrieve the chosen item. Bail if the task has been aborted (or no release was chosen)
 		chosenItem = pickVersionPanel.getChosenItem();
-		if (chosenItem == null)
+		if (aTask.isActive() == false || chosenItem == null)
+		{
+			saveEarlyUpdateReport(aTask, deltaPath, reportB.build(Outcome.Aborted, "No release was chosen."));
 			return;
+		}
 
 		// Reshow the taskPanel
 		aTask.setVisible(true);
@@ -358,12 +427,21 @@ public class DistMakerEngine
 		else
 			aTask.logRegln("\t" + appName + " will be reverted...");
 
+		// Start the retrieval of the catalogs needed by the chosen release (as specified by the site index)
+		if (siteIndex != null)
+			siteIndex.prefetch(chosenItem, currRelease, DistUtils.getJreVersion(), refCredential);
+
+		// Record the chosen release in the report
+		reportB.setTargetVersion(chosenItem.getVersion());
+
 		// Form the destination path
 		isPass = deltaPath.mkdirs();
 		if (isPass == false || aTask.isActive() == false)
 		{
+			CatalogUtils.clearPrefetch();
 			aTask.logRegln("Failed to create delta path: " + deltaPath);
 			aTask.logRegln("Application update aborted.");
+			saveUpdateReport(aTask, reportB.build(Outcome.Failed, "Failed to create delta path: " + deltaPath));
 			aTask.abort();
 			return;
 		}
@@ -371,31 +449,97 @@ public class DistMakerEngine
 		// Download the release
 		try
 		{
-			isPass = downloadAppRelease(aTask, chosenItem, deltaPath);
+			isPass = downloadAppRelease(aTask, chosenItem, deltaPath, reportB);
 		}
 		catch(Throwable aThrowable)
 		{
-			IoUtil.deleteDirectory(deltaPath);
+			deleteDeltaPath(deltaPath, "aborted");
+			UpdateMetrics.recordUpdate(false);
 			aTask.logRegln("An error occurred while trying to perform an update.");
 			aTask.logRegln("Application update aborted.");
 			aTask.logRegln("\nStackTrace:\n" + ThreadUtil.getStackTraceClassic(aThrowable));
+			saveUpdateReport(aTask, reportB.build(Outcome.Failed, aThrowable.toString()));
 			aTask.abort();
 			return;
 		}
+		finally
+		{
+			CatalogUtils.clearPrefetch();
+		}
 		if (isPass == false || aTask.isActive() == false)
 		{
-			IoUtil.deleteDirectory(deltaPath);
+			Outcome tmpOutcome = aTask.isActive() == true ? Outcome.Failed : Outcome.Aborted;
+			deleteDeltaPath(deltaPath, "aborted");
+			UpdateMetrics.recordUpdate(false);
 			aTask.logRegln("Application update aborted.");
+			saveUpdateReport(aTask, reportB.build(tmpOutcome, null));
 			aTask.abort();
 			return;
 		}
 
 		// Notify the user of success
+		UpdateMetrics.recordUpdate(true);
+		saveUpdateReport(aTask, reportB.build(Outcome.Staged, null));
 		aTask.logRegln(appName + " has been updated to version: " + chosenItem.getVersion() + ".");
 		aTask.logRegln("These updates will become active when " + appName + " is restarted.");
 		aTask.setProgress(1.0);
 	}
 
+	/**
+	 * Helper method that removes the delta (staging) folder. The removal is recorded as a {@link DeltaCleanup} (JFR)
+	 * event.
+	 * <p>
+	 * Returns true if the folder was removed.
+	 */
+	private static boolean deleteDeltaPath(File aDeltaPath, String aReason)
+	{
+		DeltaCleanup tmpEvent = new DeltaCleanup();
+		tmpEvent.begin();
+		long begTime = System.nanoTime();
+		boolean isPass = IoUtil.deleteDirectory(aDeltaPath);
+		UpdateMetrics.recordPhase(UpdatePhase.Cleanup, System.nanoTime() - begTime);
+		tmpEvent.reason = aReason;
+		tmpEvent.isPass = isPass;
+		tmpEvent.commit();
+
+		return isPass;
+	}
+
+	/**
+	 * Helper method that saves the specified report (see {@link DistUtils#getUpdateReportFile()}). The report is
+	 * retained as the report of the most recent update attempt.
+	 * <p>
+	 * Failure to save the report is logged but otherwise ignored.
+	 */
+	private void saveUpdateReport(Task aTask, UpdateReport aReport)
+	{
+		lastReport = aReport;
+
+		File reportFile = DistUtils.getUpdateReportFile();
+		try
+		{
+			aReport.save(reportFile);
+		}
+		catch (IOException aExp)
+		{
+			aTask.logRegln("Failed to save the update report: " + reportFile);
+			aTask.logRegln("\t" + aExp.getClass().getSimpleName() + ": " + aExp.getMessage());
+		}
+	}
+
+	/**
+	 * Helper method that saves the report of an update attempt that ended before any content was staged.
+	 * <p>
+	 * The report of a (pending) staged update is never replaced, as it is finalized on the next restart.
+	 */
+	private void saveEarlyUpdateReport(Task aTask, File aDeltaPath, UpdateReport aReport)
+	{
+		if (aDeltaPath.exists() == true)
+			return;
+
+		saveUpdateReport(aTask, aReport);
+	}
+
 	/**
 	 * Helper method to show an informative message on msgPanel.
 	 */
@@ -462,18 +606,16 @@ public class DistMakerEngine
 	}
 
 	/**
-	 * Helper method to download the specified release.
+	 * Helper method to download the specified release. The details of the download are recorded to aReportB.
 	 * <p>
 	 * Returns true if the release was downloaded properly.
 	 */
-	private boolean downloadAppRelease(Task aTask, AppRelease aRelease, File aDestPath)
+	private boolean downloadAppRelease(Task aTask, AppRelease aRelease, File aDestPath, UpdateReport.Builder aReportB)
 	{
 		AppCatalog staleCat, updateCat;
-		Node staleNode, updateNode;
-		URL catUrl, staleUrl, updateUrl;
+		URL staleUrl, updateUrl;
 		File catalogFile;
 		double progressVal;
-		long tmpFileLen;
 
 		try
 		{
@@ -488,6 +630,7 @@ public class DistMakerEngine
 		}
 
 		// Load the stale catalog
+		long begTime = System.nanoTime();
 		catalogFile = new File(DistUtils.getAppPath(), "catalog.txt");
 		staleCat = DistUtils.readAppCatalog(aTask, catalogFile, staleUrl);
 		if (staleCat == null)
@@ -496,20 +639,27 @@ public class DistMakerEngine
 		// Download the update app catalog to the (local) delta location (Progress -> [0% - 1%])
 		File appNewPath = new File(aDestPath, "app");
 		appNewPath.mkdirs();
-		catUrl = IoUtil.createURL(updateUrl.toString() + "/catalog.txt");
-		catalogFile = new File(appNewPath, "catalog.txt");
+		// Note the update manifest (relative to the current release) is preferred over the full catalog
 		Task catTask = new PartialTask(aTask, 0.00, 0.01);
-		if (NetUtil.download(catTask, catUrl, catalogFile, refCredential, -1L, null) == false)
-			return false;
-
-		// Load the update catalog
-		updateCat = DistUtils.readAppCatalog(aTask, catalogFile, updateUrl);
+		URL manifestUrl = StageUtils.getManifestUrl(updateSiteUrl, aRelease, currRelease.getVersion());
+		updateCat = StageUtils.fetchAppCatalogViaManifest(catTask, manifestUrl, catalogFile, updateUrl, appNewPath,
+				refCredential);
+		if (updateCat == null)
+		{
+			UpdateMetrics.recordRetry();
+			updateCat = StageUtils.fetchAppCatalog(catTask, updateUrl, appNewPath, refCredential);
+		}
+		UpdateMetrics.recordPhase(UpdatePhase.Catalog, System.nanoTime() - begTime);
 		if (updateCat == null)
 			return false;
 
 		// Determine the total number of bytes to be transferred and set up the mainTask
+		ReleasePlan planEvent = new ReleasePlan();
+		planEvent.begin();
+		begTime = System.nanoTime();
+		aReportB.setNumNodes(updateCat.getNodeList().size());
 		long releaseSizeFull = 0L, releaseSizeCurr = 0L;
-		for (Node aNode : updateCat.getAllNodesList())
+		for (Node aNode : updateCat.getNodeList())
 		{
 			if (aNode instanceof FileNode)
 				releaseSizeFull += ((FileNode)aNode).getFileLen();
@@ -518,16 +668,22 @@ public class DistMakerEngine
 		// Set up the mainTask for downloading of remote content (Progress -> [1% - 95%])
 		Task mainTask = new PartialTask(aTask, 0.01, 0.94);
 
-		// Ensure our JRE version is compatible for this release
+		// Ensure our JRE (version, variant, and modules) is compatible for this release
 		JreRelease targJre = null;
 		AppLauncherRelease targAppLauncher = null;
 		JreVersion currJreVer = DistUtils.getJreVersion();
+		String currJreVariant = DistUtils.getJreVariant();
 		Version currAppLauncherVer = DistUtils.getAppLauncherVersion();
-		if (updateCat.isJreVersionCompatible(currJreVer) == false)
+		boolean isJreUpdate = isJreUpdateNeeded(updateCat, currJreVer, currJreVariant);
+		recordReleasePlan(planEvent, aRelease, staleCat, updateCat, releaseSizeFull, isJreUpdate);
+		UpdateMetrics.recordPhase(UpdatePhase.Plan, System.nanoTime() - begTime);
+		if (isJreUpdate == true)
 		{
 			// Bail if we failed to download a compatible JRE
 			JreUpdateResult tmpJreUpdateResult;
-			tmpJreUpdateResult = downloadJreUpdate(mainTask, updateCat, aDestPath, releaseSizeFull);
+			begTime = System.nanoTime();
+			tmpJreUpdateResult = downloadJreUpdate(mainTask, updateCat, aDestPath, releaseSizeFull, aReportB);
+			UpdateMetrics.recordPhase(UpdatePhase.Jre, System.nanoTime() - begTime);
 			if (tmpJreUpdateResult == null)
 				return false;
 
@@ -535,84 +691,129 @@ public class DistMakerEngine
 			targAppLauncher = tmpJreUpdateResult.targAppLauncher;
 
 			// Update the progress to reflect the downloaded / updated JRE
-			releaseSizeCurr += targJre.getFileLen();
-			releaseSizeFull += targJre.getFileLen();
-			progressVal = releaseSizeCurr / (releaseSizeFull + 0.00);
-			mainTask.setProgress(progressVal);
+			if (targJre != null)
+			{
+				releaseSizeCurr += targJre.getFileLen();
+				releaseSizeFull += targJre.getFileLen();
+				progressVal = releaseSizeCurr / (releaseSizeFull + 0.00);
+				mainTask.setProgress(progressVal);
+			}
 		}
 
 		// Download the individual application files
-		mainTask.logRegln("Downloading release: " + aRelease.getVersion() + " Nodes: " + updateCat.getAllNodesList().size());
-		for (Node aNode : updateCat.getAllNodesList())
+		mainTask.logRegln("Downloading release: " + aRelease.getVersion() + " Nodes: " + updateCat.getNodeList().size());
+		begTime = System.nanoTime();
+		StageResult tmpStageResult = StageUtils.stageAppNodes(mainTask, staleCat, updateCat, appNewPath, refCredential,
+				releaseSizeCurr, releaseSizeFull);
+		UpdateMetrics.recordPhase(UpdatePhase.Stage, System.nanoTime() - begTime);
+		aReportB.setStageResult(tmpStageResult);
+		if (tmpStageResult.isPass() == false)
 		{
-			boolean isPass;
-
-			// Bail if we have been aborted
-			if (mainTask.isActive() == false)
-				return false;
+			if (mainTask.isActive() == true)
+				mainTask.logRegln("\tSite: " + updateUrl);
+			return false;
+		}
+		mainTask.logRegln("Files reused: " + tmpStageResult.getNumFilesLocal() + " (" + tmpStageResult.getBytesLocal()
+				+ " bytes) downloaded: " + tmpStageResult.getNumFilesRemote() + " (" + tmpStageResult.getBytesRemote()
+				+ " bytes)");
+		mainTask.logRegln("Finished downloading release.\n");
 
-			updateNode = aNode;
-			staleNode = staleCat.getNode(updateNode.getFileName());
-			tmpFileLen = 0L;
-			if (updateNode instanceof FileNode)
-				tmpFileLen = ((FileNode)updateNode).getFileLen();
-			Task tmpTask = new PartialTask(mainTask, mainTask.getProgress(), tmpFileLen / (releaseSizeFull + 0.00));
+		// Load the application configuration. All changes to the configuration are committed (atomically) at the end.
+		// Note the original configuration is backed up (on commit) to the delta folder.
+		LaunchConfig launchCfg;
+		try
+		{
+			launchCfg = LaunchConfig.load();
+			launchCfg.setBackupFile(new File(aDestPath, launchCfg.getConfigFile().getName() + ".old"));
+			launchCfg.setAppVersion(aRelease.getVersion());
+		}
+		catch(ErrorDM aExp)
+		{
+			aTask.logRegln("Failed updating application configuration.");
+			MiscUtils.printErrorDM(aTask, aExp, 1);
+			return false;
+		}
 
-			// Attempt to use the local copy
-			isPass = false;
-			if (staleNode != null && updateNode.areContentsEqual(staleNode) == true)
+		// Move the JRE (unpacked folder) from its drop path to the proper location (or the shared JRE store)
+		File jrePath = new File(System.getProperty("java.home"));
+		File jreTargPath = null;
+		JreVersion jreVer = currJreVer;
+		String jreVariant = currJreVariant;
+		if (targJre != null)
+		{
+			jreVer = targJre.getVersion();
+			jreVariant = targJre.getVariant();
+			File installPath = DistUtils.getAppPath();
+			File jreDropPath = new File(aDestPath, JreUtils.getExpandJrePath(jreVer, jreVariant));
+			jreTargPath = new File(installPath.getParentFile(), PlatformUtils.getJreLocation(jreVer, jreVariant));
+			jrePath = jreTargPath;
+			if (JreStoreUtils.isEnabled() == true)
 			{
-				// Note we pass the SilentTask since
-				// - This should be fairly fast since this should result in a local disk copy
-				// - This may fail, (but the failure is recoverable and this serves just as an optimization)
-//				isPass = staleNode.transferContentTo(tmpTask, refCredential, destPath);
-				isPass = staleNode.transferContentTo(new SilentTask(), refCredential, appNewPath);
-				if (isPass == true)
-					mainTask.logRegln("\t(L) " + staleNode.getFileName());
-			}
+				try
+				{
+					JreStoreUtils.installJre(aTask, jreVer, jreVariant, jreDropPath, installPath.getParentFile());
+				}
+				catch(ErrorDM aExp)
+				{
+					aTask.logRegln("Failed to install the updated JRE into the shared JRE store!");
+					MiscUtils.printErrorDM(aTask, aExp, 1);
+					return false;
+				}
 
-			// Use the remote update copy, if we were not able to use a local stale copy
-			if (isPass == false && mainTask.isActive() == true)
-			{
-				isPass = updateNode.transferContentTo(tmpTask, refCredential, appNewPath);
-				if (isPass == true)
-					mainTask.logRegln("\t(R) " + updateNode.getFileName());
+				// JREs in the shared JRE store are released on the next startup
+				jrePath = JreStoreUtils.getJrePath(jreVer, jreVariant);
+				jreTargPath = null;
 			}
-
-			// Log the failure and bail
-			if (isPass == false && mainTask.isActive() == true)
+			else
 			{
-				mainTask.logRegln("Failed to download from update site.");
-				mainTask.logRegln("\tSite: " + updateUrl);
-				mainTask.logRegln("\tFile: " + updateNode.getFileName());
-				mainTask.logRegln("\tDest: " + appNewPath);
-				return false;
+				jreTargPath.getParentFile().setWritable(true);
+				if (jreDropPath.renameTo(jreTargPath) == false)
+				{
+					aTask.logRegln("Failed to move the updated JRE to its target location!");
+					aTask.logRegln("\t Current path: " + jreDropPath);
+					aTask.logRegln("\tOfficial path: " + jreTargPath);
+					return false;
+				}
 			}
-
-			// Update the progress
-			releaseSizeCurr += tmpFileLen;
-			progressVal = releaseSizeCurr / (releaseSizeFull + 0.00);
-			mainTask.setProgress(progressVal);
 		}
-		mainTask.logRegln("Finished downloading release.\n");
 
-		// Update the platform configuration files
+		// Update the application configuration to reflect the proper JRE, AppLauncher, and CDS archive
 		try
 		{
-			PlatformUtils.updateAppRelease(aRelease);
+			if (targJre != null)
+				launchCfg.setJreVersion(jreVer, jreVariant);
+
+			// Revert to the default tuning profile if the profile is not supported by the updated JRE
+			TuningProfile currProfile = TuningProfile.getCurrent();
+			if (currProfile.isSupported(jreVer) == false)
+			{
+				aTask.logRegln("The tuning profile is not supported by the updated JRE: " + currProfile.getLabel());
+				aTask.logRegln("\tThe default tuning profile will be utilized.\n");
+				launchCfg.setTuningProfile(TuningProfile.Default, TuningProfile.isCompilerThreadsCurrent());
+			}
+
+			if (targAppLauncher != null)
+				launchCfg.setAppLauncher(targAppLauncher);
+			// The CDS archive is not carried over to the new release. It will be rebuilt on the next startup.
+			launchCfg.setAppCdsArchive(false);
+			launchCfg.commit();
 		}
 		catch(ErrorDM aExp)
 		{
-			aTask.logRegln("Failed updating application configuration.");
+			aTask.logRegln("Failed to update the application configuration!");
+			aTask.logRegln("\tCurrent JRE: " + currJreVer.getLabel());
+			aTask.logRegln("\t Chosen JRE: " + jreVer.getLabel());
 			MiscUtils.printErrorDM(aTask, aExp, 1);
+
+			// Remove the just installed JRE. Note the configuration was not modified as the commit is atomic.
+			if (jreTargPath != null)
+				IoUtil.deleteDirectory(jreTargPath);
 			return false;
 		}
 
-		// Retrieve the reference to the appCfgFile
-		File appCfgFile = PlatformUtils.getConfigurationFile();
-
 		// Create the delta.cmd file which provides the Updater with the clean activities to perform
 		// (based on fail / pass conditions)
+		File appCfgFile = launchCfg.getConfigFile();
 		File deltaCmdFile = new File(aDestPath, "delta.cmd");
 		try (FileWriter tmpFW = new FileWriter(deltaCmdFile))
 		{
@@ -621,12 +822,10 @@ public class DistMakerEngine
 			// Write the section: fail
 			tmpFW.write("# Define the fail section (clean up for failure)\n");
 			tmpFW.write("sect,fail\n");
-			if (targJre != null)
-			{
-				JreVersion targJreVer = targJre.getVersion();
+			if (launchCfg.getBackupFile().isFile() == true)
 				tmpFW.write("copy," + "delta/" + appCfgFile.getName() + ".old," + MiscUtils.getRelativePath(rootPath, appCfgFile) + "\n");
-				tmpFW.write("reboot,trash," + PlatformUtils.getJreLocation(targJreVer) + "\n");
-			}
+			if (jreTargPath != null)
+				tmpFW.write("reboot,trash," + PlatformUtils.getJreLocation(jreVer, jreVariant) + "\n");
 			if (targAppLauncher != null)
 			{
 				Version targAppLauncherVer = targAppLauncher.getVersion();
@@ -637,8 +836,8 @@ public class DistMakerEngine
 			// Write the section: pass
 			tmpFW.write("# Define the pass section (clean up for success)\n");
 			tmpFW.write("sect,pass\n");
-			if (targJre != null)
-				tmpFW.write("trash," + PlatformUtils.getJreLocation(currJreVer) + "\n");
+			if (targJre != null && JreStoreUtils.isEnabled() == false)
+				tmpFW.write("trash," + PlatformUtils.getJreLocation(currJreVer, currJreVariant) + "\n");
 			if (targAppLauncher != null)
 				tmpFW.write("trash," + PlatformUtils.getAppLauncherLocation(currAppLauncherVer) + "\n");
 			tmpFW.write("exit\n\n");
@@ -657,78 +856,78 @@ public class DistMakerEngine
 		{
 			aTask.logRegln("Failed to generate the delta.cfg file.");
 			aTask.logRegln(ThreadUtil.getStackTrace(aExp));
+
+			// Revert the application configuration and remove the just installed JRE
+			if (launchCfg.getBackupFile().isFile() == true)
+				launchCfg.restore();
+			if (jreTargPath != null)
+				IoUtil.deleteDirectory(jreTargPath);
 			return false;
 		}
 
-		// We are done if there was no updated JRE
-		if (targJre == null)
-			return true;
+		return true;
+	}
 
-		// Since an updated JRE was needed...
-		// Moved the JRE (unpacked folder) from its drop path to the proper location
-		JreVersion targJreVer = targJre.getVersion();
-		File installPath = DistUtils.getAppPath();
-		File jreDropPath = new File(aDestPath, JreUtils.getExpandJrePath(targJreVer));
-		File jreTargPath = new File(installPath.getParentFile(), PlatformUtils.getJreLocation(targJreVer));
-		jreTargPath.getParentFile().setWritable(true);
-		if (jreDropPath.renameTo(jreTargPath) == false)
-		{
-			aTask.logRegln("Failed to move the updated JRE to its target location!");
-			aTask.logRegln("\t Current path: " + jreDropPath);
-			aTask.logRegln("\tOfficial path: " + jreTargPath);
-			return false;
-		}
+	/**
+	 * Helper method that records the {@link ReleasePlan} (JFR) event. The number of (reusable) nodes is only determined
+	 * if the event is enabled.
+	 */
+	private void recordReleasePlan(ReleasePlan aEvent, AppRelease aRelease, AppCatalog aStaleCat, AppCatalog aUpdateCat,
+			long aReleaseSizeFull, boolean aIsJreUpdate)
+	{
+		if (aEvent.shouldCommit() == false)
+			return;
 
-		// Backup the application configuration
-		File origAppCfgFile = new File(aDestPath, appCfgFile.getName() + ".old");
-		try
+		int numNodesReusable = 0;
+		long reusableBytes = 0L;
+		List<Node> nodeL = aUpdateCat.getNodeList();
+		for (Node aNode : nodeL)
 		{
-			Files.copy(appCfgFile.toPath(), origAppCfgFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
-		}
-		catch(IOException aExp)
-		{
-			aTask.logRegln("Failed to backup application configuration file: " + appCfgFile);
-			aTask.logRegln(ThreadUtil.getStackTrace(aExp));
-			return false;
-		}
+			Node staleNode = aStaleCat.getNode(aNode.getFileName());
+			if (staleNode == null || aNode.areContentsEqual(staleNode) == false)
+				continue;
 
-		// Update the application configuration to reflect the proper JRE
-		try
-		{
-			PlatformUtils.setJreVersion(targJre.getVersion());
-			if (targAppLauncher != null)
-				PlatformUtils.setAppLauncher(targAppLauncher);
+			numNodesReusable++;
+			if (aNode instanceof FileNode)
+				reusableBytes += ((FileNode)aNode).getFileLen();
 		}
-		catch(ErrorDM aExp)
-		{
-			aTask.logRegln("Failed to update the configuration to point to the updated JRE!");
-			aTask.logRegln("\tCurrent JRE: " + currJreVer.getLabel());
-			aTask.logRegln("\t Chosen JRE: " + targJre.getVersion().getLabel());
-			MiscUtils.printErrorDM(aTask, aExp, 1);
 
-			// Remove the just installed JRE
-			IoUtil.deleteDirectory(jreTargPath);
+		aEvent.currVersion = currRelease.getVersion();
+		aEvent.targVersion = aRelease.getVersion();
+		aEvent.numNodes = nodeL.size();
+		aEvent.numNodesReusable = numNodesReusable;
+		aEvent.releaseBytes = aReleaseSizeFull;
+		aEvent.reusableBytes = reusableBytes;
+		aEvent.isJreUpdate = aIsJreUpdate;
+		aEvent.commit();
+	}
 
-			// Restore the application configuration
-			try
-			{
-				Files.copy(origAppCfgFile.toPath(), appCfgFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
-			}
-			catch(IOException aExp2)
-			{
-				throw new ErrorDM(aExp2, "Failed to restore application configuration. Application may be unstable!");
-			}
+	/**
+	 * Helper method that returns true if the running JRE does not satisfy the specified AppCatalog. This is the case if
+	 * the JRE version is not compatible or, for bundled JREs, if the JRE is not of the catalog's preferred variant or if
+	 * the JRE lacks any of the modules required by the catalog.
+	 */
+	private boolean isJreUpdateNeeded(AppCatalog aUpdateCat, JreVersion aCurrJreVer, String aCurrJreVariant)
+	{
+		if (aUpdateCat.isJreVersionCompatible(aCurrJreVer) == false)
+			return true;
 
+		// Only the version of a non-bundled (system) JRE is of concern
+		if (DistUtils.isJreBundled() == false)
 			return false;
-		}
 
-		return true;
+		if (Objects.equals(aUpdateCat.getJreVariant(), aCurrJreVariant) == false)
+			return true;
+
+		File jrePath = new File(System.getProperty("java.home"));
+		return JreUtils.hasJreModules(jrePath, aUpdateCat.getJreModules()) == false;
 	}
 
 	/**
 	 * Class used to store a complex 'tuple' value.
 	 * <p>
-	 * This object is used to store the results of a successful JRE update.
+	 * This object is used to store the results of a successful JRE update. The targJre will be null if the running JRE
+	 * is to be retained.
 	 */
 	private class JreUpdateResult
 	{
@@ -746,25 +945,43 @@ public class DistMakerEngine
 	/**
 	 * Helper method to download a compatible JreRelease for the AppCatalog to the specified destPath.
 	 * <p>
-	 * On success the JreVersion that was downloaded is returned.
+	 * If a {@link JreDelta} (relative to the installed JRE) is available, then the JRE will be rebuilt from the installed
+	 * JRE and the delta. The full JreRelease will be retrieved if the delta is not available or could not be applied.
+	 * <p>
+	 * On success the JreVersion that was downloaded is returned. The JRE (and AppLauncher) actions are recorded to
+	 * aReportB.
 	 */
-	private JreUpdateResult downloadJreUpdate(Task aTask, AppCatalog aUpdateCat, File aDestPath, long releaseSizeFull)
+	private JreUpdateResult downloadJreUpdate(Task aTask, AppCatalog aUpdateCat, File aDestPath, long releaseSizeFull,
+			UpdateReport.Builder aReportB)
 	{
 		List<JreRelease> availJreL;
 
 		// Ensure our JRE version is compatible for this release
 		JreVersion currJreVer = DistUtils.getJreVersion();
+		String currJreVariant = DistUtils.getJreVariant();
+		boolean isVersionCompatible = aUpdateCat.isJreVersionCompatible(currJreVer);
 
-		// Let the user know why their version is not compatible
-		String updnStr = "downgraded";
-		if (aUpdateCat.isJreVersionTooOld(currJreVer) == true)
-			updnStr = "upgraded";
-		aTask.logRegln("Your current JRE is not compatible with this release. It will need to be " + updnStr + "!");
-		aTask.logRegln("\tCurrent  JRE: " + currJreVer.getLabel());
-		aTask.logRegln("\tMinimum  JRE: " + aUpdateCat.getMinJreVersion().getLabel());
-		JreVersion tmpJreVer = aUpdateCat.getMaxJreVersion();
-		if (tmpJreVer != null)
-			aTask.logRegln("\tMaximum  JRE: " + tmpJreVer.getLabel());
+		// Let the user know why their JRE is not compatible
+		if (isVersionCompatible == false)
+		{
+			String updnStr = "downgraded";
+			if (aUpdateCat.isJreVersionTooOld(currJreVer) == true)
+				updnStr = "upgraded";
+			aTask.logRegln("Your current JRE is not compatible with this release. It will need to be " + updnStr + "!");
+			aTask.logRegln("\tCurrent  JRE: " + currJreVer.getLabel());
+			aTask.logRegln("\tMinimum  JRE: " + aUpdateCat.getMinJreVersion().getLabel());
+			JreVersion tmpJreVer = aUpdateCat.getMaxJreVersion();
+			if (tmpJreVer != null)
+				aTask.logRegln("\tMaximum  JRE: " + tmpJreVer.getLabel());
+		}
+		else
+		{
+			aTask.logRegln("Your current JRE does not match the JRE of this release. It will need to be replaced!");
+			aTask.logRegln("\tCurrent  JRE: " + JreUtils.getExpandJrePath(currJreVer, currJreVariant));
+			aTask.logRegln("\tJRE variant: " + (aUpdateCat.getJreVariant() != null ? aUpdateCat.getJreVariant() : "standard"));
+			if (aUpdateCat.getJreModules().isEmpty() == false)
+				aTask.logRegln("\tJRE modules: " + String.join(",", aUpdateCat.getJreModules()));
+		}
 		aTask.logRegln("");
 
 		// Bail if we are running a non-bundled JRE
@@ -811,34 +1028,107 @@ public class DistMakerEngine
 			return null;
 		}
 		JreVersion pickJreVer = pickJre.getVersion();
+		String pickJreVariant = pickJre.getVariant();
+		if (pickJreVariant != null)
+			aTask.logRegln("Utilizing JRE variant: " + pickJreVariant);
+
+		// Retain the running JRE if it is the picked JRE (and it provides the required modules). This is the case when
+		// the preferred JRE variant has not been deployed.
+		File jrePath = new File(System.getProperty("java.home"));
+		boolean isSameJre = pickJreVer.getLabel().equals(currJreVer.getLabel()) == true
+				&& Objects.equals(pickJreVariant, currJreVariant) == true;
+		boolean hasModules = JreUtils.hasJreModules(jrePath, aUpdateCat.getJreModules());
+		if (isSameJre == true && hasModules == true)
+		{
+			aTask.logRegln("The JRE variant has not been deployed. The current JRE will be retained.\n");
+			return new JreUpdateResult(null, null);
+		}
+
+		// Bail if the running JRE would need to be replaced in place. This is only possible via the shared JRE store.
+		if (isSameJre == true && JreStoreUtils.isEnabled() == false)
+		{
+			aTask.logRegln("The current JRE lacks modules required by this release but it can not be replaced while in use.");
+			aTask.logRegln("\tA newer JRE (or the JRE variant) should be deployed with the required modules.");
+			aTask.logRegln(ErrorMsg.ContactSiteAdmin);
+			return null;
+		}
 
 		// Update the AppLauncher if required
 		AppLauncherRelease pickAppLauncher = null;
 		if (AppLauncherUtils.isAppLauncherUpdateNeeded(aTask, pickJre) == true)
 		{
+			long begTime = System.nanoTime();
 			pickAppLauncher = AppLauncherUtils.updateAppLauncher(aTask, pickJre, aDestPath, updateSiteUrl, refCredential);
+			UpdateMetrics.recordPhase(UpdatePhase.AppLauncher, System.nanoTime() - begTime);
 			if (pickAppLauncher == null)
 				return null;
+			aReportB.setAppLauncher(pickAppLauncher.getVersion().toString());
 			aTask.logRegln("");
 		}
 
+		// Bail if the JRE has already been retrieved into the shared JRE store (and provides the required modules)
+		File storeJrePath = JreStoreUtils.getJrePath(pickJreVer, pickJreVariant);
+		if (JreStoreUtils.isJreInStore(pickJreVer, pickJreVariant) == true
+				&& JreUtils.hasJreModules(storeJrePath, aUpdateCat.getJreModules()) == true)
+		{
+			aTask.logRegln("Utilizing JRE from the shared JRE store. Version: " + pickJreVer.getLabel() + "\n");
+			aReportB.setJre("store", pickJreVer.getLabel());
+			return new JreUpdateResult(pickJre, pickAppLauncher);
+		}
+
 		// Update the number of bytes to be retrieved to take into account the JRE which we will be downloading
 		long tmpFileLen = pickJre.getFileLen();
 		releaseSizeFull += tmpFileLen;
 
+		// Attempt to rebuild the JRE from the installed JRE and a JRE delta (if one has been deployed)
+		Task tmpTask;
+		// Note a JRE delta is only applicable to an installed JRE of the same variant
+		JreDelta pickDelta = pickJre.getDelta(currJreVer);
+		if (pickDelta != null && Objects.equals(pickJreVariant, currJreVariant) == true)
+		{
+			File currJrePath = new File(DistUtils.getAppPath().getParentFile(),
+					PlatformUtils.getJreLocation(currJreVer, currJreVariant));
+			if (JreStoreUtils.isRunningFromStore() == true)
+				currJrePath = JreStoreUtils.getJrePath(currJreVer, currJreVariant);
+			tmpTask = new PartialTask(aTask, aTask.getProgress(), tmpFileLen / (releaseSizeFull + 0.00));
+			JreDownload deltaEvent = new JreDownload();
+			deltaEvent.start();
+			boolean isPass = JreDeltaUtils.rebuildJre(tmpTask, pickJre, pickDelta, currJrePath, aDestPath, updateSiteUrl, refCredential);
+			recordJreDownload(deltaEvent, pickJreVer, "delta", isPass, pickDelta.getFileLen());
+			if (isPass == true)
+			{
+				aReportB.setJre("delta", pickJreVer.getLabel());
+				return new JreUpdateResult(pickJre, pickAppLauncher);
+			}
+
+			// Bail if we have been aborted
+			if (aTask.isActive() == false)
+				return null;
+
+			UpdateMetrics.recordRetry();
+			aTask.logRegln("Unable to utilize the JRE delta. The full JRE will be downloaded instead.\n");
+		}
+
 		// Download the JRE
 		Digest targDigest = pickJre.getDigest();
 		aTask.logRegln("Downloading JRE... Version: " + pickJreVer.getLabel());
 		URL srcUrl = IoUtil.createURL(updateSiteUrl.toString() + "/jre/" + pickJreVer.getLabel() + "/" + pickJre.getFileName());
 		File dstFile = new File(aDestPath, pickJre.getFileName());
-		Task tmpTask = new PartialTask(aTask, aTask.getProgress(), (tmpFileLen * 0.75) / (releaseSizeFull + 0.00));
-		if (NetUtil.download(tmpTask, srcUrl, dstFile, refCredential, tmpFileLen, targDigest) == false)
+		tmpTask = new PartialTask(aTask, aTask.getProgress(), (tmpFileLen * 0.75) / (releaseSizeFull + 0.00));
+		JreDownload downloadEvent = new JreDownload();
+		downloadEvent.start();
+		boolean isPass = MiscUtils.download(tmpTask, srcUrl, dstFile, refCredential, tmpFileLen, targDigest);
+		recordJreDownload(downloadEvent, pickJreVer, "full", isPass, tmpFileLen);
+		if (isPass == false)
 			return null;
 
 		// Unpack the JRE at the unpack location
 		aTask.logRegln("Finshed downloading JRE. Unpacking JRE...");
 		File jreRootPath = null;
-		File jreTargPath = new File(aDestPath, JreUtils.getExpandJrePath(pickJreVer));
+		File jreTargPath = new File(aDestPath, JreUtils.getExpandJrePath(pickJreVer, pickJreVariant));
+		JreUnpack unpackEvent = new JreUnpack();
+		unpackEvent.start();
+		unpackEvent.version = pickJreVer.getLabel();
 		try
 		{
 			// Create the working unpack folder where the JRE will be initially unpacked to.
@@ -847,7 +1137,11 @@ public class DistMakerEngine
 
 			// Unpack the JRE to the working unpack folder. Ensure that the unpacked JRE results in 1 top level folder.
 			tmpTask = new PartialTask(aTask, aTask.getProgress(), (tmpFileLen * 0.25) / (releaseSizeFull + 0.00));
-			MiscUtils.unPack(tmpTask, dstFile, unpackPath);
+			List<File> unpackL = MiscUtils.unPack(tmpTask, dstFile, unpackPath);
+			unpackEvent.numFiles = unpackL.size();
+			unpackEvent.isPass = true;
+			unpackEvent.setBytes(tmpFileLen);
+			unpackEvent.commit();
 			File[] fileArr = unpackPath.listFiles();
 			if (fileArr.length != 1 && fileArr[0].isDirectory() == false)
 				throw new Exception("Expected only one (top level) folder to be unpacked. Items extracted: " + fileArr.length + "   Path: " + unpackPath);
@@ -860,6 +1154,9 @@ public class DistMakerEngine
 		}
 		catch(Exception aExp)
 		{
+			if (unpackEvent.isPass == false)
+				unpackEvent.commit();
+
 			aTask.logRegln("Failed to properly untar archive. The update has been aborted.");
 			aTask.logRegln("\tTar File: " + dstFile);
 			aTask.logRegln("\tDestination: " + jreTargPath);
@@ -870,9 +1167,105 @@ public class DistMakerEngine
 		}
 
 		// Return the results
+		aReportB.setJre("full", pickJreVer.getLabel());
 		return new JreUpdateResult(pickJre, pickAppLauncher);
 	}
 
+	/**
+	 * Helper method that records the {@link JreDownload} (JFR) event and the downloaded bytes (see {@link UpdateMetrics}).
+	 */
+	private void recordJreDownload(JreDownload aEvent, JreVersion aJreVer, String aMode, boolean aIsPass, long aFileLen)
+	{
+		aEvent.host = updateSiteUrl.getHost();
+		aEvent.version = aJreVer.getLabel();
+		aEvent.mode = aMode;
+		aEvent.isPass = aIsPass;
+		aEvent.setBytes(aIsPass == true ? aFileLen : 0L);
+		aEvent.commit();
+
+		if (aIsPass == true)
+			UpdateMetrics.recordDownload(aFileLen);
+	}
+
+	/**
+	 * Helper method that rebuilds the (opt-in) CDS archive if it is stale with respect to the running JRE, the launch
+	 * class path, or the application's catalog. The configuration will no longer utilize the CDS archive if it can not be
+	 * rebuilt or if the CDS archive has been disabled.
+	 */
+	private void refreshAppCdsArchive()
+	{
+		File appPath = DistUtils.getAppPath();
+
+		try
+		{
+			// Remove any prior archive if the CDS archive is disabled (or not supported)
+			if (AppCdsUtils.isEnabled() == false || AppCdsUtils.isSupported(DistUtils.getJreVersion()) == false)
+			{
+				if (AppCdsUtils.deleteArchive(appPath) == true)
+					PlatformUtils.setAppCdsArchive(false);
+				return;
+			}
+
+			if (AppCdsUtils.isArchiveCurrent(appPath) == true)
+				return;
+
+			AppCdsUtils.buildArchive(new SilentTask(), appPath);
+			PlatformUtils.setAppCdsArchive(true);
+		}
+		catch(ErrorDM aExp)
+		{
+			System.err.println("Failed to build the CDS archive.");
+			aExp.printStackTrace();
+
+			try
+			{
+				AppCdsUtils.deleteArchive(appPath);
+				PlatformUtils.setAppCdsArchive(false);
+			}
+			catch(ErrorDM aExp2)
+			{
+				aExp2.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Helper method that starts the sampling of the heap usage. The data driven heap recommendation will be applied if
+	 * auto apply has been enabled. See {@link HeapTelemetryUtils}.
+	 */
+	private void refreshHeapTelemetry()
+	{
+		File telemetryFile = HeapTelemetryUtils.getTelemetryFile();
+		HeapTelemetryUtils.startSampler(telemetryFile);
+
+		try
+		{
+			HeapTelemetryUtils.applyRecommendation(telemetryFile);
+		}
+		catch(ErrorDM aExp)
+		{
+			System.err.println("Failed to apply the heap recommendation.");
+			aExp.printStackTrace();
+		}
+	}
+
+	/**
+	 * Helper method that reconciles the shared JRE store with the JRE that this application is running on.
+	 */
+	private void reconcileJreStore()
+	{
+		try
+		{
+			File installPath = DistUtils.getAppPath().getParentFile();
+			JreStoreUtils.reconcile(new SilentTask(), DistUtils.getJreVersion(), DistUtils.getJreVariant(), installPath);
+		}
+		catch(ErrorDM aExp)
+		{
+			System.err.println("Failed to reconcile the shared JRE store.");
+			aExp.printStackTrace();
+		}
+	}
+
 	/**
 	 * Helper method that "reverts" an update. After this method is called the DistMaker application's configuration
 	 * should be in the same state as before an update was applied.
@@ -894,29 +1287,48 @@ public class DistMakerEngine
 	 */
 	private void revertUpdate(Task aTask)
 	{
-		// Revert our application's configuration (which will be loaded when it is restarted) to reflect the proper JRE
+		// Revert our application's configuration (which will be loaded when it is restarted)
+		LaunchConfig launchCfg;
 		try
 		{
-			JreVersion currJreVer = DistUtils.getJreVersion();
-			PlatformUtils.setJreVersion(currJreVer);
+			launchCfg = LaunchConfig.load();
+			launchCfg.setBackupFile(null);
 		}
 		catch(ErrorDM aExp)
 		{
-			aTask.logRegln("Failed to revert application's JRE!");
+			launchCfg = null;
+			aTask.logRegln("Failed to load application configuration!");
 			aTask.logRegln("\tApplication may be in an unstable state.");
 			MiscUtils.printErrorDM(aTask, aExp, 1);
 		}
 
-		// Revert any platform specific config files
-		try
+		if (launchCfg != null)
 		{
-			PlatformUtils.updateAppRelease(currRelease);
-		}
-		catch(ErrorDM aExp)
-		{
-			aTask.logRegln("Failed to revert application configuration!");
-			aTask.logRegln("\tApplication may be in an unstable state.");
-			MiscUtils.printErrorDM(aTask, aExp, 1);
+			// Revert to the proper JRE
+			try
+			{
+				JreVersion currJreVer = DistUtils.getJreVersion();
+				launchCfg.setJreVersion(currJreVer, DistUtils.getJreVariant());
+			}
+			catch(ErrorDM aExp)
+			{
+				aTask.logRegln("Failed to revert application's JRE!");
+				aTask.logRegln("\tApplication may be in an unstable state.");
+				MiscUtils.printErrorDM(aTask, aExp, 1);
+			}
+
+			// Revert any platform specific config files
+			try
+			{
+				launchCfg.setAppVersion(currRelease.getVersion());
+				launchCfg.commit();
+			}
+			catch(ErrorDM aExp)
+			{
+				aTask.logRegln("Failed to revert application configuration!");
+				aTask.logRegln("\tApplication may be in an unstable state.");
+				MiscUtils.printErrorDM(aTask, aExp, 1);
+			}
 		}
 
 		// Determine the path to the delta (update) folder
@@ -1058,7 +1470,7 @@ public class DistMakerEngine
 		}
 
 		// Remove the entire delta folder
-		if (IoUtil.deleteDirectory(deltaPath) == false)
+		if (deleteDeltaPath(deltaPath, "reverted") == false)
 			throw new ErrorDM("Failed to delete folder: " + deltaPath);
 	}
 
@@ -1100,6 +1512,36 @@ public class DistMakerEngine
 		}
 	}
 
+	/**
+	 * Helper method that records (in the update report) whether the staged update was applied on restart. The report is
+	 * only modified if the update was staged.
+	 */
+	private void finalizeUpdateReport(boolean aIsApplied)
+	{
+		File reportFile = DistUtils.getUpdateReportFile();
+		if (reportFile.isFile() == false)
+			return;
+
+		try
+		{
+			UpdateReport tmpReport = UpdateReport.load(reportFile);
+			if (tmpReport.getOutcome() != Outcome.Staged)
+				return;
+
+			if (aIsApplied == true)
+				tmpReport = tmpReport.withOutcome(Outcome.Applied, null);
+			else
+				tmpReport = tmpReport.withOutcome(Outcome.ApplyFailed, DistUtils.getUpdateMsg());
+			tmpReport.save(reportFile);
+			lastReport = tmpReport;
+		}
+		catch (IOException aExp)
+		{
+			System.err.println("Failed to record the outcome of the update: " + reportFile);
+			aExp.printStackTrace();
+		}
+	}
+
 	/**
 	 * Notification that the corresponding application has been fully initialized. This helper method will notify the
 	 * user on the status of any update.
@@ -1131,6 +1573,9 @@ public class DistMakerEngine
 			infoMsg += DistUtils.getUpdateMsg();
 		}
 
+		// Record the outcome of the (staged) update
+		finalizeUpdateReport(updateCode == 1);
+
 		// Setup the runnable that will clean up our delta folder
 		Runnable cleanDeltaRunnable = () ->
 		{
@@ -1139,7 +1584,8 @@ public class DistMakerEngine
 			if (deltaPath.isDirectory() == false)
 				return;
 
-			if (IoUtil.deleteDirectory(deltaPath) == false)
+			String reason = updateCode == 1 ? "updated" : "failed";
+			if (deleteDeltaPath(deltaPath, reason) == false)
 				System.err.println("Failed to remove delta path. Cleanup after update was not fully completed.");
 		};
 
@@ -20,14 +20,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-import distMaker.jre.JreVersion;
+import distMaker.jre.*;
 import distMaker.node.*;
 import distMaker.utils.*;
-import glum.digest.Digest;
-import glum.digest.DigestType;
+import distMaker.utils.UpdateEvents.CatalogParse;
 import glum.io.IoUtil;
-import glum.io.ParseUtil;
 import glum.net.Credential;
 import glum.net.NetUtil;
 import glum.reflect.ReflectUtil;
@@ -120,6 +119,20 @@ public class DistUtils
 		return jarPath.getParentFile().getParentFile();
 	}
 
+	/**
+	 * Returns the file used to cache the catalog of available releases (appCatalog.txt). The cache is located in the top
+	 * of the application's DistMaker root.
+	 * <p>
+	 * Returns null if this is a developers build (no cache will be utilized).
+	 */
+	public static File getAppCatalogCacheFile()
+	{
+		if (developAppPath == null && isDevelopersEnvironment() == true)
+			return null;
+
+		return new File(getAppPath().getParentFile(), "appCatalog.txt");
+	}
+
 	/**
 	 * Returns the version of DistMaker which is running.
 	 */
@@ -139,6 +152,30 @@ public class DistUtils
 		return new JreVersion(jreVer);
 	}
 
+	/**
+	 * Returns the variant of the JRE which we are running on. See {@link JreRelease#getVariant()}.
+	 * <p>
+	 * The variant is determined from the name of the folder that the (bundled) JRE was expanded to. See
+	 * {@link JreUtils#getExpandJrePath(JreVersion, String)}. Returns null if the JRE is a standard JRE.
+	 */
+	public static String getJreVariant()
+	{
+		String baseName = JreUtils.getExpandJrePath(getJreVersion()) + "-";
+
+		// Note on the Macosx platform java.home refers to: <jreExpandPath>/Contents/Home
+		Path tmpPath = Paths.get(System.getProperty("java.home")).toAbsolutePath();
+		for (int c1 = 0; c1 < 3 && tmpPath != null && tmpPath.getFileName() != null; c1++)
+		{
+			String tmpName = tmpPath.getFileName().toString();
+			if (tmpName.startsWith(baseName) == true && tmpName.length() > baseName.length())
+				return tmpName.substring(baseName.length());
+
+			tmpPath = tmpPath.getParent();
+		}
+
+		return null;
+	}
+
 	/**
 	 * Returns the code associated with the update.
 	 */
@@ -155,6 +192,15 @@ public class DistUtils
 		return updateMsg;
 	}
 
+	/**
+	 * Returns the file to which the report of the (most recent) update attempt is written. The report is located in the
+	 * top of the application's DistMaker root. See {@link UpdateReport}.
+	 */
+	public static File getUpdateReportFile()
+	{
+		return new File(getAppPath().getParentFile(), UpdateReport.FileName);
+	}
+
 	/**
 	 * Utility method to determine if this appears to be running in the delevolper's environment (run from eclipse)
 	 */
@@ -165,6 +211,8 @@ public class DistUtils
 
 	/**
 	 * Utility method to determine if the JRE is embedded with this application.
+	 * <p>
+	 * A JRE that is provided by the shared JRE store is considered to be embedded.
 	 */
 	public static boolean isJreBundled()
 	{
@@ -180,6 +228,10 @@ public class DistUtils
 		if (jrePath.startsWith(rootPath) == true)
 			return true;
 
+		// A JRE from the shared JRE store is considered bundled
+		if (JreStoreUtils.isRunningFromStore() == true)
+			return true;
+
 		return false;
 	}
 
@@ -189,110 +241,48 @@ public class DistUtils
 	public static List<AppRelease> getAvailableAppReleases(Task aTask, URL aUpdateUrl, String appName,
 			Credential aCredential)
 	{
-		List<AppRelease> fullL;
-		AppRelease workAR;
-		URL catUrl;
+		return getAvailableAppReleases(aTask, aUpdateUrl, appName, aCredential, null);
+	}
+
+	/**
+	 * Returns the list of available releases.
+	 * <p>
+	 * If aCacheFile is not null then the catalog of releases (appCatalog.txt) will be cached to aCacheFile and only the
+	 * content appended (since the prior retrieval) will be retrieved. See {@link CatalogCache}.
+	 */
+	public static List<AppRelease> getAvailableAppReleases(Task aTask, URL aUpdateUrl, String appName,
+			Credential aCredential, File aCacheFile)
+	{
 		URLConnection connection;
 		InputStream inStream;
-		BufferedReader bufReader;
 		String errMsg;
 
 		errMsg = null;
-		fullL = new ArrayList<>();
-		catUrl = IoUtil.createURL(aUpdateUrl.toString() + "/" + appName + "/" + "appCatalog.txt");
+		URL catUrl = IoUtil.createURL(aUpdateUrl.toString() + "/" + appName + "/" + "appCatalog.txt");
 
-		workAR = null;
 		connection = null;
 		inStream = null;
-		bufReader = null;
+		CatalogParse tmpEvent = new CatalogParse();
+		tmpEvent.begin();
+		AppReleaseHandler tmpHandler = new AppReleaseHandler(aTask, appName);
 		try
 		{
-			// Read the contents of the file
-			connection = catUrl.openConnection();
-			inStream = NetUtil.getInputStream(connection, aCredential);
-			bufReader = new BufferedReader(new InputStreamReader(new BufferedInputStream(inStream)));
-
-			// Read the lines
-			while (true)
+			// Process the contents of the file (as the bytes arrive). Note the appCatalog.txt may be edited manually and
+			// thus the compressed sibling (if any) is never utilized.
+			if (aCacheFile != null)
 			{
-				String strLine;
-				strLine = bufReader.readLine();
-
-				// Bail once we are done
-				if (strLine == null)
-					break;
-
-				// Ignore comments and empty lines
-				if (strLine.isEmpty() == true || strLine.startsWith("#") == true)
-					continue;
-
-				String[] tokenArr;
-				tokenArr = strLine.split(",");
-				if (tokenArr.length == 2 && tokenArr[0].equals("name") == true)
-					; // Nothing to do
-				// Logic to handle the 'exit' command
-				else if (tokenArr.length >= 1 && tokenArr[0].equals("exit") == true)
-				{
-					// We support exit commands with 3 tokens. All others
-					// we will just exit.
-					if (tokenArr.length != 3)
-						break;
-
-					String targName = tokenArr[1];
-					String needVer = tokenArr[2];
-					if (ParseUtils.shouldExitLogic(targName, needVer) == true)
-						break;
-				}
-				// Logic to handle a distribution release
-				else if (tokenArr.length == 3 && tokenArr[0].equals("R") == true)
-				{
-					DateUnit dateUnit;
-					String verName;
-					long buildTime;
-
-					verName = tokenArr[1];
-
-					dateUnit = new DateUnit("", "yyyyMMMdd HH:mm:ss");
-					buildTime = dateUnit.parseString(tokenArr[2], 0);
-
-					// Record the prior AppRelease
-					if (workAR != null)
-						fullL.add(workAR);
-
-					workAR = new AppRelease(appName, verName, buildTime);
-				}
-				// Record any comments and associate with the current AppRelease
-				else if (tokenArr.length >= 2 && tokenArr[0].equals("info") == true)
-				{
-					// We support the 'info,msg' instruction. Otherwise we just ignore info instructions silently
-					if (tokenArr[1].equals("msg") == true && workAR != null)
-					{
-						// Retokenize to ensure at most we get only 3 tokens
-						tokenArr = strLine.split(",", 3);
-
-						String infoMsg;
-						infoMsg = workAR.getInfoMsg();
-						if (infoMsg != null)
-							infoMsg += "\n";
-						else
-							infoMsg = "";
-						if (tokenArr.length > 2)
-							infoMsg += tokenArr[2];
-
-						// Form an updated AppRelease with the updated infoMsg
-						workAR = new AppRelease(workAR.getName(), workAR.getVersion(), workAR.getBuildTime(), infoMsg);
-					}
-
-				}
-				else
-				{
-					aTask.logRegln("Unreconized line: " + strLine);
-				}
+				inStream = CatalogCache.open(aTask, catUrl, aCacheFile, aCredential);
 			}
+			else
+			{
+				connection = catUrl.openConnection();
+				inStream = CatalogUtils.openStream(connection, aCredential);
+			}
+			CatalogTokenizer.parse(aTask, inStream, tmpHandler);
 
 			// Add the last AppRelease
-			if (workAR != null)
-				fullL.add(workAR);
+			if (tmpHandler.workAR != null)
+				tmpHandler.fullL.add(tmpHandler.workAR);
 		}
 		catch (IOException aExp)
 		{
@@ -305,15 +295,21 @@ public class DistUtils
 		finally
 		{
 			IoUtil.forceClose(inStream);
-			IoUtil.forceClose(bufReader);
 		}
 
 		// See if we are in a valid state
 		if (errMsg != null)
 			; // Nothing to do, as an earlier error has occurred
-		else if (fullL.size() == 0)
+		else if (tmpHandler.fullL.size() == 0)
 			errMsg = "The update URL appears to be invalid.";
 
+		// Record the parse
+		tmpEvent.catalog = "appCatalog.txt";
+		tmpEvent.format = "text";
+		tmpEvent.numEntries = tmpHandler.fullL.size();
+		tmpEvent.isPass = errMsg == null;
+		tmpEvent.commit();
+
 		// Bail if there were issues
 		if (errMsg != null)
 		{
@@ -321,7 +317,7 @@ public class DistUtils
 			return null;
 		}
 
-		return fullL;
+		return tmpHandler.fullL;
 	}
 
 	/**
@@ -358,88 +354,50 @@ public class DistUtils
 
 	/**
 	 * Returns the AppCatalog which describe the full content of an update specified in <aUpdateUrl>/catalog.txt
+	 * <p>
+	 * If a corresponding binary catalog (catalog.bin) resides next to aCatalogFile then it will be loaded rather than
+	 * parsing the text catalog. The binary catalog is verified against aCatalogFile (before it is mapped) and is removed
+	 * if it is not valid. Note only large binary catalogs are memory-mapped, thus the delta folder can be removed (on
+	 * abort) while the catalog is in use. See {@link MappedCatalog}.
+	 * <p>
+	 * Returns null if the catalog is not valid. Note all of the files in a catalog must share the same digest type.
 	 */
 	public static AppCatalog readAppCatalog(Task aTask, File aCatalogFile, URL aUpdateUrl)
 	{
-		List<Node> nodeL;
-		JreVersion minJreVersion, maxJreVersion;
-		String errMsg, strLine;
-
-		errMsg = null;
-		nodeL = new ArrayList<>();
-		minJreVersion = null;
-		maxJreVersion = null;
-
-		// Default to DigestType of MD5
-		DigestType digestType;
-		digestType = DigestType.MD5;
-
-		try (BufferedReader tmpBR = new BufferedReader(
-				new InputStreamReader(new BufferedInputStream(new FileInputStream(aCatalogFile))));)
+		// Utilize the binary catalog (if available and valid)
+		File binFile = new File(aCatalogFile.getParentFile(), MappedCatalog.FileName);
+		if (binFile.isFile() == true)
 		{
-			String[] tokens;
-
-			// Read the contents of the file
-			while (true)
+			CatalogParse tmpEvent = new CatalogParse();
+			tmpEvent.begin();
+			try
 			{
-				strLine = tmpBR.readLine();
-
-				// Bail once we are done
-				if (strLine == null)
-					break;
-
-				tokens = strLine.split(",", 4);
-				if (strLine.isEmpty() == true || strLine.startsWith("#") == true)
-					; // Nothing to do
-				else if (tokens.length >= 1 && tokens[0].equals("exit") == true)
-					break; // Bail once we get the 'exit' command
-				else if (tokens.length == 2 && tokens[0].equals("P") == true)
-				{
-					String filename;
+				MappedCatalog tmpMappedCat = MappedCatalog.open(binFile, aUpdateUrl, aCatalogFile);
+
+				tmpEvent.catalog = binFile.getName();
+				tmpEvent.format = "binary";
+				tmpEvent.numEntries = tmpMappedCat.getNumNodes();
+				tmpEvent.isPass = true;
+				tmpEvent.commit();
+				return new AppCatalog(tmpMappedCat);
+			}
+			catch (IOException | RuntimeException aExp)
+			{
+				aTask.logRegln("Failed to load the binary catalog. Reverting to: " + aCatalogFile.getName());
+				aTask.logRegln("\t" + aExp.getClass().getSimpleName() + ": " + aExp.getMessage());
+				binFile.delete();
+			}
+		}
 
-					// Form the PathNode
-					filename = tokens[1];
-					nodeL.add(new PathNode(aUpdateUrl, filename));
-				}
-				else if (tokens.length == 4 && tokens[0].equals("F") == true)
-				{
-					String filename, digestStr;
-					long fileLen;
-
-					// Form the FileNode
-					digestStr = tokens[1];
-					fileLen = ParseUtil.readLong(tokens[2], -1);
-					filename = tokens[3];
-					nodeL.add(new FileNode(aUpdateUrl, filename, new Digest(digestType, digestStr), fileLen));
-				}
-				else if (tokens.length == 2 && tokens[0].equals("digest") == true)
-				{
-					DigestType tmpDigestType;
+		String errMsg = null;
+		CatalogParse tmpEvent = new CatalogParse();
+		tmpEvent.begin();
 
-					tmpDigestType = DigestType.parse(tokens[1]);
-					if (tmpDigestType == null)
-						aTask.logRegln("Failed to locate DigestType for: " + tokens[1]);
-					else
-						digestType = tmpDigestType;
-				}
-				else if ((tokens.length == 2 || tokens.length == 3) && tokens[0].equals("jre") == true)
-				{
-					if (minJreVersion != null)
-					{
-						aTask.logRegln("JRE version has already been specified. Current ver: " + minJreVersion.getLabel()
-						+ " Requested ver: " + tokens[1] + ". Skipping...");
-						continue;
-					}
-
-					minJreVersion = new JreVersion(tokens[1]);
-					if (tokens.length == 3)
-						maxJreVersion = new JreVersion(tokens[2]);
-				}
-				else
-				{
-					aTask.logRegln("Unreconized line: " + strLine);
-				}
-			}
+		// Process the catalog (as a byte stream)
+		AppCatalogHandler tmpHandler = new AppCatalogHandler(aTask, aUpdateUrl);
+		try (InputStream tmpIS = new FileInputStream(aCatalogFile))
+		{
+			CatalogTokenizer.parse(aTask, tmpIS, tmpHandler);
 		}
 		catch (IOException aExp)
 		{
@@ -449,9 +407,18 @@ public class DistUtils
 		// See if we are in a valid state
 		if (errMsg != null)
 			; // Nothing to do, as an earlier error has occurred
-		else if (nodeL.size() == 0)
+		else if (tmpHandler.errMsg != null)
+			errMsg = tmpHandler.errMsg;
+		else if (tmpHandler.numNodes == 0)
 			errMsg = "The catalog appears to be invalid.";
 
+		// Record the parse
+		tmpEvent.catalog = aCatalogFile.getName();
+		tmpEvent.format = "text";
+		tmpEvent.numEntries = tmpHandler.numNodes;
+		tmpEvent.isPass = errMsg == null;
+		tmpEvent.commit();
+
 		// Bail if there were issues
 		if (errMsg != null)
 		{
@@ -459,7 +426,8 @@ public class DistUtils
 			return null;
 		}
 
-		return new AppCatalog(nodeL, minJreVersion, maxJreVersion);
+		return new AppCatalog(tmpHandler.builder.build(), tmpHandler.minJreVersion, tmpHandler.maxJreVersion,
+				tmpHandler.jreVariant, tmpHandler.jreModuleL);
 	}
 
 	/**
@@ -491,4 +459,146 @@ public class DistUtils
 		System.out.println("  Regular users should never see this logic flow!");
 	}
 
+	/**
+	 * Handler used to process the directives of an app catalog (catalog.txt).
+	 */
+	private static class AppCatalogHandler implements Consumer<CatalogLine>
+	{
+		private final Task refTask;
+		private final CompactCatalog.Builder builder;
+		private int numNodes;
+		private JreVersion minJreVersion;
+		private JreVersion maxJreVersion;
+		private String jreVariant;
+		private List<String> jreModuleL;
+		private String errMsg;
+
+		private AppCatalogHandler(Task aTask, URL aUpdateUrl)
+		{
+			refTask = aTask;
+			builder = new CompactCatalog.Builder(aUpdateUrl);
+			numNodes = 0;
+			minJreVersion = null;
+			maxJreVersion = null;
+			jreVariant = null;
+			jreModuleL = new ArrayList<>();
+			errMsg = null;
+		}
+
+		@Override
+		public void accept(CatalogLine aLine)
+		{
+			if (aLine.getNumFields(4) == 4 && aLine.isField(0, "F") == true)
+			{
+				// Record the file
+				long fileLen = aLine.getLong(2, -1);
+				String filename = aLine.getFieldRest(3);
+				try
+				{
+					builder.addFile(filename, aLine.getDigest(1), fileLen);
+					numNodes++;
+				}
+				catch (IllegalArgumentException aExp)
+				{
+					// Fail the entire catalog rather than silently dropping the file
+					if (errMsg == null)
+						errMsg = aExp.getMessage() + " File: " + filename;
+				}
+			}
+			else if (aLine.getNumFields(4) == 2 && aLine.isField(0, "P") == true)
+			{
+				// Record the folder
+				builder.addPath(aLine.getField(1));
+				numNodes++;
+			}
+			else if ((aLine.getNumFields(4) == 2 || aLine.getNumFields(4) == 3) && aLine.isField(0, "jre") == true)
+			{
+				if (minJreVersion != null)
+				{
+					refTask.logRegln("JRE version has already been specified. Current ver: " + minJreVersion.getLabel()
+							+ " Requested ver: " + aLine.getField(1) + ". Skipping...");
+					return;
+				}
+
+				minJreVersion = new JreVersion(aLine.getField(1));
+				if (aLine.getNumFields(4) == 3)
+					maxJreVersion = new JreVersion(aLine.getField(2));
+			}
+			else if (aLine.getNumFields(4) == 2 && aLine.isField(0, "jreVariant") == true)
+			{
+				jreVariant = aLine.getField(1);
+			}
+			else if (aLine.getNumFields(4) >= 2 && aLine.isField(0, "jreModules") == true)
+			{
+				jreModuleL = List.of(aLine.getFieldRest(1).split(","));
+			}
+			else
+			{
+				refTask.logRegln("Unreconized line: " + aLine);
+			}
+		}
+	}
+
+	/**
+	 * Handler used to process the directives of the catalog of available releases (appCatalog.txt).
+	 */
+	private static class AppReleaseHandler implements Consumer<CatalogLine>
+	{
+		private final Task refTask;
+		private final String appName;
+		private final DateUnit dateUnit;
+		private final List<AppRelease> fullL;
+		private AppRelease workAR;
+
+		private AppReleaseHandler(Task aTask, String aAppName)
+		{
+			refTask = aTask;
+			appName = aAppName;
+			dateUnit = new DateUnit("", "yyyyMMMdd HH:mm:ss");
+			fullL = new ArrayList<>();
+			workAR = null;
+		}
+
+		@Override
+		public void accept(CatalogLine aLine)
+		{
+			if (aLine.getNumFields() == 2 && aLine.isField(0, "name") == true)
+				; // Nothing to do
+			// Logic to handle a distribution release
+			else if (aLine.getNumFields() == 3 && aLine.isField(0, "R") == true)
+			{
+				String verName = aLine.getField(1);
+				long buildTime = dateUnit.parseString(aLine.getField(2), 0);
+
+				// Record the prior AppRelease
+				if (workAR != null)
+					fullL.add(workAR);
+
+				workAR = new AppRelease(appName, verName, buildTime);
+			}
+			// Record any comments and associate with the current AppRelease
+			else if (aLine.getNumFields() >= 2 && aLine.isField(0, "info") == true)
+			{
+				// We support the 'info,msg' instruction. Otherwise we just ignore info instructions silently
+				if (aLine.isField(1, "msg") == true && workAR != null)
+				{
+					String infoMsg = workAR.getInfoMsg();
+					if (infoMsg != null)
+						infoMsg += "\n";
+					else
+						infoMsg = "";
+					if (aLine.getNumFields(3) > 2)
+						infoMsg += aLine.getFieldRest(2);
+
+					// Form an updated AppRelease with the updated infoMsg
+					workAR = new AppRelease(workAR.getName(), workAR.getVersion(), workAR.getBuildTime(), infoMsg);
+				}
+			}
+			else
+			{
+				refTask.logRegln("Unreconized line: " + aLine);
+			}
+		}
+	}
+
 }
@@ -30,7 +30,9 @@ import org.apache.commons.compress.utils.IOUtils;
 import com.google.common.base.Strings;
 import com.google.common.io.CountingInputStream;
 
+import distMaker.metrics.UpdateMetrics;
 import glum.digest.Digest;
+import glum.digest.DigestType;
 import glum.digest.DigestUtils;
 import glum.net.*;
 import glum.task.Task;
@@ -43,6 +45,28 @@ import glum.util.ThreadUtil;
  */
 public class MiscUtils
 {
+	/**
+	 * Utility method that computes the {@link Digest} of the contents of the specified file.
+	 */
+	public static Digest computeDigest(File aFile, DigestType aDigestType) throws IOException
+	{
+		MessageDigest tmpMessageDigest = DigestUtils.getDigest(aDigestType);
+		try (InputStream tmpIS = new FileInputStream(aFile))
+		{
+			byte[] byteArr = new byte[65536];
+			while (true)
+			{
+				int numBytes = tmpIS.read(byteArr);
+				if (numBytes == -1)
+					break;
+
+				tmpMessageDigest.update(byteArr, 0, numBytes);
+			}
+		}
+
+		return new Digest(aDigestType, tmpMessageDigest.digest());
+	}
+
 	/**
 	 * Utility method to convert a Unix base-10 mode into the equivalent string.
 	 * <p>
@@ -113,6 +137,7 @@ public class MiscUtils
 		Digest testDigest = new Digest(aTargDigest.getType(), tmpMessageDigest.digest());
 		if (aTargDigest.equals(testDigest) == false)
 		{
+			UpdateMetrics.recordDigestFailure();
 			aTask.logRegln("File download is corrupted...");
 			aTask.logRegln("\tFile: " + aDstFile);
 			aTask.logRegln("\t\tExpected " + aTargDigest.getDescr());
@@ -0,0 +1,249 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker;
+
+import java.io.*;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import distMaker.jre.JreVersion;
+import distMaker.node.AppRelease;
+import distMaker.utils.CatalogUtils;
+import distMaker.utils.CatalogTokenizer;
+import glum.digest.Digest;
+import glum.io.IoUtil;
+import glum.net.Credential;
+import glum.task.Task;
+import glum.util.ThreadUtil;
+
+/**
+ * Immutable object that describes the (optional) site index of an application: {@literal <site>/<app>/siteIndex.txt}
+ * <p>
+ * The site index is generated by the deploy scripts and lists the digest, size, and JRE requirements of the catalog of
+ * each deployed release, the digest and size of each release's update manifests (see
+ * {@link StageUtils#fetchAppCatalogViaManifest}), as well as the digest and size of the (shared) JRE and AppLauncher
+ * catalogs. This allows all of the catalogs needed to perform an update to be planned up front and retrieved in
+ * parallel (see {@link #prefetch(AppRelease, AppRelease, JreVersion, Credential)}) rather than in strict sequence.
+ * <p>
+ * The site index is an optimization only. Sites without a site index (or with a stale one) are fully supported.
+ *
+ * @author lopeznr1
+ */
+public class SiteIndex
+{
+	/** The file name of the site index. */
+	public static final String FileName = "siteIndex.txt";
+
+	// Attributes
+	private final URL siteUrl;
+	private final ImmutableMap<String, IndexEntry> releaseM;
+	private final ImmutableMap<String, IndexEntry> manifestM;
+	private final IndexEntry jreEntry;
+	private final IndexEntry launcherEntry;
+
+	/**
+	 * Standard Constructor
+	 */
+	public SiteIndex(URL aSiteUrl, Map<String, IndexEntry> aReleaseM, Map<String, IndexEntry> aManifestM,
+			IndexEntry aJreEntry, IndexEntry aLauncherEntry)
+	{
+		siteUrl = aSiteUrl;
+		releaseM = ImmutableMap.copyOf(aReleaseM);
+		manifestM = ImmutableMap.copyOf(aManifestM);
+		jreEntry = aJreEntry;
+		launcherEntry = aLauncherEntry;
+	}
+
+	/**
+	 * Utility method that returns the URL of the site index of the specified application.
+	 */
+	public static URL getIndexUrl(URL aSiteUrl, String aAppName)
+	{
+		return IoUtil.createURL(aSiteUrl.toString() + "/" + aAppName + "/" + FileName);
+	}
+
+	/**
+	 * Utility method that retrieves (and loads) the site index of the specified application.
+	 * <p>
+	 * Returns null if the site index is not available. Failures (other than a missing site index) will be logged to
+	 * aTask.
+	 */
+	public static SiteIndex fetch(Task aTask, URL aSiteUrl, String aAppName, Credential aCredential)
+	{
+		URL idxUrl = getIndexUrl(aSiteUrl, aAppName);
+
+		Map<String, IndexEntry> releaseM = new HashMap<>();
+		Map<String, IndexEntry> manifestM = new HashMap<>();
+		IndexEntry[] sharedArr = new IndexEntry[2];
+
+		InputStream inStream = null;
+		try
+		{
+			inStream = CatalogUtils.open(idxUrl, aCredential);
+			CatalogTokenizer.parse(aTask, inStream, aLine -> {
+				if (aLine.getNumFields() == 2 && aLine.isField(0, "name") == true)
+					; // Nothing to do
+				// Logic to handle the catalog of a release: catalog,release,<ver>,<digest>,<len>,<minJre>,<maxJre>
+				else if (aLine.getNumFields() == 7 && aLine.isField(0, "catalog") == true
+						&& aLine.isField(1, "release") == true)
+				{
+					JreVersion minJreVer = toJreVersion(aLine.getField(5));
+					JreVersion maxJreVer = toJreVersion(aLine.getField(6));
+					IndexEntry tmpEntry = new IndexEntry(aLine.getDigest(3), aLine.getLong(4, -1), minJreVer, maxJreVer);
+					releaseM.put(aLine.getField(2), tmpEntry);
+				}
+				// Logic to handle the update manifest of a release: catalog,manifest,<ver>,<fromVer>,<digest>,<len>
+				else if (aLine.getNumFields() == 6 && aLine.isField(0, "catalog") == true
+						&& aLine.isField(1, "manifest") == true)
+				{
+					IndexEntry tmpEntry = new IndexEntry(aLine.getDigest(4), aLine.getLong(5, -1), null, null);
+					manifestM.put(aLine.getField(2) + "/" + aLine.getField(3), tmpEntry);
+				}
+				// Logic to handle the shared catalogs: catalog,[jre|launcher],<digest>,<len>
+				else if (aLine.getNumFields() == 4 && aLine.isField(0, "catalog") == true)
+				{
+					IndexEntry tmpEntry = new IndexEntry(aLine.getDigest(2), aLine.getLong(3, -1), null, null);
+					if (aLine.isField(1, "jre") == true)
+						sharedArr[0] = tmpEntry;
+					else if (aLine.isField(1, "launcher") == true)
+						sharedArr[1] = tmpEntry;
+				}
+				else
+				{
+					aTask.logRegln("Unreconized line: " + aLine);
+				}
+			});
+		}
+		catch (FileNotFoundException aExp)
+		{
+			return null;
+		}
+		catch (IOException | RuntimeException aExp)
+		{
+			aTask.logRegln("Failed to load the site index: " + idxUrl);
+			aTask.logRegln(ThreadUtil.getStackTrace(aExp));
+			return null;
+		}
+		finally
+		{
+			IoUtil.forceClose(inStream);
+		}
+
+		return new SiteIndex(aSiteUrl, releaseM, manifestM, sharedArr[0], sharedArr[1]);
+	}
+
+	/**
+	 * Returns the number of releases described by the site index.
+	 */
+	public int getNumReleases()
+	{
+		return releaseM.size();
+	}
+
+	/**
+	 * Starts the (background) retrieval of all of the catalogs that will be needed to update from the release,
+	 * aCurrRelease, to the release, aTargRelease.
+	 * <p>
+	 * The update manifest (relative to aCurrRelease) is retrieved rather than the full catalog if one has been deployed.
+	 * The JRE and AppLauncher catalogs are only retrieved if the release is not compatible with aCurrJreVer.
+	 * <p>
+	 * Returns the number of catalogs that are being retrieved.
+	 */
+	public int prefetch(AppRelease aTargRelease, AppRelease aCurrRelease, JreVersion aCurrJreVer,
+			Credential aCredential)
+	{
+		IndexEntry relEntry = releaseM.get(aTargRelease.getVersion());
+		if (relEntry == null)
+			return 0;
+
+		IndexEntry manifestEntry = manifestM.get(aTargRelease.getVersion() + "/" + aCurrRelease.getVersion());
+		if (manifestEntry != null)
+		{
+			URL manifestUrl = StageUtils.getManifestUrl(siteUrl, aTargRelease, aCurrRelease.getVersion());
+			CatalogUtils.prefetch(manifestUrl, manifestEntry.digest, manifestEntry.fileLen, aCredential);
+		}
+		else
+		{
+			String relPath = "/" + aTargRelease.getName() + "/" + aTargRelease.getVersion() + "/delta/catalog.txt";
+			CatalogUtils.prefetch(IoUtil.createURL(siteUrl.toString() + relPath), relEntry.digest, relEntry.fileLen,
+					aCredential);
+		}
+		int retNumItems = 1;
+
+		// Bail if the release does not require a different JRE
+		if (relEntry.isJreVersionCompatible(aCurrJreVer) == true)
+			return retNumItems;
+
+		if (jreEntry != null)
+		{
+			URL jreUrl = IoUtil.createURL(siteUrl.toString() + "/jre/jreCatalog.txt");
+			CatalogUtils.prefetch(jreUrl, jreEntry.digest, jreEntry.fileLen, aCredential);
+			retNumItems++;
+		}
+		if (launcherEntry != null)
+		{
+			URL launcherUrl = IoUtil.createURL(siteUrl.toString() + "/launcher/appCatalog.txt");
+			CatalogUtils.prefetch(launcherUrl, launcherEntry.digest, launcherEntry.fileLen, aCredential);
+			retNumItems++;
+		}
+
+		return retNumItems;
+	}
+
+	/**
+	 * Helper method that returns the JreVersion of the specified label. Returns null if the label is empty.
+	 */
+	private static JreVersion toJreVersion(String aLabel)
+	{
+		if (aLabel.isEmpty() == true)
+			return null;
+
+		return new JreVersion(aLabel);
+	}
+
+	/**
+	 * Immutable object that describes a single catalog listed in the site index.
+	 */
+	public static class IndexEntry
+	{
+		// Attributes
+		private final Digest digest;
+		private final long fileLen;
+		private final JreVersion minJreVer;
+		private final JreVersion maxJreVer;
+
+		/**
+		 * Standard Constructor
+		 */
+		public IndexEntry(Digest aDigest, long aFileLen, JreVersion aMinJreVer, JreVersion aMaxJreVer)
+		{
+			digest = aDigest;
+			fileLen = aFileLen;
+			minJreVer = aMinJreVer;
+			maxJreVer = aMaxJreVer;
+		}
+
+		/**
+		 * Returns true if the specified JRE version satisfies the JRE requirements of the (release) catalog.
+		 */
+		public boolean isJreVersionCompatible(JreVersion aJreVer)
+		{
+			return JreVersion.isCompatible(aJreVer, minJreVer, maxJreVer);
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker;
+
+/**
+ * Immutable object that describes the outcome of staging the (application) content of a release. See
+ * {@link StageUtils#stageAppNodes}.
+ * <p>
+ * The bytes (and files) are split between content that was reused from the local (stale) release and content that was
+ * transferred from the update site.
+ *
+ * @author lopeznr1
+ */
+public class StageResult
+{
+	// Attributes
+	private final boolean isPass;
+	private final int numFilesLocal;
+	private final int numFilesRemote;
+	private final long bytesLocal;
+	private final long bytesRemote;
+
+	/**
+	 * Standard Constructor
+	 */
+	public StageResult(boolean aIsPass, int aNumFilesLocal, int aNumFilesRemote, long aBytesLocal, long aBytesRemote)
+	{
+		isPass = aIsPass;
+		numFilesLocal = aNumFilesLocal;
+		numFilesRemote = aNumFilesRemote;
+		bytesLocal = aBytesLocal;
+		bytesRemote = aBytesRemote;
+	}
+
+	/**
+	 * Returns the number of bytes that were reused from the local (stale) release.
+	 */
+	public long getBytesLocal()
+	{
+		return bytesLocal;
+	}
+
+	/**
+	 * Returns the number of bytes that were transferred from the update site.
+	 */
+	public long getBytesRemote()
+	{
+		return bytesRemote;
+	}
+
+	/**
+	 * Returns the number of files that were reused from the local (stale) release.
+	 */
+	public int getNumFilesLocal()
+	{
+		return numFilesLocal;
+	}
+
+	/**
+	 * Returns the number of files that were transferred from the update site.
+	 */
+	public int getNumFilesRemote()
+	{
+		return numFilesRemote;
+	}
+
+	/**
+	 * Returns true if all of the content was staged.
+	 */
+	public boolean isPass()
+	{
+		return isPass;
+	}
+
+}
@@ -0,0 +1,379 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import distMaker.metrics.UpdateMetrics;
+import distMaker.node.*;
+import distMaker.utils.*;
+import distMaker.utils.UpdateEvents.CatalogParse;
+import distMaker.utils.UpdateEvents.NodeStage;
+import glum.digest.Digest;
+import glum.digest.DigestUtils;
+import glum.io.IoUtil;
+import glum.net.Credential;
+import glum.net.NetUtil;
+import glum.task.*;
+import glum.util.ThreadUtil;
+
+/**
+ * Collection of utility methods used to stage (download) the application content of a release.
+ * <p>
+ * These methods have no dependencies on the GUI or on the (running) application's install tree and thus may be
+ * utilized headlessly. They are utilized by {@link DistMakerEngine} and by the update performance harness.
+ *
+ * @author lopeznr1
+ */
+public class StageUtils
+{
+	/** The name of the folder (of a deployed release) that holds the release's update manifests. */
+	public static final String ManifestFolder = "manifest";
+
+	/**
+	 * Utility method that downloads the catalog (catalog.txt) of the release at aUpdateUrl to aAppNewPath and returns
+	 * the loaded {@link AppCatalog}.
+	 * <p>
+	 * The compressed catalog (catalog.txt.gz) is preferred if available. See {@link CatalogUtils}.
+	 * <p>
+	 * The (optional) binary catalog is downloaded as well. The binary catalog is only utilized if it is verified against
+	 * the catalog (and its own recorded digest). Releases that do not provide a binary catalog are still supported. See
+	 * {@link MappedCatalog}.
+	 * <p>
+	 * Returns null on failure. The failure will be logged to aTask.
+	 */
+	public static AppCatalog fetchAppCatalog(Task aTask, URL aUpdateUrl, File aAppNewPath, Credential aCredential)
+	{
+		URL catUrl = IoUtil.createURL(aUpdateUrl.toString() + "/catalog.txt");
+		File catalogFile = new File(aAppNewPath, "catalog.txt");
+		if (CatalogUtils.download(aTask, catUrl, catalogFile, aCredential) == false)
+			return null;
+
+		// Note failure to retrieve the binary catalog is not an error
+		URL binUrl = IoUtil.createURL(aUpdateUrl.toString() + "/" + MappedCatalog.FileName);
+		File binFile = new File(aAppNewPath, MappedCatalog.FileName);
+		if (NetUtil.download(new SilentTask(), binUrl, binFile, aCredential, -1L, null) == false)
+			binFile.delete();
+
+		return DistUtils.readAppCatalog(aTask, catalogFile, aUpdateUrl);
+	}
+
+	/**
+	 * Utility method that forms the catalog (catalog.txt) of the release at aUpdateUrl from the (precomputed) update
+	 * manifest at aManifestUrl and the (stale) catalog of the installed release. The formed catalog is written to
+	 * aAppNewPath and the loaded {@link AppCatalog} is returned.
+	 * <p>
+	 * An update manifest lists only the catalog lines (nodes) that were added, changed, or removed relative to a prior
+	 * release. Thus the (full) catalog of the release does not need to be retrieved. The formed catalog is validated
+	 * against the digest (and length) recorded in the manifest.
+	 * <p>
+	 * Returns null if the manifest is not available or is not applicable to the stale catalog. The full catalog should
+	 * then be retrieved via {@link #fetchAppCatalog(Task, URL, File, Credential)}.
+	 */
+	public static AppCatalog fetchAppCatalogViaManifest(Task aTask, URL aManifestUrl, File aStaleCatalogFile,
+			URL aUpdateUrl, File aAppNewPath, Credential aCredential)
+	{
+		ManifestHandler tmpHandler;
+		InputStream inStream = null;
+		CatalogParse tmpEvent = new CatalogParse();
+		tmpEvent.begin();
+		try
+		{
+			tmpHandler = new ManifestHandler(Files.readAllBytes(aStaleCatalogFile.toPath()));
+			inStream = CatalogUtils.open(aManifestUrl, aCredential);
+			CatalogTokenizer.parse(aTask, inStream, tmpHandler);
+		}
+		catch (FileNotFoundException aExp)
+		{
+			return null;
+		}
+		catch (IOException | RuntimeException aExp)
+		{
+			aTask.logRegln("Failed to process the update manifest: " + aManifestUrl);
+			aTask.logRegln(ThreadUtil.getStackTrace(aExp));
+			return null;
+		}
+		finally
+		{
+			IoUtil.forceClose(inStream);
+		}
+
+		// Bail if the manifest is not applicable
+		byte[] catalogArr = tmpHandler.getResult();
+		tmpEvent.catalog = aManifestUrl.getPath();
+		tmpEvent.format = "manifest";
+		tmpEvent.numEntries = tmpHandler.numDstLines;
+		tmpEvent.isPass = catalogArr != null;
+		tmpEvent.commit();
+		if (catalogArr == null)
+		{
+			aTask.logRegln("The update manifest is not applicable. The full catalog will be retrieved.");
+			aTask.logRegln("\tManifest: " + aManifestUrl);
+			return null;
+		}
+
+		File catalogFile = new File(aAppNewPath, "catalog.txt");
+		try
+		{
+			Files.write(catalogFile.toPath(), catalogArr);
+		}
+		catch (IOException aExp)
+		{
+			aTask.logRegln("Failed to write the catalog: " + catalogFile);
+			return null;
+		}
+
+		return DistUtils.readAppCatalog(aTask, catalogFile, aUpdateUrl);
+	}
+
+	/**
+	 * Utility method that returns the URL of the update manifest that describes the changes from the release,
+	 * aCurrVersion, to the release, aTargRelease.
+	 */
+	public static URL getManifestUrl(URL aSiteUrl, AppRelease aTargRelease, String aCurrVersion)
+	{
+		String tmpPath = "/" + aTargRelease.getName() + "/" + aTargRelease.getVersion() + "/" + ManifestFolder + "/";
+		return IoUtil.createURL(aSiteUrl.toString() + tmpPath + aCurrVersion + ".txt");
+	}
+
+	/**
+	 * Utility method that stages all of the nodes of aUpdateCat to aAppNewPath.
+	 * <p>
+	 * Content that is unchanged relative to aStaleCat is copied from the local (stale) release. All other content is
+	 * downloaded from the update site. The progress of aMainTask is advanced from aSizeCurr to aSizeFull (bytes) as the
+	 * content is staged.
+	 */
+	public static StageResult stageAppNodes(Task aMainTask, AppCatalog aStaleCat, AppCatalog aUpdateCat,
+			File aAppNewPath, Credential aCredential, long aSizeCurr, long aSizeFull)
+	{
+		int numFilesLocal = 0, numFilesRemote = 0;
+		long bytesLocal = 0L, bytesRemote = 0L;
+
+		long releaseSizeCurr = aSizeCurr;
+		for (Node aNode : aUpdateCat.getNodeList())
+		{
+			boolean isPass;
+
+			// Bail if we have been aborted
+			if (aMainTask.isActive() == false)
+				return new StageResult(false, numFilesLocal, numFilesRemote, bytesLocal, bytesRemote);
+
+			Node updateNode = aNode;
+			Node staleNode = aStaleCat.getNode(updateNode.getFileName());
+			long tmpFileLen = 0L;
+			if (updateNode instanceof FileNode)
+				tmpFileLen = ((FileNode)updateNode).getFileLen();
+			Task tmpTask = new PartialTask(aMainTask, aMainTask.getProgress(), tmpFileLen / (aSizeFull + 0.00));
+
+			NodeStage tmpEvent = new NodeStage();
+			tmpEvent.start();
+			tmpEvent.fileName = updateNode.getFileName();
+			tmpEvent.decision = "failed";
+
+			// Attempt to use the local copy
+			isPass = false;
+			if (staleNode != null && updateNode.areContentsEqual(staleNode) == true)
+			{
+				// Note we pass the SilentTask since
+				// - This should be fairly fast since this should result in a local disk copy
+				// - This may fail, (but the failure is recoverable and this serves just as an optimization)
+				isPass = staleNode.transferContentTo(new SilentTask(), aCredential, aAppNewPath);
+				if (isPass == true)
+				{
+					aMainTask.logRegln("\t(L) " + staleNode.getFileName());
+					tmpEvent.decision = "local";
+					if (updateNode instanceof FileNode)
+					{
+						numFilesLocal++;
+						UpdateMetrics.recordReuse(tmpFileLen);
+					}
+					bytesLocal += tmpFileLen;
+				}
+				else
+				{
+					UpdateMetrics.recordRetry();
+				}
+			}
+
+			// Use the remote update copy, if we were not able to use a local stale copy
+			if (isPass == false && aMainTask.isActive() == true)
+			{
+				long begTime = System.nanoTime();
+				isPass = updateNode.transferContentTo(tmpTask, aCredential, aAppNewPath);
+				if (isPass == true)
+				{
+					aMainTask.logRegln("\t(R) " + updateNode.getFileName());
+					tmpEvent.decision = "remote";
+					if (updateNode instanceof FileNode)
+					{
+						numFilesRemote++;
+						UpdateMetrics.recordFileDownload(tmpFileLen, System.nanoTime() - begTime);
+					}
+					bytesRemote += tmpFileLen;
+				}
+			}
+
+			// Record the staging decision
+			if (tmpEvent.shouldCommit() == true)
+			{
+				tmpEvent.setBytes(isPass == true ? tmpFileLen : 0L);
+				tmpEvent.commit();
+			}
+
+			// Log the failure and bail
+			if (isPass == false && aMainTask.isActive() == true)
+			{
+				aMainTask.logRegln("Failed to download from update site.");
+				aMainTask.logRegln("\tFile: " + updateNode.getFileName());
+				aMainTask.logRegln("\tDest: " + aAppNewPath);
+				return new StageResult(false, numFilesLocal, numFilesRemote, bytesLocal, bytesRemote);
+			}
+
+			// Update the progress
+			releaseSizeCurr += tmpFileLen;
+			aMainTask.setProgress(releaseSizeCurr / (aSizeFull + 0.00));
+		}
+
+		boolean isPass = aMainTask.isActive();
+		return new StageResult(isPass, numFilesLocal, numFilesRemote, bytesLocal, bytesRemote);
+	}
+
+	/**
+	 * Handler used to process the instructions of an update manifest.
+	 * <p>
+	 * The instructions are positional (relative to the lines of the source catalog):
+	 * <ul>
+	 * <li>{@literal =,<count>} - Copy the next count lines.
+	 * <li>{@literal A,<line>} - Add the line.
+	 * <li>{@literal C,<line>} - Replace the next line with the line.
+	 * <li>{@literal R,<line>} - Remove the next line (which must match the line).
+	 * </ul>
+	 */
+	private static class ManifestHandler implements Consumer<CatalogLine>
+	{
+		private final byte[] srcArr;
+		private final String[] srcLineArr;
+		private final ByteArrayOutputStream dstBAOS;
+		private Digest toDigest;
+		private long toLen;
+		private boolean isFromValid;
+		private boolean isValid;
+		private int srcIdx;
+		private int numDstLines;
+
+		private ManifestHandler(byte[] aSrcArr)
+		{
+			srcArr = aSrcArr;
+			srcLineArr = new String(aSrcArr, StandardCharsets.UTF_8).split("\n", -1);
+			dstBAOS = new ByteArrayOutputStream(aSrcArr.length + 4096);
+			toDigest = null;
+			toLen = -1;
+			isFromValid = false;
+			isValid = true;
+			srcIdx = 0;
+			numDstLines = 0;
+		}
+
+		@Override
+		public void accept(CatalogLine aLine)
+		{
+			// Bail if the manifest has already been deemed not applicable
+			if (isValid == false)
+				return;
+
+			if (aLine.getNumFields() == 4 && aLine.isField(0, "from") == true)
+			{
+				Digest tmpDigest = aLine.getDigest(2);
+				byte[] tmpDigestArr = DigestUtils.getDigest(tmpDigest.getType()).digest(srcArr);
+				isFromValid = aLine.getLong(3, -1) == srcArr.length;
+				isFromValid &= Arrays.equals(tmpDigestArr, tmpDigest.getValue());
+				isValid = isFromValid;
+			}
+			else if (aLine.getNumFields() == 4 && aLine.isField(0, "to") == true)
+			{
+				toDigest = aLine.getDigest(2);
+				toLen = aLine.getLong(3, -1);
+			}
+			else if (isFromValid == false)
+			{
+				// The source catalog must be validated prior to any edit instruction
+				isValid = false;
+			}
+			else if (aLine.getNumFields() == 2 && aLine.isField(0, "=") == true)
+			{
+				long numLines = aLine.getLong(1, -1);
+				if (numLines < 0 || srcIdx + numLines > srcLineArr.length)
+					isValid = false;
+				for (int c1 = 0; c1 < numLines && isValid == true; c1++)
+					writeLine(srcLineArr[srcIdx++]);
+			}
+			else if (aLine.getNumFields(2) == 2 && aLine.isField(0, "A") == true)
+			{
+				writeLine(aLine.getFieldRest(1));
+			}
+			else if (aLine.getNumFields(2) == 2 && aLine.isField(0, "C") == true)
+			{
+				isValid = srcIdx < srcLineArr.length;
+				srcIdx++;
+				writeLine(aLine.getFieldRest(1));
+			}
+			else if (aLine.getNumFields(2) == 2 && aLine.isField(0, "R") == true)
+			{
+				isValid = srcIdx < srcLineArr.length && srcLineArr[srcIdx].equals(aLine.getFieldRest(1)) == true;
+				srcIdx++;
+			}
+			else
+			{
+				isValid = false;
+			}
+		}
+
+		/**
+		 * Returns the (validated) content of the target catalog or null if the manifest was not applicable.
+		 */
+		private byte[] getResult()
+		{
+			if (isValid == false || isFromValid == false || toDigest == null || srcIdx != srcLineArr.length)
+				return null;
+
+			byte[] retArr = dstBAOS.toByteArray();
+			if (retArr.length != toLen)
+				return null;
+
+			byte[] tmpDigestArr = DigestUtils.getDigest(toDigest.getType()).digest(retArr);
+			if (Arrays.equals(tmpDigestArr, toDigest.getValue()) == false)
+				return null;
+
+			return retArr;
+		}
+
+		/**
+		 * Helper method that appends the specified line to the target catalog.
+		 */
+		private void writeLine(String aLine)
+		{
+			// Note the lines are joined by (rather than terminated by) newlines
+			if (numDstLines > 0)
+				dstBAOS.write('\n');
+			dstBAOS.writeBytes(aLine.getBytes(StandardCharsets.UTF_8));
+			numDstLines++;
+		}
+	}
+
+}
@@ -0,0 +1,566 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+
+import com.google.common.collect.ImmutableMap;
+
+import distMaker.metrics.UpdateMetrics;
+import distMaker.metrics.UpdatePhase;
+import distMaker.utils.JsonUtils;
+
+/**
+ * Immutable object that describes a single update attempt. The report is persisted (JSON format) to the top of the
+ * application's DistMaker root. See {@link DistUtils#getUpdateReportFile()}.
+ * <p>
+ * The report has the following (JSON) layout:
+ * <ul>
+ * <li>reportVersion: The version of the report layout.
+ * <li>app, sourceVersion, targetVersion, site: The application, releases, and the update site utilized. The
+ * targetVersion is omitted if no release was chosen.
+ * <li>startTime (ISO-8601), durationMs: When the attempt started and how long it took (excluding user selection).
+ * <li>outcome, message: See {@link Outcome}. The message describes the failure (if any).
+ * <li>nodes: total, filesLocal, filesRemote, bytesLocal, bytesRemote
+ * <li>jre: action (none, store, delta, full), version
+ * <li>appLauncher: action (none, updated), version
+ * <li>transfer: bytesDownloaded, retries, digestFailures
+ * <li>phases: The time (ms) spent in each {@link UpdatePhase}.
+ * </ul>
+ * Reports are intended to be collected (ex: across a fleet of installs) to evaluate the efficiency of updates.
+ *
+ * @author lopeznr1
+ */
+public class UpdateReport
+{
+	/** The name of the (persisted) report file. */
+	public static final String FileName = "updateReport.json";
+
+	/** The version of the report layout. */
+	public static final long ReportVersion = 1;
+
+	// Attributes
+	private final ImmutableMap<String, Object> itemM;
+
+	/**
+	 * Enum that defines the outcome of an update attempt.
+	 */
+	public enum Outcome
+	{
+		/** The release was staged. It will be applied on the next restart. */
+		Staged,
+
+		/** The user aborted the update. */
+		Aborted,
+
+		/** The release could not be staged. */
+		Failed,
+
+		/** The staged release was applied (on restart). */
+		Applied,
+
+		/** The staged release could not be applied (on restart). */
+		ApplyFailed;
+
+		/**
+		 * Returns the key (lower camel case) used to identify the outcome in a report.
+		 */
+		public String getKey()
+		{
+			return Character.toLowerCase(name().charAt(0)) + name().substring(1);
+		}
+
+		/**
+		 * Returns the outcome associated with the specified key. Returns null if there is no such outcome.
+		 */
+		public static Outcome fromKey(String aKey)
+		{
+			for (Outcome aOutcome : values())
+			{
+				if (aOutcome.getKey().equals(aKey) == true)
+					return aOutcome;
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Standard Constructor
+	 */
+	private UpdateReport(Map<String, Object> aItemM)
+	{
+		itemM = ImmutableMap.copyOf(aItemM);
+	}
+
+	/**
+	 * Loads the report from the specified file.
+	 * <p>
+	 * Throws an IOException if the file could not be read or is not a valid report.
+	 */
+	public static UpdateReport load(File aFile) throws IOException
+	{
+		String tmpStr = new String(Files.readAllBytes(aFile.toPath()), StandardCharsets.UTF_8);
+		try
+		{
+			return parse(tmpStr);
+		}
+		catch (IllegalArgumentException aExp)
+		{
+			throw new IOException("Invalid update report: " + aFile + " Reason: " + aExp.getMessage(), aExp);
+		}
+	}
+
+	/**
+	 * Parses the report from the specified (JSON) string.
+	 * <p>
+	 * Throws an IllegalArgumentException if the string is not a valid report.
+	 */
+	public static UpdateReport parse(String aStr)
+	{
+		Map<String, Object> tmpItemM = JsonUtils.parseObject(aStr);
+		if (tmpItemM.get("reportVersion") instanceof Long == false)
+			throw new IllegalArgumentException("The report does not specify a (valid) reportVersion.");
+		if (Outcome.fromKey(Objects.toString(tmpItemM.get("outcome"))) == null)
+			throw new IllegalArgumentException("The report does not specify a (valid) outcome.");
+
+		// Null values are not retained
+		tmpItemM.values().removeIf(Objects::isNull);
+		for (Object aValue : tmpItemM.values())
+		{
+			if (aValue instanceof Map)
+				((Map<?, ?>) aValue).values().removeIf(Objects::isNull);
+		}
+
+		return new UpdateReport(tmpItemM);
+	}
+
+	/**
+	 * Returns the name of the application.
+	 */
+	public String getAppName()
+	{
+		return getString(itemM, "app");
+	}
+
+	/**
+	 * Returns the version of the release that was installed when the update was attempted.
+	 */
+	public String getSourceVersion()
+	{
+		return getString(itemM, "sourceVersion");
+	}
+
+	/**
+	 * Returns the version of the release that was chosen. Returns null if no release was chosen.
+	 */
+	public String getTargetVersion()
+	{
+		return getString(itemM, "targetVersion");
+	}
+
+	/**
+	 * Returns the (URL of the) update site that was utilized.
+	 */
+	public String getSite()
+	{
+		return getString(itemM, "site");
+	}
+
+	/**
+	 * Returns the time (ms since the epoch) when the update was started.
+	 */
+	public long getStartTime()
+	{
+		return Instant.parse(getString(itemM, "startTime")).toEpochMilli();
+	}
+
+	/**
+	 * Returns the duration (ms) of the update attempt.
+	 */
+	public long getDuration()
+	{
+		return getLong(itemM, "durationMs");
+	}
+
+	/**
+	 * Returns the outcome of the update attempt.
+	 */
+	public Outcome getOutcome()
+	{
+		return Outcome.fromKey(getString(itemM, "outcome"));
+	}
+
+	/**
+	 * Returns the message that describes the failure of the update attempt. Returns null if there is no message.
+	 */
+	public String getMessage()
+	{
+		return getString(itemM, "message");
+	}
+
+	/**
+	 * Returns the number of nodes (files and folders) of the target release.
+	 */
+	public long getNumNodes()
+	{
+		return getLong(getGroup("nodes"), "total");
+	}
+
+	/**
+	 * Returns the number of files that were reused from the local (installed) release.
+	 */
+	public long getNumFilesLocal()
+	{
+		return getLong(getGroup("nodes"), "filesLocal");
+	}
+
+	/**
+	 * Returns the number of files that were transferred from the update site.
+	 */
+	public long getNumFilesRemote()
+	{
+		return getLong(getGroup("nodes"), "filesRemote");
+	}
+
+	/**
+	 * Returns the number of bytes that were reused from the local (installed) release.
+	 */
+	public long getBytesLocal()
+	{
+		return getLong(getGroup("nodes"), "bytesLocal");
+	}
+
+	/**
+	 * Returns the number of (application) bytes that were transferred from the update site.
+	 */
+	public long getBytesRemote()
+	{
+		return getLong(getGroup("nodes"), "bytesRemote");
+	}
+
+	/**
+	 * Returns the action taken to retrieve a compatible JRE: none, store, delta, or full.
+	 */
+	public String getJreAction()
+	{
+		return getString(getGroup("jre"), "action");
+	}
+
+	/**
+	 * Returns the version of the JRE that was retrieved. Returns null if no JRE was retrieved.
+	 */
+	public String getJreVersion()
+	{
+		return getString(getGroup("jre"), "version");
+	}
+
+	/**
+	 * Returns the action taken with regard to the AppLauncher: none or updated.
+	 */
+	public String getAppLauncherAction()
+	{
+		return getString(getGroup("appLauncher"), "action");
+	}
+
+	/**
+	 * Returns the version of the AppLauncher that was retrieved. Returns null if no AppLauncher was retrieved.
+	 */
+	public String getAppLauncherVersion()
+	{
+		return getString(getGroup("appLauncher"), "version");
+	}
+
+	/**
+	 * Returns the total number of bytes that were downloaded (catalogs, JRE, AppLauncher, and application files).
+	 */
+	public long getBytesDownloaded()
+	{
+		return getLong(getGroup("transfer"), "bytesDownloaded");
+	}
+
+	/**
+	 * Returns the number of transfers that were attempted again (via an alternate source).
+	 */
+	public long getNumRetries()
+	{
+		return getLong(getGroup("transfer"), "retries");
+	}
+
+	/**
+	 * Returns the number of transfers that failed digest validation.
+	 */
+	public long getNumDigestFailures()
+	{
+		return getLong(getGroup("transfer"), "digestFailures");
+	}
+
+	/**
+	 * Returns the time (ms) spent in the specified phase.
+	 */
+	public long getPhaseTime(UpdatePhase aPhase)
+	{
+		return getLong(getGroup("phases"), aPhase.getKey());
+	}
+
+	/**
+	 * Returns a copy of this report with the specified outcome and message.
+	 */
+	public UpdateReport withOutcome(Outcome aOutcome, String aMessage)
+	{
+		Map<String, Object> tmpItemM = new LinkedHashMap<>(itemM);
+		tmpItemM.put("outcome", aOutcome.getKey());
+		tmpItemM.remove("message");
+		if (aMessage != null)
+			tmpItemM.put("message", aMessage);
+
+		return new UpdateReport(tmpItemM);
+	}
+
+	/**
+	 * Saves the report to the specified file. The file is replaced atomically (where supported).
+	 */
+	public void save(File aFile) throws IOException
+	{
+		Path tmpPath = new File(aFile.getParentFile(), aFile.getName() + ".tmp").toPath();
+		Files.write(tmpPath, toJson().getBytes(StandardCharsets.UTF_8));
+		try
+		{
+			Files.move(tmpPath, aFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException aExp)
+		{
+			Files.move(tmpPath, aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Returns the (JSON) representation of this report.
+	 */
+	public String toJson()
+	{
+		return JsonUtils.toJson(itemM);
+	}
+
+	@Override
+	public String toString()
+	{
+		return toJson();
+	}
+
+	/**
+	 * Helper method that returns the specified (nested) group. An empty map is returned if there is no such group.
+	 */
+	private Map<?, ?> getGroup(String aKey)
+	{
+		Object tmpObj = itemM.get(aKey);
+		if (tmpObj instanceof Map)
+			return (Map<?, ?>) tmpObj;
+
+		return ImmutableMap.of();
+	}
+
+	/**
+	 * Helper method that returns the (numeric) value of the specified key. Returns 0 if there is no such value.
+	 */
+	private static long getLong(Map<?, ?> aItemM, String aKey)
+	{
+		Object tmpObj = aItemM.get(aKey);
+		if (tmpObj instanceof Number)
+			return ((Number) tmpObj).longValue();
+
+		return 0L;
+	}
+
+	/**
+	 * Helper method that returns the (string) value of the specified key. Returns null if there is no such value.
+	 */
+	private static String getString(Map<?, ?> aItemM, String aKey)
+	{
+		Object tmpObj = aItemM.get(aKey);
+		if (tmpObj == null)
+			return null;
+
+		return tmpObj.toString();
+	}
+
+	/**
+	 * Class used to form an {@link UpdateReport} over the course of an update attempt.
+	 * <p>
+	 * The transfer statistics and phase timings are determined relative to the provided snapshot of the
+	 * {@link UpdateMetrics}.
+	 */
+	public static class Builder
+	{
+		// Attributes
+		private final Map<String, Long> begMetricM;
+		private final String appName;
+		private final String sourceVersion;
+		private final String site;
+		private final long begTime;
+		private final long begNanoTime;
+
+		// State vars
+		private String targetVersion;
+		private long waitNanoTime;
+		private long numNodes;
+		private StageResult stageResult;
+		private String jreAction;
+		private String jreVersion;
+		private String appLauncherVersion;
+
+		/**
+		 * Standard Constructor
+		 *
+		 * @param aBegMetricM
+		 *        A snapshot of the {@link UpdateMetrics} taken at the start of the update. See
+		 *        {@link UpdateMetrics#getSnapshot()}.
+		 */
+		public Builder(Map<String, Long> aBegMetricM, String aAppName, String aSourceVersion, String aSite)
+		{
+			begMetricM = aBegMetricM;
+			appName = aAppName;
+			sourceVersion = aSourceVersion;
+			site = aSite;
+			begTime = System.currentTimeMillis();
+			begNanoTime = System.nanoTime();
+
+			targetVersion = null;
+			waitNanoTime = 0L;
+			numNodes = 0;
+			stageResult = null;
+			jreAction = "none";
+			jreVersion = null;
+			appLauncherVersion = null;
+		}
+
+		/**
+		 * Sets the AppLauncher that was retrieved.
+		 */
+		public void setAppLauncher(String aVersion)
+		{
+			appLauncherVersion = aVersion;
+		}
+
+		/**
+		 * Sets the action (store, delta, full) taken to retrieve the specified JRE.
+		 */
+		public void setJre(String aAction, String aVersion)
+		{
+			jreAction = aAction;
+			jreVersion = aVersion;
+		}
+
+		/**
+		 * Sets the number of nodes of the target release.
+		 */
+		public void setNumNodes(long aNumNodes)
+		{
+			numNodes = aNumNodes;
+		}
+
+		/**
+		 * Sets the outcome of staging the application content.
+		 */
+		public void setStageResult(StageResult aStageResult)
+		{
+			stageResult = aStageResult;
+		}
+
+		/**
+		 * Sets the version of the release that was chosen.
+		 */
+		public void setTargetVersion(String aVersion)
+		{
+			targetVersion = aVersion;
+		}
+
+		/**
+		 * Sets the amount of time (ns) spent waiting on the user to choose a release. This time is excluded from the
+		 * duration of the attempt.
+		 */
+		public void setUserWait(long aNanoTime)
+		{
+			waitNanoTime = aNanoTime;
+		}
+
+		/**
+		 * Returns the report with the specified outcome and (optional) message.
+		 */
+		public UpdateReport build(Outcome aOutcome, String aMessage)
+		{
+			Map<String, Long> endMetricM = UpdateMetrics.getSnapshot();
+
+			Map<String, Object> retM = new LinkedHashMap<>();
+			retM.put("reportVersion", ReportVersion);
+			retM.put("app", appName);
+			retM.put("sourceVersion", sourceVersion);
+			if (targetVersion != null)
+				retM.put("targetVersion", targetVersion);
+			retM.put("site", site);
+			retM.put("startTime", Instant.ofEpochMilli(begTime).toString());
+			retM.put("durationMs", (System.nanoTime() - begNanoTime - waitNanoTime) / 1000000L);
+			retM.put("outcome", aOutcome.getKey());
+			if (aMessage != null)
+				retM.put("message", aMessage);
+
+			Map<String, Object> nodeM = new LinkedHashMap<>();
+			nodeM.put("total", numNodes);
+			nodeM.put("filesLocal", stageResult != null ? stageResult.getNumFilesLocal() : 0);
+			nodeM.put("filesRemote", stageResult != null ? stageResult.getNumFilesRemote() : 0);
+			nodeM.put("bytesLocal", stageResult != null ? stageResult.getBytesLocal() : 0L);
+			nodeM.put("bytesRemote", stageResult != null ? stageResult.getBytesRemote() : 0L);
+			retM.put("nodes", nodeM);
+
+			Map<String, Object> jreM = new LinkedHashMap<>();
+			jreM.put("action", jreAction);
+			if (jreVersion != null)
+				jreM.put("version", jreVersion);
+			retM.put("jre", jreM);
+
+			Map<String, Object> appLauncherM = new LinkedHashMap<>();
+			appLauncherM.put("action", appLauncherVersion != null ? "updated" : "none");
+			if (appLauncherVersion != null)
+				appLauncherM.put("version", appLauncherVersion);
+			retM.put("appLauncher", appLauncherM);
+
+			Map<String, Object> transferM = new LinkedHashMap<>();
+			transferM.put("bytesDownloaded", getDelta(endMetricM, "bytesDownloaded"));
+			transferM.put("retries", getDelta(endMetricM, "retries"));
+			transferM.put("digestFailures", getDelta(endMetricM, "digestFailures"));
+			retM.put("transfer", transferM);
+
+			Map<String, Object> phaseM = new LinkedHashMap<>();
+			for (UpdatePhase aPhase : UpdatePhase.values())
+				phaseM.put(aPhase.getKey(), getDelta(endMetricM, "phase." + aPhase.getKey() + ".total"));
+			retM.put("phases", phaseM);
+
+			return new UpdateReport(retM);
+		}
+
+		/**
+		 * Helper method that returns the change of the specified metric since the start of the update.
+		 */
+		private long getDelta(Map<String, Long> aEndMetricM, String aKey)
+		{
+			return aEndMetricM.getOrDefault(aKey, 0L) - begMetricM.getOrDefault(aKey, 0L);
+		}
+	}
+
+}
@@ -13,14 +13,13 @@
 // limitations under the License.
 package distMaker.gui;
 
-import static distMaker.platform.MemUtils.GB_SIZE;
-import static distMaker.platform.MemUtils.KB_SIZE;
 import static distMaker.platform.MemUtils.MB_SIZE;
 
 import java.awt.Component;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.lang.management.ManagementFactory;
 import java.util.List;
 
@@ -30,9 +29,10 @@ import javax.swing.event.ListSelectionListener;
 
 import com.google.common.collect.Range;
 
+import distMaker.DistUtils;
 import distMaker.ErrorDM;
-import distMaker.platform.MemUtils;
-import distMaker.platform.PlatformUtils;
+import distMaker.jre.JreVersion;
+import distMaker.platform.*;
 import glum.gui.FocusUtil;
 import glum.gui.GuiUtil;
 import glum.gui.action.ClickAction;
@@ -48,6 +48,14 @@ import net.miginfocom.swing.MigLayout;
 /**
  * User input component that configures the applications memory usage. Changes will not take effect until the
  * application is restarted.
+ * <p>
+ * The memory may be configured as a fixed size or as a percentage of the memory available to the JVM. The available
+ * memory is container (cgroup) aware - see {@link MemUtils#probeMemory()}.
+ * <p>
+ * The GC and JIT tuning profile (see {@link TuningProfile}) may also be configured.
+ * <p>
+ * A data driven recommendation is provided once the heap usage of prior sessions has been recorded. See
+ * {@link HeapTelemetryUtils}. The recommendation may be automatically applied (on startup).
  *
  * @author lopeznr1
  */
@@ -57,18 +65,35 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 	private static final long serialVersionUID = 1L;
 
 	// GUI vars
-	private JLabel titleL;
-	private GLabel maxMemL, currMemL, targMemL;
+	private JLabel titleL, targPctL, profileDescL;
+	private JComboBox<TuningProfile> profileCB;
+	private GLabel maxMemL, currMemL, recMemL, targMemL;
+	private JLabel measMemL;
+	private JCheckBox autoApplyCB, compilerThreadCB;
 	private GSlider targMemS;
-	private JButton applyB, closeB, resetB;
+	private JRadioButton fixedRB, percentRB;
+	private JButton applyB, closeB, recommendB, resetB;
 	private JTextArea infoTA, warnTA;
 	private MessagePanel warnPanel;
 
 	// State vars
+	private final MemInfo memInfo;
+	private final File telemetryFile;
+	private List<HeapSession> sessionL;
+	private long measMemSize;
+	private boolean instAutoApply;
 	private Range<Double> memSizeRange;
+	private Range<Double> memPctRange;
 	private long currMemSize;
 	private long instMemSize;
 	private long targMemSize;
+	private int currMemPct;
+	private int instMemPct;
+	private int targMemPct;
+	private TuningProfile currProfile;
+	private TuningProfile instProfile;
+	private boolean currCompilerThreads;
+	private boolean instCompilerThreads;
 
 	/**
 	 * Constructor where the developer specifies the max heap memory. Be careful about using this method, as if a value
@@ -78,13 +103,24 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 	 * files by hand or a reinstall would be required.
 	 */
 	public MemoryConfigPanel(Component aParent, long aMaxMemSize)
+	{
+		this(aParent, new MemInfo(aMaxMemSize, -1, -1, 0));
+	}
+
+	/**
+	 * Constructor where the max heap memory is bounded by the memory available (as specified by aMemInfo).
+	 */
+	public MemoryConfigPanel(Component aParent, MemInfo aMemInfo)
 	{
 		super(aParent);
 
 		// State vars
-		double minMemSize = roundToMB(256 * MB_SIZE);
-		double maxMemSize = roundToMB(aMaxMemSize);
+		memInfo = aMemInfo;
+		telemetryFile = HeapTelemetryUtils.getTelemetryFile();
+		double minMemSize = roundToMB(MemInfo.MinHeapSize);
+		double maxMemSize = roundToMB(memInfo.getAvailableMem());
 		memSizeRange = Range.closed(minMemSize, maxMemSize);
+		memPctRange = Range.closed(5.0, 90.0);
 		initialize();
 
 		// Build the actual GUI
@@ -100,10 +136,12 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 	/**
 	 * Constructor where the DistMaker framework attempts to determine the appropriate maxMexSize. Should, the DistMaker
 	 * framework fail to determine the installed system memory, then 4GB will be assumed as the installed system memory.
+	 * <p>
+	 * The maxMemSize will be limited by the container (cgroup) memory limit.
 	 */
 	public MemoryConfigPanel(Component aParent)
 	{
-		this(aParent, MemUtils.getInstalledSystemMemory());
+		this(aParent, MemUtils.probeMemory());
 	}
 
 	@Override
@@ -118,7 +156,24 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 		}
 		else if (source == resetB)
 		{
-			targMemS.setModelValue(currMemSize);
+			setPercentMode(currMemPct > 0);
+			profileCB.setSelectedItem(currProfile);
+			compilerThreadCB.setSelected(currCompilerThreads);
+			autoApplyCB.setSelected(instAutoApply);
+		}
+		else if (source == recommendB)
+		{
+			// Prefer the measured (data driven) recommendation
+			long recMemSize = memInfo.getRecommendedMaxHeap();
+			if (measMemSize > 0)
+				recMemSize = measMemSize;
+
+			setPercentMode(false);
+			targMemS.setModelValue(recMemSize);
+		}
+		else if (source == fixedRB || source == percentRB)
+		{
+			setPercentMode(percentRB.isSelected());
 		}
 		else if (source == closeB)
 		{
@@ -143,14 +198,24 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 	 */
 	public void applyChanges()
 	{
-		// Retrieve the targMemSize
-		targMemSize = (long) targMemS.getModelValue();
-		targMemSize = roundToMB(targMemSize);
+		// Retrieve the target values
+		syncTargetValues();
+		TuningProfile targProfile = (TuningProfile) profileCB.getSelectedItem();
 
 		try
 		{
-			// Delegate the updating of the memory
-			PlatformUtils.setMaxHeapMem(targMemSize);
+			// Delegate the updating of the memory and tuning profile. Note the changes are committed in a single write.
+			LaunchConfig launchCfg = LaunchConfig.load();
+			if (targMemPct > 0)
+				launchCfg.setMaxHeapPercent(targMemPct);
+			else
+				launchCfg.setMaxHeapMem(targMemSize);
+			if (targProfile != instProfile || compilerThreadCB.isSelected() != instCompilerThreads)
+				launchCfg.setTuningProfile(targProfile, compilerThreadCB.isSelected());
+			launchCfg.commit();
+
+			if (autoApplyCB.isSelected() != instAutoApply)
+				HeapTelemetryUtils.setAutoApply(telemetryFile, autoApplyCB.isSelected());
 		}
 		catch (ErrorDM aExp)
 		{
@@ -170,6 +235,10 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 
 		// Update our state vars
 		instMemSize = targMemSize;
+		instMemPct = targMemPct;
+		instProfile = targProfile;
+		instCompilerThreads = compilerThreadCB.isSelected();
+		instAutoApply = autoApplyCB.isSelected();
 	}
 
 	/**
@@ -199,6 +268,8 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 		double minMemSize = memSizeRange.lowerEndpoint();
 		double maxMemSize = memSizeRange.upperEndpoint();
 		tmpL = new JLabel("System memory: ");
+		if (memInfo.isContainerLimited() == true)
+			tmpL = new JLabel("Container memory: ");
 		maxMemL = new GLabel(byteUnit, smallFont);
 		maxMemL.setValue(maxMemSize);
 		add(tmpL, "");
@@ -210,10 +281,42 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 		add(tmpL, "");
 		add(currMemL, "growx,span,wrap");
 
+		tmpL = new JLabel("Recommended max memory: ");
+		recMemL = new GLabel(byteUnit, smallFont);
+		recMemL.setValue(memInfo.getRecommendedMaxHeap());
+		add(tmpL, "");
+		add(recMemL, "growx,span,wrap");
+
+		tmpL = new JLabel("Measured max memory: ");
+		measMemL = new JLabel("", JLabel.LEFT);
+		measMemL.setFont(smallFont);
+		if (measMemSize > 0)
+			measMemL.setText(byteUnit.getString(measMemSize) + "   (sessions: " + sessionL.size() + ")");
+		else
+			measMemL.setText("Insufficient data");
+		add(tmpL, "");
+		add(measMemL, "growx,span,wrap");
+
+		autoApplyCB = new JCheckBox("Automatically apply the measured max memory");
+		autoApplyCB.setSelected(instAutoApply);
+		autoApplyCB.setEnabled(measMemSize > 0 || instAutoApply == true);
+		autoApplyCB.addActionListener(this);
+		add(autoApplyCB, "span,wrap");
+
 		// Configure area
 		tmpComp = GuiUtil.createDivider();
 		add(tmpComp, "gaptop 15,gapbottom 10,growx,h 4!,span,wrap");
 
+		fixedRB = new JRadioButton("Fixed size");
+		fixedRB.addActionListener(this);
+		percentRB = new JRadioButton("Percentage of available");
+		percentRB.addActionListener(this);
+		ButtonGroup tmpBG = new ButtonGroup();
+		tmpBG.add(fixedRB);
+		tmpBG.add(percentRB);
+		add(fixedRB, "span,split 2");
+		add(percentRB, "wrap");
+
 		maxSteps = (int) ((maxMemSize - minMemSize) / MB_SIZE);
 		targMemS = new GSlider(this, memSizeRange, maxSteps);
 		targMemS.setModelValue(currMemSize);
@@ -221,8 +324,37 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 
 		tmpL = new JLabel("Target max memory: ");
 		targMemL = new GLabel(byteUnit, smallFont);
+		targPctL = new JLabel("", JLabel.RIGHT);
+		targPctL.setFont(smallFont);
 		add(tmpL, "");
-		add(targMemL, "growx,span,wrap");
+		add(targMemL, "growx,span,split 2");
+		add(targPctL, "wrap");
+
+		// Tuning area
+		tmpComp = GuiUtil.createDivider();
+		add(tmpComp, "gaptop 10,gapbottom 10,growx,h 4!,span,wrap");
+
+		JreVersion jreVer = DistUtils.getJreVersion();
+		profileCB = new JComboBox<>();
+		for (TuningProfile aItem : TuningProfile.values())
+		{
+			if (aItem.isSupported(jreVer) == true || aItem == currProfile)
+				profileCB.addItem(aItem);
+		}
+		profileCB.setSelectedItem(currProfile);
+		profileCB.addActionListener(this);
+		tmpL = new JLabel("Tuning profile: ");
+		add(tmpL, "");
+		add(profileCB, "growx,span,wrap");
+
+		profileDescL = new JLabel("");
+		profileDescL.setFont(smallFont);
+		add(profileDescL, "growx,span,wrap");
+
+		compilerThreadCB = new JCheckBox("Additional JIT compiler threads (one per processor)");
+		compilerThreadCB.setSelected(currCompilerThreads);
+		compilerThreadCB.addActionListener(this);
+		add(compilerThreadCB, "span,wrap");
 
 		// Info area
 		infoTA = GuiUtil.createUneditableTextArea(2, 0);
@@ -233,16 +365,17 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 		add(warnTA, "w 0:325:,growx,span,wrap");
 
 		// Action area
+		recommendB = GuiUtil.createJButton("Recommend", this, smallFont);
 		applyB = GuiUtil.createJButton("Apply", this, smallFont);
 		resetB = GuiUtil.createJButton("Reset", this, smallFont);
 		closeB = GuiUtil.createJButton("Close", this, smallFont);
-		add(applyB, "align right,span,split 3");
+		add(recommendB, "align left,span,split 4");
+		add(applyB, "align right,pushx");
 		add(resetB, "");
 		add(closeB, "");
 
-		// Configure the slider to be aware of the new memory range
-		targMemS.setModelRange(memSizeRange);
-		targMemS.setModelValue(currMemSize);
+		// Configure the slider to be aware of the (current) memory mode
+		setPercentMode(currMemPct > 0);
 	}
 
 	/**
@@ -256,28 +389,45 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 		// Retrieve the default max memory value as specified to the JVM
 		currMemSize = Runtime.getRuntime().maxMemory();
 
-		// Parse the args to see if we could locate the -Xmx JVM argument
+		// Parse the args to see if we could locate the -Xmx (or -XX:MaxRAMPercentage) JVM argument
+		boolean isXmxSpecified = false;
+		currMemPct = -1;
 		argL = ManagementFactory.getRuntimeMXBean().getInputArguments();
 		for (String aArg : argL)
 		{
 			if (aArg.startsWith("-Xmx") == true)
 			{
-				memStr = aArg.toUpperCase().substring(4);
-				if (memStr.endsWith("K") == true)
-					currMemSize = ParseUtil.readLong(memStr.substring(0, memStr.length() - 1), currMemSize) * KB_SIZE;
-				else if (memStr.endsWith("M") == true)
-					currMemSize = ParseUtil.readLong(memStr.substring(0, memStr.length() - 1), currMemSize) * MB_SIZE;
-				else if (memStr.endsWith("G") == true)
-					currMemSize = ParseUtil.readLong(memStr.substring(0, memStr.length() - 1), currMemSize) * GB_SIZE;
-				else
-					currMemSize = ParseUtil.readLong(memStr, currMemSize);
+				memStr = aArg.substring(4);
+				currMemSize = MemUtils.parseMemSize(memStr, currMemSize);
+				isXmxSpecified = true;
 
 //System.out.println(" ---> Parsed mem value: " + new ByteUnit(2).getString(currMemSize));
 			}
+			else if (aArg.startsWith("-XX:MaxRAMPercentage=") == true)
+			{
+				memStr = aArg.substring(21);
+				currMemPct = (int) ParseUtil.readDouble(memStr, -1);
+			}
 //System.out.println("Arg: " + aArg);
 		}
 
+		// Note -Xmx has precedence over -XX:MaxRAMPercentage
+		if (isXmxSpecified == true)
+			currMemPct = -1;
+
 		instMemSize = currMemSize;
+		instMemPct = currMemPct;
+
+		// Retrieve the data driven recommendation
+		sessionL = HeapTelemetryUtils.readSessions(telemetryFile);
+		measMemSize = HeapTelemetryUtils.getRecommendedMaxHeap(sessionL, memInfo);
+		instAutoApply = HeapTelemetryUtils.isAutoApply(telemetryFile);
+
+		// Retrieve the tuning profile the application was launched with
+		currProfile = TuningProfile.getCurrent();
+		instProfile = currProfile;
+		currCompilerThreads = TuningProfile.isCompilerThreadsCurrent();
+		instCompilerThreads = currCompilerThreads;
 
 //		ManagementFactory.getOperatingSystemMXBean();
 	}
@@ -299,36 +449,115 @@ public class MemoryConfigPanel extends GlassPanel implements ActionListener, Lis
 		return aSize;
 	}
 
+	/**
+	 * Helper method that switches the slider between fixed size and percentage mode. The slider will be set to the
+	 * current configuration (when it matches the mode) or the equivalent of the current max memory.
+	 */
+	private void setPercentMode(boolean aIsPercentMode)
+	{
+		long availMem = memInfo.getAvailableMem();
+
+		fixedRB.setSelected(aIsPercentMode == false);
+		percentRB.setSelected(aIsPercentMode == true);
+		if (aIsPercentMode == true)
+		{
+			int tmpPct = currMemPct;
+			if (tmpPct <= 0)
+				tmpPct = (int) Math.round(currMemSize * 100.0 / availMem);
+
+			targMemS.setModelRange(memPctRange);
+			targMemS.setNumSteps((int) (memPctRange.upperEndpoint() - memPctRange.lowerEndpoint()));
+			targMemS.setModelValue(tmpPct);
+		}
+		else
+		{
+			targMemS.setModelRange(memSizeRange);
+			targMemS.setNumSteps((int) ((memSizeRange.upperEndpoint() - memSizeRange.lowerEndpoint()) / MB_SIZE));
+			targMemS.setModelValue(currMemSize);
+		}
+	}
+
+	/**
+	 * Helper method that synchronizes the target values (targMemSize, targMemPct) to the slider.
+	 */
+	private void syncTargetValues()
+	{
+		if (percentRB.isSelected() == true)
+		{
+			targMemPct = (int) Math.round(targMemS.getModelValue());
+			targMemSize = roundToMB(memInfo.getAvailableMem() * targMemPct / 100);
+		}
+		else
+		{
+			targMemPct = -1;
+			targMemSize = roundToMB((long) targMemS.getModelValue());
+		}
+	}
+
 	/**
 	 * Synchronizes our GUI vars
 	 */
 	private void updateGui()
 	{
-		String infoStr;
+		String infoStr, warnStr;
 		boolean isEnabled;
 
 		// Target area
-		targMemSize = (long) targMemS.getModelValue();
-		targMemSize = roundToMB(targMemSize);
-
-		targMemS.setModelValue(targMemSize);
+		syncTargetValues();
+		if (targMemPct > 0)
+		{
+			targMemS.setModelValue(targMemPct);
+			targPctL.setText("(" + targMemPct + "% of available)");
+		}
+		else
+		{
+			targMemS.setModelValue(targMemSize);
+			targPctL.setText("");
+		}
 		targMemL.setValue(targMemSize);
 
+		TuningProfile targProfile = (TuningProfile) profileCB.getSelectedItem();
+		profileDescL.setText(targProfile.getDescr());
+
 		// Update the infoTA
-		if (targMemSize != instMemSize)
+		boolean isChanged, isCurrent;
+		if (targMemPct > 0)
+		{
+			isChanged = targMemPct != instMemPct;
+			isCurrent = targMemPct == currMemPct;
+		}
+		else
+		{
+			isChanged = targMemSize != instMemSize || instMemPct > 0;
+			isCurrent = targMemSize == currMemSize && currMemPct <= 0;
+		}
+		isChanged |= targProfile != instProfile;
+		isChanged |= compilerThreadCB.isSelected() != instCompilerThreads;
+		isChanged |= autoApplyCB.isSelected() != instAutoApply;
+		isCurrent &= targProfile == currProfile;
+		isCurrent &= compilerThreadCB.isSelected() == currCompilerThreads;
+		isCurrent &= autoApplyCB.isSelected() == instAutoApply;
+		if (isChanged == true)
 			infoStr = "Changes have not been applied.";
-		else if (targMemSize == currMemSize)
+		else if (isCurrent == true)
 			infoStr = "There are no changes.";
 		else
 			infoStr = "Changes will take effect when the application is restarted.";
 
 		infoTA.setText(infoStr);
 
+		// Update the warnTA
+		warnStr = "";
+		if (targMemSize > memInfo.getRecommendedMaxHeap())
+			warnStr = "The target max memory exceeds the recommended max memory. The application may be terminated by the "
+					+ "system should it utilize this amount of memory.";
+		warnTA.setText(warnStr);
+
 		// Update action buttons
-		isEnabled = targMemSize != instMemSize;
+		isEnabled = isChanged;
 		applyB.setEnabled(isEnabled);
 
-		isEnabled = targMemSize != currMemSize;
+		isEnabled = isCurrent == false;
 		resetB.setEnabled(isEnabled);
 	}
 
@@ -0,0 +1,100 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.jre;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Provides the main entry point of the CDS training run. See {@link AppCdsUtils}.
+ * <p>
+ * The trainer is launched (via the AppLauncher) in place of the application's main class. The first argument is the
+ * application's main class and the remaining arguments are the application's arguments. The application's main is
+ * run (headless) on a separate thread and the JVM is exited once the application's startup has settled - that is the
+ * number of loaded classes has not changed for {@link #SettleTimeMS}. The JVM will dump the dynamic CDS archive on exit.
+ * <p>
+ * Failures of the application (ex: a HeadlessException) are ignored as the classes loaded up to the failure are still
+ * recorded.
+ *
+ * @author lopeznr1
+ */
+public class AppCdsTrainer
+{
+	/** The amount of time the loaded class count must be stable before the startup is considered settled. */
+	private static final long SettleTimeMS = 3000;
+
+	/** The maximum amount of time the application's startup is given to settle. */
+	private static final long MaxTrainTimeMS = 60000;
+
+	/**
+	 * Main entry point that will run the application's startup.
+	 */
+	public static void main(String[] aArgArr) throws InterruptedException
+	{
+		if (aArgArr.length == 0)
+		{
+			System.err.println("The application's main class was not specified.");
+			System.exit(1);
+		}
+
+		// Run the application's main (on a separate thread)
+		String mainClass = aArgArr[0];
+		String[] appArgArr = Arrays.copyOfRange(aArgArr, 1, aArgArr.length);
+		Thread tmpThread = new Thread(() -> runApp(mainClass, appArgArr), "thread-appCdsTraining");
+		tmpThread.setDaemon(true);
+		tmpThread.start();
+
+		// Wait for the loaded class count to settle
+		ClassLoadingMXBean tmpBean = ManagementFactory.getClassLoadingMXBean();
+		long begTime = System.currentTimeMillis();
+		long settleTime = begTime;
+		long prevCnt = -1;
+		while (System.currentTimeMillis() - begTime < MaxTrainTimeMS)
+		{
+			Thread.sleep(250);
+
+			long currCnt = tmpBean.getTotalLoadedClassCount();
+			if (currCnt != prevCnt)
+			{
+				prevCnt = currCnt;
+				settleTime = System.currentTimeMillis();
+			}
+			else if (System.currentTimeMillis() - settleTime >= SettleTimeMS)
+				break;
+		}
+
+		System.out.println("Classes loaded: " + tmpBean.getTotalLoadedClassCount());
+		System.exit(0);
+	}
+
+	/**
+	 * Helper method that runs the main of the specified application class.
+	 */
+	private static void runApp(String aMainClass, String[] aArgArr)
+	{
+		try
+		{
+			Class<?> tmpClass = Class.forName(aMainClass, true, ClassLoader.getSystemClassLoader());
+			Method tmpMethod = tmpClass.getMethod("main", String[].class);
+			tmpMethod.invoke(null, (Object) aArgArr);
+		}
+		catch (Throwable aThrowable)
+		{
+			System.err.println("The application's startup failed: " + aThrowable);
+		}
+	}
+
+}
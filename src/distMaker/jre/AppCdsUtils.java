@@ -0,0 +1,339 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.jre;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import distMaker.DistUtils;
+import distMaker.ErrorDM;
+import distMaker.MiscUtils;
+import glum.digest.DigestType;
+import glum.task.Task;
+
+/**
+ * Collection of utility methods used to build the (dynamic) class data sharing (CDS) archive of an application.
+ * <p>
+ * The CDS archive is opt-in and is enabled when the launch script defines the system property: distMaker.appCds=true.
+ * <p>
+ * The archive is built (on startup) via a training run of the application. The training run is a headless child JVM
+ * that is launched exactly as the application was launched (same JRE, launch class path, working folder, and JVM
+ * options) and runs the application's real startup path via {@link AppCdsTrainer}. The loaded classes are dumped on
+ * exit via -XX:ArchiveClassesAtExit (a dynamic archive). Dynamic archives require Java 13 or later.
+ * <p>
+ * Note the gain is limited. The application's classes are loaded via the AppLauncher's class loader (which is
+ * installed as the system class loader) and thus the JVM will not share them. The archive provides only the JRE
+ * classes (ex: Swing) that are utilized at startup and that are not in the JRE's default CDS archive.
+ * <p>
+ * A stamp file is stored alongside the archive. The stamp records the JRE, the launch class path, and the digest of
+ * the application's catalog at the time the archive was built. The archive is stale whenever the stamp no longer
+ * matches.
+ *
+ * @author lopeznr1
+ */
+public class AppCdsUtils
+{
+	/** The file name of the CDS archive. The archive is stored in the application folder. */
+	public static final String ArchiveFileName = "appCds.jsa";
+
+	/** The file name of the stamp that describes the state the CDS archive was built against. */
+	public static final String StampFileName = "appCds.txt";
+
+	/** The file name of the (temporary) configuration file utilized by the training run. */
+	private static final String TrainCfgFileName = "appCdsTrain.cfg";
+
+	/** The system property that flags the JVM as a training run. */
+	private static final String TrainingProp = "distMaker.appCdsTraining";
+
+	/** The maximum amount of time the training run may take before it is aborted. */
+	private static final long MaxTrainTimeMin = 3;
+
+	/**
+	 * Utility method that will build the CDS archive for the (running) application at aAppPath.
+	 * <p>
+	 * The training run is launched with the running JRE, launch class path, and working folder, as the archive is only
+	 * valid for the exact launch it was trained against. The archive (and stamp) will be written to aAppPath. Any prior
+	 * archive will be replaced.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static void buildArchive(Task aTask, File aAppPath)
+	{
+		// Ensure the JRE supports dynamic CDS archives
+		JreVersion jreVersion = DistUtils.getJreVersion();
+		if (isSupported(jreVersion) == false)
+			throw new ErrorDM("The JRE does not support dynamic CDS archives. Version: " + jreVersion.getLabel());
+
+		File jrePath = new File(System.getProperty("java.home"));
+		File javaExe = getJavaExe(jrePath);
+		if (javaExe == null)
+			throw new ErrorDM("Failed to locate the java executable. JRE: " + jrePath);
+
+		// Never train while an update is pending - the AppLauncher would apply it
+		File deltaPath = new File(aAppPath.getParentFile(), "delta");
+		if (deltaPath.exists() == true)
+			throw new ErrorDM("An update is pending. The CDS archive will not be built. Path: " + deltaPath);
+
+		File archiveFile = new File(aAppPath, ArchiveFileName);
+		File stampFile = new File(aAppPath, StampFileName);
+		File workArchiveFile = new File(aAppPath, ArchiveFileName + ".tmp");
+		File trainCfgFile = new File(aAppPath, TrainCfgFileName);
+		try
+		{
+			// Invalidate the prior archive
+			stampFile.delete();
+
+			// Form the configuration of the training run
+			writeTrainCfg(new File(aAppPath, "app.cfg"), trainCfgFile);
+
+			// Form the command of the training run. The launch of the application is replicated.
+			List<String> cmdL = new ArrayList<>();
+			cmdL.add(javaExe.getAbsolutePath());
+			for (String aArg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+			{
+				if (aArg.startsWith("-XX:SharedArchiveFile") == true || aArg.startsWith("-XX:ArchiveClassesAtExit") == true)
+					continue;
+				if (aArg.startsWith("-Xshare") == true || aArg.startsWith("-XX:StartFlightRecording") == true)
+					continue;
+				if (aArg.startsWith("-agent") == true || aArg.startsWith("-javaagent") == true)
+					continue;
+				cmdL.add(aArg);
+			}
+			cmdL.add("-Djava.awt.headless=true");
+			cmdL.add("-D" + TrainingProp + "=true");
+			cmdL.add("-XX:ArchiveClassesAtExit=" + workArchiveFile.getAbsolutePath());
+			cmdL.add("-cp");
+			cmdL.add(System.getProperty("java.class.path"));
+			cmdL.add("appLauncher.AppLauncher");
+
+			// Note the AppLauncher (0.1) drops the first 4 characters of the -dmAppCfg value. The value is a relative
+			// path prefixed with "././" so that it resolves to the same file regardless.
+			Path workPath = Paths.get(System.getProperty("user.dir")).toAbsolutePath();
+			cmdL.add("-dmAppCfg:././" + workPath.relativize(trainCfgFile.getAbsoluteFile().toPath()));
+
+			// Training run: Dump the classes loaded by the application's startup path
+			aTask.logRegln("\tTraining run...");
+			runTraining(cmdL, workPath.toFile());
+			if (workArchiveFile.isFile() == false)
+				throw new ErrorDM("The CDS archive was not dumped. Path: " + workArchiveFile);
+
+			// Install the archive and record the stamp. Note the JVM dumps the archive as read-only.
+			workArchiveFile.setWritable(true);
+			Files.move(workArchiveFile.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.write(stampFile.toPath(), formStamp(aAppPath).getBytes(StandardCharsets.UTF_8));
+			aTask.logRegln("\tCDS archive: " + archiveFile + "   Size: " + archiveFile.length());
+		}
+		catch (IOException aExp)
+		{
+			throw new ErrorDM(aExp, "Failed to build the CDS archive. Path: " + archiveFile);
+		}
+		finally
+		{
+			trainCfgFile.delete();
+			workArchiveFile.delete();
+		}
+	}
+
+	/**
+	 * Utility method that will delete the CDS archive (and stamp) of the application at aAppPath.
+	 * <p>
+	 * Returns true if an archive was deleted.
+	 */
+	public static boolean deleteArchive(File aAppPath)
+	{
+		new File(aAppPath, StampFileName).delete();
+		return new File(aAppPath, ArchiveFileName).delete();
+	}
+
+	/**
+	 * Returns the java executable associated with the JRE at aJrePath.
+	 * <p>
+	 * Returns null if the executable could not be located.
+	 */
+	public static File getJavaExe(File aJrePath)
+	{
+		String[] subPathArr = { "bin/java", "bin/java.exe", "Contents/Home/bin/java" };
+		for (String aSubPath : subPathArr)
+		{
+			File tmpFile = new File(aJrePath, aSubPath);
+			if (tmpFile.isFile() == true)
+				return tmpFile;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns true if the CDS archive (of the application at aAppPath) is current with respect to the running JRE, the
+	 * launch class path, and the application's catalog.
+	 */
+	public static boolean isArchiveCurrent(File aAppPath)
+	{
+		File archiveFile = new File(aAppPath, ArchiveFileName);
+		File stampFile = new File(aAppPath, StampFileName);
+		if (archiveFile.isFile() == false || stampFile.isFile() == false)
+			return false;
+
+		try
+		{
+			String stampStr = new String(Files.readAllBytes(stampFile.toPath()), StandardCharsets.UTF_8);
+			return stampStr.equals(formStamp(aAppPath));
+		}
+		catch (IOException aExp)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Returns true if the (opt-in) CDS archive is enabled.
+	 */
+	public static boolean isEnabled()
+	{
+		return Boolean.getBoolean("distMaker.appCds");
+	}
+
+	/**
+	 * Returns true if the specified JRE supports the dumping (and utilization) of dynamic CDS archives.
+	 * <p>
+	 * Support requires Java 13 or later.
+	 */
+	public static boolean isSupported(JreVersion aJreVersion)
+	{
+		return aJreVersion.major() >= 13;
+	}
+
+	/**
+	 * Returns true if the running JVM is a CDS training run.
+	 * <p>
+	 * A training run should not perform any (background) work other than the application's startup.
+	 */
+	public static boolean isTraining()
+	{
+		return Boolean.getBoolean(TrainingProp);
+	}
+
+	/**
+	 * Helper method that forms the stamp which describes the state the CDS archive is built against.
+	 */
+	private static String formStamp(File aAppPath) throws IOException
+	{
+		File catalogFile = new File(aAppPath, "catalog.txt");
+
+		String retStr = "jre," + System.getProperty("java.version") + "\n";
+		retStr += "jrePath," + new File(System.getProperty("java.home")).getCanonicalPath() + "\n";
+		retStr += "classPath," + System.getProperty("java.class.path") + "\n";
+		retStr += "workPath," + System.getProperty("user.dir") + "\n";
+		if (catalogFile.isFile() == true)
+			retStr += "catalog," + MiscUtils.computeDigest(catalogFile, DigestType.SHA256).getValueAsString() + "\n";
+		return retStr;
+	}
+
+	/**
+	 * Helper method that runs the (child process) training run.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	private static void runTraining(List<String> aCmdL, File aWorkPath) throws IOException
+	{
+		ProcessBuilder tmpPB = new ProcessBuilder(aCmdL);
+		tmpPB.directory(aWorkPath);
+		tmpPB.redirectErrorStream(true);
+		tmpPB.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+
+		Process tmpProcess = tmpPB.start();
+		try
+		{
+			if (tmpProcess.waitFor(MaxTrainTimeMin, TimeUnit.MINUTES) == false)
+			{
+				tmpProcess.destroyForcibly();
+				throw new ErrorDM("The training run did not complete in the allotted time: " + MaxTrainTimeMin + " min");
+			}
+		}
+		catch (InterruptedException aExp)
+		{
+			tmpProcess.destroyForcibly();
+			throw new ErrorDM(aExp, "The training run was interrupted.");
+		}
+
+		if (tmpProcess.exitValue() != 0)
+			throw new ErrorDM("The training run failed. Exit code: " + tmpProcess.exitValue());
+	}
+
+	/**
+	 * Helper method that writes the configuration of the training run.
+	 * <p>
+	 * The configuration is a copy of the application's configuration (aSrcFile) where the main class is replaced with
+	 * {@link AppCdsTrainer}. The original main class is passed to the trainer as the first application argument.
+	 */
+	private static void writeTrainCfg(File aSrcFile, File aDstFile) throws IOException
+	{
+		List<String> srcL = Files.readAllLines(aSrcFile.toPath(), StandardCharsets.UTF_8);
+
+		String mainClass = null;
+		String currInstr = "None";
+		for (String aLine : srcL)
+		{
+			if (aLine.startsWith("-") == true)
+				currInstr = aLine;
+			else if (currInstr.equals("-mainClass") == true && aLine.isBlank() == false)
+				mainClass = aLine.strip();
+		}
+		if (mainClass == null)
+			throw new ErrorDM("The application configuration does not define a main class. File: " + aSrcFile);
+
+		List<String> dstL = new ArrayList<>();
+		boolean isArgsSection = false;
+		currInstr = "None";
+		for (String aLine : srcL)
+		{
+			if (aLine.startsWith("-") == true)
+			{
+				currInstr = aLine;
+				dstL.add(aLine);
+
+				if (currInstr.equals("-mainClass") == true)
+					dstL.add(AppCdsTrainer.class.getName());
+				else if (currInstr.equals("-appArgs") == true)
+				{
+					dstL.add(mainClass);
+					isArgsSection = true;
+				}
+				continue;
+			}
+
+			// Skip the original main class
+			if (currInstr.equals("-mainClass") == true && aLine.isBlank() == false)
+				continue;
+
+			dstL.add(aLine);
+		}
+
+		// Add the application args section (if not present)
+		if (isArgsSection == false)
+		{
+			dstL.add("-appArgs");
+			dstL.add(mainClass);
+			dstL.add("");
+		}
+
+		Files.write(aDstFile.toPath(), dstL, StandardCharsets.UTF_8);
+	}
+
+}
@@ -15,19 +15,18 @@ package distMaker.jre;
 
 import java.io.*;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.List;
 
 import distMaker.*;
+import distMaker.metrics.UpdateMetrics;
 import distMaker.platform.PlatformUtils;
 import distMaker.utils.*;
+import distMaker.utils.UpdateEvents.AppLauncherFetch;
+import distMaker.utils.UpdateEvents.CatalogParse;
 import glum.digest.Digest;
-import glum.digest.DigestType;
 import glum.io.IoUtil;
-import glum.io.ParseUtil;
 import glum.net.Credential;
-import glum.net.NetUtil;
 import glum.task.PartialTask;
 import glum.task.Task;
 import glum.util.ThreadUtil;
@@ -49,89 +48,37 @@ public class AppLauncherUtils
 	{
 		List<AppLauncherRelease> retL;
 		URL catUrl;
-		URLConnection connection;
 		InputStream inStream;
-		BufferedReader bufReader;
-		DigestType digestType;
-		String errMsg, strLine;
+		String errMsg;
 
 		errMsg = null;
 		retL = new ArrayList<>();
 		catUrl = IoUtil.createURL(aUpdateSiteUrl.toString() + "/launcher/appCatalog.txt");
 
-		// Default to DigestType of MD5
-		digestType = DigestType.MD5;
-
 		inStream = null;
-		bufReader = null;
+		CatalogParse tmpEvent = new CatalogParse();
+		tmpEvent.begin();
 		try
 		{
-			// Read the contents of the file
-			connection = catUrl.openConnection();
-			inStream = NetUtil.getInputStream(connection, aCredential);
-			bufReader = new BufferedReader(new InputStreamReader(new BufferedInputStream(inStream)));
-
-			// Read the lines
-			while (true)
-			{
-				strLine = bufReader.readLine();
-
-				// Bail once we are done
-				if (strLine == null)
-					break;
-
-				// Ignore comments and empty lines
-				if (strLine.isEmpty() == true || strLine.startsWith("#") == true)
-					continue;
-
-				String[] tokens;
-				tokens = strLine.split(",", 5);
-				if (tokens.length == 2 && tokens[0].equals("name") == true && tokens[1].equals("AppLauncher") == true)
+			// Process the contents of the file (as the bytes arrive)
+			inStream = CatalogUtils.open(catUrl, aCredential);
+			CatalogTokenizer.parse(aTask, inStream, aLine -> {
+				if (aLine.getNumFields() == 2 && aLine.isField(0, "name") == true && aLine.isField(1, "AppLauncher") == true)
 					; // Nothing to do - we just entered the "AppLauncher" section
-				// Logic to handle the 'exit' command
-				else if (tokens.length >= 1 && tokens[0].equals("exit") == true)
-				{
-					// We support exit commands with 3 tokens. All others
-					// we will just exit.
-					if (tokens.length != 3)
-						break;
-
-					String targName = tokens[1];
-					String needVer = tokens[2];
-					if (ParseUtils.shouldExitLogic(targName, needVer) == true)
-						break;
-				}
-				// Logic to handle the 'digest' command
-				else if (tokens.length == 2 && tokens[0].equals("digest") == true)
-				{
-					DigestType tmpDigestType;
-
-					tmpDigestType = DigestType.parse(tokens[1]);
-					if (tmpDigestType == null)
-						aTask.logRegln("Failed to locate DigestType for: " + tokens[1]);
-					else
-						digestType = tmpDigestType;
-				}
 				// Logic to handle the 'F' command: AppLauncher File
-				else if (tokens.length == 5 && tokens[0].equals("F") == true)
+				else if (aLine.getNumFields(5) == 5 && aLine.isField(0, "F") == true)
 				{
-					String filename, digestStr, version;
-					long fileLen;
-
-					// Form the JreRelease
-					digestStr = tokens[1];
-					fileLen = ParseUtil.readLong(tokens[2], -1);
-					filename = tokens[3];
-					version = tokens[4];
-
-					Digest tmpDigest = new Digest(digestType, digestStr);
+					Digest tmpDigest = aLine.getDigest(1);
+					long fileLen = aLine.getLong(2, -1);
+					String filename = aLine.getField(3);
+					String version = aLine.getFieldRest(4);
 					retL.add(new AppLauncherRelease(version, filename, tmpDigest, fileLen));
 				}
 				else
 				{
-					aTask.logRegln("Unreconized line: " + strLine);
+					aTask.logRegln("Unreconized line: " + aLine);
 				}
-			}
+			});
 		}
 		catch (FileNotFoundException aExp)
 		{
@@ -144,7 +91,6 @@ public class AppLauncherUtils
 		finally
 		{
 			IoUtil.forceClose(inStream);
-			IoUtil.forceClose(bufReader);
 		}
 
 		// See if we are in a valid state
@@ -153,6 +99,13 @@ public class AppLauncherUtils
 		else if (retL.size() == 0)
 			errMsg = "The catalog appears to be invalid.";
 
+		// Record the parse
+		tmpEvent.catalog = "launcher/appCatalog.txt";
+		tmpEvent.format = "text";
+		tmpEvent.numEntries = retL.size();
+		tmpEvent.isPass = errMsg == null;
+		tmpEvent.commit();
+
 		// Bail if there were issues
 		if (errMsg != null)
 		{
@@ -266,8 +219,17 @@ public class AppLauncherUtils
 		Task tmpTask = new PartialTask(aTask, aTask.getProgress(), 0.01);
 //		Task tmpTask = new PartialTask(aTask, aTask.getProgress(), (tmpFileLen * 0.75) / (releaseSizeFull + 0.00));
 //		Task tmpTask = new SilentTask();
-		if (MiscUtils.download(tmpTask, srcUrl, dstFile, aCredential, fileLen, targDigest) == false)
+		AppLauncherFetch tmpEvent = new AppLauncherFetch();
+		tmpEvent.start();
+		boolean isPass = MiscUtils.download(tmpTask, srcUrl, dstFile, aCredential, fileLen, targDigest);
+		tmpEvent.host = srcUrl.getHost();
+		tmpEvent.version = pickVer.toString();
+		tmpEvent.isPass = isPass;
+		tmpEvent.setBytes(isPass == true ? fileLen : 0L);
+		tmpEvent.commit();
+		if (isPass == false)
 			return null;
+		UpdateMetrics.recordDownload(fileLen);
 
 		// Log the success
 		aTask.logRegln("Success updating AppLauncher...");
@@ -0,0 +1,102 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.jre;
+
+import distMaker.platform.Architecture;
+import distMaker.platform.Platform;
+import glum.digest.Digest;
+
+/**
+ * Immutable class that describes a JRE delta.
+ * <p>
+ * A JRE delta is a (tar.gz) file that allows a specific JRE release to be rebuilt from an installed JRE of an older
+ * version. The delta contains only the files that differ between the 2 JREs along with a listing of every file in the
+ * target JRE.
+ *
+ * @author lopeznr1
+ */
+public class JreDelta
+{
+	private final Architecture architecture;
+	private final Platform platform;
+	private final JreVersion srcVersion;
+
+	private final String fileName;
+	private final Digest digest;
+	private final long fileLen;
+
+	/**
+	 * Standard Constructor
+	 */
+	public JreDelta(Architecture aArchitecture, Platform aPlatform, JreVersion aSrcVersion, String aFileName,
+			Digest aDigest, long aFileLen)
+	{
+		architecture = aArchitecture;
+		platform = aPlatform;
+		srcVersion = aSrcVersion;
+
+		fileName = aFileName;
+		digest = aDigest;
+		fileLen = aFileLen;
+	}
+
+	/**
+	 * Returns the Digest associated with the delta (tar.gz) file.
+	 */
+	public Digest getDigest()
+	{
+		return digest;
+	}
+
+	/**
+	 * Returns the length of the associated file
+	 */
+	public long getFileLen()
+	{
+		return fileLen;
+	}
+
+	/**
+	 * Returns the filename of this (tar.gz) delta.
+	 */
+	public String getFileName()
+	{
+		return fileName;
+	}
+
+	/**
+	 * Returns the version of the (installed) JRE that this delta should be applied to.
+	 */
+	public JreVersion getSrcVersion()
+	{
+		return srcVersion;
+	}
+
+	/**
+	 * Returns true if the specified system matches the delta's system.
+	 */
+	public boolean isSystemMatch(Architecture aArchitecture, Platform aPlatform)
+	{
+		// Ensure the architecture matches
+		if (architecture != aArchitecture)
+			return false;
+
+		// Ensure the platform matches
+		if (platform != aPlatform)
+			return false;
+
+		return true;
+	}
+
+}
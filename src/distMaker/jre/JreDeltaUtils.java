@@ -0,0 +1,247 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.jre;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import distMaker.ErrorDM;
+import distMaker.MiscUtils;
+import glum.digest.Digest;
+import glum.digest.DigestType;
+import glum.io.IoUtil;
+import glum.io.ParseUtil;
+import glum.net.Credential;
+import glum.task.PartialTask;
+import glum.task.Task;
+import glum.util.ThreadUtil;
+
+/**
+ * Collection of utility methods that allow a JRE to be rebuilt from an installed (older) JRE and a {@link JreDelta}.
+ * <p>
+ * A JRE delta (tar.gz) file will unpack to a single top level folder with the following contents:
+ * <ul>
+ * <li>delta.txt: Listing of every path and file in the target JRE.
+ * <li>files/: The files (and symbolic links) that are not present (or differ in content / mode) in the source JRE.
+ * </ul>
+ * The file, delta.txt, has the same layout as an application's catalog.txt with the addition of the instructions:
+ * <ul>
+ * <li>jre,{@literal <targVer>},{@literal <srcVer>}
+ * <li>archive,{@literal <digest>}: The digest of the full JRE (tar.gz) release that the delta reproduces.
+ * </ul>
+ *
+ * @author lopeznr1
+ */
+public class JreDeltaUtils
+{
+	/**
+	 * Utility method that will rebuild the JRE associated with aJreRelease from the installed JRE at aCurrJrePath and
+	 * the specified {@link JreDelta}. The rebuilt JRE will be placed in aDestPath and will be named in accordance with
+	 * {@link JreUtils#getExpandJrePath(JreVersion, String)}.
+	 * <p>
+	 * Every file in the rebuilt JRE is validated against the digest recorded in the delta. The delta itself is validated
+	 * against the full JRE release that it was generated from.
+	 * <p>
+	 * Returns true if the JRE was successfully rebuilt. On failure all intermediate content will be removed and false
+	 * will be returned. Failure is recoverable as the caller can fall back to retrieving the full JRE release.
+	 */
+	public static boolean rebuildJre(Task aTask, JreRelease aJreRelease, JreDelta aJreDelta, File aCurrJrePath,
+			File aDestPath, URL aUpdateSiteUrl, Credential aCredential)
+	{
+		JreVersion targJreVer = aJreRelease.getVersion();
+		JreVersion srcJreVer = aJreDelta.getSrcVersion();
+		long fileLen = aJreDelta.getFileLen();
+
+		// Bail if the installed JRE can not be located
+		if (aCurrJrePath.isDirectory() == false)
+		{
+			aTask.logRegln("Failed to locate the installed JRE. Path: " + aCurrJrePath);
+			return false;
+		}
+
+		// Download the JRE delta (Progress -> [0% - 50%])
+		aTask.logRegln("Downloading JRE delta... Version: " + srcJreVer.getLabel() + " -> " + targJreVer.getLabel());
+		URL srcUrl = IoUtil.createURL(aUpdateSiteUrl.toString() + "/jre/" + targJreVer.getLabel() + "/" + aJreDelta.getFileName());
+		File deltaFile = new File(aDestPath, aJreDelta.getFileName());
+		Task tmpTask = new PartialTask(aTask, aTask.getProgress(), 0.50);
+		if (MiscUtils.download(tmpTask, srcUrl, deltaFile, aCredential, fileLen, aJreDelta.getDigest()) == false)
+		{
+			deltaFile.delete();
+			return false;
+		}
+
+		// Unpack and apply the JRE delta (Progress -> [50% - 100%])
+		aTask.logRegln("Finshed downloading JRE delta. Rebuilding JRE...");
+		File unpackPath = new File(aDestPath, "unpack");
+		File jreTargPath = new File(aDestPath, JreUtils.getExpandJrePath(targJreVer, aJreRelease.getVariant()));
+		try
+		{
+			unpackPath.mkdirs();
+
+			// Unpack the JRE delta. Ensure that the unpacked delta results in 1 top level folder.
+			tmpTask = new PartialTask(aTask, aTask.getProgress(), 0.25);
+			if (MiscUtils.unPack(tmpTask, deltaFile, unpackPath) == null)
+				throw new ErrorDM("The JRE delta unpack was aborted.");
+			File[] fileArr = unpackPath.listFiles();
+			if (fileArr.length != 1 || fileArr[0].isDirectory() == false)
+				throw new ErrorDM("Expected only one (top level) folder to be unpacked. Items extracted: " + fileArr.length + "   Path: " + unpackPath);
+			File deltaRootPath = fileArr[0];
+			File filesPath = new File(deltaRootPath, "files");
+
+			// Rebuild the JRE in place (within the files folder)
+			tmpTask = new PartialTask(aTask, aTask.getProgress(), 1.00 - aTask.getProgress());
+			applyDelta(tmpTask, aJreRelease, new File(deltaRootPath, "delta.txt"), aCurrJrePath, filesPath);
+
+			// Move the rebuilt JRE to aDestPath and remove the working unpack folder and the tar.gz file
+			if (filesPath.renameTo(jreTargPath) == false)
+				throw new ErrorDM("Failed to move the rebuilt JRE to: " + jreTargPath);
+			IoUtil.deleteDirectory(unpackPath);
+			deltaFile.delete();
+		}
+		catch (ErrorDM aExp)
+		{
+			aTask.logRegln("Failed to rebuild the JRE from the JRE delta.");
+			MiscUtils.printErrorDM(aTask, aExp, 1);
+
+			IoUtil.deleteDirectory(unpackPath);
+			IoUtil.deleteDirectory(jreTargPath);
+			deltaFile.delete();
+			return false;
+		}
+		catch (Exception aExp)
+		{
+			aTask.logRegln("Failed to rebuild the JRE from the JRE delta.");
+			aTask.logRegln("\tDelta File: " + deltaFile);
+			aTask.logReg("\nStack Trace:\n" + ThreadUtil.getStackTrace(aExp));
+
+			IoUtil.deleteDirectory(unpackPath);
+			IoUtil.deleteDirectory(jreTargPath);
+			deltaFile.delete();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Helper method that applies the delta (described by aDeltaCatFile) to aFilesPath. Any file listed in the delta
+	 * that is not present in aFilesPath will be copied over from aCurrJrePath.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	private static void applyDelta(Task aTask, JreRelease aJreRelease, File aDeltaCatFile, File aCurrJrePath,
+			File aFilesPath) throws IOException
+	{
+		List<String> pathL;
+		List<String[]> fileL;
+		String archiveDigestStr, strLine;
+
+		pathL = new ArrayList<>();
+		fileL = new ArrayList<>();
+		archiveDigestStr = null;
+
+		// Default to DigestType of MD5
+		DigestType digestType = DigestType.MD5;
+
+		// Read the contents of the delta catalog
+		try (BufferedReader tmpBR = MiscUtils.openFileAsBufferedReader(aDeltaCatFile))
+		{
+			while (true)
+			{
+				strLine = tmpBR.readLine();
+
+				// Bail once we are done
+				if (strLine == null)
+					break;
+
+				String[] tokens = strLine.split(",", 4);
+				if (strLine.isEmpty() == true || strLine.startsWith("#") == true)
+					; // Nothing to do
+				else if (tokens.length == 2 && tokens[0].equals("P") == true)
+					pathL.add(tokens[1]);
+				else if (tokens.length == 4 && tokens[0].equals("F") == true)
+					fileL.add(tokens);
+				else if (tokens.length == 2 && tokens[0].equals("digest") == true)
+				{
+					DigestType tmpDigestType = DigestType.parse(tokens[1]);
+					if (tmpDigestType == null)
+						throw new ErrorDM("Failed to locate DigestType for: " + tokens[1]);
+					digestType = tmpDigestType;
+				}
+				else if (tokens.length == 2 && tokens[0].equals("archive") == true)
+					archiveDigestStr = tokens[1];
+				else if (tokens.length == 2 && tokens[0].equals("name") == true)
+					; // Nothing to do - informational only
+				else if (tokens.length == 3 && tokens[0].equals("jre") == true)
+					; // Nothing to do - informational only
+				else
+					aTask.logRegln("Unreconized line: " + strLine);
+			}
+		}
+
+		// Ensure the delta corresponds to the full JRE release
+		Digest targDigest = aJreRelease.getDigest();
+		if (archiveDigestStr == null)
+			throw new ErrorDM("The JRE delta does not specify the JRE release it was generated from.");
+		if (targDigest.equals(new Digest(targDigest.getType(), archiveDigestStr)) == false)
+			throw new ErrorDM("The JRE delta was not generated from the JRE release: " + aJreRelease.getFileName());
+
+		// Form all of the paths
+		for (String aPath : pathL)
+			new File(aFilesPath, aPath).mkdirs();
+
+		// Transfer and validate all of the files
+		int cntLocal = 0, cntDelta = 0;
+		for (String[] aTokenArr : fileL)
+		{
+			// Bail if we have been aborted
+			if (aTask.isActive() == false)
+				throw new ErrorDM("The JRE rebuild was aborted.");
+
+			Digest fileDigest = new Digest(digestType, aTokenArr[1]);
+			long fileLen = ParseUtil.readLong(aTokenArr[2], -1);
+			String fileName = aTokenArr[3];
+
+			// Copy over the (unchanged) file from the installed JRE if it is not provided by the delta
+			File dstFile = new File(aFilesPath, fileName);
+			if (Files.exists(dstFile.toPath(), LinkOption.NOFOLLOW_LINKS) == false)
+			{
+				File srcFile = new File(aCurrJrePath, fileName);
+				if (srcFile.isFile() == false)
+					throw new ErrorDM("The installed JRE is missing the file: " + fileName);
+
+				dstFile.getParentFile().mkdirs();
+				Files.copy(srcFile.toPath(), dstFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+				cntLocal++;
+			}
+			else
+			{
+				cntDelta++;
+			}
+
+			// Validate the file
+			if (dstFile.length() != fileLen || fileDigest.equals(MiscUtils.computeDigest(dstFile, digestType)) == false)
+				throw new ErrorDM("The rebuilt file does not match the JRE release: " + fileName);
+
+			aTask.logRegUpdate("\tValidated: " + fileName);
+			aTask.setProgress((cntLocal + cntDelta) / (fileL.size() + 0.0));
+		}
+
+		aTask.logRegln("\tRebuilt JRE files: " + fileL.size() + "   (L): " + cntLocal + "   (D): " + cntDelta + "\n");
+	}
+
+}
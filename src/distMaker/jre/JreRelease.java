@@ -13,6 +13,10 @@
 // limitations under the License.
 package distMaker.jre;
 
+import java.util.*;
+
+import com.google.common.collect.ImmutableList;
+
 import distMaker.platform.Architecture;
 import distMaker.platform.Platform;
 import glum.digest.Digest;
@@ -35,12 +39,19 @@ public class JreRelease implements Comparable<JreRelease>
 	private final String fileName;
 	private final Digest digest;
 	private final long fileLen;
+	private final String variant;
+
+	private final ImmutableList<JreDelta> deltaL;
 
 	/**
 	 * Standard Constructor
+	 *
+	 * @param aVariant
+	 *        The name of the JRE variant (such as an application specific trimmed runtime). This should be null for
+	 *        standard (full) JRE releases.
 	 */
 	public JreRelease(Architecture aArchitecture, Platform aPlatform, JreVersion aVersion, String aFileName,
-			Digest aDigest, long aFileLen, Version aAlMinVer, Version aAlMaxVer)
+			Digest aDigest, long aFileLen, String aVariant, Version aAlMinVer, Version aAlMaxVer, List<JreDelta> aDeltaL)
 	{
 		version = aVersion;
 		alMinVer = aAlMinVer;
@@ -52,6 +63,9 @@ public class JreRelease implements Comparable<JreRelease>
 		fileName = aFileName;
 		digest = aDigest;
 		fileLen = aFileLen;
+		variant = aVariant;
+
+		deltaL = ImmutableList.copyOf(aDeltaL);
 	}
 
 	/**
@@ -70,6 +84,39 @@ public class JreRelease implements Comparable<JreRelease>
 		return alMaxVer;
 	}
 
+	/**
+	 * Returns the {@link Architecture} of this JRE release.
+	 */
+	public Architecture getArchitecture()
+	{
+		return architecture;
+	}
+
+	/**
+	 * Returns the {@link JreDelta} that allows this release to be built from the installed JRE with the specified
+	 * version.
+	 * <p>
+	 * Returns null if there is no such delta.
+	 */
+	public JreDelta getDelta(JreVersion aSrcVersion)
+	{
+		for (JreDelta aDelta : deltaL)
+		{
+			if (aDelta.getSrcVersion().compareTo(aSrcVersion) == 0)
+				return aDelta;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the list of all {@link JreDelta}s associated with this release.
+	 */
+	public ImmutableList<JreDelta> getDeltaList()
+	{
+		return deltaL;
+	}
+
 	/**
 	 * Returns the Digest associated with the JRE (tar.gz) file.
 	 */
@@ -78,6 +125,24 @@ public class JreRelease implements Comparable<JreRelease>
 		return digest;
 	}
 
+	/**
+	 * Returns the {@link Platform} of this JRE release.
+	 */
+	public Platform getPlatform()
+	{
+		return platform;
+	}
+
+	/**
+	 * Returns the name of the variant of this JRE release.
+	 * <p>
+	 * Returns null if this is a standard (full) JRE release.
+	 */
+	public String getVariant()
+	{
+		return variant;
+	}
+
 	/**
 	 * Returns the version of the JRE corresponding to this release.
 	 */
@@ -140,6 +205,10 @@ public class JreRelease implements Comparable<JreRelease>
 		if (cmpVal != 0)
 			return cmpVal;
 
+		cmpVal = Objects.compare(variant, aItem.variant, Comparator.nullsFirst(Comparator.naturalOrder()));
+		if (cmpVal != 0)
+			return cmpVal;
+
 		cmpVal = fileName.compareTo(aItem.fileName);
 		if (cmpVal != 0)
 			return cmpVal;
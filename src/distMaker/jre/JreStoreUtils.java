@@ -0,0 +1,375 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.jre;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import distMaker.ErrorDM;
+import distMaker.platform.PlatformUtils;
+import glum.digest.DigestType;
+import glum.digest.DigestUtils;
+import glum.io.IoUtil;
+import glum.task.Task;
+
+/**
+ * Collection of utility methods that provide access to the (opt-in) shared JRE store.
+ * <p>
+ * The shared JRE store allows multiple DistMaker applications on a host to share a single copy of each JRE. The store
+ * is enabled when the launch script defines the system property: distMaker.jreStore. The value of the property is the
+ * location of the store, which is typically a per-user location (~/.distMaker/jre) or a system location (defined via
+ * the environment variable DISTMAKER_JRE_STORE).
+ * <p>
+ * The store has the following layout:
+ * <ul>
+ * <li>{@literal <jreExpandPath>}/: The shared JREs. See {@link JreUtils#getExpandJrePath(JreVersion, String)}.
+ * <li>refs/{@literal <jreExpandPath>}/{@literal <installId>}: The reference held by an application installation.
+ * <li>tmp/: Staging area used while a JRE is copied into the store.
+ * </ul>
+ * JREs are keyed by version and variant. A JRE is removed from the store once there are no installations that
+ * reference it.
+ *
+ * @author lopeznr1
+ */
+public class JreStoreUtils
+{
+	/**
+	 * Returns the location of the shared JRE store.
+	 * <p>
+	 * Returns null if the shared JRE store is not enabled.
+	 */
+	public static File getStorePath()
+	{
+		String tmpStr = System.getProperty("distMaker.jreStore");
+		if (tmpStr == null || tmpStr.isBlank() == true)
+			return null;
+
+		return new File(tmpStr);
+	}
+
+	/**
+	 * Returns the location of the specified JRE (of the specified variant) in the shared JRE store.
+	 * <p>
+	 * Returns null if the shared JRE store is not enabled.
+	 */
+	public static File getJrePath(JreVersion aJreVersion, String aJreVariant)
+	{
+		File storePath = getStorePath();
+		if (storePath == null)
+			return null;
+
+		return new File(storePath, JreUtils.getExpandJrePath(aJreVersion, aJreVariant));
+	}
+
+	/**
+	 * Returns true if the shared JRE store is enabled.
+	 */
+	public static boolean isEnabled()
+	{
+		return getStorePath() != null;
+	}
+
+	/**
+	 * Returns true if the specified JRE (of the specified variant) is available in the shared JRE store.
+	 */
+	public static boolean isJreInStore(JreVersion aJreVersion, String aJreVariant)
+	{
+		File jrePath = getJrePath(aJreVersion, aJreVariant);
+		if (jrePath == null)
+			return false;
+
+		return jrePath.isDirectory();
+	}
+
+	/**
+	 * Returns true if the running JRE is located in the shared JRE store.
+	 */
+	public static boolean isRunningFromStore()
+	{
+		File storePath = getStorePath();
+		if (storePath == null)
+			return false;
+
+		Path jrePath = Paths.get(System.getProperty("java.home")).toAbsolutePath();
+		return jrePath.startsWith(storePath.toPath().toAbsolutePath());
+	}
+
+	/**
+	 * Utility method that installs the (unpacked) JRE at aJrePath into the shared JRE store and records a reference to
+	 * it on behalf of the installation at aInstallPath.
+	 * <p>
+	 * If the JRE is already in the store then aJrePath will just be removed. The stored JRE will be replaced if it lacks
+	 * modules that are provided by aJrePath (a trimmed JRE variant that has been rebuilt).
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static synchronized void installJre(Task aTask, JreVersion aJreVersion, String aJreVariant, File aJrePath,
+			File aInstallPath)
+	{
+		File storeJrePath = getJrePath(aJreVersion, aJreVariant);
+		if (storeJrePath == null)
+			throw new ErrorDM("The shared JRE store is not enabled.");
+
+		try
+		{
+			FileLock tmpLock = lockStore();
+			try
+			{
+				// Record the reference first so the JRE is never seen as unreferenced
+				writeRef(aJreVersion, aJreVariant, aInstallPath);
+
+				// Bail if the JRE is already in the store (and provides all of the modules of the installed JRE)
+				Set<String> moduleS = aJrePath != null ? JreUtils.getJreModules(aJrePath) : null;
+				if (storeJrePath.isDirectory() == true && JreUtils.hasJreModules(storeJrePath, moduleS) == true)
+				{
+					aTask.logRegln("Utilizing JRE from the shared JRE store: " + storeJrePath);
+					if (aJrePath != null && aJrePath.exists() == true)
+						IoUtil.deleteDirectory(aJrePath);
+					return;
+				}
+
+				// Remove the stored JRE if it lacks modules. Note this fails if the stored JRE is in use (Windows).
+				if (storeJrePath.isDirectory() == true)
+				{
+					aTask.logRegln("Replacing JRE (missing modules) in the shared JRE store: " + storeJrePath);
+					File oldPath = new File(new File(getStorePath(), "tmp"), storeJrePath.getName() + ".old");
+					IoUtil.deleteDirectory(oldPath);
+					oldPath.getParentFile().mkdirs();
+					if (storeJrePath.renameTo(oldPath) == false)
+						throw new IOException("Failed to remove the JRE from the shared JRE store: " + storeJrePath);
+					IoUtil.deleteDirectory(oldPath);
+				}
+
+				// Move the JRE into the store. Fall back to a (staged) copy if the JRE is on a different file system.
+				aTask.logRegln("Installing JRE into the shared JRE store: " + storeJrePath);
+				if (aJrePath.renameTo(storeJrePath) == false)
+				{
+					copyToStore(aJrePath, storeJrePath);
+					IoUtil.deleteDirectory(aJrePath);
+				}
+			}
+			finally
+			{
+				unlockStore(tmpLock);
+			}
+		}
+		catch (IOException aExp)
+		{
+			throw new ErrorDM(aExp, "Failed to install the JRE into the shared JRE store: " + storeJrePath);
+		}
+	}
+
+	/**
+	 * Utility method that reconciles the shared JRE store with the running installation (aInstallPath). The following
+	 * will be done:
+	 * <ul>
+	 * <li>The running JRE will be copied into the store (if it is not present) and a reference to it will be recorded.
+	 * <li>All references (by this installation) to other JREs will be released.
+	 * <li>References by installations that no longer exist will be released.
+	 * <li>JREs (in the store) that are no longer referenced will be removed.
+	 * <li>The JREs bundled in the installation that are not in use will be removed.
+	 * </ul>
+	 * This method should be called at application startup, as it is only then that the JRE in use is known.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static synchronized void reconcile(Task aTask, JreVersion aCurrJreVer, String aCurrJreVariant,
+			File aInstallPath)
+	{
+		File storePath = getStorePath();
+		if (storePath == null)
+			throw new ErrorDM("The shared JRE store is not enabled.");
+
+		String currJreName = JreUtils.getExpandJrePath(aCurrJreVer, aCurrJreVariant);
+		File storeJrePath = new File(storePath, currJreName);
+		File refsPath = new File(storePath, "refs");
+		String installId = getInstallId(aInstallPath);
+		try
+		{
+			FileLock tmpLock = lockStore();
+			try
+			{
+				// Ensure the running JRE is in the store
+				writeRef(aCurrJreVer, aCurrJreVariant, aInstallPath);
+				File localJrePath = new File(aInstallPath, PlatformUtils.getJreLocation(aCurrJreVer, aCurrJreVariant));
+				if (storeJrePath.isDirectory() == false && localJrePath.isDirectory() == true)
+				{
+					aTask.logRegln("Copying JRE into the shared JRE store: " + storeJrePath);
+					copyToStore(localJrePath, storeJrePath);
+				}
+
+				// Release all stale references and remove all unreferenced JREs
+				for (File aRefPath : listFiles(refsPath))
+				{
+					if (aRefPath.getName().equals(currJreName) == false)
+						new File(aRefPath, installId).delete();
+
+					for (File aRefFile : listFiles(aRefPath))
+					{
+						String tmpStr = new String(Files.readAllBytes(aRefFile.toPath()), StandardCharsets.UTF_8).trim();
+						if (new File(tmpStr).isDirectory() == false)
+							aRefFile.delete();
+					}
+
+					if (listFiles(aRefPath).size() > 0)
+						continue;
+
+					aTask.logRegln("Removing unreferenced JRE from the shared JRE store: " + aRefPath.getName());
+					IoUtil.deleteDirectory(new File(storePath, aRefPath.getName()));
+					aRefPath.delete();
+				}
+
+				// Remove the bundled JREs that are not in use
+				File localJreRoot = localJrePath.getParentFile();
+				for (File aFile : listFiles(localJreRoot))
+				{
+					if (aFile.isDirectory() == false || aFile.getName().startsWith("jre") == false)
+						continue;
+					if (aFile.equals(localJrePath) == true && isRunningFromStore() == false)
+						continue;
+
+					aTask.logRegln("Removing bundled JRE (provided by the shared JRE store): " + aFile);
+					IoUtil.deleteDirectory(aFile);
+				}
+			}
+			finally
+			{
+				unlockStore(tmpLock);
+			}
+		}
+		catch (IOException aExp)
+		{
+			throw new ErrorDM(aExp, "Failed to reconcile the shared JRE store: " + storePath);
+		}
+	}
+
+	/**
+	 * Helper method that copies the JRE at aSrcPath into the store (at aDstPath). The copy is staged in the store's tmp
+	 * folder so that an incomplete JRE is never visible.
+	 */
+	private static void copyToStore(File aSrcPath, File aDstPath) throws IOException
+	{
+		Path srcPath = aSrcPath.toPath();
+		File tmpPath = new File(new File(aDstPath.getParentFile(), "tmp"), aDstPath.getName());
+		IoUtil.deleteDirectory(tmpPath);
+		tmpPath.getParentFile().mkdirs();
+
+		Path dstPath = tmpPath.toPath();
+		Files.walkFileTree(srcPath, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path aDir, BasicFileAttributes aAttrs) throws IOException
+			{
+				Files.copy(aDir, dstPath.resolve(srcPath.relativize(aDir)), StandardCopyOption.COPY_ATTRIBUTES);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path aFile, BasicFileAttributes aAttrs) throws IOException
+			{
+				Files.copy(aFile, dstPath.resolve(srcPath.relativize(aFile)), StandardCopyOption.COPY_ATTRIBUTES,
+						LinkOption.NOFOLLOW_LINKS);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		if (tmpPath.renameTo(aDstPath) == false)
+			throw new IOException("Failed to move staged JRE to: " + aDstPath);
+	}
+
+	/**
+	 * Helper method that returns a (stable) identifier for the installation at aInstallPath.
+	 */
+	private static String getInstallId(File aInstallPath)
+	{
+		byte[] byteArr = aInstallPath.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+		byteArr = DigestUtils.getDigest(DigestType.SHA256).digest(byteArr);
+		return DigestUtils.byteArr2HexStr(byteArr).substring(0, 16);
+	}
+
+	/**
+	 * Helper method that returns the list of files (and folders) in the specified folder.
+	 */
+	private static List<File> listFiles(File aPath)
+	{
+		List<File> retL = new ArrayList<>();
+
+		File[] fileArr = aPath.listFiles();
+		if (fileArr == null)
+			return retL;
+
+		for (File aFile : fileArr)
+			retL.add(aFile);
+
+		return retL;
+	}
+
+	/**
+	 * Helper method that acquires the (inter-process) lock on the store.
+	 * <p>
+	 * The returned lock must be released by the caller via {@link #unlockStore(FileLock)}.
+	 */
+	private static FileLock lockStore() throws IOException
+	{
+		File storePath = getStorePath();
+		storePath.mkdirs();
+
+		Path lockFile = new File(storePath, ".lock").toPath();
+		FileChannel tmpFC = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try
+		{
+			return tmpFC.lock();
+		}
+		catch (IOException aExp)
+		{
+			tmpFC.close();
+			throw aExp;
+		}
+	}
+
+	/**
+	 * Helper method that releases the (inter-process) lock on the store. See {@link #lockStore()}.
+	 */
+	private static void unlockStore(FileLock aLock) throws IOException
+	{
+		try
+		{
+			aLock.release();
+		}
+		finally
+		{
+			aLock.channel().close();
+		}
+	}
+
+	/**
+	 * Helper method that records the reference to the JRE on behalf of the installation at aInstallPath.
+	 */
+	private static void writeRef(JreVersion aJreVersion, String aJreVariant, File aInstallPath) throws IOException
+	{
+		File refPath = new File(new File(getStorePath(), "refs"), JreUtils.getExpandJrePath(aJreVersion, aJreVariant));
+		refPath.mkdirs();
+
+		File refFile = new File(refPath, getInstallId(aInstallPath));
+		Files.write(refFile.toPath(), aInstallPath.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+	}
+
+}
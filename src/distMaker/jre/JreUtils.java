@@ -15,17 +15,15 @@ package distMaker.jre;
 
 import java.io.*;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.*;
+import java.util.function.Consumer;
 
 import distMaker.platform.*;
-import distMaker.utils.ParseUtils;
+import distMaker.utils.*;
+import distMaker.utils.UpdateEvents.CatalogParse;
 import glum.digest.Digest;
-import glum.digest.DigestType;
 import glum.io.IoUtil;
-import glum.io.ParseUtil;
 import glum.net.Credential;
-import glum.net.NetUtil;
 import glum.task.Task;
 import glum.util.ThreadUtil;
 import glum.version.PlainVersion;
@@ -47,192 +45,109 @@ public class JreUtils
 	 */
 	public static String getExpandJrePath(JreVersion aJreVersion)
 	{
-		String version;
+		return getExpandJrePath(aJreVersion, null);
+	}
+
+	/**
+	 * Returns the relative path a JRE (of the specified variant) should be expanded to.
+	 * <p>
+	 * Standard JREs (null variant) are expanded as described in {@link #getExpandJrePath(JreVersion)} while JRE variants
+	 * will be expanded to something like:<br>
+	 * <b>{@code <jre>-<version>-<variant>}</b>
+	 */
+	public static String getExpandJrePath(JreVersion aJreVersion, String aJreVariant)
+	{
+		String version, retPath;
 
 		version = aJreVersion.getLabel();
 		if (version.startsWith("1.") == true)
-			return "jre" + version;
+			retPath = "jre" + version;
 		else
-			return "jre-" + version;
+			retPath = "jre-" + version;
+
+		if (aJreVariant != null)
+			retPath += "-" + aJreVariant;
+		return retPath;
+	}
+
+	/**
+	 * Returns the set of modules provided by the JRE at the specified path. The modules are read from the JRE's release
+	 * file (the MODULES property).
+	 * <p>
+	 * Returns null if the modules can not be determined (legacy JREs do not list their modules).
+	 */
+	public static Set<String> getJreModules(File aJrePath)
+	{
+		// The release file is located at the top of the JRE (Contents/Home on the Macosx platform)
+		File releaseFile = new File(aJrePath, "release");
+		if (releaseFile.isFile() == false)
+			releaseFile = new File(aJrePath, "Contents/Home/release");
+
+		Properties tmpProps = new Properties();
+		try (InputStream tmpIS = new FileInputStream(releaseFile))
+		{
+			tmpProps.load(tmpIS);
+		}
+		catch (IOException aExp)
+		{
+			return null;
+		}
+
+		String tmpStr = tmpProps.getProperty("MODULES");
+		if (tmpStr == null)
+			return null;
+
+		Set<String> retS = new TreeSet<>();
+		for (String aModule : tmpStr.replace("\"", "").trim().split("\\s+"))
+		{
+			if (aModule.isEmpty() == false)
+				retS.add(aModule);
+		}
+		return retS;
+	}
+
+	/**
+	 * Returns true if the JRE at the specified path provides all of the modules in aModuleL.
+	 * <p>
+	 * The JRE is assumed to provide the modules if the modules of the JRE can not be determined.
+	 */
+	public static boolean hasJreModules(File aJrePath, Collection<String> aModuleL)
+	{
+		if (aModuleL == null || aModuleL.isEmpty() == true)
+			return true;
+
+		Set<String> jreModuleS = getJreModules(aJrePath);
+		if (jreModuleS == null)
+			return true;
+
+		return jreModuleS.containsAll(aModuleL);
 	}
 
 	/**
 	 * Returns a list of all the available JRE releases specified at: <br>
 	 * {@literal <aUpdateSiteUrl>/jre/jreCatalog.txt}
+	 * <p>
+	 * Any JRE deltas (specified via the 'delta' instruction) will be associated with the relevant {@link JreRelease}.
+	 * JRE variants (specified via the 'variant' instruction) will be returned as {@link JreRelease}s with a variant.
 	 */
 	public static List<JreRelease> getAvailableJreReleases(Task aTask, URL aUpdateSiteUrl, Credential aCredential)
 	{
-		List<JreRelease> retL;
 		URL catUrl;
-		URLConnection connection;
 		InputStream inStream;
-		BufferedReader bufReader;
-		String errMsg, strLine;
+		String errMsg;
 
 		errMsg = null;
-		retL = new ArrayList<>();
 		catUrl = IoUtil.createURL(aUpdateSiteUrl.toString() + "/jre/jreCatalog.txt");
 
-		// Default to DigestType of MD5
-		PlainVersion alMinVer = PlainVersion.Zero;
-		PlainVersion alMaxVer = PlainVersion.AbsMax;
-		DigestType digestType = DigestType.MD5;
-		JreVersion version = null;
-
 		inStream = null;
-		bufReader = null;
+		CatalogParse tmpEvent = new CatalogParse();
+		tmpEvent.begin();
+		JreCatalogHandler tmpHandler = new JreCatalogHandler(aTask);
 		try
 		{
-			// Read the contents of the file
-			connection = catUrl.openConnection();
-			inStream = NetUtil.getInputStream(connection, aCredential);
-			bufReader = new BufferedReader(new InputStreamReader(new BufferedInputStream(inStream)));
-
-			// Read the lines
-			while (true)
-			{
-				strLine = bufReader.readLine();
-
-				// Bail once we are done
-				if (strLine == null)
-					break;
-
-				// Ignore comments and empty lines
-				if (strLine.isEmpty() == true || strLine.startsWith("#") == true)
-					continue;
-
-				String[] tokens = strLine.split(",", 5);
-				if (tokens[0].equals("name") == true && tokens.length == 2 && tokens[1].equals("JRE") == true)
-					; // Nothing to do - we just entered the "JRE" section
-				// Logic to handle the 'exit' command
-				else if (tokens[0].equals("exit") == true && tokens.length >= 1)
-				{
-					// We support exit commands with 3 tokens. All others
-					// we will just exit.
-					if (tokens.length != 3)
-						break;
-
-					String targName = tokens[1];
-					String needVer = tokens[2];
-					if (ParseUtils.shouldExitLogic(targName, needVer) == true)
-						break;
-				}
-				// Logic to handle the 'digest' command
-				else if (tokens[0].equals("digest") == true && tokens.length == 2)
-				{
-					DigestType tmpDigestType = DigestType.parse(tokens[1]);
-					if (tmpDigestType == null)
-						aTask.logRegln("Failed to locate DigestType for: " + tokens[1]);
-					else
-						digestType = tmpDigestType;
-				}
-				// Logic to handle the 'jre' command
-				else if (tokens[0].equals("jre") == true && tokens.length == 2)
-				{
-					version = new JreVersion(tokens[1]);
-
-					// On any new JRE version reset the default required AppLauncher versions
-					alMinVer = PlainVersion.Zero;
-					alMaxVer = new PlainVersion(0, 99, 0);
-				}
-				// Logic to handle the 'require' command: JRE File
-				else if (tokens[0].equals("require") == true && tokens.length >= 3)
-				{
-					String target;
-
-					// Process the require,AppLauncher instruction
-					target = tokens[1];
-					if (target.equals("AppLauncher") == true && (tokens.length == 3 || tokens.length == 4))
-					{
-						alMinVer = PlainVersion.parse(tokens[2]);
-						alMaxVer = new PlainVersion(0, 99, 0);
-						if (tokens.length == 4)
-							alMaxVer = PlainVersion.parse(tokens[3]);
-
-						continue;
-					}
-
-					aTask.logRegln("Unreconized line: " + strLine);
-				}
-				// Logic to handle the 'F' command: JRE File
-				else if (tokens[0].equals("F") == true && tokens.length >= 4 && tokens.length <= 6)
-				{
-					if (version == null)
-					{
-						aTask.logRegln("Skipping input: " + strLine);
-						aTask.logRegln("\tJRE version has not been specifed. Missing input line: jre,<jreVersion>");
-						continue;
-					}
-
-					// Parse the JRE release
-					Architecture architecture;
-					Platform platform;
-					String filename, digestStr;
-					long fileLen;
-
-					if (tokens.length == 6)
-					{
-						architecture = ArchitectureUtils.transformToArchitecture(tokens[1]);
-						if (architecture == null)
-						{
-							aTask.logRegln("Skipping input: " + strLine);
-							aTask.logRegln("\tFailed to determine the target architecture of the JRE.");
-							continue;
-						}
-
-						platform = PlatformUtils.transformToPlatform(tokens[2]);
-						if (platform == null)
-						{
-							aTask.logRegln("Skipping input: " + strLine);
-							aTask.logRegln("\tFailed to determine the target platform of the JRE.");
-							continue;
-						}
-
-						filename = tokens[3];
-						digestStr = tokens[4];
-						fileLen = ParseUtil.readLong(tokens[5], -1);
-					}
-					else if (tokens.length == 5)
-					{
-						architecture = Architecture.x64;
-						digestStr = tokens[1];
-						fileLen = ParseUtil.readLong(tokens[2], -1);
-
-						platform = PlatformUtils.transformToPlatform(tokens[3]);
-						if (platform == null)
-						{
-							aTask.logRegln("Skipping input: " + strLine);
-							aTask.logRegln("\tFailed to determine the target platform of the JRE.");
-							continue;
-						}
-
-						filename = tokens[4];
-					}
-					else // tokens.length == 4
-					{
-						architecture = Architecture.x64;
-						digestStr = tokens[1];
-						fileLen = ParseUtil.readLong(tokens[2], -1);
-						filename = tokens[3];
-
-						platform = JreUtils.getPlatformOfJreTarGz(filename);
-						if (platform == null)
-						{
-							aTask.logRegln("Skipping input: " + strLine);
-							aTask.logRegln("\tFailed to determine the target platform of the JRE.");
-							continue;
-						}
-					}
-
-					// Form the JreRelease
-					Digest tmpDigest = new Digest(digestType, digestStr);
-					retL.add(new JreRelease(architecture, platform, version, filename, tmpDigest, fileLen, alMinVer, alMaxVer));
-				}
-				else
-				{
-					aTask.logRegln("Unreconized line: " + strLine);
-				}
-			}
+			// Process the contents of the file (as the bytes arrive)
+			inStream = CatalogUtils.open(catUrl, aCredential);
+			CatalogTokenizer.parse(aTask, inStream, tmpHandler);
 		}
 		catch (FileNotFoundException aExp)
 		{
@@ -245,15 +160,24 @@ public class JreUtils
 		finally
 		{
 			IoUtil.forceClose(inStream);
-			IoUtil.forceClose(bufReader);
 		}
 
+		List<JreRelease> workL = tmpHandler.workL;
+		Map<JreVersion, List<JreDelta>> deltaM = tmpHandler.deltaM;
+
 		// See if we are in a valid state
 		if (errMsg != null)
 			; // Nothing to do, as an earlier error has occurred
-		else if (retL.size() == 0)
+		else if (workL.size() == 0)
 			errMsg = "The catalog appears to be invalid.";
 
+		// Record the parse
+		tmpEvent.catalog = "jreCatalog.txt";
+		tmpEvent.format = "text";
+		tmpEvent.numEntries = workL.size();
+		tmpEvent.isPass = errMsg == null;
+		tmpEvent.commit();
+
 		// Bail if there were issues
 		if (errMsg != null)
 		{
@@ -261,6 +185,22 @@ public class JreUtils
 			return null;
 		}
 
+		// Associate each (standard) JreRelease with the deltas (of the same version and system) that produce it
+		List<JreRelease> retL = new ArrayList<>();
+		for (JreRelease aRelease : workL)
+		{
+			List<JreDelta> tmpDeltaL = new ArrayList<>();
+			for (JreDelta aDelta : deltaM.getOrDefault(aRelease.getVersion(), Collections.emptyList()))
+			{
+				if (aRelease.getVariant() == null && aDelta.isSystemMatch(aRelease.getArchitecture(), aRelease.getPlatform()) == true)
+					tmpDeltaL.add(aDelta);
+			}
+
+			retL.add(new JreRelease(aRelease.getArchitecture(), aRelease.getPlatform(), aRelease.getVersion(),
+					aRelease.getFileName(), aRelease.getDigest(), aRelease.getFileLen(), aRelease.getVariant(),
+					aRelease.getAppLauncherMinVersion(), aRelease.getAppLauncherMaxVersion(), tmpDeltaL));
+		}
+
 		return retL;
 	}
 
@@ -310,4 +250,207 @@ public class JreUtils
 		return null;
 	}
 
+	/**
+	 * Handler used to process the directives of the JRE catalog (jreCatalog.txt).
+	 */
+	private static class JreCatalogHandler implements Consumer<CatalogLine>
+	{
+		private final Task refTask;
+		private final List<JreRelease> workL;
+		private final Map<JreVersion, List<JreDelta>> deltaM;
+		private PlainVersion alMinVer;
+		private PlainVersion alMaxVer;
+		private JreVersion version;
+
+		private JreCatalogHandler(Task aTask)
+		{
+			refTask = aTask;
+			workL = new ArrayList<>();
+			deltaM = new TreeMap<>();
+			alMinVer = PlainVersion.Zero;
+			alMaxVer = PlainVersion.AbsMax;
+			version = null;
+		}
+
+		@Override
+		public void accept(CatalogLine aLine)
+		{
+			if (aLine.isField(0, "name") == true && aLine.getNumFields() == 2 && aLine.isField(1, "JRE") == true)
+				; // Nothing to do - we just entered the "JRE" section
+			// Logic to handle the 'jre' command
+			else if (aLine.isField(0, "jre") == true && aLine.getNumFields() == 2)
+			{
+				version = new JreVersion(aLine.getField(1));
+
+				// On any new JRE version reset the default required AppLauncher versions
+				alMinVer = PlainVersion.Zero;
+				alMaxVer = new PlainVersion(0, 99, 0);
+			}
+			// Logic to handle the 'require' command
+			else if (aLine.isField(0, "require") == true && aLine.getNumFields() >= 3)
+			{
+				// Process the require,AppLauncher instruction
+				int numFields = aLine.getNumFields(5);
+				if (aLine.isField(1, "AppLauncher") == true && (numFields == 3 || numFields == 4))
+				{
+					alMinVer = PlainVersion.parse(aLine.getField(2));
+					alMaxVer = new PlainVersion(0, 99, 0);
+					if (numFields == 4)
+						alMaxVer = PlainVersion.parse(aLine.getField(3));
+					return;
+				}
+
+				refTask.logRegln("Unreconized line: " + aLine);
+			}
+			// Logic to handle the 'F' command: JRE File
+			else if (aLine.isField(0, "F") == true && aLine.getNumFields(6) >= 4)
+				handleFile(aLine);
+			// Logic to handle the 'variant' command: JRE variant file
+			else if (aLine.isField(0, "variant") == true)
+				handleVariant(aLine);
+			// Logic to handle the 'delta' command: JRE delta file
+			else if (aLine.isField(0, "delta") == true)
+				handleDelta(aLine);
+			else
+				refTask.logRegln("Unreconized line: " + aLine);
+		}
+
+		/**
+		 * Helper method that returns true if the JRE version has been specified. A skipped line is logged otherwise.
+		 */
+		private boolean checkVersion(CatalogLine aLine)
+		{
+			if (version != null)
+				return true;
+
+			refTask.logRegln("Skipping input: " + aLine);
+			refTask.logRegln("\tJRE version has not been specifed. Missing input line: jre,<jreVersion>");
+			return false;
+		}
+
+		/**
+		 * Helper method that handles the 'delta' command.
+		 */
+		private void handleDelta(CatalogLine aLine)
+		{
+			if (aLine.getNumFields(7) != 7)
+			{
+				refTask.logRegln("Unreconized line: " + aLine);
+				return;
+			}
+
+			if (checkVersion(aLine) == false)
+				return;
+
+			Architecture architecture = ArchitectureUtils.transformToArchitecture(aLine.getField(1));
+			Platform platform = PlatformUtils.transformToPlatform(aLine.getField(2));
+			if (architecture == null || platform == null)
+			{
+				refTask.logRegln("Skipping input: " + aLine);
+				refTask.logRegln("\tFailed to determine the target system of the JRE delta.");
+				return;
+			}
+
+			// Form the JreDelta
+			JreVersion srcVersion = new JreVersion(aLine.getField(3));
+			String filename = aLine.getField(4);
+			Digest tmpDigest = aLine.getDigest(5);
+			long fileLen = aLine.getLong(6, -1);
+			deltaM.computeIfAbsent(version, aKey -> new ArrayList<>())
+					.add(new JreDelta(architecture, platform, srcVersion, filename, tmpDigest, fileLen));
+		}
+
+		/**
+		 * Helper method that handles the 'F' command.
+		 */
+		private void handleFile(CatalogLine aLine)
+		{
+			if (checkVersion(aLine) == false)
+				return;
+
+			// Parse the JRE release
+			Architecture architecture;
+			Platform platform;
+			String filename;
+			Digest tmpDigest;
+			long fileLen;
+
+			int numFields = aLine.getNumFields(6);
+			if (numFields == 6)
+			{
+				architecture = ArchitectureUtils.transformToArchitecture(aLine.getField(1));
+				if (architecture == null)
+				{
+					refTask.logRegln("Skipping input: " + aLine);
+					refTask.logRegln("\tFailed to determine the target architecture of the JRE.");
+					return;
+				}
+
+				platform = PlatformUtils.transformToPlatform(aLine.getField(2));
+				filename = aLine.getField(3);
+				tmpDigest = aLine.getDigest(4);
+				fileLen = aLine.getLong(5, -1);
+			}
+			else if (numFields == 5)
+			{
+				architecture = Architecture.x64;
+				tmpDigest = aLine.getDigest(1);
+				fileLen = aLine.getLong(2, -1);
+				platform = PlatformUtils.transformToPlatform(aLine.getField(3));
+				filename = aLine.getFieldRest(4);
+			}
+			else // numFields == 4
+			{
+				architecture = Architecture.x64;
+				tmpDigest = aLine.getDigest(1);
+				fileLen = aLine.getLong(2, -1);
+				filename = aLine.getFieldRest(3);
+				platform = JreUtils.getPlatformOfJreTarGz(filename);
+			}
+
+			if (platform == null)
+			{
+				refTask.logRegln("Skipping input: " + aLine);
+				refTask.logRegln("\tFailed to determine the target platform of the JRE.");
+				return;
+			}
+
+			// Form the JreRelease
+			workL.add(new JreRelease(architecture, platform, version, filename, tmpDigest, fileLen, null, alMinVer,
+					alMaxVer, Collections.emptyList()));
+		}
+
+		/**
+		 * Helper method that handles the 'variant' command.
+		 */
+		private void handleVariant(CatalogLine aLine)
+		{
+			if (aLine.getNumFields(7) != 7)
+			{
+				refTask.logRegln("Unreconized line: " + aLine);
+				return;
+			}
+
+			if (checkVersion(aLine) == false)
+				return;
+
+			Architecture architecture = ArchitectureUtils.transformToArchitecture(aLine.getField(1));
+			Platform platform = PlatformUtils.transformToPlatform(aLine.getField(2));
+			if (architecture == null || platform == null)
+			{
+				refTask.logRegln("Skipping input: " + aLine);
+				refTask.logRegln("\tFailed to determine the target system of the JRE variant.");
+				return;
+			}
+
+			// Form the JreRelease
+			String variant = aLine.getField(3);
+			String filename = aLine.getField(4);
+			Digest tmpDigest = aLine.getDigest(5);
+			long fileLen = aLine.getLong(6, -1);
+			workL.add(new JreRelease(architecture, platform, version, filename, tmpDigest, fileLen, variant, alMinVer,
+					alMaxVer, Collections.emptyList()));
+		}
+	}
+
 }
@@ -69,6 +69,23 @@ public class JreVersion implements Comparable<JreVersion>, Version
 		return label;
 	}
 
+	/**
+	 * Utility method that returns true if aJreVer satisfies the specified JRE requirements. The minimum (aMinJreVer) and
+	 * maximum (aMaxJreVer) versions are optional and may be null.
+	 */
+	public static boolean isCompatible(JreVersion aJreVer, JreVersion aMinJreVer, JreVersion aMaxJreVer)
+	{
+		// Check to make sure aJreVer is not too old
+		if (aMinJreVer != null && getBetterVersion(aMinJreVer, aJreVer) == aMinJreVer)
+			return false;
+
+		// Check to make sure aJreVer is not too new
+		if (aMaxJreVer != null && getBetterVersion(aMaxJreVer, aJreVer) == aJreVer)
+			return false;
+
+		return true;
+	}
+
 	/**
 	 * Utility method that returns the better version.
 	 * <p>
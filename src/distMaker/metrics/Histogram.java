@@ -0,0 +1,163 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe histogram of (non negative) long values.
+ * <p>
+ * The values are recorded into log-linear buckets: each power of 2 is split into 8 (linear) sub-buckets. Thus the
+ * reported percentiles are within 12.5% of the actual value. The count, sum, and maximum are exact. Recording a value
+ * does not allocate or lock.
+ *
+ * @author lopeznr1
+ */
+public class Histogram
+{
+	/** The number of (linear) sub-buckets per power of 2. */
+	private static final int SubBits = 3;
+	private static final int NumSubs = 1 << SubBits;
+	private static final int NumBuckets = (64 - SubBits) * NumSubs;
+
+	// State vars
+	private final AtomicLongArray countArr;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final LongAccumulator max;
+
+	/**
+	 * Standard Constructor
+	 */
+	public Histogram()
+	{
+		countArr = new AtomicLongArray(NumBuckets);
+		count = new LongAdder();
+		sum = new LongAdder();
+		max = new LongAccumulator(Math::max, 0L);
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 */
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded values. Returns 0 if no values have been recorded.
+	 */
+	public long getMean()
+	{
+		long tmpCount = count.sum();
+		if (tmpCount == 0)
+			return 0;
+
+		return sum.sum() / tmpCount;
+	}
+
+	/**
+	 * Returns the (approximate) value at the specified percentile [0.0, 1.0]. Returns 0 if no values have been recorded.
+	 */
+	public long getPercentile(double aPercentile)
+	{
+		long tmpCount = 0;
+		for (int c1 = 0; c1 < NumBuckets; c1++)
+			tmpCount += countArr.get(c1);
+		if (tmpCount == 0)
+			return 0;
+
+		long targCount = Math.max(1, (long) Math.ceil(tmpCount * aPercentile));
+		long cumCount = 0;
+		for (int c1 = 0; c1 < NumBuckets; c1++)
+		{
+			cumCount += countArr.get(c1);
+			if (cumCount >= targCount)
+				return Math.min(getUpperBound(c1), getMax());
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Returns the sum of the recorded values.
+	 */
+	public long getSum()
+	{
+		return sum.sum();
+	}
+
+	/**
+	 * Records the specified value. Negative values are recorded as 0.
+	 */
+	public void record(long aValue)
+	{
+		aValue = Math.max(0, aValue);
+
+		countArr.incrementAndGet(getBucketIndex(aValue));
+		count.increment();
+		sum.add(aValue);
+		max.accumulate(aValue);
+	}
+
+	/**
+	 * Resets the histogram.
+	 */
+	public void reset()
+	{
+		for (int c1 = 0; c1 < NumBuckets; c1++)
+			countArr.set(c1, 0);
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * Helper method that returns the index of the bucket associated with the specified (non negative) value.
+	 */
+	private static int getBucketIndex(long aValue)
+	{
+		if (aValue < NumSubs)
+			return (int) aValue;
+
+		int exp = 63 - Long.numberOfLeadingZeros(aValue);
+		int sub = (int) (aValue >>> (exp - SubBits)) - NumSubs;
+		return (exp - SubBits + 1) * NumSubs + sub;
+	}
+
+	/**
+	 * Helper method that returns the largest value associated with the specified bucket.
+	 */
+	private static long getUpperBound(int aIdx)
+	{
+		if (aIdx < NumSubs)
+			return aIdx;
+
+		int exp = aIdx / NumSubs + SubBits - 1;
+		long mantissa = aIdx % NumSubs + NumSubs;
+		return ((mantissa + 1) << (exp - SubBits)) - 1;
+	}
+
+}
@@ -0,0 +1,34 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.metrics;
+
+import java.util.Map;
+
+/**
+ * Interface that allows the update metrics to be published to an external system (ex: a fleet monitoring service).
+ * <p>
+ * Sinks are registered via {@link UpdateMetrics#addSink(MetricsSink)} and are published to at the end of each update
+ * (see {@link UpdateMetrics#recordUpdate(boolean)}) or on request (see {@link UpdateMetrics#publish()}). A sink is
+ * called on the thread that performed the update and thus should not block for long periods of time.
+ *
+ * @author lopeznr1
+ */
+public interface MetricsSink
+{
+	/**
+	 * Publishes the specified snapshot of the metrics. See {@link UpdateMetrics#getSnapshot()} for the list of keys.
+	 */
+	public void publish(Map<String, Long> aMetricM);
+
+}
@@ -0,0 +1,100 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.metrics;
+
+/**
+ * Thread safe meter that tracks the (current) rate of a quantity (ex: bytes per second) over a sliding window.
+ * <p>
+ * The window consists of {@value #NumSlots} one second slots. The rate is computed over the portion of the window that
+ * has elapsed since the first (recent) sample so that the rate is not understated when activity has just started.
+ *
+ * @author lopeznr1
+ */
+public class RateMeter
+{
+	/** The number of (one second) slots of the window. */
+	public static final int NumSlots = 10;
+
+	// State vars
+	private final long[] amountArr;
+	private final long[] secondArr;
+
+	/**
+	 * Standard Constructor
+	 */
+	public RateMeter()
+	{
+		amountArr = new long[NumSlots];
+		secondArr = new long[NumSlots];
+		reset();
+	}
+
+	/**
+	 * Records the specified amount (at the current time).
+	 */
+	public synchronized void add(long aAmount)
+	{
+		long currSec = getCurrSecond();
+		int idx = (int) Math.floorMod(currSec, (long) NumSlots);
+		if (secondArr[idx] != currSec)
+		{
+			secondArr[idx] = currSec;
+			amountArr[idx] = 0;
+		}
+
+		amountArr[idx] += aAmount;
+	}
+
+	/**
+	 * Returns the rate (amount per second) over the sliding window. Returns 0 if there has been no recent activity.
+	 */
+	public synchronized long getRate()
+	{
+		long currSec = getCurrSecond();
+
+		long sumAmount = 0;
+		long oldestSec = currSec;
+		for (int c1 = 0; c1 < NumSlots; c1++)
+		{
+			if (secondArr[c1] <= currSec - NumSlots)
+				continue;
+
+			sumAmount += amountArr[c1];
+			oldestSec = Math.min(oldestSec, secondArr[c1]);
+		}
+
+		return sumAmount / (currSec - oldestSec + 1);
+	}
+
+	/**
+	 * Resets the meter.
+	 */
+	public synchronized void reset()
+	{
+		for (int c1 = 0; c1 < NumSlots; c1++)
+		{
+			amountArr[c1] = 0;
+			secondArr[c1] = Long.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * Helper method that returns the current (monotonic) time in seconds.
+	 */
+	private static long getCurrSecond()
+	{
+		return System.nanoTime() / 1000000000L;
+	}
+
+}
@@ -0,0 +1,358 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.*;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Collection of utility methods that provide the registry of the update (and transfer) metrics.
+ * <p>
+ * The following is tracked (across all updates performed by the JVM):
+ * <ul>
+ * <li>Counters: bytes / files downloaded vs reused, retries, digest failures, and updates (and failures).
+ * <li>Histograms: the (per file) download latency and the time spent in each {@link UpdatePhase}.
+ * <li>Rate: the current download throughput (see {@link RateMeter}).
+ * </ul>
+ * The metrics are published via JMX (see {@link #registerMBean()}) and to any registered {@link MetricsSink}.
+ * <p>
+ * Recording a metric is cheap (no locks or allocation on the common path) and thus is always enabled.
+ *
+ * @author lopeznr1
+ */
+public class UpdateMetrics
+{
+	/** The (JMX) object name of the metrics MBean. */
+	public static final String ObjectNameStr = "distMaker:type=UpdateMetrics";
+
+	// State vars
+	private static final LongAdder bytesDownloaded = new LongAdder();
+	private static final LongAdder bytesReused = new LongAdder();
+	private static final LongAdder filesDownloaded = new LongAdder();
+	private static final LongAdder filesReused = new LongAdder();
+	private static final LongAdder numRetries = new LongAdder();
+	private static final LongAdder numDigestFailures = new LongAdder();
+	private static final LongAdder numUpdates = new LongAdder();
+	private static final LongAdder numUpdateFailures = new LongAdder();
+	private static final Histogram fileLatencyH = new Histogram();
+	private static final Map<UpdatePhase, Histogram> phaseM = formPhaseMap();
+	private static final RateMeter throughputRM = new RateMeter();
+	private static final List<MetricsSink> sinkL = new CopyOnWriteArrayList<>();
+	private static boolean isRegistered = false;
+
+	/**
+	 * Registers the specified sink. The sink will be published to at the end of every update.
+	 */
+	public static void addSink(MetricsSink aSink)
+	{
+		sinkL.add(aSink);
+	}
+
+	/**
+	 * Deregisters the specified sink.
+	 */
+	public static void removeSink(MetricsSink aSink)
+	{
+		sinkL.remove(aSink);
+	}
+
+	/**
+	 * Returns a snapshot of all of the metrics. The keys are (in order):
+	 * <ul>
+	 * <li>bytesDownloaded, bytesReused, filesDownloaded, filesReused
+	 * <li>retries, digestFailures, updates, updateFailures
+	 * <li>throughput (bytes per second)
+	 * <li>fileLatency.[count|mean|p50|p95|p99|max] (ms)
+	 * <li>phase.{@literal <phase>}.[count|total|max] (ms). See {@link UpdatePhase#getKey()}.
+	 * </ul>
+	 */
+	public static Map<String, Long> getSnapshot()
+	{
+		ImmutableMap.Builder<String, Long> retB = ImmutableMap.builder();
+		retB.put("bytesDownloaded", bytesDownloaded.sum());
+		retB.put("bytesReused", bytesReused.sum());
+		retB.put("filesDownloaded", filesDownloaded.sum());
+		retB.put("filesReused", filesReused.sum());
+		retB.put("retries", numRetries.sum());
+		retB.put("digestFailures", numDigestFailures.sum());
+		retB.put("updates", numUpdates.sum());
+		retB.put("updateFailures", numUpdateFailures.sum());
+		retB.put("throughput", throughputRM.getRate());
+
+		retB.put("fileLatency.count", fileLatencyH.getCount());
+		retB.put("fileLatency.mean", fileLatencyH.getMean());
+		retB.put("fileLatency.p50", fileLatencyH.getPercentile(0.50));
+		retB.put("fileLatency.p95", fileLatencyH.getPercentile(0.95));
+		retB.put("fileLatency.p99", fileLatencyH.getPercentile(0.99));
+		retB.put("fileLatency.max", fileLatencyH.getMax());
+
+		for (UpdatePhase aPhase : UpdatePhase.values())
+		{
+			Histogram tmpH = phaseM.get(aPhase);
+			String prefix = "phase." + aPhase.getKey();
+			retB.put(prefix + ".count", tmpH.getCount());
+			retB.put(prefix + ".total", tmpH.getSum());
+			retB.put(prefix + ".max", tmpH.getMax());
+		}
+
+		return retB.build();
+	}
+
+	/**
+	 * Publishes a snapshot of the metrics to all registered sinks. A failure of a sink does not affect the other sinks.
+	 */
+	public static void publish()
+	{
+		if (sinkL.isEmpty() == true)
+			return;
+
+		Map<String, Long> tmpSnapshotM = getSnapshot();
+		for (MetricsSink aSink : sinkL)
+		{
+			try
+			{
+				aSink.publish(tmpSnapshotM);
+			}
+			catch (RuntimeException aExp)
+			{
+				System.err.println("Failed to publish update metrics to sink: " + aSink);
+				aExp.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Records the download of the specified number of bytes (ex: a catalog or a JRE).
+	 */
+	public static void recordDownload(long aBytes)
+	{
+		bytesDownloaded.add(aBytes);
+		throughputRM.add(aBytes);
+	}
+
+	/**
+	 * Records the download of a (single application) file with the specified number of bytes. The download took aNanos
+	 * nanoseconds.
+	 */
+	public static void recordFileDownload(long aBytes, long aNanos)
+	{
+		recordDownload(aBytes);
+		filesDownloaded.increment();
+		fileLatencyH.record(aNanos / 1000000L);
+	}
+
+	/**
+	 * Records a transfer whose content did not match the expected digest.
+	 */
+	public static void recordDigestFailure()
+	{
+		numDigestFailures.increment();
+	}
+
+	/**
+	 * Records the time spent (nanoseconds) in the specified phase.
+	 */
+	public static void recordPhase(UpdatePhase aPhase, long aNanos)
+	{
+		phaseM.get(aPhase).record(aNanos / 1000000L);
+	}
+
+	/**
+	 * Records a transfer that will be attempted again (via an alternate source) after a failure.
+	 */
+	public static void recordRetry()
+	{
+		numRetries.increment();
+	}
+
+	/**
+	 * Records the reuse (local copy) of a file with the specified number of bytes.
+	 */
+	public static void recordReuse(long aBytes)
+	{
+		bytesReused.add(aBytes);
+		filesReused.increment();
+	}
+
+	/**
+	 * Records the completion of an update and publishes the metrics to all registered sinks.
+	 */
+	public static void recordUpdate(boolean aIsPass)
+	{
+		numUpdates.increment();
+		if (aIsPass == false)
+			numUpdateFailures.increment();
+
+		publish();
+	}
+
+	/**
+	 * Registers the metrics MBean with the platform MBean server. Subsequent calls have no effect.
+	 * <p>
+	 * Failure to register the MBean is logged but otherwise ignored.
+	 */
+	public static synchronized void registerMBean()
+	{
+		if (isRegistered == true)
+			return;
+
+		try
+		{
+			ObjectName tmpObjectName = new ObjectName(ObjectNameStr);
+			MBeanServer tmpServer = ManagementFactory.getPlatformMBeanServer();
+			if (tmpServer.isRegistered(tmpObjectName) == false)
+				tmpServer.registerMBean(new MetricsBean(), tmpObjectName);
+			isRegistered = true;
+		}
+		catch (JMException aExp)
+		{
+			System.err.println("Failed to register the update metrics MBean: " + ObjectNameStr);
+			aExp.printStackTrace();
+		}
+	}
+
+	/**
+	 * Resets all of the metrics. The registered sinks are retained.
+	 */
+	public static void reset()
+	{
+		bytesDownloaded.reset();
+		bytesReused.reset();
+		filesDownloaded.reset();
+		filesReused.reset();
+		numRetries.reset();
+		numDigestFailures.reset();
+		numUpdates.reset();
+		numUpdateFailures.reset();
+		fileLatencyH.reset();
+		for (Histogram aHistogram : phaseM.values())
+			aHistogram.reset();
+		throughputRM.reset();
+	}
+
+	/**
+	 * Helper method that forms the mapping of phase to (timing) histogram.
+	 */
+	private static Map<UpdatePhase, Histogram> formPhaseMap()
+	{
+		Map<UpdatePhase, Histogram> retM = new EnumMap<>(UpdatePhase.class);
+		for (UpdatePhase aPhase : UpdatePhase.values())
+			retM.put(aPhase, new Histogram());
+
+		return retM;
+	}
+
+	/**
+	 * Implementation of the {@link UpdateMetricsMXBean} which exposes the (static) metrics.
+	 */
+	private static class MetricsBean implements UpdateMetricsMXBean
+	{
+		@Override
+		public long getBytesDownloaded()
+		{
+			return bytesDownloaded.sum();
+		}
+
+		@Override
+		public long getBytesReused()
+		{
+			return bytesReused.sum();
+		}
+
+		@Override
+		public long getFilesDownloaded()
+		{
+			return filesDownloaded.sum();
+		}
+
+		@Override
+		public long getFilesReused()
+		{
+			return filesReused.sum();
+		}
+
+		@Override
+		public long getRetryCount()
+		{
+			return numRetries.sum();
+		}
+
+		@Override
+		public long getDigestFailureCount()
+		{
+			return numDigestFailures.sum();
+		}
+
+		@Override
+		public long getUpdateCount()
+		{
+			return numUpdates.sum();
+		}
+
+		@Override
+		public long getUpdateFailureCount()
+		{
+			return numUpdateFailures.sum();
+		}
+
+		@Override
+		public long getThroughput()
+		{
+			return throughputRM.getRate();
+		}
+
+		@Override
+		public long getFileLatencyP50()
+		{
+			return fileLatencyH.getPercentile(0.50);
+		}
+
+		@Override
+		public long getFileLatencyP95()
+		{
+			return fileLatencyH.getPercentile(0.95);
+		}
+
+		@Override
+		public long getFileLatencyP99()
+		{
+			return fileLatencyH.getPercentile(0.99);
+		}
+
+		@Override
+		public long getFileLatencyMax()
+		{
+			return fileLatencyH.getMax();
+		}
+
+		@Override
+		public Map<String, Long> getSnapshot()
+		{
+			return UpdateMetrics.getSnapshot();
+		}
+
+		@Override
+		public void reset()
+		{
+			UpdateMetrics.reset();
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX interface of the update (and transfer) metrics. See {@link UpdateMetrics}.
+ * <p>
+ * The MBean is registered (with the platform MBean server) under the name: {@value UpdateMetrics#ObjectNameStr}
+ *
+ * @author lopeznr1
+ */
+public interface UpdateMetricsMXBean
+{
+	/**
+	 * Returns the number of bytes that were downloaded.
+	 */
+	public long getBytesDownloaded();
+
+	/**
+	 * Returns the number of bytes that were reused (copied) from the installed release.
+	 */
+	public long getBytesReused();
+
+	/**
+	 * Returns the number of files that were downloaded.
+	 */
+	public long getFilesDownloaded();
+
+	/**
+	 * Returns the number of files that were reused (copied) from the installed release.
+	 */
+	public long getFilesReused();
+
+	/**
+	 * Returns the number of transfers that were attempted again (via an alternate source) after a failure.
+	 */
+	public long getRetryCount();
+
+	/**
+	 * Returns the number of transfers whose content did not match the expected digest.
+	 */
+	public long getDigestFailureCount();
+
+	/**
+	 * Returns the number of updates that were performed.
+	 */
+	public long getUpdateCount();
+
+	/**
+	 * Returns the number of updates that failed.
+	 */
+	public long getUpdateFailureCount();
+
+	/**
+	 * Returns the current download throughput (bytes per second).
+	 */
+	public long getThroughput();
+
+	/**
+	 * Returns the 50th percentile of the (per file) download latency (ms).
+	 */
+	public long getFileLatencyP50();
+
+	/**
+	 * Returns the 95th percentile of the (per file) download latency (ms).
+	 */
+	public long getFileLatencyP95();
+
+	/**
+	 * Returns the 99th percentile of the (per file) download latency (ms).
+	 */
+	public long getFileLatencyP99();
+
+	/**
+	 * Returns the maximum (per file) download latency (ms).
+	 */
+	public long getFileLatencyMax();
+
+	/**
+	 * Returns the full snapshot of the metrics. See {@link UpdateMetrics#getSnapshot()}.
+	 */
+	public Map<String, Long> getSnapshot();
+
+	/**
+	 * Resets all of the metrics.
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,52 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.metrics;
+
+/**
+ * Enum that defines the (timed) phases of an update.
+ *
+ * @author lopeznr1
+ */
+public enum UpdatePhase
+{
+	/** Retrieval (and parsing) of the update catalog. */
+	Catalog,
+
+	/** Planning of the release to be staged. */
+	Plan,
+
+	/** Staging (reuse or download) of the application's nodes. */
+	Stage,
+
+	/** Retrieval (and unpacking) of a JRE. Note this spans the {@link #AppLauncher} phase (if any). */
+	Jre,
+
+	/** Retrieval of an AppLauncher. */
+	AppLauncher,
+
+	/** Rewrite of the application configuration. */
+	Config,
+
+	/** Removal of the delta (staging) folder. */
+	Cleanup;
+
+	/**
+	 * Returns the key (lower camel case) used to identify the phase in a metrics snapshot.
+	 */
+	public String getKey()
+	{
+		return Character.toLowerCase(name().charAt(0)) + name().substring(1);
+	}
+
+}
@@ -13,16 +13,20 @@
 // limitations under the License.
 package distMaker.node;
 
+import java.net.URL;
 import java.util.*;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 
 import distMaker.jre.JreRelease;
 import distMaker.jre.JreVersion;
 
 /**
  * Object that describes the structure (files, folders, and JRE version) of a Java application.
+ * <p>
+ * The nodes are either held in a compact in-memory form (parsed from catalog.txt, see {@link CompactCatalog}) or backed
+ * by a memory-mapped binary catalog (see {@link MappedCatalog}). In either case nodes are located via a binary search
+ * and formed on demand.
  *
  * @author lopeznr1
  */
@@ -34,20 +38,66 @@ public class AppCatalog
 	/** The maximum JRE version allowed. This will be null if there is no maximum. */
 	private JreVersion maxJreVer;
 
-	/** A mapping of filename to to corresponding Node */
-	private ImmutableMap<String, Node> nodeM;
+	/** The preferred JRE variant. This will be null if there is no preferred variant. */
+	private String jreVariant;
 
+	/** The modules required of the JRE (variant). This will be empty if no modules were recorded. */
+	private List<String> jreModuleL;
+
+	/** The compact (in memory) catalog. This will be null if the catalog is memory-mapped. */
+	private CompactCatalog compactCat;
+
+	/** The memory-mapped binary catalog. This will be null if the nodes are held in memory. */
+	private MappedCatalog mappedCat;
+
+	/**
+	 * Constructor that forms an AppCatalog from the specified list of nodes. The nodes are transferred into a
+	 * {@link CompactCatalog}.
+	 * <p>
+	 * Throws an IllegalArgumentException if the nodes can not be held in a {@link CompactCatalog}: nodes other than
+	 * {@link FileNode} and {@link PathNode}, file nodes with differing root URLs or mixed digest types.
+	 */
 	public AppCatalog(List<Node> aNodeL, JreVersion aMinJreVer, JreVersion aMaxJreVer)
+	{
+		this(formCompactCatalog(aNodeL), aMinJreVer, aMaxJreVer, null, List.of());
+	}
+
+	/**
+	 * Constructor that forms an AppCatalog backed by the specified (in memory) compact catalog.
+	 */
+	public AppCatalog(CompactCatalog aCompactCat, JreVersion aMinJreVer, JreVersion aMaxJreVer, String aJreVariant,
+			List<String> aJreModuleL)
 	{
 		minJreVer = aMinJreVer;
 		maxJreVer = aMaxJreVer;
-		nodeM = ImmutableMap.copyOf(formNameMap(aNodeL));
+		jreVariant = aJreVariant;
+		jreModuleL = List.copyOf(aJreModuleL);
+		compactCat = aCompactCat;
+		mappedCat = null;
+	}
+
+	/**
+	 * Constructor that forms an AppCatalog backed by the specified (memory-mapped) binary catalog.
+	 */
+	public AppCatalog(MappedCatalog aMappedCat)
+	{
+		String tmpLabel = aMappedCat.getMinJreLabel();
+		minJreVer = tmpLabel != null ? new JreVersion(tmpLabel) : null;
+		tmpLabel = aMappedCat.getMaxJreLabel();
+		maxJreVer = tmpLabel != null ? new JreVersion(tmpLabel) : null;
+		jreVariant = aMappedCat.getJreVariant();
+		jreModuleL = aMappedCat.getJreModules();
+		compactCat = null;
+		mappedCat = aMappedCat;
 	}
 
 	/**
 	 * Returns the most recent {@link JreRelease} from the specified list that is compatible with this
 	 * {@link AppCatalog}.
 	 * <p>
+	 * Releases of the preferred JRE variant take precedence over standard releases. Releases of any other variant will
+	 * never be selected.
+	 * <p>
 	 * Returns null if there are no {@link JreRelease} that is compatible.
 	 */
 	public JreRelease getCompatibleJre(List<JreRelease> aJreL)
@@ -56,20 +106,50 @@ public class AppCatalog
 		Collections.sort(aJreL);
 		Collections.reverse(aJreL);
 
-		for (JreRelease aRelease : aJreL)
+		// Attempt to locate the preferred variant first and then fall back to the standard releases
+		List<String> variantL = new ArrayList<>();
+		if (jreVariant != null)
+			variantL.add(jreVariant);
+		variantL.add(null);
+
+		for (String aVariant : variantL)
 		{
-			if (isJreVersionTooNew(aRelease.getVersion()) == true)
-				continue;
+			for (JreRelease aRelease : aJreL)
+			{
+				if (Objects.equals(aRelease.getVariant(), aVariant) == false)
+					continue;
 
-			if (isJreVersionTooOld(aRelease.getVersion()) == true)
-				continue;
+				if (isJreVersionTooNew(aRelease.getVersion()) == true)
+					continue;
+
+				if (isJreVersionTooOld(aRelease.getVersion()) == true)
+					continue;
 
-			return aRelease;
+				return aRelease;
+			}
 		}
 
 		return null;
 	}
 
+	/**
+	 * Returns the (read only) list of modules required of the JRE. The list will be empty if no modules were recorded.
+	 */
+	public List<String> getJreModules()
+	{
+		return jreModuleL;
+	}
+
+	/**
+	 * Returns the preferred JRE variant.
+	 * <p>
+	 * Returns null if there is no preferred variant.
+	 */
+	public String getJreVariant()
+	{
+		return jreVariant;
+	}
+
 	/**
 	 * Returns the minimum JreVersion that is compatible.
 	 */
@@ -88,16 +168,7 @@ public class AppCatalog
 
 	public boolean isJreVersionCompatible(JreVersion aJreVer)
 	{
-		// Check to make sure aJreVer is not too old
-		if (isJreVersionTooOld(aJreVer) == true)
-			return false;
-
-		// Check to make sure aJreVer is not too new
-		if (isJreVersionTooNew(aJreVer) == true)
-			return false;
-
-		// The version aJreVer must be compatible
-		return true;
+		return JreVersion.isCompatible(aJreVer, minJreVer, maxJreVer);
 	}
 
 	/**
@@ -105,11 +176,7 @@ public class AppCatalog
 	 */
 	public boolean isJreVersionTooNew(JreVersion aJreVer)
 	{
-		// Check to make sure aJreVer is not too new
-		if (maxJreVer != null && JreVersion.getBetterVersion(maxJreVer, aJreVer) == aJreVer)
-			return true;
-
-		return false;
+		return JreVersion.isCompatible(aJreVer, null, maxJreVer) == false;
 	}
 
 	/**
@@ -117,11 +184,7 @@ public class AppCatalog
 	 */
 	public boolean isJreVersionTooOld(JreVersion aJreVer)
 	{
-		// Check to make sure aJreVer is not too old
-		if (minJreVer != null && JreVersion.getBetterVersion(minJreVer, aJreVer) == minJreVer)
-			return true;
-
-		return false;
+		return JreVersion.isCompatible(aJreVer, minJreVer, null) == false;
 	}
 
 	/**
@@ -129,32 +192,87 @@ public class AppCatalog
 	 */
 	public Node getNode(String aName)
 	{
-		return nodeM.get(aName);
+		if (mappedCat != null)
+			return mappedCat.getNode(aName);
+
+		return compactCat.getNode(aName);
 	}
 
 	/**
 	 * Returns the full list of Nodes
+	 * <p>
+	 * Note all of the nodes are formed and copied. Prefer {@link #getNodeList()} when the nodes are just iterated over.
 	 */
 	public ImmutableList<Node> getAllNodesList()
 	{
-		return nodeM.values().asList();
+		return ImmutableList.copyOf(getNodeList());
+	}
+
+	/**
+	 * Returns a (read only) view of the full list of Nodes. The Nodes are returned in path order and are formed on
+	 * demand.
+	 */
+	public List<Node> getNodeList()
+	{
+		if (mappedCat != null)
+			return mappedCat.getNodeList();
+
+		return compactCat.getNodeList();
 	}
 
 	/**
-	 * Helper method to form the map used to quickly locate a Node with the corresponding filename.
+	 * Returns all of the Nodes (at any depth) located under the specified folder. The Nodes are returned in path order
+	 * and the folder itself is not included.
 	 * <p>
-	 * TODO: This should be renamed formNameMap to formDigestMap<br>
-	 * TODO: This should probably be a mapping of Digest to Node rather than filename to Node
+	 * An empty folder path refers to the root of the catalog.
 	 */
-	private Map<String, Node> formNameMap(List<Node> aNodeL)
+	public List<Node> getNodesUnder(String aDirPath)
 	{
-		Map<String, Node> retM;
+		if (mappedCat != null)
+			return mappedCat.getNodesUnder(aDirPath);
 
-		retM = new LinkedHashMap<>();
+		return compactCat.getNodesUnder(aDirPath);
+	}
+
+	/**
+	 * Utility helper method that transfers the specified nodes into a {@link CompactCatalog}.
+	 */
+	private static CompactCatalog formCompactCatalog(List<Node> aNodeL)
+	{
+		// Determine the root URL (shared by all of the file nodes)
+		URL rootUrl = null;
+		for (Node aNode : aNodeL)
+		{
+			if (aNode instanceof FileNode == false)
+				continue;
+
+			rootUrl = ((FileNode) aNode).getRootUrl();
+			break;
+		}
+
+		CompactCatalog.Builder tmpBuilder = new CompactCatalog.Builder(rootUrl);
 		for (Node aNode : aNodeL)
-			retM.put(aNode.getFileName(), aNode);
+		{
+			if (aNode instanceof FileNode)
+			{
+				FileNode tmpFileNode = (FileNode) aNode;
+				if (Objects.equals(tmpFileNode.getRootUrl(), rootUrl) == false)
+					throw new IllegalArgumentException("Mixed root URLs are not supported: " + rootUrl + " and "
+							+ tmpFileNode.getRootUrl());
+
+				tmpBuilder.addFile(tmpFileNode.getFileName(), tmpFileNode.getDigest(), tmpFileNode.getFileLen());
+			}
+			else if (aNode instanceof PathNode)
+			{
+				tmpBuilder.addPath(aNode.getFileName());
+			}
+			else
+			{
+				throw new IllegalArgumentException("Unsupported node: " + aNode.getClass().getName());
+			}
+		}
 
-		return retM;
+		return tmpBuilder.build();
 	}
 
 }
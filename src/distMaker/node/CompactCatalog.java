@@ -0,0 +1,433 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.node;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import glum.digest.Digest;
+import glum.digest.DigestType;
+
+/**
+ * Immutable, compact (in memory) representation of the nodes of an app catalog.
+ * <p>
+ * Rather than holding a {@link Node} (with its own path, URL, and {@link Digest}) per entry, the nodes are held in a few
+ * flat arrays and are formed on demand:
+ * <ul>
+ * <li>The paths are sorted (by their UTF-8 bytes) and front-coded. The paths are grouped into buckets of
+ * {@value #BucketSize}. The first path of a bucket is stored in full while each subsequent path is stored as the length
+ * of the prefix shared with the prior path followed by the remaining suffix.
+ * <li>The digests are stored in a single contiguous array (sorted order). Folders have a zero filled digest.
+ * <li>The file lengths are stored in a long[] (sorted order). Folders have a length of -1.
+ * <li>The catalog order is stored as an int[] of sorted indexes.
+ * </ul>
+ * A node is located via a binary search of the buckets followed by a (short) linear scan. Since the paths are sorted,
+ * all of the nodes under a folder are contiguous and may be retrieved via {@link #getNodesUnder(String)}.
+ * <p>
+ * Instances are formed via a {@link Builder}.
+ *
+ * @author lopeznr1
+ */
+public class CompactCatalog
+{
+	/** The number of paths per (front-coded) bucket. */
+	private static final int BucketSize = 16;
+
+	// Attributes
+	private final URL rootUrl;
+	private final DigestType digestType;
+	private final int digestLen;
+	private final int numNodes;
+	private final byte[] pathArr;
+	private final int[] bucketPosArr;
+	private final byte[] digestArr;
+	private final long[] fileLenArr;
+	private final int[] orderArr;
+
+	/**
+	 * Standard Constructor
+	 */
+	private CompactCatalog(URL aRootUrl, DigestType aDigestType, int aDigestLen, int aNumNodes, byte[] aPathArr,
+			int[] aBucketPosArr, byte[] aDigestArr, long[] aFileLenArr, int[] aOrderArr)
+	{
+		rootUrl = aRootUrl;
+		digestType = aDigestType;
+		digestLen = aDigestLen;
+		numNodes = aNumNodes;
+		pathArr = aPathArr;
+		bucketPosArr = aBucketPosArr;
+		digestArr = aDigestArr;
+		fileLenArr = aFileLenArr;
+		orderArr = aOrderArr;
+	}
+
+	/**
+	 * Returns the Node corresponding to the specified path. Returns null if there is no such node.
+	 */
+	public Node getNode(String aName)
+	{
+		byte[] keyArr = aName.getBytes(StandardCharsets.UTF_8);
+		int tmpIdx = findLowerBound(keyArr);
+		if (tmpIdx == numNodes || Arrays.equals(getPath(tmpIdx), keyArr) == false)
+			return null;
+
+		return formNode(tmpIdx);
+	}
+
+	/**
+	 * Returns a (read only) list of all of the nodes in catalog order. The nodes are formed on access.
+	 */
+	public List<Node> getNodeList()
+	{
+		return new AbstractList<Node>() {
+			@Override
+			public Node get(int aIdx)
+			{
+				if (aIdx < 0 || aIdx >= numNodes)
+					throw new IndexOutOfBoundsException("Index: " + aIdx + " Size: " + numNodes);
+
+				return formNode(orderArr[aIdx]);
+			}
+
+			@Override
+			public int size()
+			{
+				return numNodes;
+			}
+		};
+	}
+
+	/**
+	 * Returns all of the nodes (files and folders, at any depth) located under the specified folder. The nodes are
+	 * returned in path order. The folder itself is not included.
+	 * <p>
+	 * An empty folder path refers to the root of the catalog.
+	 */
+	public List<Node> getNodesUnder(String aDirPath)
+	{
+		if (aDirPath.isEmpty() == true)
+		{
+			List<Node> retL = new ArrayList<>(numNodes);
+			for (int c1 = 0; c1 < numNodes; c1++)
+				retL.add(formNode(c1));
+			return retL;
+		}
+
+		byte[] prefixArr = (aDirPath + "/").getBytes(StandardCharsets.UTF_8);
+
+		List<Node> retL = new ArrayList<>();
+		for (int c1 = findLowerBound(prefixArr); c1 < numNodes; c1++)
+		{
+			byte[] tmpPathArr = getPath(c1);
+			if (tmpPathArr.length < prefixArr.length
+					|| Arrays.equals(tmpPathArr, 0, prefixArr.length, prefixArr, 0, prefixArr.length) == false)
+				break;
+
+			retL.add(formNode(c1));
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 */
+	public int getNumNodes()
+	{
+		return numNodes;
+	}
+
+	/**
+	 * Helper method that returns the (sorted) index of the first path that is not less than aKeyArr. Returns the
+	 * number of nodes if all paths are less than aKeyArr.
+	 */
+	private int findLowerBound(byte[] aKeyArr)
+	{
+		// Locate the last bucket whose first path is not greater than the key
+		int lowIdx = 0;
+		int highIdx = bucketPosArr.length - 1;
+		while (lowIdx < highIdx)
+		{
+			int midIdx = (lowIdx + highIdx + 1) >>> 1;
+			if (Arrays.compareUnsigned(getPath(midIdx * BucketSize), aKeyArr) <= 0)
+				lowIdx = midIdx;
+			else
+				highIdx = midIdx - 1;
+		}
+
+		// Scan the bucket
+		int begIdx = lowIdx * BucketSize;
+		int endIdx = Math.min(begIdx + BucketSize, numNodes);
+		PathDecoder tmpDecoder = new PathDecoder(lowIdx);
+		for (int c1 = begIdx; c1 < endIdx; c1++)
+		{
+			if (Arrays.compareUnsigned(tmpDecoder.next(), aKeyArr) >= 0)
+				return c1;
+		}
+
+		return endIdx;
+	}
+
+	/**
+	 * Helper method that forms the Node corresponding to the specified (sorted) index.
+	 */
+	private Node formNode(int aIdx)
+	{
+		String fileName = new String(getPath(aIdx), StandardCharsets.UTF_8);
+		long fileLen = fileLenArr[aIdx];
+		if (fileLen < 0)
+			return new PathNode(rootUrl, fileName);
+
+		int tmpPos = aIdx * digestLen;
+		Digest tmpDigest = new Digest(digestType, Arrays.copyOfRange(digestArr, tmpPos, tmpPos + digestLen));
+		return new FileNode(rootUrl, fileName, tmpDigest, fileLen);
+	}
+
+	/**
+	 * Helper method that returns the (UTF-8) path of the specified (sorted) index.
+	 */
+	private byte[] getPath(int aIdx)
+	{
+		PathDecoder tmpDecoder = new PathDecoder(aIdx / BucketSize);
+		byte[] retArr = tmpDecoder.next();
+		for (int c1 = 0; c1 < aIdx % BucketSize; c1++)
+			retArr = tmpDecoder.next();
+
+		return retArr;
+	}
+
+	/**
+	 * Helper method that writes a (variable length) unsigned int to aBAOS.
+	 */
+	private static void writeVarInt(ByteArrayOutputStream aBAOS, int aVal)
+	{
+		while ((aVal & ~0x7F) != 0)
+		{
+			aBAOS.write((aVal & 0x7F) | 0x80);
+			aVal >>>= 7;
+		}
+		aBAOS.write(aVal);
+	}
+
+	/**
+	 * Helper class that sequentially decodes the (front-coded) paths of a bucket.
+	 */
+	private class PathDecoder
+	{
+		private int pos;
+		private byte[] prevArr;
+
+		private PathDecoder(int aBucketIdx)
+		{
+			pos = bucketPosArr[aBucketIdx];
+			prevArr = null;
+		}
+
+		/**
+		 * Decodes the next path of the bucket.
+		 */
+		private byte[] next()
+		{
+			int sharedLen = prevArr == null ? 0 : readVarInt();
+			int suffixLen = readVarInt();
+
+			byte[] retArr = new byte[sharedLen + suffixLen];
+			if (sharedLen > 0)
+				System.arraycopy(prevArr, 0, retArr, 0, sharedLen);
+			System.arraycopy(pathArr, pos, retArr, sharedLen, suffixLen);
+			pos += suffixLen;
+
+			prevArr = retArr;
+			return retArr;
+		}
+
+		/**
+		 * Reads a (variable length) unsigned int.
+		 */
+		private int readVarInt()
+		{
+			int retVal = 0;
+			for (int shift = 0; ; shift += 7)
+			{
+				byte tmpByte = pathArr[pos++];
+				retVal |= (tmpByte & 0x7F) << shift;
+				if ((tmpByte & 0x80) == 0)
+					return retVal;
+			}
+		}
+	}
+
+	/**
+	 * Builder used to form a {@link CompactCatalog}.
+	 * <p>
+	 * Nodes are added in catalog order. If a path is added more than once then the last node wins but the node retains
+	 * the (catalog order) position of the first occurrence.
+	 */
+	public static class Builder
+	{
+		// Attributes
+		private final URL rootUrl;
+
+		// State vars
+		private final List<byte[]> pathL;
+		private final ByteArrayOutputStream digestBAOS;
+		private long[] fileLenArr;
+		private DigestType digestType;
+		private int digestLen;
+
+		/**
+		 * Standard Constructor
+		 *
+		 * @param aRootUrl
+		 *        The root URL of all of the nodes.
+		 */
+		public Builder(URL aRootUrl)
+		{
+			rootUrl = aRootUrl;
+
+			pathL = new ArrayList<>();
+			digestBAOS = new ByteArrayOutputStream();
+			fileLenArr = new long[64];
+			digestType = null;
+			digestLen = 0;
+		}
+
+		/**
+		 * Adds a file node.
+		 * <p>
+		 * Throws an IllegalArgumentException if the digest type differs from that of the prior file nodes.
+		 */
+		public void addFile(String aFileName, Digest aDigest, long aFileLen)
+		{
+			byte[] tmpDigestArr = aDigest.getValue();
+			if (digestType == null)
+			{
+				digestType = aDigest.getType();
+				digestLen = tmpDigestArr.length;
+
+				// Zero fill the digests of the prior (folder) nodes
+				digestBAOS.writeBytes(new byte[pathL.size() * digestLen]);
+			}
+			else if (digestType != aDigest.getType() || digestLen != tmpDigestArr.length)
+			{
+				throw new IllegalArgumentException("Mixed digest types are not supported: " + digestType + " and "
+						+ aDigest.getType());
+			}
+
+			digestBAOS.writeBytes(tmpDigestArr);
+			addEntry(aFileName, aFileLen);
+		}
+
+		/**
+		 * Adds a folder node.
+		 */
+		public void addPath(String aFileName)
+		{
+			digestBAOS.writeBytes(new byte[digestLen]);
+			addEntry(aFileName, -1L);
+		}
+
+		/**
+		 * Forms the {@link CompactCatalog}.
+		 */
+		public CompactCatalog build()
+		{
+			byte[] srcDigestArr = digestBAOS.toByteArray();
+
+			// Sort the nodes by path (and catalog order)
+			Integer[] sortArr = new Integer[pathL.size()];
+			for (int c1 = 0; c1 < sortArr.length; c1++)
+				sortArr[c1] = c1;
+			Arrays.sort(sortArr, (aIdx1, aIdx2) -> {
+				int cmpVal = Arrays.compareUnsigned(pathL.get(aIdx1), pathL.get(aIdx2));
+				if (cmpVal != 0)
+					return cmpVal;
+				return Integer.compare(aIdx1, aIdx2);
+			});
+
+			// Remove duplicates: The last node wins but the position of the first node is retained
+			List<Integer> keepL = new ArrayList<>(sortArr.length);
+			List<Integer> firstL = new ArrayList<>(sortArr.length);
+			for (int c1 = 0; c1 < sortArr.length; c1++)
+			{
+				int currIdx = sortArr[c1];
+				if (keepL.size() > 0 && Arrays.equals(pathL.get(keepL.get(keepL.size() - 1)), pathL.get(currIdx)) == true)
+				{
+					keepL.set(keepL.size() - 1, currIdx);
+					continue;
+				}
+
+				keepL.add(currIdx);
+				firstL.add(currIdx);
+			}
+
+			// Form the (front-coded) paths, digests, and lengths
+			int numNodes = keepL.size();
+			int[] bucketPosArr = new int[(numNodes + BucketSize - 1) / BucketSize];
+			byte[] dstDigestArr = new byte[numNodes * digestLen];
+			long[] dstFileLenArr = new long[numNodes];
+			ByteArrayOutputStream pathBAOS = new ByteArrayOutputStream();
+			byte[] prevArr = null;
+			for (int c1 = 0; c1 < numNodes; c1++)
+			{
+				int srcIdx = keepL.get(c1);
+				byte[] currArr = pathL.get(srcIdx);
+				if (c1 % BucketSize == 0)
+				{
+					bucketPosArr[c1 / BucketSize] = pathBAOS.size();
+					writeVarInt(pathBAOS, currArr.length);
+					pathBAOS.write(currArr, 0, currArr.length);
+				}
+				else
+				{
+					int sharedLen = Arrays.mismatch(prevArr, currArr);
+					writeVarInt(pathBAOS, sharedLen);
+					writeVarInt(pathBAOS, currArr.length - sharedLen);
+					pathBAOS.write(currArr, sharedLen, currArr.length - sharedLen);
+				}
+				prevArr = currArr;
+
+				System.arraycopy(srcDigestArr, srcIdx * digestLen, dstDigestArr, c1 * digestLen, digestLen);
+				dstFileLenArr[c1] = fileLenArr[srcIdx];
+			}
+
+			// Form the catalog order (sorted by the position of the first occurrence)
+			Integer[] orderArr = new Integer[numNodes];
+			for (int c1 = 0; c1 < numNodes; c1++)
+				orderArr[c1] = c1;
+			Arrays.sort(orderArr, (aIdx1, aIdx2) -> Integer.compare(firstL.get(aIdx1), firstL.get(aIdx2)));
+			int[] dstOrderArr = new int[numNodes];
+			for (int c1 = 0; c1 < numNodes; c1++)
+				dstOrderArr[c1] = orderArr[c1];
+
+			return new CompactCatalog(rootUrl, digestType, digestLen, numNodes, pathBAOS.toByteArray(), bucketPosArr,
+					dstDigestArr, dstFileLenArr, dstOrderArr);
+		}
+
+		/**
+		 * Helper method that records the path and length of a node.
+		 */
+		private void addEntry(String aFileName, long aFileLen)
+		{
+			if (pathL.size() == fileLenArr.length)
+				fileLenArr = Arrays.copyOf(fileLenArr, fileLenArr.length * 2);
+
+			fileLenArr[pathL.size()] = aFileLen;
+			pathL.add(aFileName.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+}
@@ -16,10 +16,10 @@ package distMaker.node;
 import java.io.File;
 import java.net.URL;
 
+import distMaker.MiscUtils;
 import glum.digest.Digest;
 import glum.io.IoUtil;
 import glum.net.Credential;
-import glum.net.NetUtil;
 import glum.task.Task;
 
 /**
@@ -62,6 +62,14 @@ public class FileNode implements Node
 		return true;
 	}
 
+	/**
+	 * Returns the digest of the associated file
+	 */
+	Digest getDigest()
+	{
+		return digest;
+	}
+
 	/**
 	 * Returns the length of the associated file
 	 */
@@ -76,6 +84,14 @@ public class FileNode implements Node
 		return fileName;
 	}
 
+	/**
+	 * Returns the root URL the associated file is fetched relative to
+	 */
+	URL getRootUrl()
+	{
+		return rootUrl;
+	}
+
 	@Override
 	public boolean transferContentTo(Task aTask, Credential aCredential, File dstPath)
 	{
@@ -86,7 +102,7 @@ public class FileNode implements Node
 		File dstFile = new File(dstPath, fileName);
 
 		// Download the file
-		if (NetUtil.download(aTask, srcUrl, dstFile, aCredential, fileLen, digest) == false)
+		if (MiscUtils.download(aTask, srcUrl, dstFile, aCredential, fileLen, digest) == false)
 			return false;
 
 		return true;
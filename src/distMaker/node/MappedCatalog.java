@@ -0,0 +1,429 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.node;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
+
+import distMaker.MiscUtils;
+import glum.digest.*;
+
+/**
+ * Read only view of a binary catalog (catalog.bin). Large catalogs are memory-mapped while small catalogs are read into
+ * a heap buffer.
+ * <p>
+ * The binary catalog is an (optional) companion of catalog.txt and is emitted by buildDist.py. It describes the same
+ * nodes but allows a node to be located (via a binary search of a sorted path table) without parsing the entire
+ * catalog or materializing every node. Nodes are formed on demand.
+ * <p>
+ * Format (big endian):
+ *
+ * <pre>
+ * Header (128 bytes):
+ *    int    magic ('DMCB')
+ *    int    format version (3)
+ *    long   length (bytes) of the corresponding catalog.txt
+ *    byte[32]  SHA-256 of the corresponding catalog.txt
+ *    byte[32]  SHA-256 of the content that follows the header
+ *    int    number of nodes (n)
+ *    int    digest length (d)
+ *    (int, int) * 5:  string refs (offset, length) of: digest type, min JRE, max JRE, JRE variant, JRE modules
+ * Path table (n * 16 bytes, sorted by the UTF-8 bytes of the path):
+ *    int    path offset (into the string pool)
+ *    int    path length
+ *    long   file length (-1 for a folder)
+ * Order table (n * 4 bytes): The path table index of each node in catalog order.
+ * Digest table (n * d bytes): The digest of each node (path table order). Folders have a zero filled digest.
+ * String pool: UTF-8 bytes.
+ * </pre>
+ *
+ * A string ref with an offset of -1 denotes an undefined value. The JRE modules are stored as a comma separated list.
+ * <p>
+ * The binary catalog is only utilized if it is verified: the recorded length and digest must match the catalog.txt
+ * and the recorded digest must match the content of the binary catalog. The verification is done prior to mapping the
+ * file, as a file that is mapped can not be deleted (on the Windows platform) until the mapping is released.
+ *
+ * @author lopeznr1
+ */
+public class MappedCatalog
+{
+	/** The file name of the binary catalog. */
+	public static final String FileName = "catalog.bin";
+
+	/** The magic key at the start of every binary catalog. */
+	public static final int FileMagicKey = 0x444D4342;
+
+	// Constants
+	private static final int FormatVersion = 3;
+	private static final int HeaderSize = 128;
+	private static final int DigestSize = 32;
+	private static final int EntrySize = 16;
+
+	/** The size (bytes) above which a binary catalog is memory-mapped rather than read into a heap buffer. */
+	private static final long MaxHeapSize = 32 * 1024 * 1024;
+
+	// Attributes
+	private final ByteBuffer buf;
+	private final URL rootUrl;
+	private final DigestType digestType;
+	private final int numNodes;
+	private final int digestLen;
+	private final int orderPos;
+	private final int digestPos;
+	private final int poolPos;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aBuf
+	 *        Buffer of the binary catalog's content.
+	 * @param aRootUrl
+	 *        The URL that the nodes are relative to.
+	 */
+	public MappedCatalog(ByteBuffer aBuf, URL aRootUrl) throws IOException
+	{
+		this(aBuf, aRootUrl, true);
+	}
+
+	/**
+	 * Constructor that skips the verification of the content if aIsVerify is false. This should only be utilized if the
+	 * content has already been verified.
+	 */
+	private MappedCatalog(ByteBuffer aBuf, URL aRootUrl, boolean aIsVerify) throws IOException
+	{
+		buf = aBuf;
+		rootUrl = aRootUrl;
+
+		checkHeader(buf, buf.limit());
+		numNodes = buf.getInt(80);
+		digestLen = buf.getInt(84);
+		orderPos = HeaderSize + numNodes * EntrySize;
+		digestPos = orderPos + numNodes * 4;
+		poolPos = (int) (HeaderSize + (long) numNodes * (EntrySize + 4 + digestLen));
+
+		// Verify the content
+		if (aIsVerify == true)
+		{
+			MessageDigest tmpMessageDigest = DigestUtils.getDigest(DigestType.SHA256);
+			tmpMessageDigest.update(buf.duplicate().position(HeaderSize));
+			if (Arrays.equals(tmpMessageDigest.digest(), getHeaderBytes(buf, 48)) == false)
+				throw new IOException("The binary catalog is corrupt. The content digest does not match.");
+		}
+
+		String digestStr = getHeaderString(0);
+		digestType = digestStr != null ? DigestType.parse(digestStr) : null;
+		if (digestType == null)
+			throw new IOException("Unrecognized digest type: " + digestStr);
+	}
+
+	/**
+	 * Loads the specified binary catalog and returns the corresponding {@link MappedCatalog}. Small catalogs are read into
+	 * a heap buffer while large catalogs are memory-mapped.
+	 * <p>
+	 * The binary catalog must correspond to the (text) catalog, aTextFile. The binary catalog is fully verified (via the
+	 * file channel) before it is mapped. An IOException will be thrown if the binary catalog is invalid or stale.
+	 */
+	public static MappedCatalog open(File aFile, URL aRootUrl, File aTextFile) throws IOException
+	{
+		try (FileChannel tmpFC = FileChannel.open(aFile.toPath(), StandardOpenOption.READ))
+		{
+			long fileLen = tmpFC.size();
+			if (fileLen > Integer.MAX_VALUE)
+				throw new IOException("The binary catalog is too large: " + aFile);
+
+			// Verify the header and the correspondence with the text catalog
+			ByteBuffer headBuf = ByteBuffer.allocate((int) Math.min(fileLen, HeaderSize));
+			readFully(tmpFC, headBuf, 0);
+			checkHeader(headBuf, fileLen);
+			if (headBuf.getLong(8) != aTextFile.length())
+				throw new IOException("The binary catalog does not correspond to the text catalog.");
+
+			Digest textDigest = MiscUtils.computeDigest(aTextFile, DigestType.SHA256);
+			if (Arrays.equals(textDigest.getValue(), getHeaderBytes(headBuf, 16)) == false)
+				throw new IOException("The binary catalog does not correspond to the text catalog.");
+
+			// Small catalogs are read (and verified) in full
+			if (fileLen <= MaxHeapSize)
+			{
+				ByteBuffer tmpBuf = ByteBuffer.allocate((int) fileLen);
+				readFully(tmpFC, tmpBuf, 0);
+				return new MappedCatalog(tmpBuf, aRootUrl, true);
+			}
+
+			// Verify the content of large catalogs (via the channel) and then map the catalog. Note the mapping remains
+			// valid after the channel has been closed.
+			MessageDigest tmpMessageDigest = DigestUtils.getDigest(DigestType.SHA256);
+			ByteBuffer workBuf = ByteBuffer.allocate(65536);
+			long tmpPos = HeaderSize;
+			while (tmpPos < fileLen)
+			{
+				workBuf.clear().limit((int) Math.min(workBuf.capacity(), fileLen - tmpPos));
+				readFully(tmpFC, workBuf, tmpPos);
+				tmpPos += workBuf.position();
+				tmpMessageDigest.update(workBuf.flip());
+			}
+			if (Arrays.equals(tmpMessageDigest.digest(), getHeaderBytes(headBuf, 48)) == false)
+				throw new IOException("The binary catalog is corrupt. The content digest does not match.");
+
+			ByteBuffer tmpBuf = tmpFC.map(FileChannel.MapMode.READ_ONLY, 0, fileLen);
+			return new MappedCatalog(tmpBuf, aRootUrl, false);
+		}
+	}
+
+	/**
+	 * Returns the (read only) list of modules required of the JRE. The list will be empty if no modules were recorded.
+	 */
+	public List<String> getJreModules()
+	{
+		String tmpStr = getHeaderString(4);
+		if (tmpStr == null || tmpStr.isEmpty() == true)
+			return List.of();
+
+		return List.of(tmpStr.split(","));
+	}
+
+	/**
+	 * Returns the preferred JRE variant. Returns null if there is no preferred variant.
+	 */
+	public String getJreVariant()
+	{
+		return getHeaderString(3);
+	}
+
+	/**
+	 * Returns the label of the maximum JRE version. Returns null if there is no maximum.
+	 */
+	public String getMaxJreLabel()
+	{
+		return getHeaderString(2);
+	}
+
+	/**
+	 * Returns the label of the minimum JRE version. Returns null if there is no minimum.
+	 */
+	public String getMinJreLabel()
+	{
+		return getHeaderString(1);
+	}
+
+	/**
+	 * Returns the Node corresponding to the specified name (via a binary search of the path table).
+	 * <p>
+	 * Returns null if there is no such node.
+	 */
+	public Node getNode(String aName)
+	{
+		byte[] keyArr = aName.getBytes(StandardCharsets.UTF_8);
+
+		int lowIdx = 0;
+		int highIdx = numNodes - 1;
+		while (lowIdx <= highIdx)
+		{
+			int midIdx = (lowIdx + highIdx) >>> 1;
+			int cmpVal = compareKey(midIdx, keyArr);
+			if (cmpVal < 0)
+				lowIdx = midIdx + 1;
+			else if (cmpVal > 0)
+				highIdx = midIdx - 1;
+			else
+				return formNode(midIdx);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a (read only) list of all of the nodes in catalog order. The nodes are formed on access.
+	 */
+	public List<Node> getNodeList()
+	{
+		return new AbstractList<Node>() {
+			@Override
+			public Node get(int aIdx)
+			{
+				if (aIdx < 0 || aIdx >= numNodes)
+					throw new IndexOutOfBoundsException("Index: " + aIdx + " Size: " + numNodes);
+
+				return formNode(buf.getInt(orderPos + aIdx * 4));
+			}
+
+			@Override
+			public int size()
+			{
+				return numNodes;
+			}
+		};
+	}
+
+	/**
+	 * Returns all of the nodes (files and folders, at any depth) located under the specified folder. The nodes are
+	 * returned in path order. The folder itself is not included.
+	 * <p>
+	 * An empty folder path refers to the root of the catalog.
+	 */
+	public List<Node> getNodesUnder(String aDirPath)
+	{
+		String prefixStr = "";
+		if (aDirPath.isEmpty() == false)
+			prefixStr = aDirPath + "/";
+		byte[] prefixArr = prefixStr.getBytes(StandardCharsets.UTF_8);
+
+		// Locate the first entry that is not less than the prefix (the entries are sorted by path)
+		int lowIdx = 0;
+		int highIdx = numNodes;
+		while (lowIdx < highIdx)
+		{
+			int midIdx = (lowIdx + highIdx) >>> 1;
+			if (compareKey(midIdx, prefixArr) < 0)
+				lowIdx = midIdx + 1;
+			else
+				highIdx = midIdx;
+		}
+
+		List<Node> retL = new ArrayList<>();
+		for (int c1 = lowIdx; c1 < numNodes; c1++)
+		{
+			Node tmpNode = formNode(c1);
+			if (tmpNode.getFileName().startsWith(prefixStr) == false)
+				break;
+
+			retL.add(tmpNode);
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 */
+	public int getNumNodes()
+	{
+		return numNodes;
+	}
+
+	/**
+	 * Helper method that compares the path of the specified entry with aKeyArr (UTF-8 bytes, unsigned).
+	 */
+	private int compareKey(int aEntryIdx, byte[] aKeyArr)
+	{
+		int entryPos = HeaderSize + aEntryIdx * EntrySize;
+		int strPos = poolPos + buf.getInt(entryPos);
+		int strLen = buf.getInt(entryPos + 4);
+
+		int minLen = Math.min(strLen, aKeyArr.length);
+		for (int c1 = 0; c1 < minLen; c1++)
+		{
+			int cmpVal = (buf.get(strPos + c1) & 0xFF) - (aKeyArr[c1] & 0xFF);
+			if (cmpVal != 0)
+				return cmpVal;
+		}
+
+		return strLen - aKeyArr.length;
+	}
+
+	/**
+	 * Helper method that forms the Node corresponding to the specified entry of the path table.
+	 */
+	private Node formNode(int aEntryIdx)
+	{
+		int entryPos = HeaderSize + aEntryIdx * EntrySize;
+		String fileName = getString(buf.getInt(entryPos), buf.getInt(entryPos + 4));
+		long fileLen = buf.getLong(entryPos + 8);
+		if (fileLen < 0)
+			return new PathNode(rootUrl, fileName);
+
+		byte[] digestArr = new byte[digestLen];
+		buf.get(digestPos + aEntryIdx * digestLen, digestArr);
+		return new FileNode(rootUrl, fileName, new Digest(digestType, digestArr), fileLen);
+	}
+
+	/**
+	 * Helper method that verifies the header (of a binary catalog of the specified length) in aHeadBuf.
+	 */
+	private static void checkHeader(ByteBuffer aHeadBuf, long aFileLen) throws IOException
+	{
+		if (aHeadBuf.limit() < HeaderSize || aHeadBuf.getInt(0) != FileMagicKey)
+			throw new IOException("Not a binary catalog.");
+		if (aHeadBuf.getInt(4) != FormatVersion)
+			throw new IOException("Unsupported binary catalog version: " + aHeadBuf.getInt(4));
+
+		int tmpNumNodes = aHeadBuf.getInt(80);
+		int tmpDigestLen = aHeadBuf.getInt(84);
+		if (tmpNumNodes <= 0 || tmpDigestLen < 0 || tmpDigestLen > 1024)
+			throw new IOException("Invalid binary catalog header. Nodes: " + tmpNumNodes + " Digest length: " + tmpDigestLen);
+
+		if (HeaderSize + (long) tmpNumNodes * (EntrySize + 4 + tmpDigestLen) > aFileLen)
+			throw new IOException("The binary catalog is truncated.");
+	}
+
+	/**
+	 * Helper method that returns the (SHA-256) digest stored in the header (of aBuf) at the specified position.
+	 */
+	private static byte[] getHeaderBytes(ByteBuffer aBuf, int aPos)
+	{
+		byte[] retArr = new byte[DigestSize];
+		aBuf.get(aPos, retArr);
+		return retArr;
+	}
+
+	/**
+	 * Helper method that fills aBuf (from its position to its limit) with the content of the channel at aPos.
+	 */
+	private static void readFully(FileChannel aFC, ByteBuffer aBuf, long aPos) throws IOException
+	{
+		long tmpPos = aPos;
+		while (aBuf.hasRemaining() == true)
+		{
+			int numBytes = aFC.read(aBuf, tmpPos);
+			if (numBytes == -1)
+				throw new IOException("The binary catalog is truncated.");
+
+			tmpPos += numBytes;
+		}
+	}
+
+	/**
+	 * Helper method that returns the specified header string. Returns null if the string is not defined.
+	 */
+	private String getHeaderString(int aIdx)
+	{
+		int refPos = 88 + aIdx * 8;
+		int strOff = buf.getInt(refPos);
+		if (strOff == -1)
+			return null;
+
+		return getString(strOff, buf.getInt(refPos + 4));
+	}
+
+	/**
+	 * Helper method that returns the string at the specified location of the string pool.
+	 */
+	private String getString(int aOffset, int aLength)
+	{
+		if (aOffset < 0 || aLength < 0 || (long) poolPos + aOffset + aLength > buf.limit())
+			throw new IllegalStateException("The binary catalog is corrupt. String ref: " + aOffset + ":" + aLength);
+
+		byte[] tmpArr = new byte[aLength];
+		buf.get(poolPos + aOffset, tmpArr);
+		return new String(tmpArr, StandardCharsets.UTF_8);
+	}
+
+}
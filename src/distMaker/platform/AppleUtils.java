@@ -13,10 +13,10 @@
 // limitations under the License.
 package distMaker.platform;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -32,6 +32,8 @@ import distMaker.jre.*;
 
 /**
  * Collection of utility methods specific to the Macosx platform.
+ * <p>
+ * The update methods operate on the (in memory) plist document. See {@link LaunchConfig}.
  *
  * @author lopeznr1
  */
@@ -69,40 +71,18 @@ public class AppleUtils
 	}
 
 	/**
-	 * Utility method to update the specified version in the plist file (pFile) to the new version.
+	 * Utility method to update the specified version in the plist document to the new version.
 	 * <p>
 	 * Note this method is very brittle, and assumes that the version will occur in the sibling node which immediately
 	 * follows the node with a value of CFBundleVersion. TODO: Consider reducing brittleness.
-	 * <p>
-	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateAppVersion(String aNewVersin, File pFile)
+	static void updateAppVersion(Document aDoc, String aNewVersin)
 	{
-		Document doc;
-		Element docElement;
 		NodeList nodeL;
 		Node keyNode, strNode;
 		String valStr;
 
-		// Bail if the pFile is not writable.
-		if (pFile.setWritable(true) == false)
-			throw new ErrorDM("The plist file is not writeable: " + pFile);
-
-		// Load the XML document via the javax.xml.parsers.* package
-		try
-		{
-			doc = loadDoc(pFile);
-			docElement = doc.getDocumentElement();
-
-			// Clean the XML doc (due to defective Java 9 implementation)
-			cleanDoc(doc);
-		}
-		catch(Exception aExp)
-		{
-			throw new ErrorDM(aExp, "Failed to parse XML document. File: " + pFile);
-		}
-
-		nodeL = docElement.getElementsByTagName("*");
+		nodeL = aDoc.getDocumentElement().getElementsByTagName("*");
 		for (int c1 = 0; c1 < nodeL.getLength(); c1++)
 		{
 			keyNode = nodeL.item(c1).getFirstChild();
@@ -115,8 +95,6 @@ public class AppleUtils
 
 			if (valStr.equals("CFBundleVersion") == true)
 			{
-				System.out.println("Updating contents of file: " + pFile);
-
 				strNode = nodeL.item(c1 + 1).getFirstChild();
 				System.out.println("  Old App Version: " + strNode.getNodeValue());
 
@@ -124,17 +102,12 @@ public class AppleUtils
 				System.out.println("  New App Version: " + strNode.getNodeValue());
 			}
 		}
-
-		// Update the file with the changed document
-		saveDoc(pFile, doc);
 	}
 
 	/**
-	 * Utility method to update the configuration file (pFile) to reflect the specified AppLauncherRelease.
-	 * <p>
-	 * On failure this method will throw an exception of type ErrorDM.
+	 * Utility method to update the plist document to reflect the specified AppLauncherRelease.
 	 */
-	public static void updateAppLauncher(AppLauncherRelease aRelease, File pFile)
+	static void updateAppLauncher(Document aDoc, AppLauncherRelease aRelease)
 	{
 		// Note the JavaAppLauncher executable appears to no longer support specifying the class path
 		// Thus there is nothing to update as the AppLauncherRelease is implicitly loaded by it being in
@@ -205,71 +178,64 @@ public class AppleUtils
 	}
 
 	/**
-	 * Utility method to update the configuration file (pFile) to reflect the specified JRE version.
+	 * Utility method to update the plist document to reflect the specified JRE version (and variant).
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateJreVersion(JreVersion aJreVersion, File pFile)
+	static void updateJreVersion(Document aDoc, JreVersion aJreVersion, String aJreVariant, File pFile)
 	{
-		List<String> inputL;
-		String evalStr, tmpStr;
-		String prevKeyValue;
-		boolean isFound;
-
-		// Bail if the pFile is not writable
-		if (pFile.setWritable(true) == false)
-			throw new ErrorDM("The pFile is not writeable: " + pFile);
-
-		// Define the regex we will be searching for
-		String regex = "<string>(.*?)</string>";
-		Pattern tmpPattern = Pattern.compile(regex);
-
-		// Process our input
-		isFound = false;
-		inputL = new ArrayList<>();
-		try (BufferedReader br = MiscUtils.openFileAsBufferedReader(pFile))
-		{
-			// Read the lines
-			prevKeyValue = "";
-			while (true)
-			{
-				evalStr = br.readLine();
-				if (evalStr == null)
-					break;
-
-				// Keep track of the last key element
-				tmpStr = evalStr.trim();
-				if (tmpStr.startsWith("<key>") == true && tmpStr.endsWith("</key>") == true)
-					prevKeyValue = tmpStr.substring(5, tmpStr.length() - 6).trim();
-
-				// The JRE is specified just after the key element with the value: JVMRuntime
-				if (prevKeyValue.equals("JVMRuntime") == true && tmpPattern.matcher(evalStr).find() == true)
-				{
-					// Perform an inline replacement
-					String repStr = "<string>" + JreUtils.getExpandJrePath(aJreVersion) + "</string>";
-					evalStr = tmpPattern.matcher(evalStr).replaceFirst(repStr);
-
-					isFound = true;
-				}
-
-				inputL.add(evalStr);
-			}
-		}
-		catch(IOException aExp)
+		// The JRE is specified in the <string> element just after the key element with the value: JVMRuntime
+		Element strE = getDictValueElement(aDoc, "JVMRuntime");
+		if (strE == null || strE.getTagName().equals("string") == false)
+			throw new ErrorDM("[" + pFile + "] The pFile does not specify a 'JVMRuntime' section.");
+
+		strE.setTextContent(JreUtils.getExpandJrePath(aJreVersion, aJreVariant));
+	}
+
+	/**
+	 * Utility method that returns the JVM arguments specified in the plist document.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static List<String> getJvmArgList(Document aDoc, File pFile)
+	{
+		List<String> retL = new ArrayList<>();
+
+		NodeList childNL = getJvmOptionsElement(aDoc, pFile).getChildNodes();
+		for (int c1 = 0; c1 < childNL.getLength(); c1++)
 		{
-			throw new ErrorDM(aExp, "Failed while processing the pFile: " + pFile);
+			Node childNode = childNL.item(c1);
+			if (childNode.getNodeType() == Node.ELEMENT_NODE)
+				retL.add(childNode.getTextContent().trim());
 		}
 
-		// Fail if there was no update performed
-		if (isFound == false)
-			throw new ErrorDM("[" + pFile + "] The pFile does not specify a 'JVMRuntime' section.");
+		return retL;
+	}
+
+	/**
+	 * Utility method to update the plist document so that all JVM arguments that start with aPrefix are removed. If aArg
+	 * is not null then it will be added.
+	 * <p>
+	 * In order for this method to succeed there must be a valid JVMOptions section followed by an array of string
+	 * elements of JVM arguments.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static void updateJvmArg(Document aDoc, String aPrefix, String aArg, File pFile)
+	{
+		Element arrE = getJvmOptionsElement(aDoc, pFile);
+		removeJvmOptions(arrE, aPrefix);
 
-		// Write the pFile
-		MiscUtils.writeDoc(pFile, inputL);
+		if (aArg != null)
+		{
+			Element evalE = aDoc.createElement("string");
+			evalE.appendChild(aDoc.createTextNode(aArg));
+			arrE.appendChild(evalE);
+		}
 	}
 
 	/**
-	 * Utility method to update the specified max memory (-Xmx) value in the plist file (pFile) to the specified
+	 * Utility method to update the specified max memory (-Xmx) value in the plist document to the specified
 	 * maxMemVal.
 	 * <p>
 	 * In order for this method to succeed there must be a valid JVMOptions section followed by an array of string
@@ -277,74 +243,19 @@ public class AppleUtils
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateMaxMem(long numBytes, File pFile)
+	static void updateMaxMem(Document aDoc, long numBytes, File pFile)
 	{
-		Document doc;
-		Element docElement;
 		String evalStr, updateStr;
-		NodeList dictNL, childNL;
+		NodeList childNL;
 		Node childNode, targNode;
 		Element evalE, arrE, memE;
-		String tagStr, valStr, currKeyVal;
-
-		// Bail if the pFile is not writable.
-		if (pFile.setWritable(true) == false)
-			throw new ErrorDM("The plist file is not writeable: " + pFile);
-
-		// Load the XML document via the javax.xml.parsers.* package
-		try
-		{
-			// Load the XML document
-			doc = loadDoc(pFile);
-			docElement = doc.getDocumentElement();
-
-			// Clean the XML doc (due to defective Java 9 implementation)
-			cleanDoc(doc);
-		}
-		catch(Exception aExp)
-		{
-			throw new ErrorDM(aExp, "Failed to parse XML document. File: " + pFile);
-		}
-
-		// Locate the <dict> element
-		dictNL = docElement.getElementsByTagName("dict");
-		if (dictNL.getLength() == 0)
-			throw new ErrorDM("No <dict> element found! File: " + pFile);
-
-		arrE = null;
-		currKeyVal = null;
-		childNL = dictNL.item(0).getChildNodes();
-		for (int c1 = 0; c1 < childNL.getLength(); c1++)
-		{
-			childNode = childNL.item(c1);
-			if (childNode.getNodeType() != Node.ELEMENT_NODE)
-				continue;
-
-			evalE = (Element)childNode;
-			tagStr = evalE.getTagName();
-			valStr = evalE.getNodeValue();
+		String tagStr, valStr;
 
-			if (childNode.hasChildNodes() == true)
-			{
-				childNode = childNode.getFirstChild();
-				valStr = childNode.getNodeValue();
-			}
-//			System.out.println("" + c1 + " Tag:" + tagStr + ": Value:" + valStr);
+		// Locate the JVMOptions <array> element
+		arrE = getJvmOptionsElement(aDoc, pFile);
 
-			if (tagStr.equals("key") == true)
-				currKeyVal = childNode.getNodeValue();
-
-			// Bail once we locate the <array> element following the <key>JVMOptions<key>
-			if (tagStr.equals("array") == true && currKeyVal != null && currKeyVal.equals("JVMOptions") == true)
-			{
-				arrE = evalE;
-				break;
-			}
-		}
-
-		// Bail if we failed to locate the array element
-		if (arrE == null)
-			throw new ErrorDM("Failed to locate the element <array> following the element: <key>JVMOptions</key>\nFile: " + pFile);
+		// Remove the (prior) percentage based max memory
+		removeJvmOptions(arrE, "-XX:MaxRAMPercentage=");
 
 		memE = null;
 		childNL = arrE.getChildNodes();
@@ -376,12 +287,12 @@ public class AppleUtils
 		// Synthesize the memElement if it does not exist (with default: -Xmx512m)
 		if (memE == null)
 		{
-			memE = doc.createElement("string");
+			memE = aDoc.createElement("string");
 			arrE.appendChild(memE);
 		}
 		// Ensure the memElement has a valid child (text value)
 		if (memE.getChildNodes().getLength() == 0)
-			memE.appendChild(doc.createTextNode("-Xmx512m"));
+			memE.appendChild(aDoc.createTextNode("-Xmx512m"));
 
 		// Update the -Xmx value
 		targNode = memE.getChildNodes().item(0);
@@ -390,9 +301,20 @@ public class AppleUtils
 		if (updateStr == null)
 			throw new ErrorDM("Failed to transform the memory spec value. Original value: " + evalStr + "\nFile: " + pFile);
 		targNode.setNodeValue(updateStr);
+	}
 
-		// Update the file with the changed document
-		saveDoc(pFile, doc);
+	/**
+	 * Utility method to update the plist document so that the maximum memory is the specified percentage of the memory
+	 * available to the JVM. The JVM argument -XX:MaxRAMPercentage is utilized which is container aware.
+	 * <p>
+	 * Any -Xmx value will be removed since -Xmx has precedence over -XX:MaxRAMPercentage.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static void updateMaxMemPercent(Document aDoc, int aPercent, File pFile)
+	{
+		updateJvmArg(aDoc, "-Xmx", null, pFile);
+		updateJvmArg(aDoc, "-XX:MaxRAMPercentage=", "-XX:MaxRAMPercentage=" + aPercent, pFile);
 	}
 
 	/**
@@ -428,28 +350,103 @@ public class AppleUtils
 	}
 
 	/**
-	 * Utility helper method to load a Document from the specified file.
+	 * Utility helper method that returns the value element which follows the element {@code <key>aKey</key>} in the
+	 * (top level) {@code <dict>} element.
+	 * <p>
+	 * Returns null if there is no such element.
 	 */
-	private static Document loadDoc(File aFile) throws Exception
+	private static Element getDictValueElement(Document aDoc, String aKey)
+	{
+		NodeList dictNL = aDoc.getDocumentElement().getElementsByTagName("dict");
+		if (dictNL.getLength() == 0)
+			return null;
+
+		boolean isKeyFound = false;
+		NodeList childNL = dictNL.item(0).getChildNodes();
+		for (int c1 = 0; c1 < childNL.getLength(); c1++)
+		{
+			Node childNode = childNL.item(c1);
+			if (childNode.getNodeType() != Node.ELEMENT_NODE)
+				continue;
+
+			Element evalE = (Element)childNode;
+			if (isKeyFound == true)
+				return evalE;
+
+			if (evalE.getTagName().equals("key") == true && evalE.getTextContent().trim().equals(aKey) == true)
+				isKeyFound = true;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Utility helper method that returns the {@code <array>} element (of JVM arguments) which follows the element:
+	 * {@code <key>JVMOptions</key>}.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	private static Element getJvmOptionsElement(Document aDoc, File pFile)
+	{
+		Element arrE = getDictValueElement(aDoc, "JVMOptions");
+		if (arrE == null || arrE.getTagName().equals("array") == false)
+			throw new ErrorDM("Failed to locate the element <array> following the element: <key>JVMOptions</key>\nFile: " + pFile);
+
+		return arrE;
+	}
+
+	/**
+	 * Utility helper method to load a (cleaned) Document from the specified file.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static Document loadDoc(File aFile)
 	{
 		DocumentBuilderFactory dbf;
 		DocumentBuilder db;
 		Document doc;
 
 		// Parse the XML file via the javax.xml.parsers.* package
-		dbf = DocumentBuilderFactory.newInstance();
-		db = dbf.newDocumentBuilder();
-		doc = db.parse(aFile);
+		try
+		{
+			dbf = DocumentBuilderFactory.newInstance();
+			db = dbf.newDocumentBuilder();
+			doc = db.parse(aFile);
+
+			// Clean the XML doc (due to defective Java 9 implementation)
+			cleanDoc(doc);
+		}
+		catch(Exception aExp)
+		{
+			throw new ErrorDM(aExp, "Failed to parse XML document. File: " + aFile);
+		}
 
 		return doc;
 	}
 
+	/**
+	 * Utility helper method that removes all of the JVM arguments (children of aArrE) that start with aPrefix.
+	 */
+	private static void removeJvmOptions(Element aArrE, String aPrefix)
+	{
+		NodeList childNL = aArrE.getChildNodes();
+		for (int c1 = childNL.getLength() - 1; c1 >= 0; c1--)
+		{
+			Node childNode = childNL.item(c1);
+			if (childNode.getNodeType() != Node.ELEMENT_NODE)
+				continue;
+
+			if (childNode.getTextContent().startsWith(aPrefix) == true)
+				aArrE.removeChild(childNode);
+		}
+	}
+
 	/**
 	 * Utility helper method to output aDoc to the specified file.
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	private static void saveDoc(File aFile, Document aDoc)
+	static void saveDoc(File aFile, Document aDoc)
 	{
 		try (FileOutputStream oStream = new FileOutputStream(aFile);)
 		{
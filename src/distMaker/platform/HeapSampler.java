@@ -0,0 +1,158 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.platform;
+
+import java.lang.management.*;
+import java.util.*;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/**
+ * Lightweight in-process sampler of the heap usage of the running application.
+ * <p>
+ * The sampler does not poll. Rather it listens to the garbage collection notifications of the JVM and tracks the
+ * following:
+ * <ul>
+ * <li>The peak live set: The heap usage after major collections (or after any collection if there were no major
+ * collections).
+ * <li>The GC time: The sum of the durations of all collections. Note for concurrent collectors this includes the
+ * concurrent phases and thus overstates the overhead.
+ * <li>The allocated memory: The growth of the heap between consecutive collections.
+ * </ul>
+ * The results are available via {@link #getSession()}. This class is thread safe.
+ *
+ * @author lopeznr1
+ */
+public class HeapSampler implements NotificationListener
+{
+	// Attributes
+	private final long startTime;
+	private final long maxHeapMem;
+	private final Set<String> heapPoolNameS;
+
+	// State vars
+	private long peakLiveMem;
+	private long peakAfterMem;
+	private long lastAfterMem;
+	private long gcTime;
+	private long allocMem;
+	private int numGc;
+
+	/**
+	 * Standard Constructor
+	 */
+	public HeapSampler()
+	{
+		startTime = System.currentTimeMillis();
+		maxHeapMem = Runtime.getRuntime().maxMemory();
+
+		heapPoolNameS = new HashSet<>();
+		for (MemoryPoolMXBean aBean : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (aBean.getType() == MemoryType.HEAP)
+				heapPoolNameS.add(aBean.getName());
+		}
+
+		peakLiveMem = -1;
+		peakAfterMem = 0;
+		lastAfterMem = 0;
+		gcTime = 0;
+		allocMem = 0;
+		numGc = 0;
+	}
+
+	/**
+	 * Returns a {@link HeapSession} that describes the heap usage since the sampler was created.
+	 */
+	public synchronized HeapSession getSession()
+	{
+		// Account for the memory allocated since the last collection
+		long currUsedMem = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		long tmpAllocMem = allocMem + Math.max(currUsedMem - lastAfterMem, 0);
+
+		long tmpPeakLiveMem = peakLiveMem;
+		if (tmpPeakLiveMem < 0)
+			tmpPeakLiveMem = peakAfterMem;
+
+		long duration = System.currentTimeMillis() - startTime;
+		return new HeapSession(startTime, duration, maxHeapMem, tmpPeakLiveMem, gcTime, tmpAllocMem, numGc);
+	}
+
+	/**
+	 * Installs the sampler. The sampler will be registered with all of the garbage collectors of the JVM.
+	 * <p>
+	 * Returns false if the JVM does not provide garbage collection notifications.
+	 */
+	public boolean install()
+	{
+		boolean isInstalled = false;
+		for (GarbageCollectorMXBean aBean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			if (aBean instanceof NotificationEmitter == false)
+				continue;
+
+			((NotificationEmitter) aBean).addNotificationListener(this, null, null);
+			isInstalled = true;
+		}
+
+		return isInstalled;
+	}
+
+	@Override
+	public synchronized void handleNotification(Notification aNotification, Object aHandback)
+	{
+		String tmpType = aNotification.getType();
+		if (tmpType.equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION) == false)
+			return;
+
+		GarbageCollectionNotificationInfo tmpInfo;
+		tmpInfo = GarbageCollectionNotificationInfo.from((CompositeData) aNotification.getUserData());
+		GcInfo gcInfo = tmpInfo.getGcInfo();
+
+		long beforeMem = sumHeapUsage(gcInfo.getMemoryUsageBeforeGc());
+		long afterMem = sumHeapUsage(gcInfo.getMemoryUsageAfterGc());
+
+		numGc++;
+		gcTime += gcInfo.getDuration();
+		allocMem += Math.max(beforeMem - lastAfterMem, 0);
+		lastAfterMem = afterMem;
+
+		// Only (full) major collections provide an accurate measure of the live set
+		peakAfterMem = Math.max(peakAfterMem, afterMem);
+		String gcAction = tmpInfo.getGcAction().toLowerCase();
+		if (gcAction.contains("major") == true || gcAction.contains("cycle") == true)
+			peakLiveMem = Math.max(peakLiveMem, afterMem);
+	}
+
+	/**
+	 * Helper method that returns the sum of the (used) memory of the heap pools in aUsageM.
+	 */
+	private long sumHeapUsage(Map<String, MemoryUsage> aUsageM)
+	{
+		long retMem = 0;
+		for (String aName : heapPoolNameS)
+		{
+			MemoryUsage tmpUsage = aUsageM.get(aName);
+			if (tmpUsage != null)
+				retMem += tmpUsage.getUsed();
+		}
+
+		return retMem;
+	}
+
+}
@@ -0,0 +1,120 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.platform;
+
+/**
+ * Immutable class that describes the heap usage of a single application session. See {@link HeapSampler}.
+ * <p>
+ * All memory values are specified in bytes and all time values are specified in milliseconds.
+ *
+ * @author lopeznr1
+ */
+public class HeapSession
+{
+	private final long startTime;
+	private final long duration;
+	private final long maxHeapMem;
+	private final long peakLiveMem;
+	private final long gcTime;
+	private final long allocMem;
+	private final int numGc;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aStartTime
+	 *        The (epoch) time at which the session started.
+	 * @param aDuration
+	 *        The length of the session.
+	 * @param aMaxHeapMem
+	 *        The maximum heap the session was run with.
+	 * @param aPeakLiveMem
+	 *        The (estimated) peak live set of the session.
+	 * @param aGcTime
+	 *        The total time spent in garbage collection.
+	 * @param aAllocMem
+	 *        The (estimated) total memory allocated during the session.
+	 * @param aNumGc
+	 *        The number of garbage collections.
+	 */
+	public HeapSession(long aStartTime, long aDuration, long aMaxHeapMem, long aPeakLiveMem, long aGcTime,
+			long aAllocMem, int aNumGc)
+	{
+		startTime = aStartTime;
+		duration = aDuration;
+		maxHeapMem = aMaxHeapMem;
+		peakLiveMem = aPeakLiveMem;
+		gcTime = aGcTime;
+		allocMem = aAllocMem;
+		numGc = aNumGc;
+	}
+
+	/**
+	 * Returns the (estimated) allocation rate in bytes per second.
+	 */
+	public long getAllocRate()
+	{
+		if (duration <= 0)
+			return 0;
+
+		return (long) (allocMem * 1000.0 / duration);
+	}
+
+	public long getAllocMem()
+	{
+		return allocMem;
+	}
+
+	public long getDuration()
+	{
+		return duration;
+	}
+
+	/**
+	 * Returns the fraction (0.0 - 1.0) of the session that was spent in garbage collection.
+	 */
+	public double getGcOverhead()
+	{
+		if (duration <= 0)
+			return 0.0;
+
+		return Math.min(gcTime / (double) duration, 1.0);
+	}
+
+	public long getGcTime()
+	{
+		return gcTime;
+	}
+
+	public long getMaxHeapMem()
+	{
+		return maxHeapMem;
+	}
+
+	public int getNumGc()
+	{
+		return numGc;
+	}
+
+	public long getPeakLiveMem()
+	{
+		return peakLiveMem;
+	}
+
+	public long getStartTime()
+	{
+		return startTime;
+	}
+
+}
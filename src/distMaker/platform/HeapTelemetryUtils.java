@@ -0,0 +1,289 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.platform;
+
+import static distMaker.platform.MemUtils.MB_SIZE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import distMaker.DistUtils;
+import distMaker.ErrorDM;
+import distMaker.MiscUtils;
+import glum.io.ParseUtil;
+
+/**
+ * Collection of utility methods that provide access to the heap telemetry of a DistMaker application.
+ * <p>
+ * The heap usage of each session is sampled (see {@link HeapSampler}) and recorded (on exit) to the telemetry file. The
+ * telemetry file is located in the top of the application's DistMaker root and retains only the most recent sessions.
+ * The recorded sessions drive a (data driven) recommendation of the maximum heap. See
+ * {@link #getRecommendedMaxHeap(List, MemInfo)}.
+ * <p>
+ * The telemetry file has the following format:
+ * <ul>
+ * <li>autoApply,{@literal <true|false>}
+ * <li>session,{@literal <startTime>,<duration>,<maxHeap>,<peakLive>,<gcTime>,<allocMem>,<numGc>}
+ * </ul>
+ *
+ * @author lopeznr1
+ */
+public class HeapTelemetryUtils
+{
+	/** The file name of the telemetry file. */
+	public static final String TelemetryFileName = "heapTelemetry.txt";
+
+	/** The maximum number of sessions that are retained. */
+	private static final int MaxSessions = 20;
+
+	/** The minimum duration (ms) of a session for it to be recorded. */
+	private static final long MinSessionDuration = 60 * 1000L;
+
+	/** The fractional difference between the current and recommended heap below which no change is applied. */
+	private static final double MinApplyDelta = 0.10;
+
+	/**
+	 * Utility method that applies the (data driven) heap recommendation to the (active) DistMaker distribution. The
+	 * recommendation is only applied if auto apply is enabled and the recommendation differs from the current maximum
+	 * heap by more than 10%.
+	 * <p>
+	 * Note this will only take effect after the application has been restarted.
+	 * <p>
+	 * Returns the heap that was applied or -1 if no change was made.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static long applyRecommendation(File aFile)
+	{
+		if (isAutoApply(aFile) == false)
+			return -1;
+
+		long recMem = getRecommendedMaxHeap(readSessions(aFile), MemUtils.probeMemory());
+		if (recMem <= 0)
+			return -1;
+
+		long currMem = Runtime.getRuntime().maxMemory();
+		if (Math.abs(recMem - currMem) <= currMem * MinApplyDelta)
+			return -1;
+
+		PlatformUtils.setMaxHeapMem(recMem);
+		return recMem;
+	}
+
+	/**
+	 * Returns the recommended maximum heap based on the recorded sessions.
+	 * <p>
+	 * The recommendation is twice the peak live set (three times if the GC overhead exceeds 5%) plus one second of
+	 * allocation headroom. The recommendation is bounded by the safe maximum heap (see
+	 * {@link MemInfo#getRecommendedMaxHeap()}) and {@link MemInfo#MinHeapSize}.
+	 * <p>
+	 * Returns -1 if there are no recorded sessions.
+	 */
+	public static long getRecommendedMaxHeap(List<HeapSession> aSessionL, MemInfo aMemInfo)
+	{
+		if (aSessionL.isEmpty() == true)
+			return -1;
+
+		long peakLiveMem = 0;
+		long sumAllocRate = 0;
+		double sumGcOverhead = 0;
+		for (HeapSession aSession : aSessionL)
+		{
+			peakLiveMem = Math.max(peakLiveMem, aSession.getPeakLiveMem());
+			sumAllocRate += aSession.getAllocRate();
+			sumGcOverhead += aSession.getGcOverhead();
+		}
+		long avgAllocRate = sumAllocRate / aSessionL.size();
+		double avgGcOverhead = sumGcOverhead / aSessionL.size();
+
+		double factor = 2.0;
+		if (avgGcOverhead > 0.05)
+			factor = 3.0;
+
+		long retMem = (long) (peakLiveMem * factor) + avgAllocRate;
+		retMem = ((retMem + MB_SIZE - 1) / MB_SIZE) * MB_SIZE;
+		retMem = Math.min(retMem, aMemInfo.getRecommendedMaxHeap());
+		retMem = Math.max(retMem, MemInfo.MinHeapSize);
+		return retMem;
+	}
+
+	/**
+	 * Returns the telemetry file of the (active) DistMaker distribution.
+	 */
+	public static File getTelemetryFile()
+	{
+		return new File(DistUtils.getAppPath().getParentFile(), TelemetryFileName);
+	}
+
+	/**
+	 * Returns true if the (data driven) heap recommendation should be automatically applied.
+	 */
+	public static synchronized boolean isAutoApply(File aFile)
+	{
+		for (String aLine : readLines(aFile))
+		{
+			String[] tokenArr = aLine.split(",");
+			if (tokenArr.length == 2 && tokenArr[0].equals("autoApply") == true)
+				return Boolean.parseBoolean(tokenArr[1]);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the list of sessions recorded in the telemetry file.
+	 */
+	public static synchronized List<HeapSession> readSessions(File aFile)
+	{
+		List<HeapSession> retL = new ArrayList<>();
+		for (String aLine : readLines(aFile))
+		{
+			String[] tokenArr = aLine.split(",");
+			if (tokenArr.length != 8 || tokenArr[0].equals("session") == false)
+				continue;
+
+			long startTime = ParseUtil.readLong(tokenArr[1], 0);
+			long duration = ParseUtil.readLong(tokenArr[2], 0);
+			long maxHeapMem = ParseUtil.readLong(tokenArr[3], 0);
+			long peakLiveMem = ParseUtil.readLong(tokenArr[4], 0);
+			long gcTime = ParseUtil.readLong(tokenArr[5], 0);
+			long allocMem = ParseUtil.readLong(tokenArr[6], 0);
+			int numGc = ParseUtil.readInt(tokenArr[7], 0);
+			retL.add(new HeapSession(startTime, duration, maxHeapMem, peakLiveMem, gcTime, allocMem, numGc));
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Records the specified session to the telemetry file. Sessions that are too short to be meaningful (less than 1
+	 * minute) are not recorded.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static synchronized void recordSession(File aFile, HeapSession aSession)
+	{
+		if (aSession.getDuration() < MinSessionDuration)
+			return;
+
+		List<HeapSession> sessionL = readSessions(aFile);
+		sessionL.add(aSession);
+		if (sessionL.size() > MaxSessions)
+			sessionL = sessionL.subList(sessionL.size() - MaxSessions, sessionL.size());
+
+		writeFile(aFile, isAutoApply(aFile), sessionL);
+	}
+
+	/**
+	 * Sets whether the (data driven) heap recommendation should be automatically applied.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static synchronized void setAutoApply(File aFile, boolean aIsAutoApply)
+	{
+		writeFile(aFile, aIsAutoApply, readSessions(aFile));
+	}
+
+	/**
+	 * Utility method that starts sampling the heap usage of the running application. The session will be recorded to the
+	 * telemetry file when the JVM exits.
+	 * <p>
+	 * Returns the sampler or null if the JVM does not support heap sampling.
+	 */
+	public static HeapSampler startSampler(File aFile)
+	{
+		HeapSampler retSampler;
+		try
+		{
+			retSampler = new HeapSampler();
+			if (retSampler.install() == false)
+				return null;
+		}
+		catch (LinkageError aExp)
+		{
+			// The JRE does not provide the module: jdk.management
+			return null;
+		}
+
+		Runnable tmpRunnable = () -> {
+			try
+			{
+				recordSession(aFile, retSampler.getSession());
+			}
+			catch (ErrorDM aExp)
+			{
+				aExp.printStackTrace();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(new Thread(tmpRunnable, "thread-recordHeapSession"));
+
+		return retSampler;
+	}
+
+	/**
+	 * Helper method that returns the (non comment) lines of the telemetry file.
+	 */
+	private static List<String> readLines(File aFile)
+	{
+		List<String> retL = new ArrayList<>();
+		if (aFile.isFile() == false)
+			return retL;
+
+		try
+		{
+			for (String aLine : Files.readAllLines(aFile.toPath(), StandardCharsets.UTF_8))
+			{
+				aLine = aLine.trim();
+				if (aLine.isEmpty() == false && aLine.startsWith("#") == false)
+					retL.add(aLine);
+			}
+		}
+		catch (IOException aExp)
+		{
+			aExp.printStackTrace();
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Helper method that (atomically) writes the telemetry file.
+	 */
+	private static void writeFile(File aFile, boolean aIsAutoApply, List<HeapSession> aSessionL)
+	{
+		List<String> lineL = new ArrayList<>();
+		lineL.add("# DistMaker heap telemetry");
+		lineL.add("autoApply," + aIsAutoApply);
+		for (HeapSession aItem : aSessionL)
+			lineL.add("session," + aItem.getStartTime() + "," + aItem.getDuration() + "," + aItem.getMaxHeapMem() + ","
+					+ aItem.getPeakLiveMem() + "," + aItem.getGcTime() + "," + aItem.getAllocMem() + "," + aItem.getNumGc());
+
+		File tmpFile = new File(aFile.getParentFile(), aFile.getName() + ".tmp");
+		try
+		{
+			MiscUtils.writeDoc(tmpFile, lineL);
+			Files.move(tmpFile.toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException aExp)
+		{
+			tmpFile.delete();
+			throw new ErrorDM(aExp, "Failed to write the heap telemetry file: " + aFile);
+		}
+	}
+
+}
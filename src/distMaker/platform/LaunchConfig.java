@@ -0,0 +1,474 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.platform;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.w3c.dom.Document;
+
+import distMaker.ErrorDM;
+import distMaker.MiscUtils;
+import distMaker.jre.*;
+import distMaker.metrics.UpdateMetrics;
+import distMaker.metrics.UpdatePhase;
+import distMaker.utils.UpdateEvents.ConfigRewrite;
+
+/**
+ * Platform neutral model of the launch configuration of a DistMaker application. The launch configuration is the
+ * platform specific file that defines how the JVM is launched:
+ * <ul>
+ * <li>Linux: The run script.
+ * <li>Macosx: The Info.plist file.
+ * <li>Windows: The l4j.ini file.
+ * </ul>
+ * The configuration file is loaded (and parsed) once. A batch of edits can then be made against the (in memory) model
+ * and finally committed with a single write. The commit is atomic: the content is written to a temporary file which is
+ * then renamed over the configuration file. Thus the configuration file is never left in a partially written state.
+ * <p>
+ * A backup of the (original) configuration file is taken implicitly as part of the commit.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author lopeznr1
+ */
+public class LaunchConfig
+{
+	// Attributes
+	private final Platform platform;
+	private final File cfgFile;
+
+	// State vars
+	private List<String> lineL;
+	private Document doc;
+	private File backupFile;
+	private boolean isChanged;
+
+	/**
+	 * Standard Constructor
+	 * <p>
+	 * Loads the configuration file (aCfgFile) associated with the specified platform.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public LaunchConfig(Platform aPlatform, File aCfgFile)
+	{
+		platform = aPlatform;
+		cfgFile = aCfgFile.getAbsoluteFile();
+
+		backupFile = new File(cfgFile.getParentFile(), cfgFile.getName() + ".bak");
+		isChanged = false;
+
+		if (platform == Platform.Macosx)
+		{
+			doc = AppleUtils.loadDoc(cfgFile);
+		}
+		else if (platform == Platform.Linux || platform == Platform.Windows)
+		{
+			try
+			{
+				lineL = Files.readAllLines(cfgFile.toPath(), StandardCharsets.UTF_8);
+			}
+			catch (IOException aExp)
+			{
+				throw new ErrorDM(aExp, "Failed while processing the config file: " + cfgFile);
+			}
+		}
+		else
+		{
+			throw new ErrorDM("Unrecognized platform: " + platform);
+		}
+	}
+
+	/**
+	 * Returns the {@link LaunchConfig} of the (active) DistMaker distribution.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public static LaunchConfig load()
+	{
+		return new LaunchConfig(PlatformUtils.getPlatform(), PlatformUtils.getConfigurationFile());
+	}
+
+	/**
+	 * Returns the file that the original configuration will be backed up to (on commit).
+	 */
+	public File getBackupFile()
+	{
+		return backupFile;
+	}
+
+	/**
+	 * Returns the configuration file.
+	 */
+	public File getConfigFile()
+	{
+		return cfgFile;
+	}
+
+	/**
+	 * Returns the JVM arguments specified by the configuration.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public List<String> getJvmArgList()
+	{
+		if (platform == Platform.Linux)
+			return LinuxUtils.getJvmArgList(lineL, cfgFile);
+		else if (platform == Platform.Macosx)
+			return AppleUtils.getJvmArgList(doc, cfgFile);
+		else
+			return WindowsUtils.getJvmArgList(lineL);
+	}
+
+	/**
+	 * Returns true if there are (uncommitted) edits.
+	 */
+	public boolean isChanged()
+	{
+		return isChanged;
+	}
+
+	/**
+	 * Sets the file that the original configuration will be backed up to (on commit). The default backup file is located
+	 * next to the configuration file and has the extension: .bak
+	 * <p>
+	 * Specify null if no backup should be taken.
+	 */
+	public void setBackupFile(File aBackupFile)
+	{
+		backupFile = aBackupFile;
+	}
+
+	/**
+	 * Configures the utilization of the application's CDS archive. See {@link AppCdsUtils}.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setAppCdsArchive(boolean aIsEnabled)
+	{
+		// Note the archive is located in the application folder
+		String archivePath = AppCdsUtils.ArchiveFileName;
+		if (platform == Platform.Macosx)
+			archivePath = "$APP_ROOT/Contents/app/" + AppCdsUtils.ArchiveFileName;
+
+		String tmpArg = null;
+		if (aIsEnabled == true)
+			tmpArg = "-XX:SharedArchiveFile=" + archivePath;
+		setJvmArg("-XX:SharedArchiveFile=", tmpArg);
+	}
+
+	/**
+	 * Configures the AppLauncher utilized to launch the application.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setAppLauncher(AppLauncherRelease aRelease)
+	{
+		if (platform == Platform.Linux)
+			LinuxUtils.updateAppLauncher(lineL, aRelease, cfgFile);
+		else if (platform == Platform.Macosx)
+			AppleUtils.updateAppLauncher(doc, aRelease);
+		else if (platform == Platform.Windows)
+			WindowsUtils.updateAppLauncher(lineL, aRelease, cfgFile);
+
+		isChanged = true;
+	}
+
+	/**
+	 * Configures the version of the application. Note that only the Macosx platform records the application version.
+	 */
+	public void setAppVersion(String aVersion)
+	{
+		if (platform != Platform.Macosx)
+			return;
+
+		AppleUtils.updateAppVersion(doc, aVersion);
+		isChanged = true;
+	}
+
+	/**
+	 * Configures the JRE utilized to launch the application.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setJreVersion(JreVersion aJreVersion)
+	{
+		setJreVersion(aJreVersion, null);
+	}
+
+	/**
+	 * Configures the JRE (of the specified variant) utilized to launch the application. A null variant refers to the
+	 * standard JRE.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setJreVersion(JreVersion aJreVersion, String aJreVariant)
+	{
+		if (platform == Platform.Linux)
+			LinuxUtils.updateJreVersion(lineL, aJreVersion, aJreVariant, cfgFile);
+		else if (platform == Platform.Macosx)
+			AppleUtils.updateJreVersion(doc, aJreVersion, aJreVariant, cfgFile);
+		else if (platform == Platform.Windows)
+			WindowsUtils.updateJreVersion(lineL, aJreVersion, aJreVariant, cfgFile);
+
+		isChanged = true;
+	}
+
+	/**
+	 * Configures a JVM argument. All JVM arguments that start with aPrefix will be removed. If aArg is not null then it
+	 * will be added.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setJvmArg(String aPrefix, String aArg)
+	{
+		if (platform == Platform.Linux)
+			LinuxUtils.updateJvmArg(lineL, aPrefix, aArg, cfgFile);
+		else if (platform == Platform.Macosx)
+			AppleUtils.updateJvmArg(doc, aPrefix, aArg, cfgFile);
+		else if (platform == Platform.Windows)
+			WindowsUtils.updateJvmArg(lineL, aPrefix, aArg);
+
+		isChanged = true;
+	}
+
+	/**
+	 * Configures the maximum heap memory (in bytes).
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setMaxHeapMem(long aMaxMemSize)
+	{
+		if (platform == Platform.Linux)
+			LinuxUtils.updateMaxMem(lineL, aMaxMemSize);
+		else if (platform == Platform.Macosx)
+			AppleUtils.updateMaxMem(doc, aMaxMemSize, cfgFile);
+		else if (platform == Platform.Windows)
+			WindowsUtils.updateMaxMem(lineL, aMaxMemSize);
+
+		isChanged = true;
+	}
+
+	/**
+	 * Configures the maximum heap memory as a percentage of the memory available to the JVM. See
+	 * {@link PlatformUtils#setMaxHeapPercent(int)}.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setMaxHeapPercent(int aPercent)
+	{
+		if (platform == Platform.Linux)
+			LinuxUtils.updateMaxMemPercent(lineL, aPercent, cfgFile);
+		else if (platform == Platform.Macosx)
+			AppleUtils.updateMaxMemPercent(doc, aPercent, cfgFile);
+		else if (platform == Platform.Windows)
+		{
+			long maxMemSize = MemUtils.probeMemory().getAvailableMem() * aPercent / 100;
+			maxMemSize = Math.max((maxMemSize / MemUtils.MB_SIZE) * MemUtils.MB_SIZE, MemInfo.MinHeapSize);
+			WindowsUtils.updateMaxMem(lineL, maxMemSize);
+		}
+
+		isChanged = true;
+	}
+
+	/**
+	 * Configures the GC and JIT tuning profile. See {@link #setTuningProfile(TuningProfile, boolean)}.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setTuningProfile(TuningProfile aProfile)
+	{
+		setTuningProfile(aProfile, false);
+	}
+
+	/**
+	 * Configures the GC and JIT tuning profile. The JVM arguments that were added by the prior profile will be removed.
+	 * If aIsCompilerThreads is true then additional JIT compiler threads will be requested.
+	 * <p>
+	 * JVM arguments specified by the developer take precedence: a profile argument is not added if the developer has
+	 * specified the same option. A profile that selects a different garbage collector than the developer is rejected.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void setTuningProfile(TuningProfile aProfile, boolean aIsCompilerThreads)
+	{
+		// Determine the JVM arguments that were added by the prior profile. Fall back to the arguments of the (recorded)
+		// prior profile if the added arguments were not recorded.
+		List<String> currArgL = getJvmArgList();
+		List<String> priorArgL = new ArrayList<>();
+		String priorName = null;
+		for (String aArg : currArgL)
+		{
+			if (aArg.startsWith(TuningProfile.ArgsPropertyPrefix) == true)
+				priorArgL.addAll(Arrays.asList(aArg.substring(TuningProfile.ArgsPropertyPrefix.length()).split(",")));
+			else if (aArg.startsWith(TuningProfile.PropertyPrefix) == true)
+				priorName = aArg.substring(TuningProfile.PropertyPrefix.length());
+		}
+		if (priorArgL.isEmpty() == true && priorName != null)
+			priorArgL.addAll(TuningProfile.parse(priorName).getJvmArgList());
+		priorArgL.remove("");
+
+		// Determine the options (and garbage collector) specified by the developer
+		Set<String> devOptionS = new HashSet<>();
+		String devGcArg = null;
+		for (String aArg : currArgL)
+		{
+			if (priorArgL.contains(aArg) == true || aArg.startsWith(TuningProfile.PropertyPrefix) == true
+					|| aArg.startsWith(TuningProfile.ArgsPropertyPrefix) == true)
+				continue;
+
+			devOptionS.add(TuningProfile.getOptionName(aArg));
+			if (TuningProfile.isGcArg(aArg) == true)
+				devGcArg = aArg;
+		}
+
+		// Determine the JVM arguments to add
+		List<String> profileArgL = new ArrayList<>(aProfile.getJvmArgList());
+		if (aIsCompilerThreads == true)
+			profileArgL.add(TuningProfile.getCompilerThreadArg());
+
+		List<String> addArgL = new ArrayList<>();
+		for (String aArg : profileArgL)
+		{
+			if (TuningProfile.isGcArg(aArg) == true && devGcArg != null && devGcArg.equals(aArg) == false)
+				throw new ErrorDM("The tuning profile (" + aProfile.getLabel()
+						+ ") conflicts with the garbage collector specified by the launch configuration: " + devGcArg);
+
+			if (devOptionS.contains(TuningProfile.getOptionName(aArg)) == false)
+				addArgL.add(aArg);
+		}
+
+		// Remove the prior profile and add the new profile
+		setJvmArg(TuningProfile.PropertyPrefix, null);
+		setJvmArg(TuningProfile.ArgsPropertyPrefix, null);
+		for (String aArg : priorArgL)
+			setJvmArg(aArg, null);
+
+		if (aProfile == TuningProfile.Default && addArgL.isEmpty() == true)
+			return;
+
+		for (String aArg : addArgL)
+			setJvmArg(aArg, aArg);
+		setJvmArg(TuningProfile.PropertyPrefix, TuningProfile.PropertyPrefix + aProfile.name());
+		if (addArgL.isEmpty() == false)
+			setJvmArg(TuningProfile.ArgsPropertyPrefix, TuningProfile.ArgsPropertyPrefix + String.join(",", addArgL));
+	}
+
+	/**
+	 * Commits all of the edits to the configuration file. The original configuration file will be backed up (see
+	 * {@link #getBackupFile()}) and then atomically replaced.
+	 * <p>
+	 * Nothing will be written if there are no edits.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM. On failure the configuration file will not have
+	 * been modified.
+	 */
+	public void commit()
+	{
+		// Bail if there is nothing to commit
+		if (isChanged == false)
+			return;
+
+		ConfigRewrite tmpEvent = new ConfigRewrite();
+		tmpEvent.begin();
+		tmpEvent.configFile = cfgFile.getName();
+		tmpEvent.platform = platform.toString();
+		long begTime = System.nanoTime();
+		try
+		{
+			commitWorker();
+			tmpEvent.isPass = true;
+		}
+		finally
+		{
+			tmpEvent.commit();
+			UpdateMetrics.recordPhase(UpdatePhase.Config, System.nanoTime() - begTime);
+		}
+	}
+
+	/**
+	 * Helper method that writes the (edited) configuration. See {@link #commit()}.
+	 */
+	private void commitWorker()
+	{
+		// Bail if the configuration file is not writable
+		if (cfgFile.setWritable(true) == false)
+			throw new ErrorDM("The config file is not writeable: " + cfgFile);
+
+		// Write the content to a temporary file (which retains the attributes of the configuration file)
+		File tmpFile = new File(cfgFile.getParentFile(), cfgFile.getName() + ".tmp");
+		try
+		{
+			Files.copy(cfgFile.toPath(), tmpFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES,
+					StandardCopyOption.REPLACE_EXISTING);
+			if (platform == Platform.Macosx)
+				AppleUtils.saveDoc(tmpFile, doc);
+			else
+				MiscUtils.writeDoc(tmpFile, lineL);
+
+			// Back up the original configuration
+			if (backupFile != null)
+			{
+				backupFile.getParentFile().mkdirs();
+				Files.copy(cfgFile.toPath(), backupFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES,
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			// Replace the configuration file
+			try
+			{
+				Files.move(tmpFile.toPath(), cfgFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException aExp)
+			{
+				Files.move(tmpFile.toPath(), cfgFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException aExp)
+		{
+			tmpFile.delete();
+			throw new ErrorDM(aExp, "Failed to write the config file: " + cfgFile);
+		}
+		catch (ErrorDM aExp)
+		{
+			tmpFile.delete();
+			throw aExp;
+		}
+
+		isChanged = false;
+	}
+
+	/**
+	 * Restores the configuration file from the backup taken on the last commit.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	public void restore()
+	{
+		try
+		{
+			Files.copy(backupFile.toPath(), cfgFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES,
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException aExp)
+		{
+			throw new ErrorDM(aExp, "Failed to restore the config file: " + cfgFile);
+		}
+	}
+
+}
@@ -13,22 +13,29 @@
 // limitations under the License.
 package distMaker.platform;
 
-import java.io.*;
+import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import distMaker.*;
+import distMaker.DistUtils;
+import distMaker.ErrorDM;
 import distMaker.jre.*;
 
 /**
  * Collection of utility methods specific to the Linux platform.
+ * <p>
+ * The update methods operate on the (in memory) lines of the launch script. See {@link LaunchConfig}.
  *
  * @author lopeznr1
  */
 public class LinuxUtils
 {
+	/** Pattern used to locate the class path of the AppLauncher. */
+	private static final Pattern ClassPathPattern = Pattern.compile("\\-cp[\\s]+.*.jar");
+
 	/**
 	 * Returns the executable script used to launch the JVM.
 	 * <p>
@@ -72,164 +79,122 @@ public class LinuxUtils
 	}
 
 	/**
-	 * Utility method to update the configuration to reflect the specified JRE version.
+	 * Utility method to update the script lines to reflect the specified AppLauncher.
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateAppLauncher(AppLauncherRelease aRelease, File aScriptFile)
+	static void updateAppLauncher(List<String> aLineL, AppLauncherRelease aRelease, File aScriptFile)
 	{
-		List<String> inputL;
-		String evalStr, tmpStr;
-		boolean isFound;
-
-		// Bail if the scritpFile is not writable
-		if (aScriptFile.setWritable(true) == false)
-			throw new ErrorDM("The script file is not writeable: " + aScriptFile);
-
-		// Define the regex we will be searching for
-		Pattern tmpPattern = Pattern.compile("\\-cp[\\s]+.*.jar");
-
-		// Process our input
-		isFound = false;
-		inputL = new ArrayList<>();
-		try (BufferedReader br = MiscUtils.openFileAsBufferedReader(aScriptFile))
+		boolean isFound = false;
+		for (int c1 = 0; c1 < aLineL.size(); c1++)
 		{
-			// Read the lines
-			while (true)
-			{
-				evalStr = br.readLine();
-				if (evalStr == null)
-					break;
-
-				// Locate where the AppLauncher is specified
-				tmpStr = evalStr.trim();
-				if (tmpPattern.matcher(tmpStr).find() == true)
-				{
-					String repStr;
-
-					// Perform an inline replacement
-					repStr = "-cp ../launcher/" + PlatformUtils.getAppLauncherFileName(aRelease.getVersion());
-					evalStr = tmpPattern.matcher(tmpStr).replaceFirst(repStr);
-
-					isFound = true;
-				}
-
-				inputL.add(evalStr);
-			}
-		}
-		catch(IOException aExp)
-		{
-			throw new ErrorDM(aExp, "Failed while processing the script file: " + aScriptFile);
+			// Locate where the AppLauncher is specified
+			String tmpStr = aLineL.get(c1).trim();
+			if (ClassPathPattern.matcher(tmpStr).find() == false)
+				continue;
+
+			// Perform an inline replacement
+			String repStr = "-cp ../launcher/" + PlatformUtils.getAppLauncherFileName(aRelease.getVersion());
+			aLineL.set(c1, ClassPathPattern.matcher(tmpStr).replaceFirst(Matcher.quoteReplacement(repStr)));
+			isFound = true;
 		}
 
 		// Fail if there was no update performed
 		if (isFound == false)
 			throw new ErrorDM("[" + aScriptFile + "] The script does not specify a valid class path.");
-
-		// Write the scriptFile
-		MiscUtils.writeDoc(aScriptFile, inputL);
 	}
 
 	/**
-	 * Utility method to update the configuration to reflect the specified JRE version.
+	 * Utility method to update the script lines to reflect the specified JRE version (and variant).
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateJreVersion(JreVersion aJreVersion, File aScriptFile)
+	static void updateJreVersion(List<String> aLineL, JreVersion aJreVersion, String aJreVariant, File aScriptFile)
 	{
-		List<String> inputL;
-		String evalStr, tmpStr;
-		boolean isFound;
-
-		// Bail if the scritpFile is not writable
-		if (aScriptFile.setWritable(true) == false)
-			throw new ErrorDM("The script file is not writeable: " + aScriptFile);
-
-		// Process our input
-		isFound = false;
-		inputL = new ArrayList<>();
-		try (BufferedReader br = MiscUtils.openFileAsBufferedReader(aScriptFile))
+		// Locate where the java executable is specified
+		for (int c1 = 0; c1 < aLineL.size(); c1++)
 		{
-			// Read the lines
-			while (true)
+			if (aLineL.get(c1).trim().startsWith("javaExe=") == true)
 			{
-				evalStr = br.readLine();
-				if (evalStr == null)
-					break;
-
-				// Locate where the java executable is specified
-				tmpStr = evalStr.trim();
-				if (tmpStr.startsWith("javaExe=") == true)
-				{
-					isFound = true;
-					evalStr = "javaExe=../" + JreUtils.getExpandJrePath(aJreVersion) + "/bin/java";
-				}
-
-				inputL.add(evalStr);
+				aLineL.set(c1, "javaExe=../" + JreUtils.getExpandJrePath(aJreVersion, aJreVariant) + "/bin/java");
+				return;
 			}
 		}
-		catch(IOException aExp)
+
+		// Fail if there was no update performed
+		throw new ErrorDM("[" + aScriptFile + "] The script does not specify a valid JRE path.");
+	}
+
+	/**
+	 * Utility method that returns the JVM arguments specified on the launch line of the script lines. Only the arguments
+	 * that precede the class path are returned.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static List<String> getJvmArgList(List<String> aLineL, File aScriptFile)
+	{
+		String evalStr = aLineL.get(locateLaunchLine(aLineL, aScriptFile));
+		int endIdx = evalStr.indexOf(" -cp ");
+		if (endIdx != -1)
+			evalStr = evalStr.substring(0, endIdx);
+
+		List<String> retL = new ArrayList<>();
+		for (String aToken : evalStr.trim().split("[\\s]+"))
 		{
-			throw new ErrorDM(aExp, "Failed while processing the script file: " + aScriptFile);
+			if (aToken.startsWith("-") == true)
+				retL.add(aToken);
 		}
 
-		// Fail if there was no update performed
-		if (isFound == false)
-			throw new ErrorDM("[" + aScriptFile + "] The script does not specify a valid JRE path.");
+		return retL;
+	}
+
+	/**
+	 * Utility method to update (the launch line of) the script lines so that all JVM arguments that start with aPrefix
+	 * are removed. If aArg is not null then it will be added (just before the class path).
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static void updateJvmArg(List<String> aLineL, String aPrefix, String aArg, File aScriptFile)
+	{
+		int idx = locateLaunchLine(aLineL, aScriptFile);
 
-		// Write the scriptFile
-		MiscUtils.writeDoc(aScriptFile, inputL);
+		// Remove the prior argument(s) and (optionally) specify the argument just before the class path. Note only whole
+		// arguments are matched, as an argument may be embedded in the value of another argument.
+		Pattern tmpPattern = Pattern.compile("(?<=\\s)" + Pattern.quote(aPrefix) + "[\\S]*[\\s]*");
+		String evalStr = tmpPattern.matcher(aLineL.get(idx)).replaceAll("");
+		if (aArg != null)
+			evalStr = evalStr.replaceFirst(" -cp ", Matcher.quoteReplacement(" " + aArg + " -cp "));
+
+		aLineL.set(idx, evalStr);
 	}
 
 	/**
-	 * Utility method to update the specified maxMem var in the script (aFile) to the requested number of bytes.
+	 * Utility method to update the specified maxMem var in the script lines to the requested number of bytes.
 	 * <p>
 	 * Note this method assumes the specified file is a shell script built by DistMaker where the var maxMem holds the
 	 * proper (right side) specification for the JVM's -Xmx value.
 	 * <p>
 	 * If the maxMem var definition is moved in the script file to after the launch of the application then this method
 	 * will (silently) fail to configure the value needed to launch the JVM.
-	 * <p>
-	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateMaxMem(long aNumBytes, File aScriptFile)
+	static void updateMaxMem(List<String> aLineL, long aNumBytes)
 	{
-		List<String> inputL;
-		String evalStr, memStr, tmpStr;
-		int currLineNum, injectLineNum, targLineNum;
-
-		// Bail if the scriptFile is not writable
-		if (aScriptFile.setWritable(true) == false)
-			throw new ErrorDM("The script file is not writeable: " + aScriptFile);
+		String memStr, tmpStr;
+		int injectLineNum, targLineNum;
 
-		// Process our input
-		inputL = new ArrayList<>();
-		try (BufferedReader br = MiscUtils.openFileAsBufferedReader(aScriptFile))
+		// Locate where we should place our maxMem configuration var
+		targLineNum = -1;
+		injectLineNum = -1;
+		for (int c1 = 0; c1 < aLineL.size(); c1++)
 		{
-			// Read the lines
-			currLineNum = 0;
-			targLineNum = -1;
-			injectLineNum = -1;
-			while (true)
-			{
-				evalStr = br.readLine();
-				if (evalStr == null)
-					break;
-
-				// Locate where we should place our maxMem configuration var
-				tmpStr = evalStr.trim();
-				if (tmpStr.equals("# Define the maximum memory to allow the application to utilize") == true)
-					injectLineNum = currLineNum + 1;
-				else if (tmpStr.startsWith("maxMem=") == true)
-					targLineNum = currLineNum;
-
-				inputL.add(evalStr);
-				currLineNum++;
-			}
-		}
-		catch(IOException aExp)
-		{
-			throw new ErrorDM(aExp, "Failed while processing the script file: " + aScriptFile);
+			tmpStr = aLineL.get(c1).trim();
+			if (tmpStr.equals("# Define the maximum memory to allow the application to utilize") == true)
+				injectLineNum = c1 + 1;
+			else if (tmpStr.startsWith("maxMem=") == true)
+				targLineNum = c1;
+			// Remove the (prior) percentage based max memory
+			else if (tmpStr.startsWith("$javaExe ") == true)
+				aLineL.set(c1, aLineL.get(c1).replaceAll("\\-XX:MaxRAMPercentage=[\\S]*[\\s]*", ""));
 		}
 
 		// Determine the memStr to use
@@ -240,17 +205,52 @@ public class LinuxUtils
 
 		// Insert our changes into the script
 		if (targLineNum != -1)
-			inputL.set(targLineNum, "maxMem=" + memStr);
-		else if (injectLineNum != -1 && injectLineNum < currLineNum)
-			inputL.add(injectLineNum + 1, "maxMem=" + memStr);
+			aLineL.set(targLineNum, "maxMem=" + memStr);
+		else if (injectLineNum != -1 && injectLineNum < aLineL.size())
+			aLineL.add(injectLineNum + 1, "maxMem=" + memStr);
 		else
 		{
-			inputL.add(0, "# Define the maximum memory to allow the application to utilize");
-			inputL.add(1, "maxMem=" + memStr + "\n");
+			aLineL.add(0, "# Define the maximum memory to allow the application to utilize");
+			aLineL.add(1, "maxMem=" + memStr + "\n");
+		}
+	}
+
+	/**
+	 * Utility method to update the script lines so that the maximum memory is the specified percentage of the memory
+	 * available to the JVM. The JVM argument -XX:MaxRAMPercentage is utilized which is container (cgroup) aware.
+	 * <p>
+	 * The maxMem var will be commented out since -Xmx has precedence over -XX:MaxRAMPercentage.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	static void updateMaxMemPercent(List<String> aLineL, int aPercent, File aScriptFile)
+	{
+		// Disable the maxMem var
+		for (int c1 = 0; c1 < aLineL.size(); c1++)
+		{
+			String tmpStr = aLineL.get(c1).trim();
+			if (tmpStr.startsWith("maxMem=") == true)
+				aLineL.set(c1, "#" + tmpStr);
+		}
+
+		updateJvmArg(aLineL, "-XX:MaxRAMPercentage=", "-XX:MaxRAMPercentage=" + aPercent, aScriptFile);
+	}
+
+	/**
+	 * Helper method that returns the index of the line that launches the application.
+	 * <p>
+	 * On failure this method will throw an exception of type ErrorDM.
+	 */
+	private static int locateLaunchLine(List<String> aLineL, File aScriptFile)
+	{
+		for (int c1 = 0; c1 < aLineL.size(); c1++)
+		{
+			String tmpStr = aLineL.get(c1).trim();
+			if (tmpStr.startsWith("$javaExe ") == true && tmpStr.contains("appLauncher.AppLauncher") == true)
+				return c1;
 		}
 
-		// Write the scriptFile
-		MiscUtils.writeDoc(aScriptFile, inputL);
+		throw new ErrorDM("[" + aScriptFile + "] The script does not specify the application launch.");
 	}
 
 }
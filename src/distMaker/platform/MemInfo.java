@@ -0,0 +1,133 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.platform;
+
+import static distMaker.platform.MemUtils.MB_SIZE;
+
+/**
+ * Immutable class that describes the memory available to a DistMaker application. See
+ * {@link MemUtils#probeMemory()}.
+ * <p>
+ * All memory values are specified in bytes. A value of -1 indicates that the value could not be determined (or there
+ * is no limit).
+ *
+ * @author lopeznr1
+ */
+public class MemInfo
+{
+	/** The minimum heap size that will ever be recommended. */
+	public static final long MinHeapSize = 256 * MB_SIZE;
+
+	private final long installedMem;
+	private final long containerMem;
+	private final long swapMem;
+	private final long otherHeapMem;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aInstalledMem
+	 *        The installed (physical) system memory.
+	 * @param aContainerMem
+	 *        The memory limit imposed by the container (cgroup). Specify -1 if there is no limit.
+	 * @param aSwapMem
+	 *        The swap space available. Specify -1 if unknown.
+	 * @param aOtherHeapMem
+	 *        The sum of the maximum heaps configured by other (running) DistMaker applications.
+	 */
+	public MemInfo(long aInstalledMem, long aContainerMem, long aSwapMem, long aOtherHeapMem)
+	{
+		installedMem = aInstalledMem;
+		containerMem = aContainerMem;
+		swapMem = aSwapMem;
+		otherHeapMem = aOtherHeapMem;
+	}
+
+	/**
+	 * Returns the memory available to the JVM. This is the installed system memory limited by the container (cgroup)
+	 * limit. Note swap space is not considered as a heap that is swapped out is effectively unusable.
+	 */
+	public long getAvailableMem()
+	{
+		if (containerMem > 0 && containerMem < installedMem)
+			return containerMem;
+
+		return installedMem;
+	}
+
+	/**
+	 * Returns the memory limit imposed by the container (cgroup).
+	 * <p>
+	 * Returns -1 if there is no limit.
+	 */
+	public long getContainerMem()
+	{
+		return containerMem;
+	}
+
+	/**
+	 * Returns the installed (physical) system memory.
+	 */
+	public long getInstalledMem()
+	{
+		return installedMem;
+	}
+
+	/**
+	 * Returns the sum of the maximum heaps configured by other (running) DistMaker applications.
+	 */
+	public long getOtherHeapMem()
+	{
+		return otherHeapMem;
+	}
+
+	/**
+	 * Returns the recommended (safe) maximum heap size.
+	 * <p>
+	 * The recommendation is the available memory less the heaps of other DistMaker applications and a reserve for the
+	 * JVM's non-heap memory and the rest of the system. The reserve is 25% of the available memory (but at least 256
+	 * MB). The returned value is rounded down to the nearest megabyte and will be at least {@link #MinHeapSize}.
+	 */
+	public long getRecommendedMaxHeap()
+	{
+		long availMem = getAvailableMem();
+		long reserveMem = Math.max(availMem / 4, 256 * MB_SIZE);
+
+		long retMem = availMem - otherHeapMem - reserveMem;
+		retMem = (retMem / MB_SIZE) * MB_SIZE;
+		if (retMem < MinHeapSize)
+			retMem = MinHeapSize;
+
+		return retMem;
+	}
+
+	/**
+	 * Returns the swap space available.
+	 * <p>
+	 * Returns -1 if unknown.
+	 */
+	public long getSwapMem()
+	{
+		return swapMem;
+	}
+
+	/**
+	 * Returns true if the memory available to the JVM is limited by a container (cgroup).
+	 */
+	public boolean isContainerLimited()
+	{
+		return containerMem > 0 && containerMem < installedMem;
+	}
+
+}
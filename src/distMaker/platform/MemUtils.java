@@ -13,15 +13,24 @@
 // limitations under the License.
 package distMaker.platform;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 
+import glum.io.ParseUtil;
 import glum.reflect.ReflectUtil;
 import glum.unit.ByteUnit;
 
 /**
  * Collection of utility methods that provide various functionality associated with system memory.
+ * <p>
+ * The memory probe ({@link #probeMemory()}) is container aware. On Linux the cgroup (v1 and v2) memory limits of the
+ * running process are honored.
  *
  * @author lopeznr1
  */
@@ -32,6 +41,40 @@ public class MemUtils
 	public static final long MB_SIZE = 1024 * 1024;
 	public static final long GB_SIZE = 1024 * 1024 * 1024;
 
+	/** Values (cgroup v1) at or above this threshold designate an unlimited resource. */
+	private static final long CgroupUnlimitedThreshold = Long.MAX_VALUE / 2;
+
+	/**
+	 * Utility method that returns the memory limit imposed by the container (cgroup) of this process.
+	 * <p>
+	 * Returns -1 if there is no limit or if the limit could not be determined.
+	 */
+	public static long getContainerMemoryLimit()
+	{
+		return readCgroupValue("memory.max", "memory.limit_in_bytes");
+	}
+
+	/**
+	 * Utility method that returns the swap limit imposed by the container (cgroup) of this process.
+	 * <p>
+	 * Returns -1 if there is no limit or if the limit could not be determined.
+	 */
+	public static long getContainerSwapLimit()
+	{
+		// cgroup v2: The swap limit is specified separately
+		long swapLimit = readCgroupValue("memory.swap.max", null);
+		if (swapLimit >= 0)
+			return swapLimit;
+
+		// cgroup v1: The limit is specified as the combination of memory and swap
+		long memSwapLimit = readCgroupValue(null, "memory.memsw.limit_in_bytes");
+		long memLimit = readCgroupValue(null, "memory.limit_in_bytes");
+		if (memSwapLimit >= 0 && memLimit >= 0)
+			return Math.max(memSwapLimit - memLimit, 0);
+
+		return -1;
+	}
+
 	/**
 	 * Utility method that attempts to compute the installed system memory (ram). If the installed system ram can not be
 	 * computed, then the system is assumed to have 4 GB.
@@ -74,6 +117,111 @@ public class MemUtils
 		return systemMem;
 	}
 
+	/**
+	 * Utility method that returns the sum of the maximum heaps configured by other (running) DistMaker applications.
+	 * <p>
+	 * DistMaker applications are recognized by the AppLauncher main class. Applications that do not specify -Xmx will
+	 * be assumed to utilize the percentage of aAvailMem specified via -XX:MaxRAMPercentage (default: 25%).
+	 */
+	public static long getOtherAppHeapMemory(long aAvailMem)
+	{
+		long selfPid = ProcessHandle.current().pid();
+
+		long retMem = 0L;
+		for (ProcessHandle aHandle : ProcessHandle.allProcesses().toArray(ProcessHandle[]::new))
+		{
+			if (aHandle.pid() == selfPid)
+				continue;
+
+			String[] argArr = aHandle.info().arguments().orElse(null);
+			if (argArr == null || List.of(argArr).contains("appLauncher.AppLauncher") == false)
+				continue;
+
+			long heapMem = -1;
+			double heapPct = 25.0;
+			for (String aArg : argArr)
+			{
+				if (aArg.startsWith("-Xmx") == true)
+					heapMem = parseMemSize(aArg.substring(4), heapMem);
+				else if (aArg.startsWith("-XX:MaxRAMPercentage=") == true)
+					heapPct = ParseUtil.readDouble(aArg.substring(21), heapPct);
+			}
+			if (heapMem < 0)
+				heapMem = (long)(aAvailMem * heapPct / 100);
+
+			retMem += heapMem;
+		}
+
+		return retMem;
+	}
+
+	/**
+	 * Utility method that attempts to compute the total swap space of the system.
+	 * <p>
+	 * Returns -1 if the swap space can not be determined.
+	 */
+	public static long getSwapMemory()
+	{
+		try
+		{
+			// Retrieve the swap space via reflection (see getInstalledSystemMemory())
+			OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+			Class<?> tmpClass = Class.forName("com.sun.management.OperatingSystemMXBean");
+			Method tmpMethod = ReflectUtil.locateMatchingMethod(tmpClass, "getTotalSwapSpaceSize");
+			return (Long)tmpMethod.invoke(osBean);
+		}
+		catch(Throwable aThrowable)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * Utility method that parses a JVM memory specification (such as the value of -Xmx) into bytes. Supported suffixes
+	 * are: k, m, g (case insensitive).
+	 * <p>
+	 * Returns aDefaultVal if the specification can not be parsed.
+	 */
+	public static long parseMemSize(String aMemStr, long aDefaultVal)
+	{
+		String memStr = aMemStr.toUpperCase();
+		if (memStr.endsWith("K") == true)
+			return ParseUtil.readLong(memStr.substring(0, memStr.length() - 1), aDefaultVal / KB_SIZE) * KB_SIZE;
+		else if (memStr.endsWith("M") == true)
+			return ParseUtil.readLong(memStr.substring(0, memStr.length() - 1), aDefaultVal / MB_SIZE) * MB_SIZE;
+		else if (memStr.endsWith("G") == true)
+			return ParseUtil.readLong(memStr.substring(0, memStr.length() - 1), aDefaultVal / GB_SIZE) * GB_SIZE;
+
+		return ParseUtil.readLong(memStr, aDefaultVal);
+	}
+
+	/**
+	 * Utility method that probes the memory available to this (DistMaker) application. The probe considers:
+	 * <ul>
+	 * <li>The installed system memory.
+	 * <li>The container (cgroup) memory and swap limits.
+	 * <li>The swap space of the system.
+	 * <li>The maximum heaps configured by other (running) DistMaker applications.
+	 * </ul>
+	 */
+	public static MemInfo probeMemory()
+	{
+		long installedMem = getInstalledSystemMemory();
+		long containerMem = getContainerMemoryLimit();
+
+		long swapMem = getSwapMemory();
+		long swapLimit = getContainerSwapLimit();
+		if (swapLimit >= 0 && (swapMem < 0 || swapLimit < swapMem))
+			swapMem = swapLimit;
+
+		long availMem = installedMem;
+		if (containerMem > 0 && containerMem < installedMem)
+			availMem = containerMem;
+		long otherHeapMem = getOtherAppHeapMemory(availMem);
+
+		return new MemInfo(installedMem, containerMem, swapMem, otherHeapMem);
+	}
+
 	/**
 	 * Utility method that takes an inputStr, locates the fragment -Xmx*, and replaces the fragment with the appropriate
 	 * -Xmx with respect to numBytes.
@@ -118,4 +266,57 @@ public class MemUtils
 		return returnStr;
 	}
 
+	/**
+	 * Helper method that reads the specified (memory) value from the cgroup of this process. The cgroup v2 file is
+	 * consulted first followed by the cgroup v1 file. Either file name may be null.
+	 * <p>
+	 * Returns -1 if the value designates no limit or if the value could not be determined.
+	 */
+	private static long readCgroupValue(String aV2FileName, String aV1FileName)
+	{
+		// cgroups are only supported on Linux
+		File cgroupFile = new File("/proc/self/cgroup");
+		if (cgroupFile.isFile() == false)
+			return -1;
+
+		try
+		{
+			for (String aLine : Files.readAllLines(cgroupFile.toPath(), StandardCharsets.UTF_8))
+			{
+				// Each line has the form: <id>:<controllers>:<path>
+				String[] tokenArr = aLine.split(":", 3);
+				if (tokenArr.length != 3)
+					continue;
+
+				String[] fileArr;
+				if (tokenArr[0].equals("0") == true && tokenArr[1].isEmpty() == true && aV2FileName != null)
+					fileArr = new String[] { "/sys/fs/cgroup" + tokenArr[2] + "/" + aV2FileName, "/sys/fs/cgroup/" + aV2FileName };
+				else if (List.of(tokenArr[1].split(",")).contains("memory") == true && aV1FileName != null)
+					fileArr = new String[] { "/sys/fs/cgroup/memory" + tokenArr[2] + "/" + aV1FileName, "/sys/fs/cgroup/memory/" + aV1FileName };
+				else
+					continue;
+
+				// Note the cgroup path may not be visible (within a container's cgroup namespace) so fall back to the root
+				for (String aFileName : fileArr)
+				{
+					File tmpFile = new File(aFileName);
+					if (tmpFile.isFile() == false)
+						continue;
+
+					String valStr = new String(Files.readAllBytes(tmpFile.toPath()), StandardCharsets.UTF_8).trim();
+					long retVal = ParseUtil.readLong(valStr, -1);
+					if (retVal >= CgroupUnlimitedThreshold)
+						retVal = -1;
+					return retVal;
+				}
+			}
+		}
+		catch(IOException aExp)
+		{
+			; // Nothing to do
+		}
+
+		return -1;
+	}
+
 }
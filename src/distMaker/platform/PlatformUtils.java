@@ -27,11 +27,16 @@ import glum.version.Version;
  * <li>Retrieval of the file name of the app launcher.
  * <li>Retrieval of the location of the app launcher.
  * <li>Retrieval / Setting of the JRE location.
+ * <li>Setting of the CDS archive.
  * <li>Retrieval of the system {@link Platform}.
  * <li>Setting of the heap memory.
+ * <li>Setting of the GC and JIT tuning profile.
  * <li>Transformation of a platform string into the corresponding {@link Platform}.
  * </ul>
  * Note that setting of system parameters will not take effect until the DistMaker application is restarted.
+ * <p>
+ * Each of the setters results in a single (atomic) write of the configuration file. Multiple settings should be made
+ * via a {@link LaunchConfig} so that they are committed together.
  *
  * @author lopeznr1
  */
@@ -110,11 +115,22 @@ public class PlatformUtils
 	 * On failure this method will throw an exception of type {@link ErrorDM}.
 	 */
 	public static String getJreLocation(JreVersion aJreVersion)
+	{
+		return getJreLocation(aJreVersion, null);
+	}
+
+	/**
+	 * Utility method that returns the relative path where the specified JRE (of the specified variant) should be
+	 * unpacked to. See {@link #getJreLocation(JreVersion)}.
+	 * <p>
+	 * On failure this method will throw an exception of type {@link ErrorDM}.
+	 */
+	public static String getJreLocation(JreVersion aJreVersion, String aJreVariant)
 	{
 		Platform platform;
 		String tmpPathName;
 
-		tmpPathName = JreUtils.getExpandJrePath(aJreVersion);
+		tmpPathName = JreUtils.getExpandJrePath(aJreVersion, aJreVariant);
 
 		// Delegate to the proper util class
 		platform = PlatformUtils.getPlatform();
@@ -146,6 +162,24 @@ public class PlatformUtils
 		throw new ErrorDM("Unrecognized os.name: " + osName);
 	}
 
+	/**
+	 * Utility method to configure the (active) DistMaker distribution to utilize (or not) the application's CDS archive.
+	 * See {@link AppCdsUtils}.
+	 * <p>
+	 * Note this will only take effect after the application has been restarted.
+	 * <p>
+	 * On failure this method will throw an exception of type {@link ErrorDM}.
+	 *
+	 * @param aIsEnabled
+	 *        Flag which defines if the CDS archive should be utilized.
+	 */
+	public static void setAppCdsArchive(boolean aIsEnabled)
+	{
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setAppCdsArchive(aIsEnabled);
+		launchCfg.commit();
+	}
+
 	/**
 	 * Utility method to configure the AppLauncher used by the (active) DistMaker distribution.
 	 * <p>
@@ -158,22 +192,9 @@ public class PlatformUtils
 	 */
 	public static void setAppLauncher(AppLauncherRelease aRelease)
 	{
-		Platform platform;
-		File cfgFile;
-
-		// Retrieve the appropriate configuration file
-		cfgFile = PlatformUtils.getConfigurationFile();
-
-		// Delegate to the proper util class
-		platform = PlatformUtils.getPlatform();
-		if (platform == Platform.Linux)
-			LinuxUtils.updateAppLauncher(aRelease, cfgFile);
-		else if (platform == Platform.Macosx)
-			AppleUtils.updateAppLauncher(aRelease, cfgFile);
-		else if (platform == Platform.Windows)
-			WindowsUtils.updateAppLauncher(aRelease, cfgFile);
-		else
-			throw new ErrorDM("Unrecognized platform: " + platform);
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setAppLauncher(aRelease);
+		launchCfg.commit();
 	}
 
 	/**
@@ -188,22 +209,21 @@ public class PlatformUtils
 	 */
 	public static void setJreVersion(JreVersion aJreVersion)
 	{
-		Platform platform;
-		File cfgFile;
-
-		// Retrieve the appropriate configuration file
-		cfgFile = PlatformUtils.getConfigurationFile();
+		setJreVersion(aJreVersion, null);
+	}
 
-		// Delegate to the proper util class
-		platform = PlatformUtils.getPlatform();
-		if (platform == Platform.Linux)
-			LinuxUtils.updateJreVersion(aJreVersion, cfgFile);
-		else if (platform == Platform.Macosx)
-			AppleUtils.updateJreVersion(aJreVersion, cfgFile);
-		else if (platform == Platform.Windows)
-			WindowsUtils.updateJreVersion(aJreVersion, cfgFile);
-		else
-			throw new ErrorDM("Unrecognized platform: " + platform);
+	/**
+	 * Utility method to configure the JRE (of the specified variant) used by the (active) DistMaker distribution.
+	 * <p>
+	 * Note this will only take effect after the application has been restarted.
+	 * <p>
+	 * On failure this method will throw an exception of type {@link ErrorDM}.
+	 */
+	public static void setJreVersion(JreVersion aJreVersion, String aJreVariant)
+	{
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setJreVersion(aJreVersion, aJreVariant);
+		launchCfg.commit();
 	}
 
 	/**
@@ -218,22 +238,46 @@ public class PlatformUtils
 	 */
 	public static void setMaxHeapMem(long maxMemSize)
 	{
-		Platform platform;
-		File cfgFile;
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setMaxHeapMem(maxMemSize);
+		launchCfg.commit();
+	}
 
-		// Retrieve the appropriate configuration file
-		cfgFile = PlatformUtils.getConfigurationFile();
+	/**
+	 * Utility method to configure the (active) DistMaker distribution so that the maximum heap memory is the specified
+	 * percentage of the memory available to the JVM. On Linux and Macosx the JVM will (at startup) compute the heap from
+	 * the available memory, which is container (cgroup) aware. On Windows the percentage will be resolved (now) to a
+	 * fixed heap size as the launcher may specify a fixed heap size which can not be overridden.
+	 * <p>
+	 * Note this will only take effect after the application has been restarted.
+	 * <p>
+	 * On failure this method will throw an exception of type {@link ErrorDM}.
+	 *
+	 * @param aPercent
+	 *        Maximum heap memory as a percentage of the available memory.
+	 */
+	public static void setMaxHeapPercent(int aPercent)
+	{
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setMaxHeapPercent(aPercent);
+		launchCfg.commit();
+	}
 
-		// Delegate to the proper util class
-		platform = PlatformUtils.getPlatform();
-		if (platform == Platform.Linux)
-			LinuxUtils.updateMaxMem(maxMemSize, cfgFile);
-		else if (platform == Platform.Macosx)
-			AppleUtils.updateMaxMem(maxMemSize, cfgFile);
-		else if (platform == Platform.Windows)
-			WindowsUtils.updateMaxMem(maxMemSize, cfgFile);
-		else
-			throw new ErrorDM(null, "Unrecognized platform: " + platform, "Unsupported Platform");
+	/**
+	 * Utility method to configure the (active) DistMaker distribution to utilize the specified GC and JIT tuning profile.
+	 * <p>
+	 * Note this will only take effect after the application has been restarted.
+	 * <p>
+	 * On failure this method will throw an exception of type {@link ErrorDM}.
+	 *
+	 * @param aProfile
+	 *        The tuning profile that will be utilized.
+	 */
+	public static void setTuningProfile(TuningProfile aProfile)
+	{
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setTuningProfile(aProfile);
+		launchCfg.commit();
 	}
 
 	/**
@@ -269,16 +313,9 @@ public class PlatformUtils
 	 */
 	public static void updateAppRelease(AppRelease aRelease)
 	{
-		Platform platform;
-		File cfgFile;
-
-		// Retrieve the appropriate configuration file
-		cfgFile = PlatformUtils.getConfigurationFile();
-
-		// Delegate to the proper util class
-		platform = getPlatform();
-		if (platform == Platform.Macosx)
-			AppleUtils.updateAppVersion(aRelease.getVersion(), cfgFile);
+		LaunchConfig launchCfg = LaunchConfig.load();
+		launchCfg.setAppVersion(aRelease.getVersion());
+		launchCfg.commit();
 	}
 
 }
@@ -0,0 +1,190 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.platform;
+
+import java.util.List;
+
+import distMaker.jre.JreVersion;
+
+/**
+ * Enum which defines the (named) GC and JIT tuning profiles that can be applied to a DistMaker application.
+ * <p>
+ * A profile is applied via the platform launch configuration (see
+ * {@link LaunchConfig#setTuningProfile(TuningProfile, boolean)}) and is recorded (in the launch configuration) via the
+ * system property: distMaker.tuningProfile. The JVM arguments that were added by the profile are recorded via the
+ * system property: distMaker.tuningArgs. Only those arguments are removed when the profile is changed, thus JVM
+ * arguments specified by the developer are never altered. Profiles are preserved across updates.
+ * <p>
+ * Additional JIT compiler threads (one per processor) may optionally be requested along with any profile.
+ *
+ * @author lopeznr1
+ */
+public enum TuningProfile
+{
+	/** The JVM's default settings. No tuning flags are specified. */
+	Default("Default", "The JVM's default settings.", 0),
+
+	/** The G1 collector with a (soft) pause target. */
+	Balanced("Balanced (G1)", "Balances throughput and pause times.", 9, //
+			"-XX:+UseG1GC", "-XX:MaxGCPauseMillis=200"),
+
+	/** The parallel collector with a pre-touched heap. */
+	Throughput("Throughput (Parallel)", "Maximizes throughput for data intensive (batch) processing.", 9, //
+			"-XX:+UseParallelGC", "-XX:+AlwaysPreTouch"),
+
+	/** The Z collector with a pre-touched heap. */
+	LowLatency("Low latency (ZGC)", "Minimizes pause times. Requires Java 15 or later.", 15, //
+			"-XX:+UseZGC", "-XX:+AlwaysPreTouch"),
+
+	;
+
+	/** The prefix of the system property that records the applied profile. */
+	public static final String PropertyPrefix = "-DdistMaker.tuningProfile=";
+
+	/** The prefix of the system property that records the JVM arguments (comma separated) added by the profile. */
+	public static final String ArgsPropertyPrefix = "-DdistMaker.tuningArgs=";
+
+	/** The prefix of the JVM argument that specifies the number of JIT compiler threads. */
+	private static final String CompilerThreadPrefix = "-XX:CICompilerCount=";
+
+	/** The JVM arguments that select a garbage collector. Only one collector may be selected. */
+	private static final List<String> GcArgL = List.of("-XX:+UseG1GC", "-XX:+UseParallelGC", "-XX:+UseZGC",
+			"-XX:+UseSerialGC", "-XX:+UseShenandoahGC", "-XX:+UseConcMarkSweepGC", "-XX:+UseEpsilonGC");
+
+	// Attributes
+	private final String label;
+	private final String descr;
+	private final int minJreMajor;
+	private final String[] argArr;
+
+	private TuningProfile(String aLabel, String aDescr, int aMinJreMajor, String... aArgArr)
+	{
+		label = aLabel;
+		descr = aDescr;
+		minJreMajor = aMinJreMajor;
+		argArr = aArgArr;
+	}
+
+	/**
+	 * Returns the {@link TuningProfile} that the running application was launched with.
+	 */
+	public static TuningProfile getCurrent()
+	{
+		return parse(System.getProperty("distMaker.tuningProfile"));
+	}
+
+	/**
+	 * Returns the JVM argument that requests additional JIT compiler threads. The number of threads is relative to the
+	 * processors of the host (one per processor) as the JVM's (tiered) default is lower on most hosts.
+	 * <p>
+	 * Note the count is fixed when the argument is applied. It should be re-applied if the host changes.
+	 */
+	public static String getCompilerThreadArg()
+	{
+		return CompilerThreadPrefix + Math.max(2, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns the name of the option specified by the JVM argument. The name is used to determine if two JVM arguments
+	 * specify the same option. For example the name of -XX:MaxGCPauseMillis=200 is MaxGCPauseMillis.
+	 */
+	public static String getOptionName(String aArg)
+	{
+		String retName = aArg;
+		if (retName.startsWith("-XX:+") == true || retName.startsWith("-XX:-") == true)
+			retName = retName.substring(5);
+		else if (retName.startsWith("-XX:") == true)
+			retName = retName.substring(4);
+
+		int tmpIdx = retName.indexOf('=');
+		if (tmpIdx != -1)
+			retName = retName.substring(0, tmpIdx);
+		return retName;
+	}
+
+	/**
+	 * Returns true if the running application was launched with the additional JIT compiler threads. See
+	 * {@link #getCompilerThreadArg()}.
+	 */
+	public static boolean isCompilerThreadsCurrent()
+	{
+		String tmpStr = System.getProperty("distMaker.tuningArgs", "");
+		return tmpStr.contains(CompilerThreadPrefix) == true;
+	}
+
+	/**
+	 * Returns true if the specified JVM argument selects a garbage collector.
+	 */
+	public static boolean isGcArg(String aArg)
+	{
+		return GcArgL.contains(aArg);
+	}
+
+	/**
+	 * Returns the {@link TuningProfile} with the specified name.
+	 * <p>
+	 * Returns {@link #Default} if the name is not recognized.
+	 */
+	public static TuningProfile parse(String aName)
+	{
+		for (TuningProfile aItem : values())
+		{
+			if (aItem.name().equalsIgnoreCase(aName) == true)
+				return aItem;
+		}
+
+		return Default;
+	}
+
+	/**
+	 * Returns a short description of the profile.
+	 */
+	public String getDescr()
+	{
+		return descr;
+	}
+
+	/**
+	 * Returns the JVM arguments that define the profile.
+	 * <p>
+	 * Note the number of JIT compiler threads is left to the JVM unless requested. See {@link #getCompilerThreadArg()}.
+	 */
+	public List<String> getJvmArgList()
+	{
+		return List.of(argArr);
+	}
+
+	/**
+	 * Returns the user friendly label of the profile.
+	 */
+	public String getLabel()
+	{
+		return label;
+	}
+
+	/**
+	 * Returns true if the profile is supported by the specified JRE.
+	 */
+	public boolean isSupported(JreVersion aJreVersion)
+	{
+		return aJreVersion.major() >= minJreMajor;
+	}
+
+	@Override
+	public String toString()
+	{
+		return label;
+	}
+
+}
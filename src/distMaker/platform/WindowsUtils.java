@@ -13,16 +13,20 @@
 // limitations under the License.
 package distMaker.platform;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import distMaker.*;
+import distMaker.DistUtils;
+import distMaker.ErrorDM;
 import distMaker.jre.AppLauncherRelease;
 import distMaker.jre.JreVersion;
 
 /**
  * Collection of utility methods specific to the Windows platform.
+ * <p>
+ * The update methods operate on the (in memory) lines of the l4j configuration file. See {@link LaunchConfig}.
  *
  * @author lopeznr1
  */
@@ -85,85 +89,84 @@ public class WindowsUtils
 	}
 
 	/**
-	 * Utility method to update the configuration to reflect the specified AppLauncher version.
+	 * Utility method to update the configuration lines to reflect the specified AppLauncher version.
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateAppLauncher(AppLauncherRelease aRelease, File aConfigFile)
+	static void updateAppLauncher(List<String> aLineL, AppLauncherRelease aRelease, File aConfigFile)
 	{
 		int zzz_incomplete_logic;
 		throw new ErrorDM("The logic is incomplete.");
 	}
 
 	/**
-	 * Utility method to update the configuration to reflect the specified JRE version.
+	 * Utility method to update the configuration lines to reflect the specified JRE version (and variant).
 	 * <p>
 	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateJreVersion(JreVersion aJreVersion, File aConfigFile)
+	static void updateJreVersion(List<String> aLineL, JreVersion aJreVersion, String aJreVariant, File aConfigFile)
 	{
 		int zzz_incomplete_logic;
 		throw new ErrorDM("The logic is incomplete.");
 	}
 
 	/**
-	 * Utility method to update the specified max memory (-Xmx) value in the text file (aFile) to the specified
+	 * Utility method that returns the JVM arguments specified in the configuration lines.
+	 */
+	static List<String> getJvmArgList(List<String> aLineL)
+	{
+		List<String> retL = new ArrayList<>();
+		for (String aLine : aLineL)
+		{
+			if (aLine.trim().startsWith("-") == true)
+				retL.add(aLine.trim());
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Utility method to update the configuration lines so that all JVM arguments that start with aPrefix are removed. If
+	 * aArg is not null then it will be added.
+	 */
+	static void updateJvmArg(List<String> aLineL, String aPrefix, String aArg)
+	{
+		aLineL.removeIf(aLine -> aLine.trim().startsWith(aPrefix) == true);
+		if (aArg != null)
+			aLineL.add(aArg);
+	}
+
+	/**
+	 * Utility method to update the specified max memory (-Xmx) value in the configuration lines to the specified
 	 * maxMemVal.
 	 * <p>
 	 * Note this method is very brittle, and assumes that there is a single value where the string, -Xmx, is specified in
 	 * the script. It assumes this string will be surrounded by a single space character on each side.
-	 * <p>
-	 * On failure this method will throw an exception of type ErrorDM.
 	 */
-	public static void updateMaxMem(long numBytes, File aConfigFile)
+	static void updateMaxMem(List<String> aLineL, long numBytes)
 	{
-		List<String> inputL;
 		String strLine, updateStr;
 		boolean isProcessed;
 
-		// Bail if the configFile is not writable
-		if (aConfigFile.setWritable(true) == false)
-			throw new ErrorDM("The config file is not writeable: " + aConfigFile);
-
 		isProcessed = false;
-		inputL = new ArrayList<>();
-
-		// Process our input
-		try (BufferedReader br = MiscUtils.openFileAsBufferedReader(aConfigFile))
+		for (int c1 = 0; c1 < aLineL.size(); c1++)
 		{
-			// Read the lines
-			while (true)
+			strLine = aLineL.get(c1);
+			updateStr = MemUtils.transformMaxMemHeapString(strLine, numBytes);
+			if (updateStr != null)
 			{
-				strLine = br.readLine();
-				if (strLine == null)
-					break;
-
-				updateStr = MemUtils.transformMaxMemHeapString(strLine, numBytes);
-				if (updateStr != null)
-				{
-					isProcessed = true;
-					strLine = updateStr;
-				}
-
-				inputL.add(strLine);
-			}
-
-			// Create a new max heap input config line if one is not specified
-			if (isProcessed == false)
-			{
-				strLine = MemUtils.transformMaxMemHeapString("-Xmx256m", numBytes);
-				inputL.add(strLine);
-				inputL.add("\n");
 				isProcessed = true;
+				aLineL.set(c1, updateStr);
 			}
 		}
-		catch(Exception aExp)
+
+		// Create a new max heap input config line if one is not specified
+		if (isProcessed == false)
 		{
-			throw new ErrorDM(aExp, "Failed while processing the config file: " + aConfigFile);
+			strLine = MemUtils.transformMaxMemHeapString("-Xmx256m", numBytes);
+			aLineL.add(strLine);
+			aLineL.add("\n");
 		}
-
-		// Update the script
-		MiscUtils.writeDoc(aConfigFile, inputL);
 	}
 
 }
@@ -0,0 +1,236 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.utils;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.List;
+
+import distMaker.metrics.UpdateMetrics;
+import distMaker.utils.UpdateEvents.CatalogFetch;
+import glum.digest.DigestType;
+import glum.digest.DigestUtils;
+import glum.io.IoUtil;
+import glum.net.Credential;
+import glum.net.NetUtil;
+import glum.task.Task;
+
+/**
+ * Collection of utility methods used to maintain a local copy of an append-only catalog (appCatalog.txt).
+ * <p>
+ * The deploy scripts only ever append release entries to appCatalog.txt. Rather than retrieving the full catalog on
+ * every update check, the content that was previously retrieved is cached locally and only the newly appended bytes are
+ * requested (via an HTTP Range request). Along with the cached content the following state is recorded (in the
+ * sibling file {@literal <cacheFile>.state}):
+ * <ul>
+ * <li>The length of the cached content.
+ * <li>The SHA-256 checksum of the cached content.
+ * </ul>
+ * The range request starts {@value #VerifyLen} bytes before the end of the cached content. The overlapping bytes must
+ * match the cached content otherwise the catalog is assumed to have been rewritten (ex: a release was removed) and the
+ * full catalog is retrieved. The full catalog is retrieved as well if the cached content does not match the recorded
+ * state, the catalog has shrunk, or the update site does not support range requests.
+ *
+ * @author lopeznr1
+ */
+public class CatalogCache
+{
+	/** The file extension of the (cache) state file. */
+	public static final String StateExt = ".state";
+
+	/** The number of (previously retrieved) bytes that are requested again to verify the prefix is unchanged. */
+	public static final int VerifyLen = 1024;
+
+	/**
+	 * Utility method that returns a stream of the (full) content of the append-only catalog at aCatUrl.
+	 * <p>
+	 * If aCacheFile holds a valid (prior) copy of the catalog then only the newly appended bytes are retrieved. The
+	 * cache is updated to reflect the retrieved content. Failure to update the cache is logged but is not fatal.
+	 */
+	public static InputStream open(Task aTask, URL aCatUrl, File aCacheFile, Credential aCredential) throws IOException
+	{
+		byte[] cacheArr = readCache(aCacheFile);
+
+		// Retrieve just the appended bytes (if possible)
+		byte[] dataArr = null;
+		if (cacheArr != null && cacheArr.length > 0)
+			dataArr = fetchAppended(aCatUrl, cacheArr, aCredential);
+
+		// Fall back to the full catalog
+		if (dataArr == null)
+		{
+			if (cacheArr != null && cacheArr.length > 0)
+				UpdateMetrics.recordRetry();
+
+			// Note the (hand edited) catalog has no compressed sibling
+			try (InputStream inStream = CatalogUtils.openStream(aCatUrl.openConnection(), aCredential))
+			{
+				dataArr = inStream.readAllBytes();
+			}
+		}
+
+		// Update the cache
+		if (Arrays.equals(dataArr, cacheArr) == false)
+		{
+			try
+			{
+				writeCache(aCacheFile, dataArr);
+			}
+			catch (IOException aExp)
+			{
+				aTask.logRegln("Failed to update the catalog cache: " + aCacheFile);
+				aTask.logRegln("\t" + aExp.getClass().getSimpleName() + ": " + aExp.getMessage());
+			}
+		}
+
+		return new ByteArrayInputStream(dataArr);
+	}
+
+	/**
+	 * Helper method that returns the (full) content of the catalog by appending the newly appended bytes to aCacheArr.
+	 * <p>
+	 * Returns null if the appended bytes could not be retrieved or the (verified) prefix no longer matches.
+	 */
+	private static byte[] fetchAppended(URL aCatUrl, byte[] aCacheArr, Credential aCredential)
+	{
+		// Range requests are only supported over HTTP
+		URLConnection tmpConnection;
+		try
+		{
+			tmpConnection = aCatUrl.openConnection();
+		}
+		catch (IOException aExp)
+		{
+			return null;
+		}
+		if (tmpConnection instanceof HttpURLConnection == false)
+			return null;
+		HttpURLConnection httpConnection = (HttpURLConnection) tmpConnection;
+
+		int begPos = Math.max(0, aCacheArr.length - VerifyLen);
+		tmpConnection.setRequestProperty("Range", "bytes=" + begPos + "-");
+		tmpConnection.setRequestProperty("Accept-Encoding", "identity");
+
+		byte[] bodyArr;
+		InputStream inStream = null;
+		CatalogFetch tmpEvent = new CatalogFetch();
+		tmpEvent.start();
+		try
+		{
+			inStream = NetUtil.getInputStream(tmpConnection, aCredential);
+			bodyArr = inStream.readAllBytes();
+			UpdateMetrics.recordDownload(bodyArr.length);
+
+			tmpEvent.setUrl(aCatUrl);
+			tmpEvent.encoding = "range";
+			tmpEvent.setBytes(bodyArr.length);
+			tmpEvent.commit();
+
+			// The update site ignored the range request: the body is the full catalog
+			if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_OK)
+				return bodyArr;
+			if (httpConnection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL)
+				return null;
+		}
+		catch (IOException aExp)
+		{
+			// Note a catalog that has shrunk is reported as: 416 (Range Not Satisfiable)
+			return null;
+		}
+		finally
+		{
+			IoUtil.forceClose(inStream);
+		}
+
+		// Ensure the range starts where requested
+		String rangeStr = tmpConnection.getHeaderField("Content-Range");
+		if (rangeStr == null || rangeStr.startsWith("bytes " + begPos + "-") == false)
+			return null;
+
+		// Verify the prefix is unchanged
+		int overlapLen = aCacheArr.length - begPos;
+		if (bodyArr.length < overlapLen)
+			return null;
+		if (Arrays.equals(aCacheArr, begPos, aCacheArr.length, bodyArr, 0, overlapLen) == false)
+			return null;
+
+		byte[] retArr = Arrays.copyOf(aCacheArr, begPos + bodyArr.length);
+		System.arraycopy(bodyArr, overlapLen, retArr, aCacheArr.length, bodyArr.length - overlapLen);
+		return retArr;
+	}
+
+	/**
+	 * Helper method that returns the SHA-256 checksum (hex string) of the specified content.
+	 */
+	private static String formChecksum(byte[] aDataArr)
+	{
+		return DigestUtils.byteArr2HexStr(DigestUtils.getDigest(DigestType.SHA256).digest(aDataArr));
+	}
+
+	/**
+	 * Helper method that returns the cached content.
+	 * <p>
+	 * Returns null if there is no cache or the cached content does not match the recorded length and checksum.
+	 */
+	private static byte[] readCache(File aCacheFile)
+	{
+		File stateFile = new File(aCacheFile.getPath() + StateExt);
+		if (aCacheFile.isFile() == false || stateFile.isFile() == false)
+			return null;
+
+		try
+		{
+			List<String> lineL = Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+			if (lineL.size() != 1)
+				return null;
+
+			String[] tokenArr = lineL.get(0).split(",");
+			if (tokenArr.length != 3 || tokenArr[0].equals("prefix") == false)
+				return null;
+
+			byte[] retArr = Files.readAllBytes(aCacheFile.toPath());
+			if (Long.toString(retArr.length).equals(tokenArr[1]) == false)
+				return null;
+			if (formChecksum(retArr).equalsIgnoreCase(tokenArr[2]) == false)
+				return null;
+
+			return retArr;
+		}
+		catch (IOException aExp)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Helper method that records the specified content (and its state) to the cache.
+	 */
+	private static void writeCache(File aCacheFile, byte[] aDataArr) throws IOException
+	{
+		// Invalidate the state before the content is modified
+		File stateFile = new File(aCacheFile.getPath() + StateExt);
+		Files.deleteIfExists(stateFile.toPath());
+
+		Files.write(aCacheFile.toPath(), aDataArr);
+
+		String stateStr = "prefix," + aDataArr.length + "," + formChecksum(aDataArr) + "\n";
+		Files.write(stateFile.toPath(), stateStr.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
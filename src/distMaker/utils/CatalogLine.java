@@ -0,0 +1,219 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.utils;
+
+import java.nio.charset.StandardCharsets;
+
+import glum.digest.Digest;
+import glum.digest.DigestType;
+import glum.io.ParseUtil;
+
+/**
+ * Flyweight that provides access to the (comma separated) fields of a single catalog line. See
+ * {@link CatalogTokenizer}.
+ * <p>
+ * The fields are not decoded until requested and the same instance is reused for every line. Thus a CatalogLine must
+ * not be retained beyond the callback it was passed to.
+ * <p>
+ * Field counts are equivalent to {@link String#split(String, int)} with a limit: The "rest" of a line (see
+ * {@link #getFieldRest(int)}) includes any trailing commas and empty fields are counted.
+ *
+ * @author lopeznr1
+ */
+public class CatalogLine
+{
+	// State vars
+	private byte[] buf;
+	private int begPos;
+	private int endPos;
+	private int[] commaArr;
+	private int numCommas;
+	private DigestType digestType;
+
+	/**
+	 * Standard Constructor
+	 */
+	public CatalogLine()
+	{
+		buf = null;
+		begPos = 0;
+		endPos = 0;
+		commaArr = new int[16];
+		numCommas = 0;
+		digestType = DigestType.MD5;
+	}
+
+	/**
+	 * Returns the {@link Digest} (of the current digest type) defined by the specified (hex) field.
+	 */
+	public Digest getDigest(int aIdx)
+	{
+		return new Digest(digestType, getField(aIdx));
+	}
+
+	/**
+	 * Returns the digest type that is in effect (as specified by the last 'digest' directive). Defaults to MD5.
+	 */
+	public DigestType getDigestType()
+	{
+		return digestType;
+	}
+
+	/**
+	 * Returns the specified field (up to the next comma).
+	 */
+	public String getField(int aIdx)
+	{
+		return decode(getFieldBeg(aIdx), getFieldEnd(aIdx));
+	}
+
+	/**
+	 * Returns the rest of the line starting at the specified field (including any subsequent commas).
+	 */
+	public String getFieldRest(int aIdx)
+	{
+		return decode(getFieldBeg(aIdx), endPos);
+	}
+
+	/**
+	 * Returns the specified field as a long. Returns aDefVal if the field is not a valid number.
+	 */
+	public long getLong(int aIdx, long aDefVal)
+	{
+		int tmpBeg = getFieldBeg(aIdx);
+		int tmpEnd = getFieldEnd(aIdx);
+		if (tmpBeg == tmpEnd || tmpEnd - tmpBeg > 18)
+			return ParseUtil.readLong(decode(tmpBeg, tmpEnd), aDefVal);
+
+		long retVal = 0;
+		for (int c1 = tmpBeg; c1 < tmpEnd; c1++)
+		{
+			int digit = buf[c1] - '0';
+			if (digit < 0 || digit > 9)
+				return ParseUtil.readLong(decode(tmpBeg, tmpEnd), aDefVal);
+			retVal = retVal * 10 + digit;
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Returns the number of fields.
+	 */
+	public int getNumFields()
+	{
+		return numCommas + 1;
+	}
+
+	/**
+	 * Returns the number of fields when the line is split into at most aLimit fields.
+	 */
+	public int getNumFields(int aLimit)
+	{
+		return Math.min(numCommas + 1, aLimit);
+	}
+
+	/**
+	 * Returns true if the specified field is equal to aStr. No decoding is performed.
+	 */
+	public boolean isField(int aIdx, String aStr)
+	{
+		if (aIdx > numCommas)
+			return false;
+
+		int tmpBeg = getFieldBeg(aIdx);
+		int tmpEnd = getFieldEnd(aIdx);
+		if (tmpEnd - tmpBeg != aStr.length())
+			return false;
+
+		for (int c1 = 0; c1 < aStr.length(); c1++)
+		{
+			if (buf[tmpBeg + c1] != aStr.charAt(c1))
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return decode(begPos, endPos);
+	}
+
+	/**
+	 * Sets in the content of the current line. The commas are located but nothing is decoded.
+	 */
+	void reset(byte[] aBuf, int aBegPos, int aEndPos)
+	{
+		buf = aBuf;
+		begPos = aBegPos;
+		endPos = aEndPos;
+
+		numCommas = 0;
+		for (int c1 = aBegPos; c1 < aEndPos; c1++)
+		{
+			if (aBuf[c1] != ',')
+				continue;
+
+			if (numCommas == commaArr.length)
+			{
+				int[] tmpArr = new int[commaArr.length * 2];
+				System.arraycopy(commaArr, 0, tmpArr, 0, commaArr.length);
+				commaArr = tmpArr;
+			}
+			commaArr[numCommas++] = c1;
+		}
+	}
+
+	/**
+	 * Sets in the digest type that is in effect.
+	 */
+	void setDigestType(DigestType aDigestType)
+	{
+		digestType = aDigestType;
+	}
+
+	/**
+	 * Helper method that returns the string corresponding to the specified (UTF-8) bytes.
+	 */
+	private String decode(int aBegPos, int aEndPos)
+	{
+		return new String(buf, aBegPos, aEndPos - aBegPos, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Helper method that returns the (buffer) position of the start of the specified field.
+	 */
+	private int getFieldBeg(int aIdx)
+	{
+		if (aIdx < 0 || aIdx > numCommas)
+			throw new IndexOutOfBoundsException("Field: " + aIdx + " Num fields: " + (numCommas + 1));
+
+		if (aIdx == 0)
+			return begPos;
+		return commaArr[aIdx - 1] + 1;
+	}
+
+	/**
+	 * Helper method that returns the (buffer) position of the end of the specified field.
+	 */
+	private int getFieldEnd(int aIdx)
+	{
+		if (aIdx == numCommas)
+			return endPos;
+		return commaArr[aIdx];
+	}
+
+}
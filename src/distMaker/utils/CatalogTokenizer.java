@@ -0,0 +1,210 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import glum.digest.DigestType;
+import glum.task.Task;
+
+/**
+ * Incremental tokenizer shared by all of DistMaker's (text) catalog readers: catalog.txt, appCatalog.txt, and
+ * jreCatalog.txt.
+ * <p>
+ * The tokenizer operates on a byte stream (UTF-8) and may be fed content as it arrives (see
+ * {@link #feed(byte[], int, int)}). Each line is passed to the handler as a {@link CatalogLine} flyweight and fields
+ * are only decoded on request. Thus no per line String[] is allocated.
+ * <p>
+ * The following is handled uniformly on behalf of every catalog reader:
+ * <ul>
+ * <li>Empty lines and comments (lines starting with '#') are ignored.
+ * <li>The line terminators '\n' and "\r\n" are supported.
+ * <li>The 'exit' directive: A bare exit ends the processing. An exit with a target and version (exit,target,version)
+ * ends the processing only if the version requirement is not met. See {@link ParseUtils#shouldExitLogic}.
+ * <li>The 'digest' directive: Sets in the digest type utilized by {@link CatalogLine#getDigest(int)}. Defaults to MD5.
+ * </ul>
+ * All other lines are passed to the handler.
+ *
+ * @author lopeznr1
+ */
+public class CatalogTokenizer
+{
+	// Constants
+	private static final int ReadSize = 16 * 1024;
+
+	// Attributes
+	private final Task refTask;
+	private final Consumer<CatalogLine> refHandler;
+	private final CatalogLine line;
+
+	// State vars
+	private byte[] pendArr;
+	private int pendLen;
+	private boolean isDone;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aTask
+	 *        The task to which (non fatal) issues will be logged.
+	 * @param aHandler
+	 *        The handler that will be called with each (non common) directive.
+	 */
+	public CatalogTokenizer(Task aTask, Consumer<CatalogLine> aHandler)
+	{
+		refTask = aTask;
+		refHandler = aHandler;
+		line = new CatalogLine();
+
+		pendArr = new byte[256];
+		pendLen = 0;
+		isDone = false;
+	}
+
+	/**
+	 * Utility method that reads the entire stream and passes each directive to aHandler. The stream is processed as the
+	 * bytes arrive and the reading stops as soon as an 'exit' directive is processed. The stream is not closed.
+	 */
+	public static void parse(Task aTask, InputStream aInStream, Consumer<CatalogLine> aHandler) throws IOException
+	{
+		CatalogTokenizer tmpTokenizer = new CatalogTokenizer(aTask, aHandler);
+
+		byte[] tmpArr = new byte[ReadSize];
+		while (tmpTokenizer.isDone() == false)
+		{
+			int numBytes = aInStream.read(tmpArr);
+			if (numBytes == -1)
+				break;
+
+			tmpTokenizer.feed(tmpArr, 0, numBytes);
+		}
+		tmpTokenizer.finish();
+	}
+
+	/**
+	 * Feeds the specified bytes to the tokenizer. All complete lines are processed immediately and any partial line is
+	 * retained until more content arrives. Content fed after an 'exit' directive is ignored.
+	 */
+	public void feed(byte[] aArr, int aOff, int aLen)
+	{
+		int begPos = aOff;
+		int endPos = aOff + aLen;
+		for (int c1 = aOff; c1 < endPos && isDone == false; c1++)
+		{
+			if (aArr[c1] != '\n')
+				continue;
+
+			// Process the line in place unless it spans multiple feeds
+			if (pendLen == 0)
+			{
+				processLine(aArr, begPos, c1);
+			}
+			else
+			{
+				append(aArr, begPos, c1 - begPos);
+				processLine(pendArr, 0, pendLen);
+				pendLen = 0;
+			}
+			begPos = c1 + 1;
+		}
+
+		if (isDone == false && begPos < endPos)
+			append(aArr, begPos, endPos - begPos);
+	}
+
+	/**
+	 * Notifies the tokenizer that there is no more content. A final (unterminated) line will be processed.
+	 */
+	public void finish()
+	{
+		if (isDone == false && pendLen > 0)
+			processLine(pendArr, 0, pendLen);
+
+		pendLen = 0;
+		isDone = true;
+	}
+
+	/**
+	 * Returns the digest type that is in effect.
+	 */
+	public DigestType getDigestType()
+	{
+		return line.getDigestType();
+	}
+
+	/**
+	 * Returns true if the processing has ended: An 'exit' directive was processed or {@link #finish()} was called.
+	 */
+	public boolean isDone()
+	{
+		return isDone;
+	}
+
+	/**
+	 * Helper method that appends the specified bytes to the pending (partial) line.
+	 */
+	private void append(byte[] aArr, int aOff, int aLen)
+	{
+		if (pendLen + aLen > pendArr.length)
+		{
+			byte[] tmpArr = new byte[Math.max(pendArr.length * 2, pendLen + aLen)];
+			System.arraycopy(pendArr, 0, tmpArr, 0, pendLen);
+			pendArr = tmpArr;
+		}
+
+		System.arraycopy(aArr, aOff, pendArr, pendLen, aLen);
+		pendLen += aLen;
+	}
+
+	/**
+	 * Helper method that processes a single (complete) line.
+	 */
+	private void processLine(byte[] aArr, int aBegPos, int aEndPos)
+	{
+		// Strip the carriage return of a "\r\n" terminator
+		if (aEndPos > aBegPos && aArr[aEndPos - 1] == '\r')
+			aEndPos--;
+
+		// Ignore comments and empty lines
+		if (aBegPos == aEndPos || aArr[aBegPos] == '#')
+			return;
+
+		line.reset(aArr, aBegPos, aEndPos);
+
+		// Logic to handle the 'exit' directive
+		if (line.isField(0, "exit") == true)
+		{
+			// We support exit directives with 3 tokens. All others we will just exit.
+			if (line.getNumFields() != 3 || ParseUtils.shouldExitLogic(line.getField(1), line.getField(2)) == true)
+				isDone = true;
+			return;
+		}
+
+		// Logic to handle the 'digest' directive
+		if (line.getNumFields() == 2 && line.isField(0, "digest") == true)
+		{
+			DigestType tmpDigestType = DigestType.parse(line.getField(1));
+			if (tmpDigestType == null)
+				refTask.logRegln("Failed to locate DigestType for: " + line.getField(1));
+			else
+				line.setDigestType(tmpDigestType);
+			return;
+		}
+
+		refHandler.accept(line);
+	}
+
+}
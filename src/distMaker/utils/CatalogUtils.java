@@ -0,0 +1,375 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.utils;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+
+import distMaker.metrics.UpdateMetrics;
+import distMaker.utils.UpdateEvents.CatalogFetch;
+import glum.digest.Digest;
+import glum.digest.DigestUtils;
+import glum.io.IoUtil;
+import glum.net.Credential;
+import glum.net.NetUtil;
+import glum.task.Task;
+
+/**
+ * Collection of utility methods used to retrieve the (text) catalogs of a deploy site.
+ * <p>
+ * The deploy scripts publish a gzip compressed sibling ({@literal <catalog>.gz}) next to each generated catalog
+ * (catalog.txt, jreCatalog.txt). The compressed sibling is preferred and decoded on the fly. If the sibling is not
+ * available (ex: sites deployed with an older DistMaker) then the plain text catalog is retrieved instead. When the
+ * plain text catalog is retrieved over HTTP, gzip content-encoding is requested so that a web server which compresses
+ * on the fly is leveraged as well.
+ * <p>
+ * Note an application's appCatalog.txt may be edited manually (ex: release notes) and thus has no compressed sibling.
+ * It should be retrieved via {@link #openStream(URLConnection, Credential)}.
+ * <p>
+ * Catalogs may be prefetched (in parallel) via {@link #prefetch(URL, Digest, long, Credential)}. A subsequent request
+ * of a prefetched catalog (see {@link #open(URL, Credential)} and {@link #download(Task, URL, File, Credential)}) is
+ * served from the prefetched content. If the compressed sibling does not match the expected digest (ex: it is stale)
+ * then the plain text catalog is prefetched instead. Prefetched content that does not match the expected digest is
+ * discarded and the catalog is retrieved again.
+ * <p>
+ * Each retrieval is recorded as a {@link CatalogFetch} (JFR) event.
+ *
+ * @author lopeznr1
+ */
+public class CatalogUtils
+{
+	/** The file extension of a compressed catalog. */
+	public static final String GzipExt = ".gz";
+
+	/** The maximum number of catalogs that will be prefetched concurrently. */
+	private static final int MaxPrefetchThreads = 4;
+
+	// State vars
+	private static final Map<String, Future<byte[]>> prefetchM = new ConcurrentHashMap<>();
+	private static ExecutorService prefetchExecutor = null;
+
+	/**
+	 * Utility method that discards all prefetched catalogs (that have not been requested).
+	 */
+	public static void clearPrefetch()
+	{
+		for (Future<byte[]> aFuture : prefetchM.values())
+			aFuture.cancel(true);
+		prefetchM.clear();
+	}
+
+	/**
+	 * Utility method that downloads the catalog at aCatUrl to aFile.
+	 * <p>
+	 * The compressed sibling is downloaded (and decompressed) if available otherwise the plain text catalog is
+	 * downloaded. Either way the content of aFile will be the (identical) plain text catalog.
+	 * <p>
+	 * Returns false on failure. The failure will be logged to aTask.
+	 */
+	public static boolean download(Task aTask, URL aCatUrl, File aFile, Credential aCredential)
+	{
+		try
+		{
+			byte[] dataArr = takePrefetched(aCatUrl);
+			if (dataArr != null)
+			{
+				Files.write(aFile.toPath(), dataArr);
+				return true;
+			}
+		}
+		catch (IOException aExp)
+		{
+			; // Nothing to do - the catalog will be retrieved (again) below
+		}
+
+		InputStream inStream = openCompressed(aCatUrl, aCredential);
+		if (inStream != null)
+		{
+			try
+			{
+				Files.copy(inStream, aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				return true;
+			}
+			catch (IOException aExp)
+			{
+				aTask.logRegln("Failed to retrieve compressed catalog. Falling back to: " + aCatUrl);
+			}
+			finally
+			{
+				IoUtil.forceClose(inStream);
+			}
+		}
+
+		CatalogFetch tmpEvent = new CatalogFetch();
+		tmpEvent.start();
+		boolean isPass = NetUtil.download(aTask, aCatUrl, aFile, aCredential, -1L, null);
+		if (isPass == true)
+			UpdateMetrics.recordDownload(aFile.length());
+		if (isPass == true && tmpEvent.shouldCommit() == true)
+		{
+			tmpEvent.setUrl(aCatUrl);
+			tmpEvent.encoding = "plain";
+			tmpEvent.setBytes(aFile.length());
+			tmpEvent.commit();
+		}
+
+		return isPass;
+	}
+
+	/**
+	 * Utility method that returns a (decoded) stream of the catalog at aCatUrl.
+	 * <p>
+	 * The prefetched content is returned if the catalog was prefetched. Otherwise the compressed sibling is preferred
+	 * and the plain text catalog is the fallback.
+	 */
+	public static InputStream open(URL aCatUrl, Credential aCredential) throws IOException
+	{
+		byte[] dataArr = takePrefetched(aCatUrl);
+		if (dataArr != null)
+			return new ByteArrayInputStream(dataArr);
+
+		InputStream retStream = openCompressed(aCatUrl, aCredential);
+		if (retStream == null)
+			retStream = openStream(aCatUrl.openConnection(), aCredential);
+
+		return retStream;
+	}
+
+	/**
+	 * Utility method that returns a (decoded) stream of the compressed sibling of the catalog at aCatUrl.
+	 * <p>
+	 * Returns null if the compressed sibling is not available.
+	 */
+	public static InputStream openCompressed(URL aCatUrl, Credential aCredential)
+	{
+		InputStream inStream = null;
+		try
+		{
+			URL gzUrl = IoUtil.createURL(aCatUrl.toString() + GzipExt);
+			CatalogFetch tmpEvent = new CatalogFetch();
+			tmpEvent.start();
+			inStream = NetUtil.getInputStream(gzUrl.openConnection(), aCredential);
+			inStream = new FetchStream(inStream, tmpEvent, gzUrl, "gzip");
+			return new GZIPInputStream(inStream, 16384);
+		}
+		catch (IOException aExp)
+		{
+			IoUtil.forceClose(inStream);
+			return null;
+		}
+	}
+
+	/**
+	 * Utility method that returns a (decoded) stream of the plain text catalog associated with aConnection.
+	 * <p>
+	 * If the connection is an HTTP connection then gzip content-encoding will be requested and the response will be
+	 * decoded (as needed).
+	 */
+	public static InputStream openStream(URLConnection aConnection, Credential aCredential) throws IOException
+	{
+		if (aConnection instanceof HttpURLConnection)
+			aConnection.setRequestProperty("Accept-Encoding", "gzip");
+
+		CatalogFetch tmpEvent = new CatalogFetch();
+		tmpEvent.start();
+		InputStream retStream = NetUtil.getInputStream(aConnection, aCredential);
+		if ("gzip".equalsIgnoreCase(aConnection.getContentEncoding()) == true)
+		{
+			retStream = new FetchStream(retStream, tmpEvent, aConnection.getURL(), "gzip");
+			retStream = new GZIPInputStream(retStream, 16384);
+		}
+		else
+		{
+			retStream = new FetchStream(retStream, tmpEvent, aConnection.getURL(), "plain");
+		}
+
+		return retStream;
+	}
+
+	/**
+	 * Utility method that starts the (background) retrieval of the catalog at aCatUrl.
+	 * <p>
+	 * The retrieved content will be validated against aDigest and aFileLen. Either may be null (-1) if not known.
+	 */
+	public static synchronized void prefetch(URL aCatUrl, Digest aDigest, long aFileLen, Credential aCredential)
+	{
+		if (prefetchExecutor == null)
+		{
+			prefetchExecutor = Executors.newFixedThreadPool(MaxPrefetchThreads, aRunnable -> {
+				Thread tmpThread = new Thread(aRunnable, "thread-catalogPrefetch");
+				tmpThread.setDaemon(true);
+				return tmpThread;
+			});
+		}
+
+		prefetchM.computeIfAbsent(aCatUrl.toString(),
+				aKey -> prefetchExecutor.submit(() -> fetchContent(aCatUrl, aDigest, aFileLen, aCredential)));
+	}
+
+	/**
+	 * Helper method that retrieves (and validates) the content of the catalog at aCatUrl.
+	 * <p>
+	 * If the content of the compressed sibling is not valid then the plain text catalog is retrieved (and validated).
+	 * <p>
+	 * Returns null if the content does not match the expected digest or length.
+	 */
+	private static byte[] fetchContent(URL aCatUrl, Digest aDigest, long aFileLen, Credential aCredential)
+			throws IOException
+	{
+		InputStream inStream = openCompressed(aCatUrl, aCredential);
+		if (inStream != null)
+		{
+			byte[] retArr = readAll(inStream);
+			if (isValid(retArr, aDigest, aFileLen) == true)
+				return retArr;
+		}
+
+		byte[] retArr = readAll(openStream(aCatUrl.openConnection(), aCredential));
+		if (isValid(retArr, aDigest, aFileLen) == true)
+			return retArr;
+
+		return null;
+	}
+
+	/**
+	 * Helper method that returns true if the specified content matches the expected digest and length. Either may be
+	 * null (-1) if not known.
+	 */
+	private static boolean isValid(byte[] aDataArr, Digest aDigest, long aFileLen)
+	{
+		if (aFileLen != -1 && aDataArr.length != aFileLen)
+			return false;
+
+		if (aDigest != null)
+		{
+			MessageDigest tmpMessageDigest = DigestUtils.getDigest(aDigest.getType());
+			if (Arrays.equals(tmpMessageDigest.digest(aDataArr), aDigest.getValue()) == false)
+			{
+				UpdateMetrics.recordDigestFailure();
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Helper method that returns the full content of the specified stream. The stream is closed.
+	 */
+	private static byte[] readAll(InputStream aInStream) throws IOException
+	{
+		try
+		{
+			return aInStream.readAllBytes();
+		}
+		finally
+		{
+			IoUtil.forceClose(aInStream);
+		}
+	}
+
+	/**
+	 * Helper method that returns (and removes) the prefetched content of the catalog at aCatUrl.
+	 * <p>
+	 * Returns null if the catalog was not prefetched or if the prefetched content was not valid. An IOException is
+	 * thrown if the prefetch failed due to an I/O error (ex: the catalog does not exist).
+	 */
+	private static byte[] takePrefetched(URL aCatUrl) throws IOException
+	{
+		Future<byte[]> tmpFuture = prefetchM.remove(aCatUrl.toString());
+		if (tmpFuture == null)
+			return null;
+
+		try
+		{
+			return tmpFuture.get();
+		}
+		catch (ExecutionException aExp)
+		{
+			if (aExp.getCause() instanceof IOException)
+				throw (IOException) aExp.getCause();
+			return null;
+		}
+		catch (CancellationException aExp)
+		{
+			return null;
+		}
+		catch (InterruptedException aExp)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/**
+	 * Stream that tracks the number of (transferred) bytes of a catalog. The associated {@link CatalogFetch} event is
+	 * committed when the stream is closed.
+	 */
+	private static class FetchStream extends FilterInputStream
+	{
+		private final CatalogFetch event;
+		private long numBytes;
+		private boolean isClosed;
+
+		private FetchStream(InputStream aInStream, CatalogFetch aEvent, URL aUrl, String aEncoding)
+		{
+			super(aInStream);
+
+			event = aEvent;
+			event.setUrl(aUrl);
+			event.encoding = aEncoding;
+			numBytes = 0;
+			isClosed = false;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int retVal = super.read();
+			if (retVal != -1)
+				numBytes++;
+			return retVal;
+		}
+
+		@Override
+		public int read(byte[] aArr, int aOff, int aLen) throws IOException
+		{
+			int retVal = super.read(aArr, aOff, aLen);
+			if (retVal > 0)
+				numBytes += retVal;
+			return retVal;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (isClosed == false)
+			{
+				isClosed = true;
+				UpdateMetrics.recordDownload(numBytes);
+				event.setBytes(numBytes);
+				event.commit();
+			}
+
+			super.close();
+		}
+	}
+
+}
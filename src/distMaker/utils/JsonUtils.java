@@ -0,0 +1,373 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.utils;
+
+import java.util.*;
+
+/**
+ * Collection of utility methods used to write and parse (simple) JSON documents.
+ * <p>
+ * A JSON object is represented as an (ordered) Map and a JSON array as a List. Strings, Booleans, and null map
+ * directly. Integral numbers are parsed as Long and all other numbers as Double.
+ * <p>
+ * These methods are intended for the small documents written by DistMaker (ex: the update report) and do not provide
+ * a general purpose JSON binding.
+ *
+ * @author lopeznr1
+ */
+public class JsonUtils
+{
+	/**
+	 * Parses the specified JSON document. The top level value must be a JSON object.
+	 * <p>
+	 * Throws an IllegalArgumentException if the document is not valid JSON.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> parseObject(String aStr)
+	{
+		Parser tmpParser = new Parser(aStr);
+		Object retObj = tmpParser.parseValue();
+		tmpParser.skipWhitespace();
+		if (tmpParser.pos != aStr.length())
+			throw tmpParser.formError("Unexpected trailing content");
+		if (retObj instanceof Map == false)
+			throw new IllegalArgumentException("The top level value is not a JSON object.");
+
+		return (Map<String, Object>) retObj;
+	}
+
+	/**
+	 * Returns the (indented) JSON representation of the specified object.
+	 * <p>
+	 * The values may be: null, String, Number, Boolean, Map (with String keys), or List. Any other value is written as a
+	 * string via its toString() method.
+	 */
+	public static String toJson(Map<String, ?> aItemM)
+	{
+		StringBuilder retSB = new StringBuilder();
+		writeValue(retSB, aItemM, "");
+		retSB.append('\n');
+		return retSB.toString();
+	}
+
+	/**
+	 * Helper method that writes the (quoted and escaped) string to aSB.
+	 */
+	private static void writeString(StringBuilder aSB, String aStr)
+	{
+		aSB.append('"');
+		for (int c1 = 0; c1 < aStr.length(); c1++)
+		{
+			char tmpChar = aStr.charAt(c1);
+			if (tmpChar == '"' || tmpChar == '\\')
+				aSB.append('\\').append(tmpChar);
+			else if (tmpChar == '\n')
+				aSB.append("\\n");
+			else if (tmpChar == '\r')
+				aSB.append("\\r");
+			else if (tmpChar == '\t')
+				aSB.append("\\t");
+			else if (tmpChar < 0x20)
+				aSB.append(String.format("\\u%04x", (int) tmpChar));
+			else
+				aSB.append(tmpChar);
+		}
+		aSB.append('"');
+	}
+
+	/**
+	 * Helper method that writes the specified value to aSB. Nested values are indented relative to aIndent.
+	 */
+	private static void writeValue(StringBuilder aSB, Object aValue, String aIndent)
+	{
+		if (aValue == null)
+		{
+			aSB.append("null");
+		}
+		else if (aValue instanceof Boolean || aValue instanceof Number)
+		{
+			aSB.append(aValue);
+		}
+		else if (aValue instanceof Map)
+		{
+			Map<?, ?> tmpItemM = (Map<?, ?>) aValue;
+			if (tmpItemM.isEmpty() == true)
+			{
+				aSB.append("{}");
+				return;
+			}
+
+			String nextIndent = aIndent + "\t";
+			aSB.append("{\n");
+			boolean isFirst = true;
+			for (Map.Entry<?, ?> aEntry : tmpItemM.entrySet())
+			{
+				if (isFirst == false)
+					aSB.append(",\n");
+				isFirst = false;
+
+				aSB.append(nextIndent);
+				writeString(aSB, aEntry.getKey().toString());
+				aSB.append(": ");
+				writeValue(aSB, aEntry.getValue(), nextIndent);
+			}
+			aSB.append('\n').append(aIndent).append('}');
+		}
+		else if (aValue instanceof List)
+		{
+			List<?> tmpItemL = (List<?>) aValue;
+			aSB.append('[');
+			for (int c1 = 0; c1 < tmpItemL.size(); c1++)
+			{
+				if (c1 > 0)
+					aSB.append(", ");
+				writeValue(aSB, tmpItemL.get(c1), aIndent);
+			}
+			aSB.append(']');
+		}
+		else
+		{
+			writeString(aSB, aValue.toString());
+		}
+	}
+
+	/**
+	 * Recursive descent parser of a JSON document.
+	 */
+	private static class Parser
+	{
+		private final String str;
+		private int pos;
+
+		/**
+		 * Standard Constructor
+		 */
+		private Parser(String aStr)
+		{
+			str = aStr;
+			pos = 0;
+		}
+
+		/**
+		 * Returns the exception that describes a parse failure at the current position.
+		 */
+		private IllegalArgumentException formError(String aMsg)
+		{
+			return new IllegalArgumentException(aMsg + " at position: " + pos);
+		}
+
+		/**
+		 * Consumes the specified (expected) character.
+		 */
+		private void expect(char aChar)
+		{
+			skipWhitespace();
+			if (pos >= str.length() || str.charAt(pos) != aChar)
+				throw formError("Expected '" + aChar + "'");
+			pos++;
+		}
+
+		/**
+		 * Consumes the specified literal (true, false, null) and returns aValue.
+		 */
+		private Object parseLiteral(String aLiteral, Object aValue)
+		{
+			if (str.startsWith(aLiteral, pos) == false)
+				throw formError("Unexpected content");
+			pos += aLiteral.length();
+			return aValue;
+		}
+
+		/**
+		 * Parses a JSON number.
+		 */
+		private Number parseNumber()
+		{
+			int begPos = pos;
+			boolean isIntegral = true;
+			while (pos < str.length())
+			{
+				char tmpChar = str.charAt(pos);
+				if (tmpChar == '.' || tmpChar == 'e' || tmpChar == 'E')
+					isIntegral = false;
+				else if ((tmpChar < '0' || tmpChar > '9') && tmpChar != '-' && tmpChar != '+')
+					break;
+				pos++;
+			}
+
+			String tmpStr = str.substring(begPos, pos);
+			try
+			{
+				if (isIntegral == true)
+					return Long.parseLong(tmpStr);
+				return Double.parseDouble(tmpStr);
+			}
+			catch (NumberFormatException aExp)
+			{
+				throw formError("Invalid number: " + tmpStr);
+			}
+		}
+
+		/**
+		 * Parses a JSON string. The current position must be at the opening quote.
+		 */
+		private String parseString()
+		{
+			expect('"');
+
+			StringBuilder retSB = new StringBuilder();
+			while (true)
+			{
+				if (pos >= str.length())
+					throw formError("Unterminated string");
+
+				char tmpChar = str.charAt(pos++);
+				if (tmpChar == '"')
+					return retSB.toString();
+				if (tmpChar != '\\')
+				{
+					retSB.append(tmpChar);
+					continue;
+				}
+
+				if (pos >= str.length())
+					throw formError("Unterminated string");
+				tmpChar = str.charAt(pos++);
+				if (tmpChar == '"' || tmpChar == '\\' || tmpChar == '/')
+					retSB.append(tmpChar);
+				else if (tmpChar == 'b')
+					retSB.append('\b');
+				else if (tmpChar == 'f')
+					retSB.append('\f');
+				else if (tmpChar == 'n')
+					retSB.append('\n');
+				else if (tmpChar == 'r')
+					retSB.append('\r');
+				else if (tmpChar == 't')
+					retSB.append('\t');
+				else if (tmpChar == 'u')
+					retSB.append(parseUnicodeEscape());
+				else
+					throw formError("Invalid escape: \\" + tmpChar);
+			}
+		}
+
+		/**
+		 * Parses the 4 (hex) digits of a unicode escape.
+		 */
+		private char parseUnicodeEscape()
+		{
+			if (pos + 4 > str.length())
+				throw formError("Invalid unicode escape");
+
+			try
+			{
+				char retChar = (char) Integer.parseInt(str.substring(pos, pos + 4), 16);
+				pos += 4;
+				return retChar;
+			}
+			catch (NumberFormatException aExp)
+			{
+				throw formError("Invalid unicode escape");
+			}
+		}
+
+		/**
+		 * Parses a JSON value.
+		 */
+		private Object parseValue()
+		{
+			skipWhitespace();
+			if (pos >= str.length())
+				throw formError("Unexpected end of content");
+
+			char tmpChar = str.charAt(pos);
+			if (tmpChar == '{')
+			{
+				pos++;
+				Map<String, Object> retM = new LinkedHashMap<>();
+				skipWhitespace();
+				if (pos < str.length() && str.charAt(pos) == '}')
+				{
+					pos++;
+					return retM;
+				}
+
+				while (true)
+				{
+					skipWhitespace();
+					String tmpKey = parseString();
+					expect(':');
+					retM.put(tmpKey, parseValue());
+
+					skipWhitespace();
+					if (pos < str.length() && str.charAt(pos) == ',')
+					{
+						pos++;
+						continue;
+					}
+					expect('}');
+					return retM;
+				}
+			}
+			if (tmpChar == '[')
+			{
+				pos++;
+				List<Object> retL = new ArrayList<>();
+				skipWhitespace();
+				if (pos < str.length() && str.charAt(pos) == ']')
+				{
+					pos++;
+					return retL;
+				}
+
+				while (true)
+				{
+					retL.add(parseValue());
+
+					skipWhitespace();
+					if (pos < str.length() && str.charAt(pos) == ',')
+					{
+						pos++;
+						continue;
+					}
+					expect(']');
+					return retL;
+				}
+			}
+			if (tmpChar == '"')
+				return parseString();
+			if (tmpChar == 't')
+				return parseLiteral("true", Boolean.TRUE);
+			if (tmpChar == 'f')
+				return parseLiteral("false", Boolean.FALSE);
+			if (tmpChar == 'n')
+				return parseLiteral("null", null);
+			if (tmpChar == '-' || (tmpChar >= '0' && tmpChar <= '9'))
+				return parseNumber();
+
+			throw formError("Unexpected character: '" + tmpChar + "'");
+		}
+
+		/**
+		 * Advances the current position past any whitespace.
+		 */
+		private void skipWhitespace()
+		{
+			while (pos < str.length() && Character.isWhitespace(str.charAt(pos)) == true)
+				pos++;
+		}
+	}
+
+}
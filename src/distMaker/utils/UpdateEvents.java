@@ -0,0 +1,291 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package distMaker.utils;
+
+import java.net.URL;
+
+import jdk.jfr.*;
+
+/**
+ * Collection of the Java Flight Recorder (JFR) events emitted by the phases of the update pipeline.
+ * <p>
+ * The events are recorded (along with the standard JVM events) whenever a flight recording is active. For example, an
+ * application may be started with the JVM option: -XX:StartFlightRecording=filename=update.jfr
+ * <p>
+ * The recording may then be inspected with standard JFR tooling (ex: jfr print --categories DistMaker update.jfr). All
+ * events are in the category: DistMaker / Update. The following events are defined:
+ * <ul>
+ * <li>{@link CatalogFetch}: The retrieval of a (text) catalog.
+ * <li>{@link CatalogParse}: The parsing of a catalog.
+ * <li>{@link ReleasePlan}: The planning of the release to be staged.
+ * <li>{@link NodeStage}: The staging (reuse vs download) of a single node.
+ * <li>{@link JreDownload}: The retrieval (full or delta) of a JRE.
+ * <li>{@link JreUnpack}: The unpacking of a JRE.
+ * <li>{@link AppLauncherFetch}: The retrieval of an AppLauncher.
+ * <li>{@link ConfigRewrite}: The (atomic) rewrite of the application configuration.
+ * <li>{@link DeltaCleanup}: The removal of the delta (staging) folder.
+ * </ul>
+ * Note that when no recording is active, the cost of an event is negligible.
+ *
+ * @author lopeznr1
+ */
+public class UpdateEvents
+{
+	/**
+	 * Base event of all phases that process a (known) number of bytes.
+	 * <p>
+	 * The event should be started via {@link #start()} so that the throughput may be computed (see
+	 * {@link #setBytes(long)}).
+	 */
+	@Category({ "DistMaker", "Update" })
+	@StackTrace(false)
+	public static abstract class TransferEvent extends Event
+	{
+		@Label("Bytes")
+		@DataAmount
+		public long bytes;
+
+		@Label("Throughput")
+		@DataAmount
+		@Frequency
+		public long throughput;
+
+		// State vars
+		private transient long begTime;
+
+		/**
+		 * Starts the timing of the event.
+		 */
+		public void start()
+		{
+			begTime = System.nanoTime();
+			begin();
+		}
+
+		/**
+		 * Sets in the number of bytes that were processed. The throughput (bytes per second) is computed relative to
+		 * when the event was started.
+		 */
+		public void setBytes(long aBytes)
+		{
+			bytes = aBytes;
+
+			long durNanos = System.nanoTime() - begTime;
+			throughput = 0;
+			if (durNanos > 0)
+				throughput = (long) (aBytes * 1.0e9 / durNanos);
+		}
+	}
+
+	/**
+	 * Event that describes the retrieval of a (text) catalog.
+	 * <p>
+	 * Note catalogs are processed as the bytes arrive. Thus the duration includes the parsing of the catalog.
+	 */
+	@Name("distMaker.CatalogFetch")
+	@Label("Catalog Fetch")
+	@Description("Retrieval of a catalog from the update site")
+	public static class CatalogFetch extends TransferEvent
+	{
+		@Label("Host")
+		public String host;
+
+		@Label("Path")
+		public String path;
+
+		@Label("Encoding")
+		@Description("The transfer encoding: gzip, plain, or range")
+		public String encoding;
+
+		/**
+		 * Sets in the (host and path) location of the catalog.
+		 */
+		public void setUrl(URL aUrl)
+		{
+			host = aUrl.getHost();
+			path = aUrl.getPath();
+		}
+	}
+
+	/**
+	 * Event that describes the parsing of a catalog.
+	 */
+	@Name("distMaker.CatalogParse")
+	@Label("Catalog Parse")
+	@Description("Parsing of a catalog")
+	@Category({ "DistMaker", "Update" })
+	@StackTrace(false)
+	public static class CatalogParse extends Event
+	{
+		@Label("Catalog")
+		public String catalog;
+
+		@Label("Format")
+		@Description("The catalog format: text, binary, or manifest")
+		public String format;
+
+		@Label("Entries")
+		public int numEntries;
+
+		@Label("Success")
+		public boolean isPass;
+	}
+
+	/**
+	 * Event that describes the planning of the release to be staged.
+	 */
+	@Name("distMaker.ReleasePlan")
+	@Label("Release Plan")
+	@Description("Planning of the release to be staged")
+	@Category({ "DistMaker", "Update" })
+	@StackTrace(false)
+	public static class ReleasePlan extends Event
+	{
+		@Label("Current Version")
+		public String currVersion;
+
+		@Label("Target Version")
+		public String targVersion;
+
+		@Label("Nodes")
+		public int numNodes;
+
+		@Label("Reusable Nodes")
+		public int numNodesReusable;
+
+		@Label("Release Size")
+		@DataAmount
+		public long releaseBytes;
+
+		@Label("Reusable Size")
+		@DataAmount
+		public long reusableBytes;
+
+		@Label("JRE Update")
+		public boolean isJreUpdate;
+	}
+
+	/**
+	 * Event that describes the staging of a single node.
+	 */
+	@Name("distMaker.NodeStage")
+	@Label("Node Stage")
+	@Description("Staging of a single node: reused (local) or downloaded (remote)")
+	public static class NodeStage extends TransferEvent
+	{
+		@Label("File")
+		public String fileName;
+
+		@Label("Decision")
+		@Description("The staging decision: local, remote, or failed")
+		public String decision;
+	}
+
+	/**
+	 * Event that describes the retrieval of a JRE.
+	 */
+	@Name("distMaker.JreDownload")
+	@Label("JRE Download")
+	@Description("Retrieval of a JRE (full release or delta)")
+	public static class JreDownload extends TransferEvent
+	{
+		@Label("Host")
+		public String host;
+
+		@Label("Version")
+		public String version;
+
+		@Label("Mode")
+		@Description("The retrieval mode: full or delta")
+		public String mode;
+
+		@Label("Success")
+		public boolean isPass;
+	}
+
+	/**
+	 * Event that describes the unpacking of a JRE.
+	 */
+	@Name("distMaker.JreUnpack")
+	@Label("JRE Unpack")
+	@Description("Unpacking of a JRE archive")
+	public static class JreUnpack extends TransferEvent
+	{
+		@Label("Version")
+		public String version;
+
+		@Label("Files")
+		public int numFiles;
+
+		@Label("Success")
+		public boolean isPass;
+	}
+
+	/**
+	 * Event that describes the retrieval of an AppLauncher.
+	 */
+	@Name("distMaker.AppLauncherFetch")
+	@Label("AppLauncher Fetch")
+	@Description("Retrieval of an AppLauncher")
+	public static class AppLauncherFetch extends TransferEvent
+	{
+		@Label("Host")
+		public String host;
+
+		@Label("Version")
+		public String version;
+
+		@Label("Success")
+		public boolean isPass;
+	}
+
+	/**
+	 * Event that describes the (atomic) rewrite of the application configuration.
+	 */
+	@Name("distMaker.ConfigRewrite")
+	@Label("Config Rewrite")
+	@Description("Rewrite of the application configuration")
+	@Category({ "DistMaker", "Update" })
+	@StackTrace(false)
+	public static class ConfigRewrite extends Event
+	{
+		@Label("Config File")
+		public String configFile;
+
+		@Label("Platform")
+		public String platform;
+
+		@Label("Success")
+		public boolean isPass;
+	}
+
+	/**
+	 * Event that describes the removal of the delta (staging) folder.
+	 */
+	@Name("distMaker.DeltaCleanup")
+	@Label("Delta Cleanup")
+	@Description("Removal of the delta (staging) folder")
+	@Category({ "DistMaker", "Update" })
+	@StackTrace(false)
+	public static class DeltaCleanup extends Event
+	{
+		@Label("Reason")
+		@Description("The reason for the cleanup: aborted, reverted, updated, or failed")
+		public String reason;
+
+		@Label("Success")
+		public boolean isPass;
+	}
+
+}
@@ -82,6 +82,65 @@ public class AliasRecord
 		extMap = new LinkedHashMap<>();
 	}
 
+	/**
+	 * Forms an AliasRecord that refers to the file (at aFilePath) on the volume aVolName.
+	 * <p>
+	 * The file path is relative to the root of the volume and should consist of at most a single folder and the file name
+	 * (ex: .background/background.png). The catalog node ids of the file and folder are not known (the volume has not
+	 * been built yet) so they are left as zero and the alias is resolved via the (extended info) paths.
+	 */
+	public static AliasRecord formFileAlias(String aVolName, String aFilePath, long aTime)
+	{
+		String dirName = "";
+		String fileName = aFilePath;
+		int tmpIdx = aFilePath.lastIndexOf('/');
+		if (tmpIdx != -1)
+		{
+			dirName = aFilePath.substring(0, tmpIdx);
+			fileName = aFilePath.substring(tmpIdx + 1);
+		}
+		if (dirName.indexOf('/') != -1)
+			throw new RuntimeException("Alias path may have at most a single folder. Path: " + aFilePath);
+
+		// Mac times are the number of seconds since: 1904-01-01
+		long macTime = aTime / 1000 + 2082844800L;
+
+		AliasRecord retRecord = new AliasRecord();
+		retRecord.appCreaterId = 0;
+		retRecord.recVer = 2;
+		retRecord.recType = 0;
+
+		retRecord.volName = aVolName;
+		retRecord.volTime = macTime;
+		retRecord.volSig = "H+";
+		retRecord.volType = 0;
+		retRecord.unknown1 = 0;
+
+		retRecord.fileName = fileName;
+		retRecord.fileNum = 0;
+		retRecord.fileTime = macTime;
+		retRecord.fileType = "";
+		retRecord.fileOrig = "";
+
+		retRecord.nlvlSrc = -1;
+		retRecord.nlvlDst = -1;
+		retRecord.volAttr = 0x0D02;
+		retRecord.volSysId = 0;
+
+		// Extended info: Folder name, absolute path, unicode name of the file and volume, posix path, mount point
+		String colonPath = aFilePath.replace('/', ':');
+		if (dirName.isEmpty() == false)
+			retRecord.extMap.put(0, new StrExtInfo(0, dirName));
+		retRecord.extMap.put(2, new StrExtInfo(2, aVolName + ":" + colonPath));
+		retRecord.extMap.put(14, new StrExtInfo(14, fileName));
+		retRecord.extMap.put(15, new StrExtInfo(15, aVolName));
+		retRecord.extMap.put(18, new StrExtInfo(18, "/" + aFilePath));
+		retRecord.extMap.put(19, new StrExtInfo(19, "/Volumes/" + aVolName));
+
+		retRecord.recSize = retRecord.size();
+		return retRecord;
+	}
+
 	/**
 	 * Reads in the contents of the object from the buffer
 	 */
@@ -0,0 +1,57 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+
+/**
+ * Immutable object that defines a single store to be processed by {@link BatchProcessor}.
+ *
+ * @author lopeznr1
+ */
+public class BatchItem
+{
+	// Attributes
+	private final File storeFile;
+	private final String volumeName;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aVolumeName
+	 *        The new volume name. If null then the store will only be validated.
+	 */
+	public BatchItem(File aStoreFile, String aVolumeName)
+	{
+		storeFile = aStoreFile;
+		volumeName = aVolumeName;
+	}
+
+	/**
+	 * Returns the store file.
+	 */
+	public File getStoreFile()
+	{
+		return storeFile;
+	}
+
+	/**
+	 * Returns the new volume name. Returns null if the store should only be validated.
+	 */
+	public String getVolumeName()
+	{
+		return volumeName;
+	}
+
+}
@@ -0,0 +1,178 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Collection of utility methods used to process many .DS_Store files in a single JVM.
+ * <p>
+ * The items are processed in parallel on a (fixed size) worker pool. Each store is validated (see
+ * {@link StoreValidator}) before it is updated and a store with structural problems is never written. In dry-run mode
+ * the stores are only validated.
+ * <p>
+ * A manifest file has one item per line: {@literal <storeFile>[,<volumeName>]}. Relative paths are resolved against
+ * the folder of the manifest. Items without a volume name are only validated. Lines starting with '#' are ignored.
+ *
+ * @author lopeznr1
+ */
+public class BatchProcessor
+{
+	/**
+	 * Loads the list of items from the specified manifest file.
+	 */
+	public static List<BatchItem> loadManifest(File aFile) throws IOException
+	{
+		File baseDir = aFile.getAbsoluteFile().getParentFile();
+
+		List<BatchItem> retL = new ArrayList<>();
+		for (String aLine : Files.readAllLines(aFile.toPath(), StandardCharsets.UTF_8))
+		{
+			aLine = aLine.trim();
+			if (aLine.isEmpty() == true || aLine.startsWith("#") == true)
+				continue;
+
+			BatchItem tmpItem = parseItem(aLine);
+			File storeFile = tmpItem.getStoreFile();
+			if (storeFile.isAbsolute() == false)
+				storeFile = new File(baseDir, storeFile.getPath());
+
+			retL.add(new BatchItem(storeFile, tmpItem.getVolumeName()));
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Parses a single item of the form: {@literal <storeFile>[,<volumeName>]}
+	 */
+	public static BatchItem parseItem(String aStr)
+	{
+		int tmpIdx = aStr.lastIndexOf(',');
+		if (tmpIdx == -1)
+			return new BatchItem(new File(aStr), null);
+
+		String volumeName = aStr.substring(tmpIdx + 1).trim();
+		if (volumeName.isEmpty() == true)
+			volumeName = null;
+
+		return new BatchItem(new File(aStr.substring(0, tmpIdx).trim()), volumeName);
+	}
+
+	/**
+	 * Processes a single item.
+	 * <p>
+	 * The store is validated and (unless aIsDryRun is true or the item has no volume name) updated to reflect the new
+	 * volume name. The updated store is validated again.
+	 */
+	public static BatchResult process(BatchItem aItem, boolean aIsDryRun)
+	{
+		long begTime = System.nanoTime();
+
+		File storeFile = aItem.getStoreFile();
+		if (storeFile.isFile() == false)
+			return new BatchResult(aItem, false, List.of("File does not exist."), toMillis(begTime));
+
+		// Bail if the store has structural problems
+		List<String> problemL = StoreValidator.validate(storeFile);
+		if (problemL.isEmpty() == false || aIsDryRun == true || aItem.getVolumeName() == null)
+			return new BatchResult(aItem, false, problemL, toMillis(begTime));
+
+		try
+		{
+			MainApp.updateStore(storeFile, aItem.getVolumeName());
+		}
+		catch (IOException | RuntimeException aExp)
+		{
+			return new BatchResult(aItem, false, List.of("Failed to update store: " + aExp), toMillis(begTime));
+		}
+
+		problemL = StoreValidator.validate(storeFile);
+		return new BatchResult(aItem, true, problemL, toMillis(begTime));
+	}
+
+	/**
+	 * Processes all of the items on a worker pool of (at most) aNumThreads threads.
+	 * <p>
+	 * Returns the list of results in the same order as the items. Any subsequent item that refers to an already listed
+	 * store is skipped.
+	 */
+	public static List<BatchResult> processAll(List<BatchItem> aItemL, int aNumThreads, boolean aIsDryRun)
+	{
+		int numThreads = Math.max(1, Math.min(aNumThreads, aItemL.size()));
+		ExecutorService tmpExecutor = Executors.newFixedThreadPool(numThreads, aRunnable -> {
+			Thread tmpThread = new Thread(aRunnable, "thread-dsstoreBatch");
+			tmpThread.setDaemon(true);
+			return tmpThread;
+		});
+
+		try
+		{
+			// Note the same store may not be processed concurrently
+			Set<File> fileS = new HashSet<>();
+			List<Future<BatchResult>> futureL = new ArrayList<>();
+			for (BatchItem aItem : aItemL)
+			{
+				Future<BatchResult> tmpFuture = null;
+				if (fileS.add(aItem.getStoreFile().getAbsoluteFile()) == true)
+					tmpFuture = tmpExecutor.submit(() -> process(aItem, aIsDryRun));
+				futureL.add(tmpFuture);
+			}
+
+			List<BatchResult> retL = new ArrayList<>();
+			for (int c1 = 0; c1 < aItemL.size(); c1++)
+			{
+				if (futureL.get(c1) == null)
+				{
+					retL.add(new BatchResult(aItemL.get(c1), false, List.of("Duplicate item. The store was skipped."), 0));
+					continue;
+				}
+
+				try
+				{
+					retL.add(futureL.get(c1).get());
+				}
+				catch (ExecutionException aExp)
+				{
+					retL.add(new BatchResult(aItemL.get(c1), false, List.of("Unexpected failure: " + aExp.getCause()), 0));
+				}
+				catch (InterruptedException aExp)
+				{
+					Thread.currentThread().interrupt();
+					retL.add(new BatchResult(aItemL.get(c1), false, List.of("Processing was interrupted."), 0));
+				}
+			}
+
+			return retL;
+		}
+		finally
+		{
+			tmpExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Helper method that returns the number of milliseconds elapsed since aBegTime (nanoseconds).
+	 */
+	private static long toMillis(long aBegTime)
+	{
+		return (System.nanoTime() - aBegTime) / 1000000L;
+	}
+
+}
@@ -0,0 +1,91 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Immutable object that describes the result of processing a single {@link BatchItem}.
+ *
+ * @author lopeznr1
+ */
+public class BatchResult
+{
+	// Attributes
+	private final BatchItem item;
+	private final boolean isUpdated;
+	private final ImmutableList<String> problemL;
+	private final long runTime;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aIsUpdated
+	 *        True if the store was (re)written.
+	 * @param aProblemL
+	 *        The list of (structural) problems or errors. An empty list denotes success.
+	 * @param aRunTime
+	 *        The time (ms) it took to process the item.
+	 */
+	public BatchResult(BatchItem aItem, boolean aIsUpdated, List<String> aProblemL, long aRunTime)
+	{
+		item = aItem;
+		isUpdated = aIsUpdated;
+		problemL = ImmutableList.copyOf(aProblemL);
+		runTime = aRunTime;
+	}
+
+	/**
+	 * Returns the item that was processed.
+	 */
+	public BatchItem getItem()
+	{
+		return item;
+	}
+
+	/**
+	 * Returns the list of (structural) problems or errors.
+	 */
+	public ImmutableList<String> getProblemList()
+	{
+		return problemL;
+	}
+
+	/**
+	 * Returns the time (ms) it took to process the item.
+	 */
+	public long getRunTime()
+	{
+		return runTime;
+	}
+
+	/**
+	 * Returns true if the item was processed without any problems.
+	 */
+	public boolean isSuccess()
+	{
+		return problemL.isEmpty();
+	}
+
+	/**
+	 * Returns true if the store was (re)written.
+	 */
+	public boolean isUpdated()
+	{
+		return isUpdated;
+	}
+
+}
@@ -0,0 +1,221 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Immutable object that (declaratively) defines the Finder layout of a DMG volume.
+ * <p>
+ * A layout can be loaded from a (text) spec file with the following format. Lines starting with '#' are ignored.
+ * <ul>
+ * <li>volumeName,{@literal <name>}
+ * <li>background,{@literal <path>} - Path (relative to the volume root) of the background image
+ * <li>window,{@literal <x>,<y>,<width>,<height>}
+ * <li>iconSize,{@literal <size>}
+ * <li>textSize,{@literal <size>}
+ * <li>icon,{@literal <name>,<x>,<y>} - May be specified multiple times
+ * </ul>
+ * Any value that is not specified will be set to the value of the original (DistMaker) DMG template.
+ *
+ * @author lopeznr1
+ */
+public class DmgLayout
+{
+	// Attributes
+	private final String volumeName;
+	private final String backgroundPath;
+	private final int windowX;
+	private final int windowY;
+	private final int windowW;
+	private final int windowH;
+	private final int iconSize;
+	private final int textSize;
+	private final ImmutableList<IconLoc> iconL;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aBackgroundPath
+	 *        Path (relative to the volume root) of the background image. May be null for no background image.
+	 */
+	public DmgLayout(String aVolumeName, String aBackgroundPath, int aWindowX, int aWindowY, int aWindowW, int aWindowH,
+			int aIconSize, int aTextSize, List<IconLoc> aIconL)
+	{
+		volumeName = aVolumeName;
+		backgroundPath = aBackgroundPath;
+		windowX = aWindowX;
+		windowY = aWindowY;
+		windowW = aWindowW;
+		windowH = aWindowH;
+		iconSize = aIconSize;
+		textSize = aTextSize;
+		iconL = ImmutableList.copyOf(aIconL);
+	}
+
+	/**
+	 * Returns the layout of a standard DistMaker DMG: the application on the left, a link to /Applications on the right,
+	 * and the background image located at .background/background.png.
+	 */
+	public static DmgLayout formDefault(String aAppName)
+	{
+		List<IconLoc> tmpIconL = new ArrayList<>();
+		tmpIconL.add(new IconLoc(aAppName + ".app", 95, 152));
+		tmpIconL.add(new IconLoc("Applications", 320, 152));
+
+		return new DmgLayout(aAppName, ".background/background.png", 362, 95, 415, 295, 128, 12, tmpIconL);
+	}
+
+	/**
+	 * Loads the layout from the specified spec file. See the class description for the format.
+	 */
+	public static DmgLayout load(File aFile) throws IOException
+	{
+		DmgLayout tmpLayout = formDefault("Untitled");
+		String volumeName = null;
+		String backgroundPath = tmpLayout.backgroundPath;
+		int windowX = tmpLayout.windowX;
+		int windowY = tmpLayout.windowY;
+		int windowW = tmpLayout.windowW;
+		int windowH = tmpLayout.windowH;
+		int iconSize = tmpLayout.iconSize;
+		int textSize = tmpLayout.textSize;
+		List<IconLoc> tmpIconL = new ArrayList<>();
+
+		int lineNum = 0;
+		for (String aLine : Files.readAllLines(aFile.toPath(), StandardCharsets.UTF_8))
+		{
+			lineNum++;
+			aLine = aLine.trim();
+			if (aLine.isEmpty() == true || aLine.startsWith("#") == true)
+				continue;
+
+			String[] tokenArr = aLine.split(",", -1);
+			try
+			{
+				if (tokenArr[0].equals("volumeName") == true && tokenArr.length == 2)
+					volumeName = tokenArr[1];
+				else if (tokenArr[0].equals("background") == true && tokenArr.length == 2)
+					backgroundPath = tokenArr[1].isEmpty() == true ? null : tokenArr[1];
+				else if (tokenArr[0].equals("window") == true && tokenArr.length == 5)
+				{
+					windowX = Integer.parseInt(tokenArr[1]);
+					windowY = Integer.parseInt(tokenArr[2]);
+					windowW = Integer.parseInt(tokenArr[3]);
+					windowH = Integer.parseInt(tokenArr[4]);
+				}
+				else if (tokenArr[0].equals("iconSize") == true && tokenArr.length == 2)
+					iconSize = Integer.parseInt(tokenArr[1]);
+				else if (tokenArr[0].equals("textSize") == true && tokenArr.length == 2)
+					textSize = Integer.parseInt(tokenArr[1]);
+				else if (tokenArr[0].equals("icon") == true && tokenArr.length == 4)
+					tmpIconL.add(new IconLoc(tokenArr[1], Integer.parseInt(tokenArr[2]), Integer.parseInt(tokenArr[3])));
+				else
+					throw new IOException("Unrecognized instruction.");
+			}
+			catch (IOException | NumberFormatException aExp)
+			{
+				throw new IOException("Failed to parse line " + lineNum + " of layout: " + aFile + "\n\tLine: " + aLine,
+						aExp);
+			}
+		}
+
+		if (volumeName == null)
+			throw new IOException("The layout does not specify a volume name: " + aFile);
+
+		return new DmgLayout(volumeName, backgroundPath, windowX, windowY, windowW, windowH, iconSize, textSize,
+				tmpIconL);
+	}
+
+	/**
+	 * Returns the path (relative to the volume root) of the background image. Returns null if there is no background
+	 * image.
+	 */
+	public String getBackgroundPath()
+	{
+		return backgroundPath;
+	}
+
+	/**
+	 * Returns the list of icon locations.
+	 */
+	public ImmutableList<IconLoc> getIconList()
+	{
+		return iconL;
+	}
+
+	/**
+	 * Returns the size (in pixels) of the icons.
+	 */
+	public int getIconSize()
+	{
+		return iconSize;
+	}
+
+	/**
+	 * Returns the size (in points) of the icon labels.
+	 */
+	public int getTextSize()
+	{
+		return textSize;
+	}
+
+	/**
+	 * Returns the name of the volume.
+	 */
+	public String getVolumeName()
+	{
+		return volumeName;
+	}
+
+	/**
+	 * Returns the height of the window.
+	 */
+	public int getWindowH()
+	{
+		return windowH;
+	}
+
+	/**
+	 * Returns the width of the window.
+	 */
+	public int getWindowW()
+	{
+		return windowW;
+	}
+
+	/**
+	 * Returns the x-coordinate (screen) of the window.
+	 */
+	public int getWindowX()
+	{
+		return windowX;
+	}
+
+	/**
+	 * Returns the y-coordinate (screen) of the window.
+	 */
+	public int getWindowY()
+	{
+		return windowY;
+	}
+
+}
@@ -0,0 +1,72 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+/**
+ * Collection of four-char codes (FourCC) utilized by the .DS_Store format.
+ * <p>
+ * The codes are represented as (big endian) ints so that they can be read directly from a buffer and compared without
+ * any allocation.
+ *
+ * @author lopeznr1
+ */
+public class FourCC
+{
+	// Structure codes
+	public static final int Bud1 = toInt("Bud1");
+	public static final int DSDB = toInt("DSDB");
+
+	// Data type codes
+	public static final int DT_long = toInt("long"); // An integer (4 bytes)
+	public static final int DT_shor = toInt("shor"); // A short integer stored as four bytes
+	public static final int DT_bool = toInt("bool"); // A boolean value, stored as one byte
+	public static final int DT_blob = toInt("blob"); // An integer byte count followed by that many bytes of data
+	public static final int DT_type = toInt("type"); // Four bytes, containing a FourCharCode
+	public static final int DT_ustr = toInt("ustr"); // An integer character count followed by UTF-16 data
+	public static final int DT_comp = toInt("comp"); // An integer (8 bytes)
+	public static final int DT_dutc = toInt("dutc"); // A timestamp (8 bytes)
+
+	// Record codes
+	public static final int BKGD = toInt("BKGD");
+	public static final int Iloc = toInt("Iloc");
+	public static final int pict = toInt("pict");
+
+	/**
+	 * Returns the int representation of the specified (US-ASCII) four-char code.
+	 */
+	public static int toInt(String aCode)
+	{
+		if (aCode.length() != 4)
+			throw new IllegalArgumentException("Four-char code must be 4 chars. Input: '" + aCode + "'");
+
+		int retVal = 0;
+		for (int c1 = 0; c1 < 4; c1++)
+			retVal = (retVal << 8) | (aCode.charAt(c1) & 0xFF);
+
+		return retVal;
+	}
+
+	/**
+	 * Returns the String representation of the specified four-char code.
+	 */
+	public static String toStr(int aCode)
+	{
+		char[] charArr = new char[4];
+		for (int c1 = 0; c1 < 4; c1++)
+			charArr[c1] = (char) ((aCode >>> (24 - 8 * c1)) & 0xFF);
+
+		return new String(charArr);
+	}
+
+}
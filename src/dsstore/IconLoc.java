@@ -0,0 +1,64 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+/**
+ * Immutable object that defines the location of a single icon in a Finder window.
+ * <p>
+ * The location is the center of the icon relative to the top left corner of the window's content area.
+ *
+ * @author lopeznr1
+ */
+public class IconLoc
+{
+	// Attributes
+	private final String name;
+	private final int posX;
+	private final int posY;
+
+	/**
+	 * Standard Constructor
+	 */
+	public IconLoc(String aName, int aPosX, int aPosY)
+	{
+		name = aName;
+		posX = aPosX;
+		posY = aPosY;
+	}
+
+	/**
+	 * Returns the (file) name of the item.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns the x-coordinate of the icon.
+	 */
+	public int getPosX()
+	{
+		return posX;
+	}
+
+	/**
+	 * Returns the y-coordinate of the icon.
+	 */
+	public int getPosY()
+	{
+		return posY;
+	}
+
+}
@@ -0,0 +1,105 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import dsstore.record.*;
+
+/**
+ * Collection of utility methods used to generate a complete .DS_Store file from a {@link DmgLayout}.
+ * <p>
+ * No template is utilized. The records that define the Finder window (bounds, icon view options, background picture)
+ * and the location of each icon are formed directly from the layout and written via {@link StoreWriter}.
+ *
+ * @author lopeznr1
+ */
+public class LayoutWriter
+{
+	/**
+	 * Returns the list of records that define the specified layout.
+	 */
+	public static List<dsstore.record.Record> formRecords(DmgLayout aLayout, long aTime)
+	{
+		List<dsstore.record.Record> retL = new ArrayList<>();
+
+		// Background: A picture (referenced via an alias) or the default background
+		String bgPath = aLayout.getBackgroundPath();
+		if (bgPath != null)
+		{
+			AliasRecord aliasRecord = AliasRecord.formFileAlias(aLayout.getVolumeName(), bgPath, aTime);
+
+			BKGDRecord bkgdRecord = new BKGDRecord(".", "BKGD", "blob");
+			bkgdRecord.setRefAliasRecord(aliasRecord);
+			retL.add(bkgdRecord);
+			retL.add(new PictRecord(".", aliasRecord));
+		}
+		else
+		{
+			ByteBuffer tmpBuf = ByteBuffer.allocate(12);
+			tmpBuf.putInt(FourCC.toInt("DefB"));
+			retL.add(new BlobRecord(".", "BKGD", tmpBuf.array()));
+		}
+
+		// Window: Bounds (top, left, bottom, right) and view style (icon view)
+		ByteBuffer tmpBuf = ByteBuffer.allocate(16);
+		tmpBuf.putShort((short) aLayout.getWindowY());
+		tmpBuf.putShort((short) aLayout.getWindowX());
+		tmpBuf.putShort((short) (aLayout.getWindowY() + aLayout.getWindowH()));
+		tmpBuf.putShort((short) (aLayout.getWindowX() + aLayout.getWindowW()));
+		tmpBuf.putInt(FourCC.toInt("icnv"));
+		retL.add(new BlobRecord(".", "fwi0", tmpBuf.array()));
+		retL.add(new ShorRecord(".", "fwvh", aLayout.getWindowH()));
+
+		// Icon view options: Icon size, no arrangement, labels at the bottom
+		tmpBuf = ByteBuffer.allocate(26);
+		tmpBuf.putInt(FourCC.toInt("icv4"));
+		tmpBuf.putShort((short) aLayout.getIconSize());
+		tmpBuf.putInt(FourCC.toInt("none"));
+		tmpBuf.putInt(FourCC.toInt("botm"));
+		tmpBuf.position(22);
+		tmpBuf.putShort((short) 4);
+		retL.add(new BlobRecord(".", "icvo", tmpBuf.array()));
+		retL.add(new BoolRecord(".", "ICVO", true));
+		retL.add(new ShorRecord(".", "icvt", aLayout.getTextSize()));
+
+		tmpBuf = ByteBuffer.allocate(8);
+		tmpBuf.putInt(4, 4);
+		retL.add(new BlobRecord(".", "icgo", tmpBuf.array()));
+
+		// Icon locations
+		for (IconLoc aItem : aLayout.getIconList())
+			retL.add(new IlocRecord(aItem.getName(), aItem.getPosX(), aItem.getPosY()));
+
+		return retL;
+	}
+
+	/**
+	 * Utility method that writes a .DS_Store file (to aFile) that defines the specified layout.
+	 */
+	public static void write(DmgLayout aLayout, File aFile) throws IOException
+	{
+		List<ByteBuffer> recordL = new ArrayList<>();
+		for (dsstore.record.Record aRecord : formRecords(aLayout, System.currentTimeMillis()))
+			recordL.add(StoreWriter.toBuffer(aRecord));
+
+		recordL.sort(StoreWriter.RecordComparator);
+		StoreWriter.write(aFile, recordL);
+	}
+
+}
@@ -14,13 +14,12 @@
 package dsstore;
 
 import glum.task.*;
-import glum.zio.stream.FileZinStream;
-import glum.zio.stream.FileZoutStream;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.function.Function;
 
 import dsstore.record.*;
 
@@ -31,17 +30,8 @@ import dsstore.record.*;
  */
 public class MainApp
 {
-	// Constants
-	public static final String DT_long = "long"; //convertStringToInt("long");  // An integer (4 bytes)
-	public static final String DT_shor = "shor"; //convertStringToInt("shor");  // A short integer? Still stored as four bytes, but the first two are always zero.
-	public static final String DT_bool = "bool"; //convertStringToInt("bool");  // A boolean value, stored as one byte.
-	public static final String DT_blob = "blob"; //convertStringToInt("blob");  // An arbitrary block of bytes, stored as an integer followed by that many bytes of data.
-	public static final String DT_type = "type"; //convertStringToInt("type");  // Four bytes, containing a FourCharCode.
-	public static final String DT_ustr = "ustr"; //convertStringToInt("ustr");  // A Unicode text string, stored as an integer character count followed by 2*count bytes of data in UTF-16.
-
 	// State vars
 	private Task refTask;
-	private ByteBuffer dataBuf;
 	private String volumeName;
 
 	public MainApp(String aVolumeName)
@@ -51,40 +41,51 @@ public class MainApp
 		if (aVolumeName != null)
 			refTask = new SilentTask();
 
-		dataBuf = null;
 		volumeName = aVolumeName;
 	}
 
-
-	public void writeStore(File aFile)
+	/**
+	 * Method to output the contents of the store. The store is memory-mapped and records are decoded lazily - see
+	 * {@link MappedStore}.
+	 *
+	 * @return True if we successfully read the store
+	 */
+	public boolean dumpStore(File aFile)
 	{
-		// Ensure we have a valid dataBuf
-		if (dataBuf == null)
-			return;
-
-		try (FileZoutStream aStream = new FileZoutStream(aFile);)
+		// Bail if the file is not valid
+		if (aFile.isFile() == false)
 		{
-			// Write the file's MagicKey
-			int fileMagicKey = 0x0001;
-			aStream.writeInt(fileMagicKey);
-
-			// Dump the contents of aBytBuff
-			aStream.writeFully(dataBuf.array());
+			System.err.println("File does note exist: " + aFile);
+			return false;
+		}
 
-			aStream.close();
+		try
+		{
+			MappedStore tmpStore = MappedStore.open(aFile);
+			refTask.logRegln("Block count: " + tmpStore.getNumBlocks());
+			refTask.logRegln("rootBlockNum: " + tmpStore.getRootBlockId());
+			refTask.logRegln("numLevels: " + tmpStore.getNumLevels());
+			refTask.logRegln("rootRecords: " + tmpStore.getNumRecords());
+			refTask.logRegln("rootNodes: " + tmpStore.getNumNodes());
+			refTask.logRegln("pageSize: " + tmpStore.getPageSize());
+
+			tmpStore.forEachRecord(aView -> refTask.logRegln("Found " + aView));
 		}
-		catch(IOException aExp)
+		catch (IOException | RuntimeException aExp)
 		{
 			aExp.printStackTrace();
+			return false;
 		}
+
+		return true;
 	}
 
 	/**
-	 * Method to read the actual store contents.
+	 * Method to update the store to reflect the new volume name. See {@link #updateStore(File, String)}.
 	 *
-	 * @return True if we successfully read the store
+	 * @return True if we successfully updated the store
 	 */
-	public boolean readStore(File aFile)
+	public boolean updateStore(File aFile)
 	{
 		// Bail if the file is not valid
 		if (aFile.isFile() == false)
@@ -93,118 +94,11 @@ public class MainApp
 			return false;
 		}
 
-		dataBuf = null;
-		try (FileZinStream iStream = new FileZinStream(aFile))
+		try
 		{
-			byte[] byteArr;
-List<BlockDir> blockDirL;
-String dmgMagicKey;
-int fileMagicKey;
-int allocBlockOffset1, allocBlockOffset2, allocBlockSize;
-int blockCnt, tmpSize, seekDiff, dirCnt;
-int blockAddrArr[];
-
-			int fileSize = (int)aFile.length();
-
-			// DS_Store magic key: 0x0001
-			fileMagicKey = iStream.readInt();
-			if (fileMagicKey != 0x0001)
-				throw new IOException("Bad magic key value: " + fileMagicKey + " Expected: " + 0x0001);
-
-			// Read the rest of the contents into a bytebuffer
-			byteArr = new byte[fileSize - 4];
-			iStream.readFully(byteArr);
-			dataBuf = ByteBuffer.wrap(byteArr);
-
-			// Header block (not stored in the allocators list)
-			dmgMagicKey = BufUtils.readRawAsciiStr(dataBuf, 4);
-//			aStream.readRawStringAndValidate("Bud1");
-//			dmgMagicKey = byteBuf.getInt();
-			allocBlockOffset1 = dataBuf.getInt();
-			allocBlockSize = dataBuf.getInt();
-			allocBlockOffset2 = dataBuf.getInt();
-
-			// Check the header block validity
-			if (dmgMagicKey.equals("Bud1") == false)
-				throw new RuntimeException("Header magic key does not equal: 'Bud1'  Found: '" + dmgMagicKey + "'");
-
-			if (allocBlockOffset1 != allocBlockOffset2)
-				throw new RuntimeException("Allocator block offset mismatch: " + allocBlockOffset1 + " != " + allocBlockOffset2);
-
-
-
-			// Advance to the allocator section
-			dataBuf.position(allocBlockOffset1);
-
-			blockCnt = dataBuf.getInt();
-			dataBuf.getInt(); // Unknown
-
-			blockAddrArr = new int[blockCnt];
-			for (int c1 = 0; c1 < blockCnt; c1++)
-			{
-				blockAddrArr[c1] = dataBuf.getInt();
-
-int blkLen, blkPos;
-blkLen = 1 << (blockAddrArr[c1] & 0x1F);
-blkPos = (blockAddrArr[c1] >> 5) * 32;
-refTask.logRegln("BlockAddr[" + c1 + "] -> Size: " + blkLen + "  Offset: " + blkPos);
-
-//The entries in the block address table are what I call block addresses. Each address is a packed offset+size.
-//The least-significant 5 bits of the number indicate the block's size, as a power of 2 (from 2^5 to 2^31). If those bits are masked off, the result
-//is the starting offset of the block (keeping in mind the 4-byte fudge factor). Since the lower 5 bits are unusable to store an offset, blocks must be
-//allocated on 32-byte boundaries, and as a side effect the minimum block size is 32 bytes (in which case the least significant 5 bits are equal to 0x05).
-
-
-			}
-
-			// Seek to the end of %256 items (which are unused)
-			seekDiff = 0;
-			if (blockCnt % 256 != 0)
-				seekDiff = (256 - blockCnt%256) * 4;
-
-			dataBuf.position(dataBuf.position() + seekDiff);
-
-			// Read the block directories
-			dirCnt = dataBuf.getInt();
-refTask.logRegln("Block directory count: " + dirCnt);
-
-			blockDirL = new ArrayList<>(dirCnt);
-			for (int c1 = 0; c1 < dirCnt; c1++)
-				blockDirL.add(new BlockDir(dataBuf));
-
-
-			// Read the free lists
-int freeCnt;
-refTask.logRegln("Reading freelists...");
-			for (int c1 = 0; c1 < 32; c1++)
-			{
-				freeCnt = dataBuf.getInt();
-				refTask.logReg("[" + c1 + "]: " + freeCnt + " Offsets: ");
-				for (int c2 = 0; c2 < freeCnt; c2++)
-					refTask.logReg(dataBuf.getInt() + ",");
-				refTask.logRegln("");
-			}
-
-
-
-			// Read the DSDB structure
-// TODO: Remove hard coded value
-			dataBuf.position(64);
-			readDsdbNode(dataBuf);
-
-// TODO: Remove hard coded value
-			dataBuf.position(4096);
-			readRecords(dataBuf);
-
-//			The 32-byte header has the following fields:
-//
-//		    Magic number Bud1 (42 75 64 31)
-//		    Offset to the allocator's bookkeeping information block
-//		    Size of the allocator's bookkeeping information block
-//		    A second copy of the offset; the Finder will refuse to read the file if this does not match the first copy. Perhaps this is a safeguard against corruption from an interrupted write transaction.
-//		    Sixteen bytes of unknown purpose. The
+			updateStore(aFile, volumeName);
 		}
-		catch (IOException aExp)
+		catch (IOException | RuntimeException aExp)
 		{
 			aExp.printStackTrace();
 			return false;
@@ -213,130 +107,160 @@ refTask.logRegln("Reading freelists...");
 		return true;
 	}
 
-
-	public void readRecords(ByteBuffer aBuf)
+	/**
+	 * Utility method to update the store (aFile) to reflect the new volume name.
+	 * <p>
+	 * The store is memory-mapped (see {@link MappedStore}) and walked via a {@link StoreCursor}. Only the affected records
+	 * (pict, BKGD, Iloc) are decoded. If every edit preserves the size of its record (and the B-tree ordering) then the
+	 * edits are made in place. Otherwise the store is rewritten as a new balanced B-tree (see {@link StoreWriter}) with
+	 * all other records copied as is.
+	 */
+	public static void updateStore(File aFile, String aVolumeName) throws IOException
 	{
-		List<dsstore.record.Record> recordL;
-		BKGDRecord bkgdRecord;
-		dsstore.record.Record tmpRecord;
-		int pCode, numRecords;
-		String name, id, type;
-		int begPos;
-
-		// Read the record info
-		begPos = aBuf.position();
-		pCode = aBuf.getInt();
-		numRecords = aBuf.getInt();
-
-		bkgdRecord = null;
-		recordL = new ArrayList<>(numRecords);
-		for (int c1 = 0; c1 < numRecords; c1++)
+		MappedStore tmpStore = MappedStore.open(aFile, true);
+
+		// Locate the (volume) pict record. The BKGD record refers to the size of its alias record.
+		PictRecord pictRecord = null;
+		RecordView pictView = tmpStore.findRecord(".", FourCC.pict);
+		if (pictView != null && pictView.getType() == FourCC.DT_blob)
 		{
-			BufUtils.seek(aBuf, 2); // empty
-			name = BufUtils.readStringUtf16(aBuf);
+			pictRecord = (PictRecord) pictView.decode();
+			pictRecord.getAliasRecord().setVolumeName(aVolumeName);
+		}
+		AliasRecord refAliasRecord = pictRecord != null ? pictRecord.getAliasRecord() : null;
+		ByteBuffer pictBuf = pictRecord != null ? StoreWriter.toBuffer(pictRecord) : null;
 
-			id = BufUtils.readRawAsciiStr(aBuf, 4);
-			type = BufUtils.readRawAsciiStr(aBuf, 4);
+		Function<RecordView, ByteBuffer> editFunc = aView -> {
+			int code = aView.getCode();
+			if (code == FourCC.pict && pictView != null && aView.getBegPos() == pictView.getBegPos())
+				return pictBuf;
 
-			// Read the Records
-			if (id.equals("pict") == true && type.equals(DT_blob) == true)
+			if (code == FourCC.BKGD && aView.getType() == FourCC.DT_blob && refAliasRecord != null)
 			{
-				tmpRecord = new PictRecord(name, id, type);
-				bkgdRecord.setRefAliasRecord(((PictRecord)tmpRecord).getAliasRecord());
+				BKGDRecord bkgdRecord = (BKGDRecord) aView.decode();
+				bkgdRecord.setRefAliasRecord(refAliasRecord);
+				return StoreWriter.toBuffer(bkgdRecord);
 			}
-			else if (id.equals("BKGD") == true && type.equals(DT_blob) == true)
+
+			if (code == FourCC.Iloc)
 			{
-				bkgdRecord = new BKGDRecord(name, id, type);
-				tmpRecord = bkgdRecord;
+				String newName;
+				if (aView.getName().endsWith(".app") == true)
+					newName = aVolumeName + ".app";
+				else if (aView.nameEquals(" ") == true)
+					newName = "Applications";
+				else
+					return null;
+
+				dsstore.record.Record tmpRecord = aView.decode();
+				tmpRecord.setName(newName);
+				return StoreWriter.toBuffer(tmpRecord);
 			}
-			else if (id.equals("Iloc") == true)
-				tmpRecord = new IlocRecord(name, id, type);
-			else if (type.equals(DT_bool) == true)
-				tmpRecord = new BoolRecord(name, id, type);
-			else if (type.equals(DT_blob) == true)
-				tmpRecord = new BlobRecord(name, id, type);
-			else if (type.equals(DT_ustr) == true)
-				tmpRecord = new UstrRecord(name, id, type);
-			else if (type.equals(DT_long) == true)
-				tmpRecord = new LongRecord(name, id, type);
-			else
-				tmpRecord = new ShorRecord(name, id, type);
-
-			tmpRecord.readPayload(aBuf);
-			recordL.add(tmpRecord);
-
-			refTask.logRegln("Found Name: <" + name + ">  recordId: " + id + " dataType: " + type + " payloadSize: " + tmpRecord.getSize());
-		}
 
+			return null;
+		};
 
-		// TODO: This should not be in the read method...
-		// Update the records to reflect the new volumeName
-		if (volumeName != null)
+		// Determine the edits (keyed by record position)
+		Map<Integer, ByteBuffer> editM = new HashMap<>();
+		boolean isInPlace = true;
+		StoreCursor tmpCursor = new StoreCursor(tmpStore);
+		while (tmpCursor.next() == true)
 		{
-			for (var aRecord : recordL)
+			RecordView tmpView = tmpCursor.getView();
+			ByteBuffer tmpBuf = editFunc.apply(tmpView);
+			if (tmpBuf == null)
+				continue;
+
+			editM.put(tmpView.getBegPos(), tmpBuf);
+			if (tmpBuf.remaining() != tmpView.getEndPos() - tmpView.getBegPos())
+				isInPlace = false;
+		}
+
+		// Apply the edits in place (when the size of every record is unchanged)
+		if (isInPlace == true)
+		{
+			tmpCursor = new StoreCursor(tmpStore);
+			while (tmpCursor.next() == true && isInPlace == true)
 			{
-				if (aRecord instanceof PictRecord)
-					((PictRecord)aRecord).getAliasRecord().setVolumeName(volumeName);
-
-//				if (aRecord.getName().equals(" ") == false && aRecord.getId().equals("Iloc") == true)
-				if (aRecord.getName().endsWith(".app") == true && aRecord.getId().equals("Iloc") == true)
-					aRecord.setName(volumeName + ".app");
-				else if (aRecord.getName().equals(" ") == true && aRecord.getId().equals("Iloc") == true)
-					aRecord.setName("Applications");
+				ByteBuffer tmpBuf = editM.get(tmpCursor.getView().getBegPos());
+				if (tmpBuf == null)
+					continue;
+
+				if (tmpCursor.canReplace(tmpBuf) == true)
+					tmpCursor.replace(tmpBuf);
+				else
+					isInPlace = false;
 			}
 
-			// Sort the list alphabetically
-			Collections.sort(recordL);
-
-
-			// Output back to the ByteBuf
-			aBuf.position(begPos);
-
-			aBuf.putInt(pCode);
-			aBuf.putInt(numRecords);
-
-			for (var aRecord : recordL)
+			if (isInPlace == true)
 			{
-				aBuf.putShort((short)0);
-				aRecord.writeHeader(aBuf);
-				aRecord.writePayload(aBuf);
+				tmpStore.force();
+				return;
 			}
 		}
-	}
-
 
+		// Rewrite the store. Note any edits already made in place are simply applied again.
+		StoreWriter.rewrite(tmpStore, aFile, aView -> editM.get(aView.getBegPos()));
+	}
 
+	/**
+	 * Helper method that processes the batch command line arguments and outputs the result of each item.
+	 *
+	 * @return True if every item was processed successfully
+	 */
+	private static boolean runBatch(List<String> aArgL)
+	{
+		boolean isDryRun = false;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		List<BatchItem> itemL = new ArrayList<>();
+		try
+		{
+			for (int c1 = 0; c1 < aArgL.size(); c1++)
+			{
+				String tmpArg = aArgL.get(c1);
+				if (tmpArg.equals("--dry-run") == true)
+					isDryRun = true;
+				else if (tmpArg.equals("--threads") == true && c1 + 1 < aArgL.size())
+					numThreads = Integer.parseInt(aArgL.get(++c1));
+				else if (tmpArg.equals("--manifest") == true && c1 + 1 < aArgL.size())
+					itemL.addAll(BatchProcessor.loadManifest(new File(aArgL.get(++c1))));
+				else if (tmpArg.startsWith("--") == true)
+					throw new IOException("Unrecognized option: " + tmpArg);
+				else
+					itemL.add(BatchProcessor.parseItem(tmpArg));
+			}
+		}
+		catch (IOException | NumberFormatException aExp)
+		{
+			System.err.println("Failed to process arguments: " + aExp.getMessage());
+			return false;
+		}
 
+		long begTime = System.currentTimeMillis();
+		List<BatchResult> resultL = BatchProcessor.processAll(itemL, numThreads, isDryRun);
 
+		int numFail = 0;
+		for (BatchResult aResult : resultL)
+		{
+			String statusStr = "[VALID]   ";
+			if (aResult.isSuccess() == false)
+				statusStr = "[FAIL]    ";
+			else if (aResult.isUpdated() == true)
+				statusStr = "[UPDATED] ";
+
+			System.out.println(statusStr + aResult.getItem().getStoreFile() + " (" + aResult.getRunTime() + " ms)");
+			for (String aMsg : aResult.getProblemList())
+				System.out.println("\t" + aMsg);
+
+			if (aResult.isSuccess() == false)
+				numFail++;
+		}
 
-	public void readDsdbNode(ByteBuffer srcBuf)
-	{
-		int rootBlockNum;
-		int numLevels;
-		int numRecords;
-		int numNodes;
-		int valConst;
-
-		// Read the DSDB header
-		// 0: The block number of the root node of the B-tree
-		// 1: The number of levels of internal nodes (tree height minus one --- that is, for a tree containing only a single, leaf, node this will be zero)
-		// 2: The number of records in the tree
-		// 3: The number of nodes in the tree (tree nodes, not including this header block)
-		// 4: Always 0x1000, probably the tree node page size
-		rootBlockNum = srcBuf.getInt();
-		numLevels = srcBuf.getInt();
-		numRecords = srcBuf.getInt();
-		numNodes = srcBuf.getInt();
-		valConst = srcBuf.getInt();
-
-		refTask.logRegln("rootBlockNum: " + rootBlockNum);
-		refTask.logRegln("numLevels: " + numLevels);
-		refTask.logRegln("rootRecords: " + numRecords);
-		refTask.logRegln("rootNodes: " + numNodes);
-		refTask.logRegln("valConst: " + valConst);
+		long runTime = System.currentTimeMillis() - begTime;
+		System.out.println("Processed " + resultL.size() + " stores in " + runTime + " ms. Failures: " + numFail);
+		return numFail == 0;
 	}
 
-
 	/**
 	 * Application main entry point
 	 */
@@ -352,9 +276,43 @@ refTask.logRegln("Reading freelists...");
 		if (args.length == 0)
 		{
 			System.out.println("Usage: dsStoreUtil <fileName> <newVolumeName>");
+			System.out.println("       dsStoreUtil --layout <layoutFile> <fileName>");
+			System.out.println("       dsStoreUtil --batch [--dry-run] [--threads <n>] [--manifest <file>] [<fileName>[,<newVolumeName>]]...");
 			System.exit(-1);
 			return;
 		}
+
+		// Process many stores (in parallel) in a single JVM
+		if (args[0].equals("--batch") == true)
+		{
+			if (runBatch(Arrays.asList(args).subList(1, args.length)) == false)
+				System.exit(-1);
+			return;
+		}
+
+		// Generate a new store from the layout spec (no template)
+		if (args[0].equals("--layout") == true)
+		{
+			if (args.length != 3)
+			{
+				System.out.println("Usage: dsStoreUtil --layout <layoutFile> <fileName>");
+				System.exit(-1);
+				return;
+			}
+
+			aFile = new File(args[2]);
+			System.out.println("Generating store: " + aFile);
+			try
+			{
+				LayoutWriter.write(DmgLayout.load(new File(args[1])), aFile);
+			}
+			catch (IOException | RuntimeException aExp)
+			{
+				aExp.printStackTrace();
+				System.exit(-1);
+			}
+			return;
+		}
 		if (args.length >= 1)
 		{
 			storeFileName = args[0];
@@ -369,13 +327,17 @@ refTask.logRegln("Reading freelists...");
 
 		aMainApp = new MainApp(newVolName);
 
-		// Bail if we failed to read the store
-		if (aMainApp.readStore(aFile) == false)
-			System.exit(-1);
+		// Just output the contents of the store if there is no request for a new name
+		if (newVolName == null)
+		{
+			if (aMainApp.dumpStore(aFile) == false)
+				System.exit(-1);
+			return;
+		}
 
-		// Save the ds_store if there was a request for a new name
-		if (newVolName != null)
-			aMainApp.writeStore(aFile);
+		// Bail if we failed to update the store
+		if (aMainApp.updateStore(aFile) == false)
+			System.exit(-1);
 	}
 
 }
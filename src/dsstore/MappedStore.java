@@ -0,0 +1,397 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Read only, memory-mapped view of a .DS_Store file.
+ * <p>
+ * The file is mapped (via {@link FileChannel#map}) rather than read and nothing is decoded up front other than the
+ * header, the location of the allocator's block address table, and the DSDB (B-tree) header. Records are decoded
+ * lazily via a (single) flyweight {@link RecordView}. Thus neither the time to open a store nor the memory utilized
+ * scale with the size of the file.
+ * <p>
+ * All offsets within the store are relative to the position just after the 4 byte file magic key. The returned
+ * positions (see {@link RecordView}) are relative to the buffer returned by {@link #getBuffer()}.
+ *
+ * @author lopeznr1
+ */
+public class MappedStore
+{
+	/** The magic key at the start of every .DS_Store file. */
+	public static final int FileMagicKey = 0x0001;
+
+	/** The maximum depth of the B-tree. Deeper trees are assumed to be corrupt (cyclic). */
+	static final int MaxDepth = 32;
+
+	// Attributes
+	private final ByteBuffer buf;
+	private final int numBlocks;
+	private final int blockAddrPos;
+	private final int dsdbBlockId;
+	private final int rootBlockId;
+	private final int numLevels;
+	private final int numRecords;
+	private final int numNodes;
+	private final int pageSize;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aBuf
+	 *        Buffer of the store's content (excluding the 4 byte file magic key).
+	 */
+	public MappedStore(ByteBuffer aBuf) throws IOException
+	{
+		buf = aBuf;
+
+		// Header block (not stored in the allocator's list)
+		if (buf.getInt(0) != FourCC.Bud1)
+			throw new IOException("Header magic key does not equal: 'Bud1'  Found: '" + FourCC.toStr(buf.getInt(0)) + "'");
+
+		int allocBlockOffset1 = buf.getInt(4);
+		int allocBlockOffset2 = buf.getInt(12);
+		if (allocBlockOffset1 != allocBlockOffset2)
+			throw new IOException("Allocator block offset mismatch: " + allocBlockOffset1 + " != " + allocBlockOffset2);
+
+		// Allocator: The block address table is padded to a multiple of 256 entries
+		numBlocks = buf.getInt(allocBlockOffset1);
+		blockAddrPos = allocBlockOffset1 + 8;
+		int tmpPos = blockAddrPos + ((numBlocks + 255) / 256) * 256 * 4;
+
+		// Allocator: Locate the DSDB directory entry (without decoding the names)
+		int dirCnt = buf.getInt(tmpPos);
+		tmpPos += 4;
+
+		int tmpBlockId = -1;
+		for (int c1 = 0; c1 < dirCnt; c1++)
+		{
+			int nameLen = buf.get(tmpPos) & 0xFF;
+			if (nameLen == 4 && buf.getInt(tmpPos + 1) == FourCC.DSDB)
+				tmpBlockId = buf.getInt(tmpPos + 1 + nameLen);
+			tmpPos += 1 + nameLen + 4;
+		}
+		if (tmpBlockId == -1)
+			throw new IOException("The store does not have a DSDB directory entry.");
+		dsdbBlockId = tmpBlockId;
+
+		// DSDB header
+		int dsdbPos = getBlockOffset(dsdbBlockId);
+		rootBlockId = buf.getInt(dsdbPos);
+		numLevels = buf.getInt(dsdbPos + 4);
+		numRecords = buf.getInt(dsdbPos + 8);
+		numNodes = buf.getInt(dsdbPos + 12);
+		pageSize = buf.getInt(dsdbPos + 16);
+	}
+
+	/**
+	 * Memory maps (read only) the specified .DS_Store file and returns the corresponding {@link MappedStore}.
+	 */
+	public static MappedStore open(File aFile) throws IOException
+	{
+		return open(aFile, false);
+	}
+
+	/**
+	 * Memory maps the specified .DS_Store file and returns the corresponding {@link MappedStore}.
+	 * <p>
+	 * If aIsWritable is true then the file is mapped read-write and in-place edits (see {@link StoreCursor}) are written
+	 * through to the file. Call {@link #force()} to ensure the edits have reached the storage device.
+	 */
+	public static MappedStore open(File aFile, boolean aIsWritable) throws IOException
+	{
+		// Note the mapping remains valid after the channel has been closed
+		ByteBuffer tmpBuf;
+		if (aIsWritable == true)
+		{
+			try (FileChannel tmpFC = FileChannel.open(aFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				tmpBuf = tmpFC.map(FileChannel.MapMode.READ_WRITE, 0, tmpFC.size());
+			}
+		}
+		else
+		{
+			try (FileChannel tmpFC = FileChannel.open(aFile.toPath(), StandardOpenOption.READ))
+			{
+				tmpBuf = tmpFC.map(FileChannel.MapMode.READ_ONLY, 0, tmpFC.size());
+			}
+		}
+
+		if (tmpBuf.limit() < 36)
+			throw new IOException("File is too small to be a store: " + aFile);
+
+		int fileMagicKey = tmpBuf.getInt(0);
+		if (fileMagicKey != FileMagicKey)
+			throw new IOException("Bad magic key value: " + fileMagicKey + " Expected: " + FileMagicKey);
+
+		return new MappedStore(tmpBuf.position(4).slice());
+	}
+
+	/**
+	 * Returns a view of the record with the specified file name and record code or null if there is no such record.
+	 * <p>
+	 * The B-tree is descended from the root so only a single node per level is examined.
+	 */
+	public RecordView findRecord(CharSequence aName, int aCode)
+	{
+		RecordView retView = new RecordView(buf);
+
+		int currBlockId = rootBlockId;
+		for (int depth = 0; depth <= MaxDepth; depth++)
+		{
+			int tmpPos = getBlockOffset(currBlockId);
+			int rightBlockId = buf.getInt(tmpPos);
+			int count = buf.getInt(tmpPos + 4);
+			tmpPos += 8;
+
+			int nextBlockId = rightBlockId;
+			for (int c1 = 0; c1 < count; c1++)
+			{
+				int childBlockId = 0;
+				if (rightBlockId != 0)
+				{
+					childBlockId = buf.getInt(tmpPos);
+					tmpPos += 4;
+				}
+
+				tmpPos = retView.moveTo(tmpPos);
+				int cmpVal = retView.compareTo(aName, aCode);
+				if (cmpVal == 0)
+					return retView;
+				if (cmpVal > 0)
+				{
+					nextBlockId = childBlockId;
+					break;
+				}
+			}
+
+			// Bail if we have reached a leaf
+			if (nextBlockId == 0)
+				return null;
+			currBlockId = nextBlockId;
+		}
+
+		throw new RuntimeException("The B-tree is too deep. The store is most likely corrupt.");
+	}
+
+	/**
+	 * Visits (in B-tree order) every record with the specified file name (case insensitive). Subtrees that can not
+	 * contain the file name are skipped. The same {@link RecordView} is passed to each invocation of aVisitor and thus
+	 * must not be retained.
+	 */
+	public void forEachRecord(CharSequence aName, Consumer<RecordView> aVisitor)
+	{
+		visitRange(rootBlockId, 0, aName, new RecordView(buf), aVisitor);
+	}
+
+	/**
+	 * Visits every record in the store (in B-tree order). The same {@link RecordView} is passed to each invocation of
+	 * aVisitor and thus must not be retained.
+	 */
+	public void forEachRecord(Consumer<RecordView> aVisitor)
+	{
+		visitNode(rootBlockId, 0, new RecordView(buf), aVisitor);
+	}
+
+	/**
+	 * Forces any in-place edits to be written to the storage device. This method does nothing if the store is not backed
+	 * by a (writable) file mapping.
+	 */
+	public void force()
+	{
+		if (buf instanceof MappedByteBuffer && buf.isReadOnly() == false)
+			((MappedByteBuffer) buf).force();
+	}
+
+	/**
+	 * Returns the offset of the specified block.
+	 */
+	public int getBlockOffset(int aBlockId)
+	{
+		return getBlockAddr(aBlockId) & ~0x1F;
+	}
+
+	/**
+	 * Returns the size of the specified block.
+	 */
+	public int getBlockSize(int aBlockId)
+	{
+		return 1 << (getBlockAddr(aBlockId) & 0x1F);
+	}
+
+	/**
+	 * Returns the buffer that backs the store.
+	 */
+	public ByteBuffer getBuffer()
+	{
+		return buf;
+	}
+
+	/**
+	 * Returns the block id of the DSDB header.
+	 */
+	public int getDsdbBlockId()
+	{
+		return dsdbBlockId;
+	}
+
+	/**
+	 * Returns the number of blocks in the allocator's block address table.
+	 */
+	public int getNumBlocks()
+	{
+		return numBlocks;
+	}
+
+	/**
+	 * Returns the number of internal levels of the B-tree. A tree that consists of a single leaf has zero levels.
+	 */
+	public int getNumLevels()
+	{
+		return numLevels;
+	}
+
+	/**
+	 * Returns the number of nodes in the B-tree.
+	 */
+	public int getNumNodes()
+	{
+		return numNodes;
+	}
+
+	/**
+	 * Returns the number of records in the B-tree.
+	 */
+	public int getNumRecords()
+	{
+		return numRecords;
+	}
+
+	/**
+	 * Returns the page size of the B-tree nodes.
+	 */
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+
+	/**
+	 * Returns the block id of the root node of the B-tree.
+	 */
+	public int getRootBlockId()
+	{
+		return rootBlockId;
+	}
+
+	/**
+	 * Helper method that returns the (packed) address of the specified block.
+	 */
+	private int getBlockAddr(int aBlockId)
+	{
+		if (aBlockId < 0 || aBlockId >= numBlocks)
+			throw new RuntimeException("Invalid block id: " + aBlockId + " Num blocks: " + numBlocks);
+
+		return buf.getInt(blockAddrPos + aBlockId * 4);
+	}
+
+	/**
+	 * Helper method that visits (in order) the records of the B-tree node at the specified block that match aName.
+	 * <p>
+	 * Returns false once a record that sorts after aName has been encountered (no further records can match).
+	 */
+	private boolean visitRange(int aBlockId, int aDepth, CharSequence aName, RecordView aView,
+			Consumer<RecordView> aVisitor)
+	{
+		if (aDepth > MaxDepth)
+			throw new RuntimeException("The B-tree is too deep. The store is most likely corrupt.");
+
+		int tmpPos = getBlockOffset(aBlockId);
+		int rightBlockId = buf.getInt(tmpPos);
+		int count = buf.getInt(tmpPos + 4);
+		tmpPos += 8;
+
+		for (int c1 = 0; c1 < count; c1++)
+		{
+			int childBlockId = 0;
+			if (rightBlockId != 0)
+			{
+				childBlockId = buf.getInt(tmpPos);
+				tmpPos += 4;
+			}
+
+			int recPos = tmpPos;
+			tmpPos = aView.moveTo(recPos);
+			int cmpVal = aView.compareName(aName);
+
+			// Skip the child if all of its records sort before aName
+			if (childBlockId != 0 && cmpVal >= 0)
+			{
+				if (visitRange(childBlockId, aDepth + 1, aName, aView, aVisitor) == false)
+					return false;
+				aView.moveTo(recPos);
+			}
+
+			if (cmpVal > 0)
+				return false;
+			if (cmpVal == 0)
+				aVisitor.accept(aView);
+		}
+
+		if (rightBlockId != 0)
+			return visitRange(rightBlockId, aDepth + 1, aName, aView, aVisitor);
+
+		return true;
+	}
+
+	/**
+	 * Helper method that visits (in order) the records of the B-tree node at the specified block.
+	 * <p>
+	 * A node starts with 2 ints: P and count. If P is zero then the node is a leaf and count records follow. Otherwise
+	 * count (child block id, record) pairs follow and P is the block id of the right most child.
+	 */
+	private void visitNode(int aBlockId, int aDepth, RecordView aView, Consumer<RecordView> aVisitor)
+	{
+		if (aDepth > MaxDepth)
+			throw new RuntimeException("The B-tree is too deep. The store is most likely corrupt.");
+
+		int tmpPos = getBlockOffset(aBlockId);
+		int rightBlockId = buf.getInt(tmpPos);
+		int count = buf.getInt(tmpPos + 4);
+		tmpPos += 8;
+
+		for (int c1 = 0; c1 < count; c1++)
+		{
+			if (rightBlockId != 0)
+			{
+				int childBlockId = buf.getInt(tmpPos);
+				visitNode(childBlockId, aDepth + 1, aView, aVisitor);
+				tmpPos += 4;
+			}
+
+			tmpPos = aView.moveTo(tmpPos);
+			aVisitor.accept(aView);
+		}
+
+		if (rightBlockId != 0)
+			visitNode(rightBlockId, aDepth + 1, aView, aVisitor);
+	}
+
+}
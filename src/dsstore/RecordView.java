@@ -0,0 +1,387 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.nio.ByteBuffer;
+
+import dsstore.record.*;
+
+/**
+ * Flyweight view of a single record in a .DS_Store buffer.
+ * <p>
+ * A view does not copy any of the record's content. Rather it records the position of the record (and its fields) in
+ * the backing buffer and decodes values on demand via absolute reads. A single view is typically re-pointed (see
+ * {@link #moveTo(int)}) to each record in turn so that iterating over the records of a store does not allocate.
+ * <p>
+ * The serialized record has the following layout:
+ * <ul>
+ * <li>4 bytes: The file name length (in UTF-16 units)
+ * <li>2 * nameLen bytes: The file name (UTF-16BE)
+ * <li>4 bytes: The record code (FourCC)
+ * <li>4 bytes: The data type (FourCC)
+ * <li>The payload - the size of which is defined by the data type
+ * </ul>
+ *
+ * @author lopeznr1
+ */
+public class RecordView
+{
+	// Attributes
+	private final ByteBuffer buf;
+
+	// State vars
+	private int begPos;
+	private int nameLen;
+	private int codePos;
+	private int payloadPos;
+	private int endPos;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aBuf
+	 *        The buffer that backs the records. Only absolute reads are made against the buffer.
+	 */
+	public RecordView(ByteBuffer aBuf)
+	{
+		buf = aBuf;
+
+		begPos = -1;
+		nameLen = 0;
+		codePos = -1;
+		payloadPos = -1;
+		endPos = -1;
+	}
+
+	/**
+	 * Points this view to the record that starts at the specified (absolute) position.
+	 * <p>
+	 * Returns the position just after the record.
+	 */
+	public int moveTo(int aPos)
+	{
+		begPos = aPos;
+		nameLen = buf.getInt(aPos);
+		if (nameLen < 0 || nameLen > 0xFFFF)
+			throw new RuntimeException("Invalid record name length: " + nameLen + " Pos: " + aPos);
+
+		codePos = aPos + 4 + nameLen * 2;
+		payloadPos = codePos + 8;
+		endPos = payloadPos + computePayloadSize(getType(), payloadPos);
+		return endPos;
+	}
+
+	/**
+	 * Compares the serialized record at aPos1 (of aBuf1) to the serialized record at aPos2 (of aBuf2). Records are
+	 * ordered by file name (case insensitive) and then by record code. No allocation is made.
+	 */
+	public static int compare(ByteBuffer aBuf1, int aPos1, ByteBuffer aBuf2, int aPos2)
+	{
+		int nameLen1 = aBuf1.getInt(aPos1);
+		int nameLen2 = aBuf2.getInt(aPos2);
+		int minLen = Math.min(nameLen1, nameLen2);
+		for (int c1 = 0; c1 < minLen; c1++)
+		{
+			char ch1 = Character.toLowerCase(Character.toUpperCase(aBuf1.getChar(aPos1 + 4 + c1 * 2)));
+			char ch2 = Character.toLowerCase(Character.toUpperCase(aBuf2.getChar(aPos2 + 4 + c1 * 2)));
+			if (ch1 != ch2)
+				return ch1 - ch2;
+		}
+		if (nameLen1 != nameLen2)
+			return nameLen1 - nameLen2;
+
+		int code1 = aBuf1.getInt(aPos1 + 4 + nameLen1 * 2);
+		int code2 = aBuf2.getInt(aPos2 + 4 + nameLen2 * 2);
+		return Integer.compareUnsigned(code1, code2);
+	}
+
+	/**
+	 * Compares the file name of the record to aName. The comparison is case insensitive (as is the ordering utilized by
+	 * the Finder) and no allocation is made.
+	 * <p>
+	 * Returns a negative value, zero, or a positive value as the record's name is less than, equal to, or greater than
+	 * aName.
+	 */
+	public int compareName(CharSequence aName)
+	{
+		int minLen = Math.min(nameLen, aName.length());
+		for (int c1 = 0; c1 < minLen; c1++)
+		{
+			char ch1 = Character.toLowerCase(Character.toUpperCase(getNameChar(c1)));
+			char ch2 = Character.toLowerCase(Character.toUpperCase(aName.charAt(c1)));
+			if (ch1 != ch2)
+				return ch1 - ch2;
+		}
+
+		return nameLen - aName.length();
+	}
+
+	/**
+	 * Compares the record to the (search) key formed from aName and aCode. Records are ordered by file name (case
+	 * insensitive) and then by record code. No allocation is made.
+	 */
+	public int compareTo(CharSequence aName, int aCode)
+	{
+		int retVal = compareName(aName);
+		if (retVal != 0)
+			return retVal;
+
+		return Integer.compareUnsigned(getCode(), aCode);
+	}
+
+	/**
+	 * Decodes (and returns) the record. The returned record is a copy and thus is not affected by subsequent changes to
+	 * this view.
+	 * <p>
+	 * Note this method allocates. The payload should only be decoded when the content is actually needed.
+	 */
+	public dsstore.record.Record decode()
+	{
+		String name = getName();
+		String id = FourCC.toStr(getCode());
+		String type = FourCC.toStr(getType());
+
+		dsstore.record.Record retRecord;
+		if (getCode() == FourCC.pict && getType() == FourCC.DT_blob)
+			retRecord = new PictRecord(name, id, type);
+		else if (getCode() == FourCC.BKGD && getType() == FourCC.DT_blob)
+			retRecord = new BKGDRecord(name, id, type);
+		else if (getCode() == FourCC.Iloc)
+			retRecord = new IlocRecord(name, id, type);
+		else if (getType() == FourCC.DT_bool)
+			retRecord = new BoolRecord(name, id, type);
+		else if (getType() == FourCC.DT_blob)
+			retRecord = new BlobRecord(name, id, type);
+		else if (getType() == FourCC.DT_ustr)
+			retRecord = new UstrRecord(name, id, type);
+		else if (getType() == FourCC.DT_long)
+			retRecord = new LongRecord(name, id, type);
+		else
+			retRecord = new ShorRecord(name, id, type);
+
+		ByteBuffer tmpBuf = buf.duplicate();
+		tmpBuf.position(payloadPos).limit(endPos);
+		retRecord.readPayload(tmpBuf);
+		return retRecord;
+	}
+
+	/**
+	 * Returns the position of the first byte of the record.
+	 */
+	public int getBegPos()
+	{
+		return begPos;
+	}
+
+	/**
+	 * Returns the position just after the last byte of the record.
+	 */
+	public int getEndPos()
+	{
+		return endPos;
+	}
+
+	/**
+	 * Returns the buffer that backs the records.
+	 */
+	public ByteBuffer getBuffer()
+	{
+		return buf;
+	}
+
+	/**
+	 * Returns the record code (FourCC) of the record.
+	 */
+	public int getCode()
+	{
+		return buf.getInt(codePos);
+	}
+
+	/**
+	 * Returns the data type (FourCC) of the record.
+	 */
+	public int getType()
+	{
+		return buf.getInt(codePos + 4);
+	}
+
+	/**
+	 * Returns the file name of the record.
+	 * <p>
+	 * Note this method allocates. Prefer {@link #nameEquals(CharSequence)} or {@link #compareName(CharSequence)}.
+	 */
+	public String getName()
+	{
+		char[] charArr = new char[nameLen];
+		for (int c1 = 0; c1 < nameLen; c1++)
+			charArr[c1] = getNameChar(c1);
+
+		return new String(charArr);
+	}
+
+	/**
+	 * Returns the char at the specified index of the file name.
+	 */
+	public char getNameChar(int aIdx)
+	{
+		return buf.getChar(begPos + 4 + aIdx * 2);
+	}
+
+	/**
+	 * Returns the length (in chars) of the file name.
+	 */
+	public int getNameLength()
+	{
+		return nameLen;
+	}
+
+	/**
+	 * Returns the position of the first byte of the payload.
+	 */
+	public int getPayloadPos()
+	{
+		return payloadPos;
+	}
+
+	/**
+	 * Returns the size (in bytes) of the payload.
+	 */
+	public int getPayloadSize()
+	{
+		return endPos - payloadPos;
+	}
+
+	/**
+	 * Returns the (blob) payload as a zero-copy view of the backing buffer.
+	 * <p>
+	 * The record must be of type: blob
+	 */
+	public ByteBuffer getBlob()
+	{
+		checkType(FourCC.DT_blob);
+
+		int size = buf.getInt(payloadPos);
+		return buf.duplicate().position(payloadPos + 4).limit(payloadPos + 4 + size).slice();
+	}
+
+	/**
+	 * Returns the (bool) payload.
+	 * <p>
+	 * The record must be of type: bool
+	 */
+	public boolean getBool()
+	{
+		checkType(FourCC.DT_bool);
+		return buf.get(payloadPos) != 0;
+	}
+
+	/**
+	 * Returns the (long, shor, type) payload.
+	 * <p>
+	 * The record must be of type: long, shor, or type
+	 */
+	public int getInt()
+	{
+		int type = getType();
+		if (type != FourCC.DT_long && type != FourCC.DT_shor && type != FourCC.DT_type)
+			throw new RuntimeException("Record is not of an int type: " + FourCC.toStr(type));
+
+		return buf.getInt(payloadPos);
+	}
+
+	/**
+	 * Returns the (comp, dutc) payload.
+	 * <p>
+	 * The record must be of type: comp or dutc
+	 */
+	public long getLong()
+	{
+		int type = getType();
+		if (type != FourCC.DT_comp && type != FourCC.DT_dutc)
+			throw new RuntimeException("Record is not of a long type: " + FourCC.toStr(type));
+
+		return buf.getLong(payloadPos);
+	}
+
+	/**
+	 * Returns the (ustr) payload.
+	 * <p>
+	 * The record must be of type: ustr
+	 */
+	public String getUstr()
+	{
+		checkType(FourCC.DT_ustr);
+
+		int strLen = buf.getInt(payloadPos);
+		char[] charArr = new char[strLen];
+		for (int c1 = 0; c1 < strLen; c1++)
+			charArr[c1] = buf.getChar(payloadPos + 4 + c1 * 2);
+
+		return new String(charArr);
+	}
+
+	/**
+	 * Returns true if the record's file name equals (case sensitive) aName. No allocation is made.
+	 */
+	public boolean nameEquals(CharSequence aName)
+	{
+		if (nameLen != aName.length())
+			return false;
+
+		for (int c1 = 0; c1 < nameLen; c1++)
+		{
+			if (getNameChar(c1) != aName.charAt(c1))
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Name: <" + getName() + ">  recordId: " + FourCC.toStr(getCode()) + " dataType: "
+				+ FourCC.toStr(getType()) + " payloadSize: " + getPayloadSize();
+	}
+
+	/**
+	 * Helper method that ensures that the record is of the specified type.
+	 */
+	private void checkType(int aType)
+	{
+		if (getType() != aType)
+			throw new RuntimeException("Record type mismatch. Expected: " + FourCC.toStr(aType) + " Found: "
+					+ FourCC.toStr(getType()));
+	}
+
+	/**
+	 * Helper method that returns the size of the payload (at aPos) of the specified data type.
+	 */
+	private int computePayloadSize(int aType, int aPos)
+	{
+		if (aType == FourCC.DT_long || aType == FourCC.DT_shor || aType == FourCC.DT_type)
+			return 4;
+		if (aType == FourCC.DT_bool)
+			return 1;
+		if (aType == FourCC.DT_comp || aType == FourCC.DT_dutc)
+			return 8;
+		if (aType == FourCC.DT_blob)
+			return 4 + buf.getInt(aPos);
+		if (aType == FourCC.DT_ustr)
+			return 4 + buf.getInt(aPos) * 2;
+
+		throw new RuntimeException("Unrecognized data type: " + FourCC.toStr(aType) + " Pos: " + aPos);
+	}
+
+}
@@ -0,0 +1,231 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor that walks (in B-tree order) the records of a {@link MappedStore}.
+ * <p>
+ * The cursor is advanced via {@link #next()} and the current record is exposed via a (single) {@link RecordView}. The
+ * traversal is iterative (an explicit, preallocated stack) so walking the records does not allocate. The name, code,
+ * and type of each record are available directly from the view and the payload is decoded only on demand (see
+ * {@link RecordView#decode()}).
+ * <p>
+ * If the store was opened writable (see {@link MappedStore#open(java.io.File, boolean)}) then the current record may be
+ * replaced in place (see {@link #replace(ByteBuffer)}) as long as the size of the record is unchanged and the B-tree
+ * ordering is preserved. Any other edit requires the store to be rewritten (see {@link StoreWriter}).
+ *
+ * @author lopeznr1
+ */
+public class StoreCursor
+{
+	// Attributes
+	private final MappedStore refStore;
+	private final ByteBuffer buf;
+	private final RecordView view;
+	private final RecordView peekView;
+
+	// State vars
+	private final int[] stackArr;
+	private final int[] peekStackArr;
+	private int prevRecPos;
+	private boolean isStarted;
+
+	/**
+	 * Standard Constructor
+	 */
+	public StoreCursor(MappedStore aStore)
+	{
+		refStore = aStore;
+		buf = aStore.getBuffer();
+		view = new RecordView(buf);
+		peekView = new RecordView(buf);
+
+		// Stack layout: [depth, (pos, remain, rightBlockId) * numFrames]
+		stackArr = new int[1 + (MappedStore.MaxDepth + 2) * 3];
+		peekStackArr = new int[stackArr.length];
+		stackArr[0] = -1;
+		prevRecPos = -1;
+		isStarted = false;
+	}
+
+	/**
+	 * Returns true if the current record can be replaced (in place) by the specified (serialized) record.
+	 * <p>
+	 * The store must be writable, the size must be unchanged, and the B-tree ordering must be preserved.
+	 */
+	public boolean canReplace(ByteBuffer aRecordBuf)
+	{
+		if (buf.isReadOnly() == true || view.getBegPos() < 0)
+			return false;
+
+		int recSize = view.getEndPos() - view.getBegPos();
+		if (aRecordBuf.remaining() != recSize)
+			return false;
+
+		// The ordering only needs to be checked if the name or code has changed
+		int recPos = aRecordBuf.position();
+		if (RecordView.compare(buf, view.getBegPos(), aRecordBuf, recPos) == 0)
+			return true;
+
+		if (prevRecPos != -1 && RecordView.compare(buf, prevRecPos, aRecordBuf, recPos) >= 0)
+			return false;
+
+		System.arraycopy(stackArr, 0, peekStackArr, 0, stackArr.length);
+		int nextRecPos = advance(peekStackArr, peekView);
+		if (nextRecPos != -1 && RecordView.compare(aRecordBuf, recPos, buf, nextRecPos) >= 0)
+			return false;
+
+		return true;
+	}
+
+	/**
+	 * Returns the store associated with this cursor.
+	 */
+	public MappedStore getStore()
+	{
+		return refStore;
+	}
+
+	/**
+	 * Returns the view of the current record. The same view is returned for every record and thus must not be retained.
+	 */
+	public RecordView getView()
+	{
+		return view;
+	}
+
+	/**
+	 * Advances the cursor to the next record.
+	 * <p>
+	 * Returns false once all records have been visited.
+	 */
+	public boolean next()
+	{
+		if (isStarted == false)
+		{
+			isStarted = true;
+			push(stackArr, refStore.getRootBlockId());
+		}
+		else if (view.getBegPos() >= 0)
+		{
+			prevRecPos = view.getBegPos();
+		}
+
+		return advance(stackArr, view) != -1;
+	}
+
+	/**
+	 * Replaces (in place) the current record with the specified (serialized) record. The buffer's position is not
+	 * modified.
+	 * <p>
+	 * Throws an IllegalStateException if the record can not be replaced. See {@link #canReplace(ByteBuffer)}.
+	 */
+	public void replace(ByteBuffer aRecordBuf)
+	{
+		if (canReplace(aRecordBuf) == false)
+			throw new IllegalStateException("Record can not be replaced in place: " + view);
+
+		int begPos = view.getBegPos();
+		buf.put(begPos, aRecordBuf, aRecordBuf.position(), aRecordBuf.remaining());
+		view.moveTo(begPos);
+	}
+
+	/**
+	 * Helper method that advances the traversal (defined by aStackArr) to the next record.
+	 * <p>
+	 * Returns the position of the record (aView will be pointed to it) or -1 if there are no more records.
+	 */
+	private int advance(int[] aStackArr, RecordView aView)
+	{
+		while (aStackArr[0] >= 0)
+		{
+			int idx = 1 + aStackArr[0] * 3;
+			if (aStackArr[idx + 1] == 0)
+			{
+				// Pop the (finished) node
+				aStackArr[0]--;
+				continue;
+			}
+
+			int recPos = aStackArr[idx];
+			aStackArr[idx] = aView.moveTo(recPos);
+			aStackArr[idx + 1]--;
+
+			// Descend into the subtree that follows the record
+			int rightBlockId = aStackArr[idx + 2];
+			if (rightBlockId != 0)
+			{
+				if (aStackArr[idx + 1] > 0)
+				{
+					int childBlockId = buf.getInt(aStackArr[idx]);
+					aStackArr[idx] += 4;
+					push(aStackArr, childBlockId);
+				}
+				else
+				{
+					push(aStackArr, rightBlockId);
+				}
+			}
+
+			return recPos;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Helper method that pushes the specified node (and its left most descendants) onto aStackArr.
+	 */
+	private void push(int[] aStackArr, int aBlockId)
+	{
+		while (true)
+		{
+			int depth = aStackArr[0] + 1;
+			if (depth > MappedStore.MaxDepth)
+				throw new RuntimeException("The B-tree is too deep. The store is most likely corrupt.");
+
+			int tmpPos = refStore.getBlockOffset(aBlockId);
+			int rightBlockId = buf.getInt(tmpPos);
+			int count = buf.getInt(tmpPos + 4);
+			tmpPos += 8;
+
+			int idx = 1 + depth * 3;
+			aStackArr[0] = depth;
+			aStackArr[idx + 1] = count;
+			aStackArr[idx + 2] = rightBlockId;
+
+			// Bail if the node is a leaf
+			if (rightBlockId == 0)
+			{
+				aStackArr[idx] = tmpPos;
+				return;
+			}
+
+			// Internal node: Descend into the first child (or the right most child if there are no records)
+			if (count > 0)
+			{
+				aStackArr[idx] = tmpPos + 4;
+				aBlockId = buf.getInt(tmpPos);
+			}
+			else
+			{
+				aStackArr[idx] = tmpPos;
+				aBlockId = rightBlockId;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,248 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Collection of utility methods used to validate the structure of a .DS_Store file.
+ * <p>
+ * The following is checked:
+ * <ul>
+ * <li>The header and the allocator's block address table.
+ * <li>Each block is aligned to its size and no blocks overlap.
+ * <li>Each B-tree node is referenced once and its content fits in its block.
+ * <li>All leaves are at the same depth (as defined by the DSDB header).
+ * <li>The records are in (strictly) ascending order.
+ * <li>The record and node counts match the DSDB header.
+ * </ul>
+ * No content is modified.
+ *
+ * @author lopeznr1
+ */
+public class StoreValidator
+{
+	/** The maximum number of problems that will be reported for a single store. */
+	private static final int MaxProblems = 50;
+
+	/**
+	 * Returns the list of structural problems of the specified store file. An empty list is returned if no problems were
+	 * found.
+	 */
+	public static List<String> validate(File aFile)
+	{
+		MappedStore tmpStore;
+		try
+		{
+			tmpStore = MappedStore.open(aFile);
+		}
+		catch (IOException | RuntimeException aExp)
+		{
+			return List.of("Failed to open store: " + aExp);
+		}
+
+		return validate(tmpStore);
+	}
+
+	/**
+	 * Returns the list of structural problems of the specified store. An empty list is returned if no problems were
+	 * found.
+	 */
+	public static List<String> validate(MappedStore aStore)
+	{
+		List<String> retL = new ArrayList<>();
+		try
+		{
+			checkBlocks(aStore, retL);
+			if (retL.isEmpty() == true)
+				checkTree(aStore, retL);
+		}
+		catch (RuntimeException aExp)
+		{
+			retL.add("Failed to decode store: " + aExp);
+		}
+
+		return retL;
+	}
+
+	/**
+	 * Helper method that records the specified problem.
+	 * <p>
+	 * Returns false once the maximum number of problems has been recorded.
+	 */
+	private static boolean addProblem(List<String> aProblemL, String aMsg)
+	{
+		if (aProblemL.size() < MaxProblems)
+			aProblemL.add(aMsg);
+		return aProblemL.size() < MaxProblems;
+	}
+
+	/**
+	 * Helper method that checks the allocator's block address table.
+	 */
+	private static void checkBlocks(MappedStore aStore, List<String> aProblemL)
+	{
+		ByteBuffer tmpBuf = aStore.getBuffer();
+
+		int allocOffset = tmpBuf.getInt(4);
+		int numBlocks = aStore.getNumBlocks();
+		long tableEnd = allocOffset + 8L + ((numBlocks + 255L) / 256) * 256 * 4;
+		if (numBlocks <= 0 || tableEnd > tmpBuf.limit())
+		{
+			addProblem(aProblemL, "Block address table is out of bounds. Num blocks: " + numBlocks);
+			return;
+		}
+
+		// Sort the (non empty) blocks by offset to detect overlap
+		List<long[]> blockL = new ArrayList<>();
+		for (int c1 = 0; c1 < numBlocks; c1++)
+		{
+			long offset = aStore.getBlockOffset(c1) & 0xFFFFFFFFL;
+			long size = aStore.getBlockSize(c1) & 0xFFFFFFFFL;
+			if (offset == 0 && size == 1)
+				continue;
+
+			if (offset % size != 0)
+				addProblem(aProblemL, "Block " + c1 + " is not aligned to its size. Offset: " + offset + " Size: " + size);
+			if (offset < 32)
+				addProblem(aProblemL, "Block " + c1 + " overlaps the header. Offset: " + offset);
+			blockL.add(new long[] { offset, size, c1 });
+		}
+
+		blockL.sort(Comparator.comparingLong(aItem -> aItem[0]));
+		for (int c1 = 1; c1 < blockL.size(); c1++)
+		{
+			long[] prevArr = blockL.get(c1 - 1);
+			long[] currArr = blockL.get(c1);
+			if (prevArr[0] + prevArr[1] > currArr[0])
+				addProblem(aProblemL, "Block " + prevArr[2] + " overlaps block " + currArr[2] + ".");
+		}
+
+		int dsdbPos = aStore.getBlockOffset(aStore.getDsdbBlockId());
+		if (dsdbPos + 20 > tmpBuf.limit())
+			addProblem(aProblemL, "DSDB header is out of bounds. Offset: " + dsdbPos);
+		if (aStore.getRootBlockId() <= 0 || aStore.getRootBlockId() >= numBlocks)
+			addProblem(aProblemL, "Invalid root block id: " + aStore.getRootBlockId());
+	}
+
+	/**
+	 * Helper method that checks the B-tree.
+	 */
+	private static void checkTree(MappedStore aStore, List<String> aProblemL)
+	{
+		TreeState tmpState = new TreeState(aStore);
+		checkNode(tmpState, aStore.getRootBlockId(), 0, aProblemL);
+
+		if (tmpState.numRecords != aStore.getNumRecords())
+			addProblem(aProblemL,
+					"Record count mismatch. Header: " + aStore.getNumRecords() + " Found: " + tmpState.numRecords);
+		if (tmpState.visitedS.size() != aStore.getNumNodes())
+			addProblem(aProblemL,
+					"Node count mismatch. Header: " + aStore.getNumNodes() + " Found: " + tmpState.visitedS.size());
+	}
+
+	/**
+	 * Helper method that checks the B-tree node at the specified block (and all of its children).
+	 * <p>
+	 * Returns false if the check should be aborted.
+	 */
+	private static boolean checkNode(TreeState aState, int aBlockId, int aDepth, List<String> aProblemL)
+	{
+		MappedStore tmpStore = aState.refStore;
+		ByteBuffer tmpBuf = tmpStore.getBuffer();
+
+		if (aBlockId <= 0 || aBlockId >= tmpStore.getNumBlocks())
+			return addProblem(aProblemL, "Invalid node block id: " + aBlockId);
+		if (aState.visitedS.add(aBlockId) == false)
+		{
+			addProblem(aProblemL, "Node block " + aBlockId + " is referenced more than once.");
+			return false;
+		}
+		if (aDepth > tmpStore.getNumLevels())
+		{
+			addProblem(aProblemL, "Node block " + aBlockId + " is deeper than the number of levels.");
+			return false;
+		}
+
+		int begPos = tmpStore.getBlockOffset(aBlockId);
+		long endPos = Math.min(begPos + (long) tmpStore.getBlockSize(aBlockId), tmpBuf.limit());
+		if (begPos + 8 > endPos)
+			return addProblem(aProblemL, "Node block " + aBlockId + " is out of bounds.");
+
+		int rightBlockId = tmpBuf.getInt(begPos);
+		int count = tmpBuf.getInt(begPos + 4);
+		boolean isLeaf = rightBlockId == 0;
+		if (isLeaf == true && aDepth != tmpStore.getNumLevels())
+			addProblem(aProblemL, "Leaf block " + aBlockId + " is at depth " + aDepth + ". Expected: "
+					+ tmpStore.getNumLevels());
+
+		int tmpPos = begPos + 8;
+		for (int c1 = 0; c1 < count; c1++)
+		{
+			if (isLeaf == false)
+			{
+				if (tmpPos + 4 > endPos)
+					return addProblem(aProblemL, "Node block " + aBlockId + " content exceeds its block.");
+				if (checkNode(aState, tmpBuf.getInt(tmpPos), aDepth + 1, aProblemL) == false)
+					return false;
+				tmpPos += 4;
+			}
+
+			if (tmpPos + 4 > endPos)
+				return addProblem(aProblemL, "Node block " + aBlockId + " content exceeds its block.");
+			int recPos = tmpPos;
+			tmpPos = aState.view.moveTo(recPos);
+			if (tmpPos > endPos)
+				return addProblem(aProblemL, "Node block " + aBlockId + " content exceeds its block.");
+
+			if (aState.prevRecPos != -1 && RecordView.compare(tmpBuf, aState.prevRecPos, tmpBuf, recPos) >= 0)
+			{
+				if (addProblem(aProblemL, "Record is out of order (or duplicated): " + aState.view) == false)
+					return false;
+			}
+			aState.prevRecPos = recPos;
+			aState.numRecords++;
+		}
+
+		if (isLeaf == false)
+			return checkNode(aState, rightBlockId, aDepth + 1, aProblemL);
+
+		return true;
+	}
+
+	/**
+	 * Class that holds the state of the B-tree check.
+	 */
+	private static class TreeState
+	{
+		private final MappedStore refStore;
+		private final RecordView view;
+		private final Set<Integer> visitedS;
+		private int prevRecPos;
+		private int numRecords;
+
+		private TreeState(MappedStore aStore)
+		{
+			refStore = aStore;
+			view = new RecordView(aStore.getBuffer());
+			visitedS = new HashSet<>();
+			prevRecPos = -1;
+			numRecords = 0;
+		}
+	}
+
+}
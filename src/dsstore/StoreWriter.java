@@ -0,0 +1,473 @@
+// Copyright (C) 2024 The Johns Hopkins University Applied Physics Laboratory LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package dsstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+import dsstore.record.Record;
+
+/**
+ * Collection of utility methods used to write .DS_Store files.
+ * <p>
+ * The records are (bulk) loaded into a new B-tree. The tree is built bottom up from the sorted records and is thus
+ * always balanced: every leaf is at the same depth and every node (other than the last of each level) is filled to the
+ * page size. The file is written with the following layout:
+ * <ul>
+ * <li>The header (32 bytes).
+ * <li>Block 0: The allocator's bookkeeping block (block address table, directory, and buddy free lists).
+ * <li>Block 1: The DSDB header.
+ * <li>Block 2+: The B-tree nodes.
+ * </ul>
+ * The store is written to a temporary file which is then renamed over the target. Thus a store may be rewritten while a
+ * (memory-mapped) view of the original is still in use.
+ * <p>
+ * Records are passed as buffers of serialized records (see {@link RecordView} for the layout). The content of each
+ * buffer is the range [position, limit).
+ *
+ * @author lopeznr1
+ */
+public class StoreWriter
+{
+	/** The page size of the B-tree nodes. */
+	public static final int PageSize = 4096;
+
+	/** The log2 of the total address space managed by the buddy allocator. */
+	private static final int AddrSpaceLog2 = 31;
+
+	/** Comparator that orders serialized records as the Finder does (by file name then by record code). */
+	public static final Comparator<ByteBuffer> RecordComparator = (aBuf1, aBuf2) -> RecordView.compare(aBuf1,
+			aBuf1.position(), aBuf2, aBuf2.position());
+
+	/**
+	 * Utility method that rewrites the store aSrcStore to aFile.
+	 * <p>
+	 * Each record of the source store is passed to aEditFunc which should return one of the following:
+	 * <ul>
+	 * <li>null: The record is retained unchanged. The record is copied directly from the source (no decoding).
+	 * <li>An empty buffer: The record is removed.
+	 * <li>A buffer: The serialized replacement of the record.
+	 * </ul>
+	 * The records are re-sorted (only if there were edits) and a new balanced B-tree is written.
+	 */
+	public static void rewrite(MappedStore aSrcStore, File aFile, Function<RecordView, ByteBuffer> aEditFunc)
+			throws IOException
+	{
+		ByteBuffer srcBuf = aSrcStore.getBuffer();
+
+		List<ByteBuffer> recordL = new ArrayList<>(aSrcStore.getNumRecords());
+		boolean[] isEditedArr = { false };
+		aSrcStore.forEachRecord(aView -> {
+			ByteBuffer tmpBuf = aEditFunc.apply(aView);
+			if (tmpBuf == null)
+			{
+				recordL.add(srcBuf.duplicate().limit(aView.getEndPos()).position(aView.getBegPos()));
+				return;
+			}
+
+			isEditedArr[0] = true;
+			if (tmpBuf.hasRemaining() == true)
+				recordL.add(tmpBuf);
+		});
+
+		if (isEditedArr[0] == true)
+			recordL.sort(RecordComparator);
+
+		write(aFile, recordL);
+	}
+
+	/**
+	 * Returns a buffer with the serialized form of the specified record.
+	 */
+	public static ByteBuffer toBuffer(Record aRecord)
+	{
+		int nameLen = aRecord.getName().length();
+		ByteBuffer retBuf = ByteBuffer.allocate(4 + nameLen * 2 + 8 + aRecord.getSize());
+
+		// Note Record.writeHeader() writes a 2 byte name length
+		retBuf.putShort((short) 0);
+		aRecord.writeHeader(retBuf);
+		aRecord.writePayload(retBuf);
+		if (retBuf.hasRemaining() == true)
+			throw new RuntimeException("Record size mismatch. Name: " + aRecord.getName() + " Unused bytes: "
+					+ retBuf.remaining());
+
+		return retBuf.flip();
+	}
+
+	/**
+	 * Utility method that writes a store consisting of the specified records to aFile. The records must be sorted (see
+	 * {@link #RecordComparator}).
+	 */
+	public static void write(File aFile, List<ByteBuffer> aRecordL) throws IOException
+	{
+		// Build the B-tree. Note block ids 0 and 1 are reserved (allocator, DSDB header).
+		List<Node> nodeL = new ArrayList<>();
+		int numLevels = buildTree(aRecordL, nodeL);
+		Node rootNode = nodeL.get(nodeL.size() - 1);
+
+		// Lay out the blocks: header (32 bytes), DSDB header, nodes (page aligned), allocator
+		int numBlocks = 2 + nodeL.size();
+		int[] addrArr = new int[numBlocks];
+		addrArr[1] = formAddr(32, 32);
+		for (Node aNode : nodeL)
+			addrArr[aNode.blockId] = formAddr(aNode.blockId * PageSize - PageSize, PageSize);
+
+		// Size the allocator block (it must be a power of 2 and aligned to its size)
+		int allocOffset;
+		int allocSize = 2048;
+		ByteBuffer allocBuf;
+		while (true)
+		{
+			allocOffset = alignUp((numBlocks - 1) * PageSize, allocSize);
+			addrArr[0] = formAddr(allocOffset, allocSize);
+			allocBuf = formAllocatorBlock(addrArr, allocSize);
+			if (allocBuf != null)
+				break;
+			allocSize *= 2;
+		}
+
+		// Write to a temporary file which is then renamed over the target
+		File tmpFile = new File(aFile.getAbsoluteFile().getParentFile(), aFile.getName() + ".tmp");
+		try (FileChannel tmpFC = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			// Header
+			ByteBuffer tmpBuf = ByteBuffer.allocate(4 + 32 + 32);
+			tmpBuf.putInt(MappedStore.FileMagicKey);
+			tmpBuf.putInt(FourCC.Bud1);
+			tmpBuf.putInt(allocOffset);
+			tmpBuf.putInt(allocSize);
+			tmpBuf.putInt(allocOffset);
+			tmpBuf.putInt(addrArr[rootNode.blockId]);
+			tmpBuf.put(new byte[12]);
+
+			// DSDB header
+			tmpBuf.putInt(rootNode.blockId);
+			tmpBuf.putInt(numLevels);
+			tmpBuf.putInt(aRecordL.size());
+			tmpBuf.putInt(nodeL.size());
+			tmpBuf.putInt(PageSize);
+			writeFully(tmpFC, tmpBuf.flip(), 0);
+
+			// Nodes
+			ByteBuffer pageBuf = ByteBuffer.allocate(PageSize);
+			for (Node aNode : nodeL)
+			{
+				pageBuf.clear();
+				aNode.writeTo(pageBuf);
+				pageBuf.put(new byte[pageBuf.remaining()]);
+				writeFully(tmpFC, pageBuf.flip(), 4 + getOffset(addrArr[aNode.blockId]));
+			}
+
+			// Allocator
+			writeFully(tmpFC, allocBuf, 4 + allocOffset);
+		}
+
+		Files.move(tmpFile.toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Helper method that returns aVal rounded up to a multiple of aAlign (which must be a power of 2).
+	 */
+	private static int alignUp(int aVal, int aAlign)
+	{
+		return (aVal + aAlign - 1) & -aAlign;
+	}
+
+	/**
+	 * Helper method that builds (bottom up) a balanced B-tree from the sorted records. The nodes are added to aNodeL
+	 * with the root node added last.
+	 * <p>
+	 * Returns the number of internal levels.
+	 */
+	private static int buildTree(List<ByteBuffer> aRecordL, List<Node> aNodeL)
+	{
+		// Leaf level: Fill each leaf to the page size. The record that does not fit is promoted as a separator.
+		List<Node> levelL = new ArrayList<>();
+		List<ByteBuffer> sepL = new ArrayList<>();
+		Node currNode = new Node(aNodeL, null);
+		levelL.add(currNode);
+		for (ByteBuffer aRecord : aRecordL)
+		{
+			// Start a new leaf (following a promoted separator)
+			if (currNode == null)
+			{
+				currNode = new Node(aNodeL, null);
+				levelL.add(currNode);
+			}
+
+			if (currNode.canFit(aRecord, false) == true)
+			{
+				currNode.recordL.add(aRecord);
+				continue;
+			}
+
+			if (currNode.recordL.isEmpty() == true)
+				throw new RuntimeException("Record is too large for a node. Size: " + aRecord.remaining());
+
+			sepL.add(aRecord);
+			currNode = null;
+		}
+		balanceLastNode(levelL, sepL);
+
+		// Internal levels: Group the children (and separators) into nodes until there is a single (root) node
+		int numLevels = 0;
+		while (levelL.size() > 1)
+		{
+			List<Node> nextLevelL = new ArrayList<>();
+			List<ByteBuffer> nextSepL = new ArrayList<>();
+			currNode = new Node(aNodeL, levelL.get(0));
+			nextLevelL.add(currNode);
+			for (int c1 = 0; c1 < sepL.size(); c1++)
+			{
+				ByteBuffer sepRecord = sepL.get(c1);
+				Node nextChild = levelL.get(c1 + 1);
+				if (currNode.canFit(sepRecord, true) == true)
+				{
+					currNode.addEntry(sepRecord, nextChild);
+					continue;
+				}
+
+				nextSepL.add(sepRecord);
+				currNode = new Node(aNodeL, nextChild);
+				nextLevelL.add(currNode);
+			}
+			balanceLastNode(nextLevelL, nextSepL);
+
+			levelL = nextLevelL;
+			sepL = nextSepL;
+			numLevels++;
+		}
+
+		// Assign the block ids in creation order
+		for (int c1 = 0; c1 < aNodeL.size(); c1++)
+			aNodeL.get(c1).blockId = 2 + c1;
+
+		return numLevels;
+	}
+
+	/**
+	 * Helper method that ensures the last node of a level is not empty.
+	 * <p>
+	 * An (empty) node can occur when the final record of the level was promoted as a separator or when the last internal
+	 * node received just a single child. The last entry of the prior node is rotated into the last node.
+	 */
+	private static void balanceLastNode(List<Node> aLevelL, List<ByteBuffer> aSepL)
+	{
+		// Leaf level: The final record was promoted but no leaf follows it
+		if (aSepL.size() == aLevelL.size())
+		{
+			Node prevNode = aLevelL.get(aLevelL.size() - 1);
+			Node lastNode = new Node(prevNode.refNodeL, null);
+			aLevelL.add(lastNode);
+			if (prevNode.recordL.size() < 2)
+				return;
+
+			// Rotate the last record of the prior leaf through the separator into the last leaf
+			ByteBuffer tmpRecord = aSepL.remove(aSepL.size() - 1);
+			aSepL.add(prevNode.recordL.remove(prevNode.recordL.size() - 1));
+			lastNode.recordL.add(tmpRecord);
+			return;
+		}
+
+		// Bail if the last node has content (or is the only node)
+		Node lastNode = aLevelL.get(aLevelL.size() - 1);
+		if (aLevelL.size() == 1 || lastNode.recordL.isEmpty() == false)
+			return;
+
+		// Rotate the last entry of the prior node through the separator into the last node
+		Node prevNode = aLevelL.get(aLevelL.size() - 2);
+		if (prevNode.recordL.size() < 2)
+			return;
+
+		ByteBuffer sepRecord = aSepL.remove(aSepL.size() - 1);
+		Node movedChild = prevNode.childL.remove(prevNode.childL.size() - 1);
+		ByteBuffer movedRecord = prevNode.recordL.remove(prevNode.recordL.size() - 1);
+		aSepL.add(movedRecord);
+
+		Node tmpChild = lastNode.childL.get(0);
+		lastNode.childL.clear();
+		lastNode.childL.add(movedChild);
+		lastNode.addEntry(sepRecord, tmpChild);
+	}
+
+	/**
+	 * Helper method that forms the allocator's bookkeeping block.
+	 * <p>
+	 * Returns null if the content does not fit in the specified size.
+	 */
+	private static ByteBuffer formAllocatorBlock(int[] aAddrArr, int aAllocSize)
+	{
+		// Compute the buddy free lists
+		List<List<Integer>> freeLL = new ArrayList<>();
+		for (int c1 = 0; c1 < 32; c1++)
+			freeLL.add(new ArrayList<>());
+
+		int[] usedAddrArr = Arrays.copyOf(aAddrArr, aAddrArr.length + 1);
+		usedAddrArr[aAddrArr.length] = formAddr(0, 32);
+		computeFreeLists(usedAddrArr, 0, AddrSpaceLog2, freeLL);
+
+		int numFree = 0;
+		for (List<Integer> aFreeL : freeLL)
+			numFree += aFreeL.size();
+
+		int padCnt = ((aAddrArr.length + 255) / 256) * 256;
+		int reqSize = 8 + padCnt * 4 + 4 + (1 + 4 + 4) + 32 * 4 + numFree * 4;
+		if (reqSize > aAllocSize)
+			return null;
+
+		ByteBuffer retBuf = ByteBuffer.allocate(aAllocSize);
+		retBuf.putInt(aAddrArr.length);
+		retBuf.putInt(0);
+		for (int aAddr : aAddrArr)
+			retBuf.putInt(aAddr);
+		retBuf.position(8 + padCnt * 4);
+
+		// Directory
+		retBuf.putInt(1);
+		retBuf.put((byte) 4);
+		retBuf.putInt(FourCC.DSDB);
+		retBuf.putInt(1);
+
+		// Free lists
+		for (List<Integer> aFreeL : freeLL)
+		{
+			retBuf.putInt(aFreeL.size());
+			for (int aOffset : aFreeL)
+				retBuf.putInt(aOffset);
+		}
+
+		return retBuf.clear();
+	}
+
+	/**
+	 * Helper method that computes (via buddy decomposition) the free lists of the region [aOffset, aOffset + 2^aLog2).
+	 */
+	private static void computeFreeLists(int[] aUsedAddrArr, int aOffset, int aLog2, List<List<Integer>> aFreeLL)
+	{
+		long begPos = aOffset & 0xFFFFFFFFL;
+		long endPos = begPos + (1L << aLog2);
+
+		boolean isUsed = false;
+		for (int aAddr : aUsedAddrArr)
+		{
+			long addrPos = getOffset(aAddr) & 0xFFFFFFFFL;
+			int addrLog2 = aAddr & 0x1F;
+
+			// Bail if the region is exactly an allocated block
+			if (addrPos == begPos && addrLog2 == aLog2)
+				return;
+
+			if (addrPos < endPos && addrPos + (1L << addrLog2) > begPos)
+				isUsed = true;
+		}
+
+		if (isUsed == false)
+		{
+			aFreeLL.get(aLog2).add(aOffset);
+			return;
+		}
+
+		computeFreeLists(aUsedAddrArr, aOffset, aLog2 - 1, aFreeLL);
+		computeFreeLists(aUsedAddrArr, aOffset + (1 << (aLog2 - 1)), aLog2 - 1, aFreeLL);
+	}
+
+	/**
+	 * Helper method that forms the (packed) block address of the block at aOffset of size aSize.
+	 */
+	private static int formAddr(int aOffset, int aSize)
+	{
+		return aOffset | Integer.numberOfTrailingZeros(aSize);
+	}
+
+	/**
+	 * Helper method that returns the offset of the (packed) block address.
+	 */
+	private static int getOffset(int aAddr)
+	{
+		return aAddr & ~0x1F;
+	}
+
+	/**
+	 * Helper method that writes the full content of aBuf to the specified position of the channel.
+	 */
+	private static void writeFully(FileChannel aFC, ByteBuffer aBuf, long aPos) throws IOException
+	{
+		while (aBuf.hasRemaining() == true)
+			aPos += aFC.write(aBuf, aPos);
+	}
+
+	/**
+	 * Class that describes a single node of the B-tree being built.
+	 * <p>
+	 * An internal node has one more child than it has records. The last child is written as the node's P value.
+	 */
+	private static class Node
+	{
+		private final List<Node> refNodeL;
+		private final List<ByteBuffer> recordL;
+		private final List<Node> childL;
+		private int blockId;
+
+		private Node(List<Node> aNodeL, Node aFirstChild)
+		{
+			refNodeL = aNodeL;
+			recordL = new ArrayList<>();
+			childL = new ArrayList<>();
+			if (aFirstChild != null)
+				childL.add(aFirstChild);
+			blockId = -1;
+
+			refNodeL.add(this);
+		}
+
+		private void addEntry(ByteBuffer aRecord, Node aChild)
+		{
+			recordL.add(aRecord);
+			childL.add(aChild);
+		}
+
+		private boolean canFit(ByteBuffer aRecord, boolean aIsInternal)
+		{
+			int tmpSize = 8;
+			for (ByteBuffer aItem : recordL)
+				tmpSize += aItem.remaining();
+			tmpSize += aRecord.remaining();
+			if (aIsInternal == true)
+				tmpSize += (recordL.size() + 2) * 4;
+
+			return tmpSize <= PageSize;
+		}
+
+		private void writeTo(ByteBuffer aBuf)
+		{
+			boolean isInternal = childL.isEmpty() == false;
+			aBuf.putInt(isInternal == true ? childL.get(childL.size() - 1).blockId : 0);
+			aBuf.putInt(recordL.size());
+			for (int c1 = 0; c1 < recordL.size(); c1++)
+			{
+				if (isInternal == true)
+					aBuf.putInt(childL.get(c1).blockId);
+				aBuf.put(recordL.get(c1).duplicate());
+			}
+		}
+	}
+
+}
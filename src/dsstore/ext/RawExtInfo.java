@@ -27,6 +27,14 @@ public class RawExtInfo extends ExtInfo
 		data = new byte[size];
 		readPos = 0;
 	}
+
+	public RawExtInfo(int aType, byte[] aData)
+	{
+		super(aType, aData.length);
+
+		data = aData;
+		readPos = 0;
+	}
 	
 	@Override
 	public void readPayload(ByteBuffer aBuf)
@@ -29,6 +29,16 @@ public class BKGDRecord extends BlobRecord
 		refAliasRecord = null;
 	}
 
+	@Override
+	public int getSize()
+	{
+		// The BKGD.PctB record is always 12 bytes
+		if (refAliasRecord != null)
+			return 4 + 12;
+
+		return super.getSize();
+	}
+
 	@Override
 	public void writePayload(ByteBuffer aBuf)
 	{
@@ -24,6 +24,13 @@ public class BlobRecord extends Record
 		super(aName, aId, aType);
 	}
 
+	public BlobRecord(String aName, String aId, byte[] aData)
+	{
+		super(aName, aId, "blob");
+
+		data = aData;
+	}
+
 	@Override
 	public int getSize()
 	{
@@ -24,6 +24,13 @@ public class BoolRecord extends Record
 		super(aName, aId, aType);
 	}
 
+	public BoolRecord(String aName, String aId, boolean aValue)
+	{
+		super(aName, aId, "bool");
+
+		payload = (byte) (aValue == true ? 1 : 0);
+	}
+
 	@Override
 	public int getSize()
 	{
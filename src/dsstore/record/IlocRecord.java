@@ -26,6 +26,14 @@ public class IlocRecord extends Record
 		super(aName, aId, aType);
 	}
 
+	public IlocRecord(String aName, int aPosX, int aPosY)
+	{
+		super(aName, "Iloc", "blob");
+
+		posX = aPosX;
+		posY = aPosY;
+	}
+
 	@Override
 	public int getSize()
 	{
@@ -24,6 +24,13 @@ public class LongRecord extends Record
 		super(aName, aId, aType);
 	}
 
+	public LongRecord(String aName, String aId, int aValue)
+	{
+		super(aName, aId, "long");
+
+		payload = aValue;
+	}
+
 	@Override
 	public int getSize()
 	{
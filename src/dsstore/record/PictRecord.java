@@ -28,6 +28,13 @@ public class PictRecord extends Record
 
 		aliasRecord = new AliasRecord();
 	}
+
+	public PictRecord(String aName, AliasRecord aAliasRecord)
+	{
+		super(aName, "pict", "blob");
+
+		aliasRecord = aAliasRecord;
+	}
 	
 	public AliasRecord getAliasRecord()
 	{
@@ -24,6 +24,13 @@ public class ShorRecord extends Record
 		super(aName, aId, aType);
 	}
 
+	public ShorRecord(String aName, String aId, int aValue)
+	{
+		super(aName, aId, "shor");
+
+		payload = 0x0000FFFF & aValue;
+	}
+
 	@Override
 	public int getSize()
 	{
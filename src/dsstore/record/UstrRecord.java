@@ -31,18 +31,21 @@ public class UstrRecord extends Record
 	@Override
 	public int getSize()
 	{
-		return 2 + (payload.length() * 2);
+		return 4 + (payload.length() * 2);
 	}
 
 	@Override
 	public void readPayload(ByteBuffer aBuf)
 	{
+		// Note the character count is stored as 4 bytes (unlike the 2 byte count of BufUtils.readStringUtf16())
+		BufUtils.seek(aBuf, 2);
 		payload = BufUtils.readStringUtf16(aBuf);
 	}
 
 	@Override
 	public void writePayload(ByteBuffer aBuf)
 	{
+		aBuf.putShort((short) 0);
 		BufUtils.writeStringUtf16(aBuf, payload);
 	}
 